@@ -0,0 +1,44 @@
+package com.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Turns logging off, so the benchmarks measure the data path rather than console output relayed by the harness.
+     */
+    static void silenceLogging() {
+        Logger.setLevel(Logger.Level.OFF);
+    }
+
+    static File createDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    static void deleteRecursively(File file) {
+        if (file.isDirectory()) {
+            for (File child : Objects.requireNonNull(file.listFiles())) deleteRecursively(child);
+        }
+        file.delete();
+    }
+
+    /**
+     * Returns a user whose encoded form is roughly {@code recordSize} bytes; the padding goes into {@code company}.
+     */
+    static User user(String name, int recordSize) {
+        int padding = Math.max(0, recordSize - 160);
+        char[] company = new char[padding];
+        Arrays.fill(company, 'x');
+        return new User(name, String.valueOf(18 + Math.abs(name.hashCode() % 60)), "5550001234",
+                "Company-" + new String(company), new Address("Springfield", "Illinois", "USA", "62701"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.driver;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A database in a fresh temporary directory, pre-filled with {@code collectionSize} users of about
+ * {@code recordSize} bytes, shared by every benchmark thread. Change events go to a no-op sink.
+ * Subclasses adjust the configuration through {@link #configure}.
+ */
+@State(Scope.Benchmark)
+public abstract class DatabaseBenchmarkState {
+    static final String COLLECTION = "users";
+    private static final int FILL_BATCH = 1_000;
+
+    @Param({"1000", "10000"})
+    public int collectionSize;
+
+    @Param({"256", "4096"})
+    public int recordSize;
+
+    @Param({"FILE_PER_RECORD", "SEGMENT"})
+    public StorageEngine.Type storage;
+
+    @Param({"PRETTY_JSON", "SMILE"})
+    public RecordCodec.Format codec;
+
+    protected JSONDatabase db;
+    private File directory;
+
+    protected DatabaseConfig configure(DatabaseConfig config) {
+        return config;
+    }
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws Exception {
+        BenchmarkSupport.silenceLogging();
+        directory = BenchmarkSupport.createDirectory("jsondb-bench");
+        db = new JSONDatabase(directory.getPath(), configure(new DatabaseConfig()
+                .storageType(storage)
+                .defaultCodec(codec)
+                .eventSink(new NoOpEventSink())));
+        Map<String, User> batch = new LinkedHashMap<>();
+        for (int i = 0; i < collectionSize; i++) {
+            batch.put(key(i), BenchmarkSupport.user(key(i), recordSize));
+            if (batch.size() == FILL_BATCH || i == collectionSize - 1) {
+                db.insertAll(COLLECTION, batch).get();
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() {
+        db.shutdown();
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    static String key(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * Returns the key of a random pre-filled user.
+     */
+    String randomKey() {
+        return key(ThreadLocalRandom.current().nextInt(collectionSize));
+    }
+}
@@ -0,0 +1,85 @@
+package com.driver;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Record serialization in isolation: encoding, decoding and projection with {@link RecordCodec},
+ * and the atomic file write and read done by {@link FileHandler} for every stored record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileHandlerBenchmark {
+    @Param({"256", "4096"})
+    public int recordSize;
+
+    @Param({"PRETTY_JSON", "JSON", "SMILE", "CBOR"})
+    public RecordCodec.Format format;
+
+    private final RecordCodec codec = new RecordCodec();
+    private final Projection projection = Projection.of("age", "address.city");
+    private User user;
+    private byte[] encoded;
+    private File directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        user = BenchmarkSupport.user("bench", recordSize);
+        encoded = codec.encode(user, format);
+        directory = BenchmarkSupport.createDirectory("jsondb-file-bench");
+        file = new File(directory, "bench.json");
+        FileHandler.writeAtomically(file, encoded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return codec.encode(user, format);
+    }
+
+    @Benchmark
+    public User decode() throws Exception {
+        return codec.decode(encoded, User.class);
+    }
+
+    /**
+     * Reads two fields the way aggregations do, for comparison with {@link #decode}.
+     */
+    @Benchmark
+    public Map<String, Object> project() throws Exception {
+        return codec.project(encoded, projection);
+    }
+
+    @Benchmark
+    public void writeAtomically() throws Exception {
+        FileHandler.writeAtomically(file, codec.encode(user, format));
+    }
+
+    @Benchmark
+    public User readFromFile() throws Exception {
+        return FileHandler.readFromFile(file, User.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.driver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read paths of {@link JSONDatabase}.
+ * - {@code cached=false} installs a cache that never stores anything, so every {@link #read} goes to storage.
+ * - Run with {@code -t <threads>} to measure contention; all threads share one database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark extends DatabaseBenchmarkState {
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Override
+    protected DatabaseConfig configure(DatabaseConfig config) {
+        return cached ? config.cacheMaximumSize(Math.max(collectionSize, 1)) : config.recordCache(new NoCache());
+    }
+
+    @Benchmark
+    public User read() throws Exception {
+        return db.readWithCache(COLLECTION, randomKey()).get();
+    }
+
+    @Benchmark
+    public List<String> readAll() throws Exception {
+        return db.readAll(COLLECTION).get();
+    }
+
+    /**
+     * A cache that misses on every lookup.
+     */
+    static final class NoCache implements RecordCache<Object> {
+        @Override
+        public Object get(String collection, String resource) {
+            return null;
+        }
+
+        @Override
+        public void put(String collection, String resource, Object value) {
+        }
+
+        @Override
+        public void invalidate(String collection, String resource) {
+        }
+
+        @Override
+        public void invalidateCollection(String collection) {
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public CacheStats stats() {
+            return new CacheStats(0, 0, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.driver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write paths of {@link JSONDatabase}: single updates, deletes and transaction commits.
+ * - Each benchmark thread deletes and commits its own keys, so transactions never conflict.
+ * - Run with {@code -t <threads>} to measure group commit and lock contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark extends DatabaseBenchmarkState {
+    @Param({"10"})
+    public int transactionSize;
+
+    private User record;
+
+    @Setup
+    public void createRecord() {
+        record = BenchmarkSupport.user("bench", recordSize);
+    }
+
+    /**
+     * Keys owned by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        final String prefix = "t" + THREADS.getAndIncrement() + "-";
+    }
+
+    /**
+     * The record the next {@link #delete} call removes, inserted outside the measurement.
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        private int next;
+        String resource;
+
+        @Setup(Level.Invocation)
+        public void insert(WriteBenchmark state, ThreadKeys keys) throws Exception {
+            resource = keys.prefix + "victim" + next++;
+            state.db.insertOrUpdate(COLLECTION, resource, state.record).get();
+        }
+    }
+
+    @Benchmark
+    public void insertOrUpdate() throws Exception {
+        db.insertOrUpdate(COLLECTION, randomKey(), record).get();
+    }
+
+    @Benchmark
+    public void delete(DeleteTarget target) throws Exception {
+        db.delete(COLLECTION, target.resource).get();
+    }
+
+    @Benchmark
+    public void transactionCommit(ThreadKeys keys) throws Exception {
+        try (Transaction transaction = db.begin()) {
+            for (int i = 0; i < transactionSize; i++) {
+                transaction.insertOrUpdate(COLLECTION, keys.prefix + i, record);
+            }
+            transaction.commit().get();
+        }
+    }
+}
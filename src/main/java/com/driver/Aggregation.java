@@ -0,0 +1,232 @@
+package com.driver;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
+
+/**
+ * Describes an aggregate query over a collection, run by {@link JSONDatabase#aggregate}.
+ * - Every query counts the matching records. For each {@link #stats} field it also computes the number of
+ *   numeric values, their sum, average, minimum and maximum; missing or non-numeric values are skipped.
+ * - {@link #groupBy} splits the results by the value of a field path; records without it form the null group.
+ * - All filters must match. Equality filters on indexed fields are answered from the index.
+ */
+public class Aggregation {
+    private final Map<FieldPath, String> equalities = new LinkedHashMap<>();
+    private final List<Map.Entry<FieldPath, Predicate<Object>>> conditions = new ArrayList<>();
+    private Set<String> resources;
+    private FieldPath groupBy;
+    private final List<FieldPath> statsFields = new ArrayList<>();
+    // Stats field path -> index into each bucket's counters.
+    private final Map<String, Integer> statsIndex = new HashMap<>();
+
+    /**
+     * Keeps records whose field equals the value.
+     */
+    public Aggregation where(String fieldPath, String value) {
+        equalities.put(FieldPath.of(fieldPath), value);
+        return this;
+    }
+
+    /**
+     * Keeps records whose field is present and satisfies the condition.
+     */
+    public Aggregation where(String fieldPath, Predicate<String> condition) {
+        conditions.add(new AbstractMap.SimpleImmutableEntry<FieldPath, Predicate<Object>>(
+                FieldPath.of(fieldPath), value -> value != null && condition.test(value.toString())));
+        return this;
+    }
+
+    /**
+     * Keeps records whose field is numeric and satisfies the condition, e.g. {@code whereNumber("age", a -> a >= 18)}.
+     */
+    public Aggregation whereNumber(String fieldPath, DoublePredicate condition) {
+        conditions.add(new AbstractMap.SimpleImmutableEntry<FieldPath, Predicate<Object>>(
+                FieldPath.of(fieldPath), value -> {
+                    double number = toNumber(value);
+                    return !Double.isNaN(number) && condition.test(number);
+                }));
+        return this;
+    }
+
+    /**
+     * Restricts the query to the given resources; only those records are read.
+     */
+    public Aggregation resources(Collection<String> resources) {
+        this.resources = new HashSet<>(resources);
+        return this;
+    }
+
+    public Aggregation groupBy(String fieldPath) {
+        this.groupBy = FieldPath.of(fieldPath);
+        return this;
+    }
+
+    public Aggregation stats(String... fieldPaths) {
+        for (String fieldPath : fieldPaths) {
+            if (!statsIndex.containsKey(fieldPath)) {
+                statsIndex.put(fieldPath, statsFields.size());
+                statsFields.add(FieldPath.of(fieldPath));
+            }
+        }
+        return this;
+    }
+
+    Map<FieldPath, String> getEqualities() {
+        return Collections.unmodifiableMap(equalities);
+    }
+
+    List<Map.Entry<FieldPath, Predicate<Object>>> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    Set<String> getResources() {
+        return resources;
+    }
+
+    FieldPath getGroupBy() {
+        return groupBy;
+    }
+
+    List<FieldPath> getStatsFields() {
+        return Collections.unmodifiableList(statsFields);
+    }
+
+    Map<String, Integer> getStatsIndex() {
+        return Collections.unmodifiableMap(statsIndex);
+    }
+
+    /**
+     * Returns every field the query reads, so a scan can decode just those.
+     */
+    Projection projection() {
+        Set<String> paths = new LinkedHashSet<>();
+        for (FieldPath path : equalities.keySet()) {
+            paths.add(path.path());
+        }
+        for (Map.Entry<FieldPath, Predicate<Object>> condition : conditions) {
+            paths.add(condition.getKey().path());
+        }
+        if (groupBy != null) {
+            paths.add(groupBy.path());
+        }
+        for (FieldPath path : statsFields) {
+            paths.add(path.path());
+        }
+        return Projection.of(paths);
+    }
+
+    /**
+     * Describes the query's shape; predicates can only be counted, not compared.
+     */
+    String describe() {
+        return "where=" + equalities + ", conditions=" + conditions.size() + ", groupBy=" + groupBy + ", stats=" + statsFields;
+    }
+
+    /**
+     * Returns true if the record passes every filter.
+     */
+    boolean matches(Object record) {
+        for (Map.Entry<FieldPath, String> equality : equalities.entrySet()) {
+            if (!equality.getValue().equals(equality.getKey().getString(record))) {
+                return false;
+            }
+        }
+        for (Map.Entry<FieldPath, Predicate<Object>> condition : conditions) {
+            if (!condition.getValue().test(condition.getKey().get(record))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Accumulator newAccumulator() {
+        return new Accumulator();
+    }
+
+    /**
+     * Returns the value as a number: numbers as is, numeric strings parsed, anything else NaN.
+     * Plain integers, the common case, are parsed without going through {@link Double#parseDouble}.
+     */
+    static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return Double.NaN;
+        }
+        String text = value.toString();
+        int length = text.length();
+        int i = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        if (length > i && length - i <= 18) {
+            long number = 0;
+            for (; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                number = number * 10 + (c - '0');
+            }
+            if (i == length) {
+                return text.charAt(0) == '-' ? -number : number;
+            }
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Mutable per-split state of a running query. Each fork-join split fills its own accumulator,
+     * and accumulators are merged pairwise, so no counter is ever shared between threads.
+     */
+    final class Accumulator {
+        private final Map<String, AggregationResult.Bucket> groups = new HashMap<>();
+        private final double[] values = new double[statsFields.size()];
+
+        void add(Object record) {
+            String key = groupBy == null ? null : groupBy.getString(record);
+            AggregationResult.Bucket bucket = groups.get(key);
+            if (bucket == null) {
+                bucket = new AggregationResult.Bucket(statsIndex);
+                groups.put(key, bucket);
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toNumber(statsFields.get(i).get(record));
+            }
+            bucket.add(values);
+        }
+
+        void merge(Accumulator other) {
+            for (Map.Entry<String, AggregationResult.Bucket> group : other.groups.entrySet()) {
+                AggregationResult.Bucket bucket = groups.get(group.getKey());
+                if (bucket == null) {
+                    groups.put(group.getKey(), group.getValue());
+                } else {
+                    bucket.merge(group.getValue());
+                }
+            }
+        }
+
+        AggregationResult toResult() {
+            AggregationResult.Bucket total = new AggregationResult.Bucket(statsIndex);
+            for (AggregationResult.Bucket bucket : groups.values()) {
+                total.merge(bucket);
+            }
+            return new AggregationResult(total,
+                    groupBy == null ? Collections.<String, AggregationResult.Bucket>emptyMap() : groups);
+        }
+    }
+}
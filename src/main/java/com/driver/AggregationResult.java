@@ -0,0 +1,164 @@
+package com.driver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of an {@link Aggregation}: totals over every matching record and, for a grouped query, one bucket per group.
+ */
+public class AggregationResult {
+    /**
+     * Counters for one group, kept in primitive arrays indexed by stats field.
+     */
+    public static final class Bucket {
+        private final Map<String, Integer> fields;
+        private long count;
+        private final long[] valueCounts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxs;
+
+        Bucket(Map<String, Integer> fields) {
+            this.fields = fields;
+            this.valueCounts = new long[fields.size()];
+            this.sums = new double[fields.size()];
+            this.mins = new double[fields.size()];
+            this.maxs = new double[fields.size()];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        Bucket(Map<String, Integer> fields, long count, long[] valueCounts, double[] sums, double[] mins, double[] maxs) {
+            this.fields = fields;
+            this.count = count;
+            this.valueCounts = valueCounts;
+            this.sums = sums;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        void add(double[] values) {
+            count++;
+            for (int i = 0; i < values.length; i++) {
+                double value = values[i];
+                if (!Double.isNaN(value)) {
+                    valueCounts[i]++;
+                    sums[i] += value;
+                    mins[i] = Math.min(mins[i], value);
+                    maxs[i] = Math.max(maxs[i], value);
+                }
+            }
+        }
+
+        void merge(Bucket other) {
+            count += other.count;
+            for (int i = 0; i < sums.length; i++) {
+                valueCounts[i] += other.valueCounts[i];
+                sums[i] += other.sums[i];
+                mins[i] = Math.min(mins[i], other.mins[i]);
+                maxs[i] = Math.max(maxs[i], other.maxs[i]);
+            }
+        }
+
+        private int indexOf(String field) {
+            Integer index = fields.get(field);
+            if (index == null) {
+                throw new IllegalArgumentException("No stats were requested for " + field);
+            }
+            return index;
+        }
+
+        /**
+         * Number of records in the group.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Number of records in the group with a numeric value for the field.
+         */
+        public long count(String field) {
+            return valueCounts[indexOf(field)];
+        }
+
+        public double sum(String field) {
+            return sums[indexOf(field)];
+        }
+
+        /**
+         * Returns the average of the field's numeric values, or NaN if there were none.
+         */
+        public double avg(String field) {
+            int index = indexOf(field);
+            return valueCounts[index] == 0 ? Double.NaN : sums[index] / valueCounts[index];
+        }
+
+        /**
+         * Returns the smallest numeric value of the field, or NaN if there were none.
+         */
+        public double min(String field) {
+            int index = indexOf(field);
+            return valueCounts[index] == 0 ? Double.NaN : mins[index];
+        }
+
+        /**
+         * Returns the largest numeric value of the field, or NaN if there were none.
+         */
+        public double max(String field) {
+            int index = indexOf(field);
+            return valueCounts[index] == 0 ? Double.NaN : maxs[index];
+        }
+
+        @Override
+        public String toString() {
+            return "Bucket{count=" + count + "}";
+        }
+    }
+
+    private final Bucket total;
+    private final Map<String, Bucket> groups;
+
+    AggregationResult(Bucket total, Map<String, Bucket> groups) {
+        this.total = total;
+        this.groups = Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Returns the totals over every matching record.
+     */
+    public Bucket total() {
+        return total;
+    }
+
+    public long count() {
+        return total.count();
+    }
+
+    /**
+     * Returns the buckets of a grouped query keyed by group value; empty if the query was not grouped.
+     */
+    public Map<String, Bucket> groups() {
+        return groups;
+    }
+
+    /**
+     * Returns a group's bucket, or null if no matching record has that value.
+     */
+    public Bucket group(String key) {
+        return groups.get(key);
+    }
+
+    /**
+     * Returns the number of records per group, largest group first.
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        groups.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().count(), a.getValue().count()))
+                .forEach(group -> counts.put(group.getKey(), group.getValue().count()));
+        return counts;
+    }
+}
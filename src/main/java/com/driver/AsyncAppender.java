@@ -0,0 +1,136 @@
+package com.driver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands messages to another appender on a background thread.
+ * - Logging threads claim a slot of a bounded ring buffer with a single CAS and return; they never wait for I/O.
+ * - When the buffer is full the message is dropped and counted. The number of dropped messages is reported
+ *   once the drain thread catches up.
+ * - The delegate is only called from the drain thread, so it need not be thread-safe. It is flushed whenever
+ *   the buffer runs empty.
+ */
+public class AsyncAppender implements LogAppender {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final LogAppender delegate;
+    private final AtomicReferenceArray<LogEvent> ring;
+    private final int mask;
+    // Next slot to claim (logging threads) and next slot to drain (drain thread only).
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread drainThread;
+    private volatile boolean draining;
+    private volatile boolean closed;
+
+    /**
+     * Starts the drain thread. The capacity is rounded up to a power of two.
+     */
+    public AsyncAppender(LogAppender delegate, int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.delegate = delegate;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.drainThread = new Thread(this::drainLoop, "log-appender");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        while (!closed) {
+            long slot = tail.get();
+            if (slot - head.get() >= ring.length()) {
+                break;
+            }
+            if (tail.compareAndSet(slot, slot + 1)) {
+                // The drain thread treats a null slot as not yet written and waits for it.
+                ring.set((int) slot & mask, event);
+                if (!draining) {
+                    LockSupport.unpark(drainThread);
+                }
+                return;
+            }
+        }
+        dropped.increment();
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        while (true) {
+            draining = true;
+            long position = head.get();
+            LogEvent event;
+            while ((event = ring.get((int) position & mask)) != null) {
+                ring.lazySet((int) position & mask, null);
+                head.lazySet(++position);
+                try {
+                    delegate.append(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Log appender failed: " + e.getMessage());
+                }
+            }
+            long drops = dropped.sum();
+            if (drops > reportedDrops) {
+                delegate.append(new LogEvent(Logger.Level.WARN, "WARN", "{} log messages dropped, the log buffer was full",
+                        new Object[]{drops - reportedDrops}));
+                reportedDrops = drops;
+            }
+            delegate.flush();
+            if (closed && tail.get() == head.get()) {
+                return;
+            }
+            draining = false;
+            if (ring.get((int) head.get() & mask) == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Number of messages discarded because the buffer was full.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits up to a second for the messages logged so far to be written and flushed.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (head.get() < target && drainThread.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.unpark(drainThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        // The drain thread flushes the delegate after each pass; wait for that pass to finish.
+        while (draining && drainThread.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Stops accepting messages, writes what is queued and closes the delegate.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+}
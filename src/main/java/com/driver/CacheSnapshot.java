@@ -0,0 +1,101 @@
+package com.driver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The hot set of a record cache, saved so the next start can warm the cache up before traffic needs it.
+ * - Only keys are saved, hottest first, with the type each record was cached as; warm-up reads the records'
+ *   current versions, so a snapshot never serves stale data however old it is.
+ * - (collection, type) pairs are written once in a table and referenced by index from each entry.
+ * Layout: [magic][pair count] then per pair [collection][type name], then [entry count] and per entry
+ * [pair index][resource], then the CRC32 of everything before it.
+ */
+final class CacheSnapshot {
+    private static final int MAGIC = 0x4A444353;
+
+    static final class Entry {
+        final String collection;
+        final String resource;
+        final String type;
+
+        Entry(String collection, String resource, String type) {
+            this.collection = collection;
+            this.resource = resource;
+            this.type = type;
+        }
+    }
+
+    private CacheSnapshot() {
+    }
+
+    static void write(File file, List<Entry> entries) throws IOException {
+        Map<String, Integer> pairs = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            pairs.putIfAbsent(entry.collection + '\u0000' + entry.type, pairs.size());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(pairs.size());
+        for (String pair : pairs.keySet()) {
+            int separator = pair.indexOf('\u0000');
+            out.writeUTF(pair.substring(0, separator));
+            out.writeUTF(pair.substring(separator + 1));
+        }
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeInt(pairs.get(entry.collection + '\u0000' + entry.type));
+            out.writeUTF(entry.resource);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+        file.getParentFile().mkdirs();
+        FileHandler.writeAtomically(file, bytes.toByteArray());
+    }
+
+    /**
+     * Reads a snapshot, or returns null if there is none. A damaged snapshot fails with an IOException.
+     */
+    static List<Entry> read(File file) throws IOException {
+        byte[] data = FileHandler.readBytes(file);
+        if (data == null) {
+            return null;
+        }
+        if (data.length < 12) {
+            throw new IOException("Truncated cache snapshot " + file.getPath());
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(data, 0, data.length - 4);
+        if (ByteBuffer.wrap(data).getInt(data.length - 4) != (int) checksum.getValue()) {
+            throw new IOException("Corrupt cache snapshot " + file.getPath());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cache snapshot: " + file.getPath());
+        }
+        String[][] pairs = new String[in.readInt()][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new String[]{in.readUTF(), in.readUTF()};
+        }
+        int count = in.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] pair = pairs[in.readInt()];
+            entries.add(new Entry(pair[0], in.readUTF(), pair[1]));
+        }
+        return entries;
+    }
+}
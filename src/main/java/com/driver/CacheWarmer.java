@@ -0,0 +1,194 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the record cache of a freshly opened database in the background, while it already serves requests.
+ * - With a {@link CacheSnapshot} from the last run, the records it names are loaded hottest first, each decoded
+ *   as the type it was cached as. Only {@link User}, {@link JsonNode} and the configured warm-up types are restored.
+ * - Without one, every stored collection is listed and its records loaded as users; a collection whose records
+ *   are not users is skipped at its first failure.
+ * Loading runs on several threads and stops once the memory budget (the encoded size of the records loaded)
+ * or the cache's entry limit is reached. Each record is loaded under its stripe's read lock, so a concurrent
+ * write is never overwritten by an older version.
+ */
+final class CacheWarmer implements AutoCloseable {
+    private final JSONDatabase database;
+    private final File snapshotFile;
+    private final long budgetBytes;
+    private final long maxEntries;
+    private final Set<Class<?>> types;
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile boolean stopped;
+    private volatile boolean complete;
+
+    CacheWarmer(JSONDatabase database, File snapshotFile, long budgetBytes, long maxEntries, int parallelism,
+                Set<Class<?>> types) {
+        this.database = database;
+        this.snapshotFile = snapshotFile;
+        this.budgetBytes = budgetBytes;
+        this.maxEntries = maxEntries;
+        this.types = types;
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, task -> {
+            Thread thread = new Thread(task, "cache-warmer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the warm-up and returns a stage that completes when it has finished or was stopped.
+     */
+    CompletableFuture<Void> start() {
+        workers.execute(this::run);
+        return done;
+    }
+
+    CompletableFuture<Void> done() {
+        return done;
+    }
+
+    /**
+     * Returns true once the warm-up has run to its end without being stopped, so the cache holds a full hot set.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            List<CacheSnapshot.Entry> plan = null;
+            String source = "snapshot";
+            try {
+                plan = CacheSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                Logger.log("WARN", "Unusable cache snapshot, warming up from the directories: {}", e.getMessage());
+            }
+            if (plan == null) {
+                plan = listStoredRecords();
+                source = "directories";
+            }
+            long[] loaded = load(plan);
+            complete = !stopped;
+            Logger.log("CACHE", "Warmed up {} records ({} bytes) from {} in {} ms", loaded[0], loaded[1], source,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            done.complete(null);
+        } catch (Throwable e) {
+            Logger.log("ERROR", "Cache warm-up failed: {}", e.getMessage());
+            done.completeExceptionally(e);
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private List<CacheSnapshot.Entry> listStoredRecords() throws IOException {
+        List<CacheSnapshot.Entry> plan = new ArrayList<>();
+        String type = User.class.getName();
+        for (String collection : database.listCollections()) {
+            for (String resource : database.listResourcesForWarmUp(collection)) {
+                if (plan.size() >= maxEntries || stopped) {
+                    return plan;
+                }
+                plan.add(new CacheSnapshot.Entry(collection, resource, type));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Loads the planned records on the worker threads and returns {count, bytes}.
+     */
+    private long[] load(List<CacheSnapshot.Entry> plan) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong count = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        Set<String> skipped = ConcurrentHashMap.newKeySet();
+        Runnable worker = () -> {
+            int i;
+            while (!stopped && (i = next.getAndIncrement()) < plan.size()
+                    && bytes.get() < budgetBytes && count.get() < maxEntries) {
+                CacheSnapshot.Entry entry = plan.get(i);
+                if (skipped.contains(entry.collection + "/" + entry.type)) {
+                    continue;
+                }
+                try {
+                    RecordBinding<?> binding = bindingFor(entry.type);
+                    if (binding == null) {
+                        skipped.add(entry.collection + "/" + entry.type);
+                        continue;
+                    }
+                    long size = database.warmRecord(binding, entry.collection, entry.resource);
+                    if (size > 0) {
+                        count.incrementAndGet();
+                        bytes.addAndGet(size);
+                    }
+                } catch (JsonProcessingException e) {
+                    skipped.add(entry.collection + "/" + entry.type);
+                    Logger.log("CACHE", "Not warming up {}: records are not {}", entry.collection, entry.type);
+                } catch (IOException e) {
+                    Logger.log("WARN", "Failed to warm up {}/{}: {}", entry.collection, entry.resource, e.getMessage());
+                }
+            }
+        };
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        // This thread is one of the workers, so only parallelism - 1 more are started.
+        try {
+            for (int t = 1; t < parallelism; t++) {
+                running.add(CompletableFuture.runAsync(worker, workers));
+            }
+        } catch (RejectedExecutionException e) {
+            // Stopped while starting; the workers already started finish their current record.
+        }
+        worker.run();
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).get();
+        return new long[]{count.get(), bytes.get()};
+    }
+
+    private RecordBinding<?> bindingFor(String typeName) {
+        try {
+            Class<?> type = Class.forName(typeName, false, CacheWarmer.class.getClassLoader());
+            if (JsonNode.class.isAssignableFrom(type)) {
+                return database.bindingFor(JsonNode.class);
+            }
+            if (type == User.class || types.contains(type)) {
+                return database.bindingFor(type);
+            }
+        } catch (ClassNotFoundException e) {
+            Logger.log("WARN", "Unknown record type {} in cache snapshot", typeName);
+        }
+        return null;
+    }
+
+    /**
+     * Stops the warm-up and waits for records being loaded, so the database can close its storage.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        workers.shutdown();
+        try {
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
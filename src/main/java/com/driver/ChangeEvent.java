@@ -0,0 +1,99 @@
+package com.driver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A change (or read) notification emitted by a {@link JSONDatabase} and delivered to a {@link ChangeEventSink}.
+ * Change events carry the encoded records they wrote and a sequence number, so a follower can replay them.
+ */
+public class ChangeEvent {
+    /**
+     * Kinds of events. Each kind can be switched off with {@link DatabaseConfig#disableEvents}.
+     */
+    public enum Type {
+        INSERT_UPDATE,
+        READ,
+        DELETE,
+        INSERT_UPDATE_BATCH,
+        READ_BATCH,
+        DELETE_BATCH
+    }
+
+    private final Type type;
+    private final String collection;
+    private final String resource;
+    private final String message;
+    private final long sequence;
+    private final Map<String, byte[]> records;
+    private final long createdNanos;
+
+    public ChangeEvent(Type type, String collection, String resource, String message) {
+        this(type, collection, resource, message, 0, Collections.<String, byte[]>emptyMap());
+    }
+
+    public ChangeEvent(Type type, String collection, String resource, String message, long sequence,
+                       Map<String, byte[]> records) {
+        this.type = type;
+        this.collection = collection;
+        this.resource = resource;
+        this.message = message;
+        this.sequence = sequence;
+        this.records = records;
+        this.createdNanos = System.nanoTime();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * The record the event is about, or null for batch events.
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Position of the change in the emitting database's write order; later writes to a record have higher numbers.
+     * Zero for read events.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * The records the change wrote, keyed by resource. A null value means the record was deleted.
+     * Empty for read events and for dropping a collection.
+     */
+    public Map<String, byte[]> getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns true for events that change data, as opposed to read notifications.
+     */
+    public boolean isChange() {
+        return type != Type.READ && type != Type.READ_BATCH;
+    }
+
+    /**
+     * {@link System#nanoTime()} when the event was emitted, used to measure publish latency.
+     */
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + message;
+    }
+}
@@ -0,0 +1,66 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts change events to and from the JSON messages published on the event topic.
+ * - A batch event becomes one message per record, so every message can be keyed by
+ *   {@code <collection>/<resource>} and all changes to a record land in the same partition, in order.
+ * - Records are embedded as JSON whatever codec they are stored in.
+ */
+public class ChangeEventCodec {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RecordCodec recordCodec = new RecordCodec();
+
+    /**
+     * Returns the event's messages as (key, value) pairs.
+     */
+    public List<Map.Entry<String, String>> toMessages(ChangeEvent event) throws IOException {
+        if (event.getRecords().isEmpty()) {
+            return Collections.singletonList(message(event, event.getResource(), null));
+        }
+        List<Map.Entry<String, String>> messages = new ArrayList<>(event.getRecords().size());
+        for (Map.Entry<String, byte[]> record : event.getRecords().entrySet()) {
+            messages.add(message(event, record.getKey(), record.getValue()));
+        }
+        return messages;
+    }
+
+    private Map.Entry<String, String> message(ChangeEvent event, String resource, byte[] record) throws IOException {
+        ObjectNode value = objectMapper.createObjectNode();
+        value.put("type", event.getType().name());
+        value.put("collection", event.getCollection());
+        value.put("resource", resource);
+        value.put("sequence", event.getSequence());
+        value.put("message", event.getMessage());
+        value.set("record", record == null ? null : recordCodec.decodeTree(record));
+        String key = resource == null ? event.getCollection() : event.getCollection() + "/" + resource;
+        return new AbstractMap.SimpleImmutableEntry<>(key, objectMapper.writeValueAsString(value));
+    }
+
+    /**
+     * Parses a message back into a single-record event; the record, if any, is returned as compact JSON.
+     */
+    public ChangeEvent fromMessage(String value) throws IOException {
+        JsonNode node = objectMapper.readTree(value);
+        ChangeEvent.Type type = ChangeEvent.Type.valueOf(node.path("type").asText());
+        String resource = node.path("resource").isNull() ? null : node.path("resource").asText();
+        JsonNode record = node.get("record");
+        Map<String, byte[]> records = Collections.emptyMap();
+        boolean isRead = type == ChangeEvent.Type.READ || type == ChangeEvent.Type.READ_BATCH;
+        if (!isRead && resource != null && !resource.isEmpty()) {
+            records = Collections.singletonMap(resource,
+                    record == null || record.isNull() ? null : objectMapper.writeValueAsBytes(record));
+        }
+        return new ChangeEvent(type, node.path("collection").asText(),
+                resource, node.path("message").asText(), node.path("sequence").asLong(), records);
+    }
+}
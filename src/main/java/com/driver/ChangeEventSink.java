@@ -0,0 +1,27 @@
+package com.driver;
+
+import java.util.List;
+
+/**
+ * Destination of a database's change events.
+ * Batches are delivered from a single dedicated thread, in the order the events were emitted.
+ */
+public interface ChangeEventSink {
+    /**
+     * Delivers a batch of events. A thrown exception counts the whole batch as failed; it is not retried.
+     */
+    void publish(List<ChangeEvent> events) throws Exception;
+
+    /**
+     * Called once before the first batch with the database's metrics, so the sink can record its own,
+     * e.g. broker acknowledgement latency.
+     */
+    default void bindMetrics(MetricsRegistry metrics) {
+    }
+
+    /**
+     * Releases the sink's resources once the last batch has been delivered.
+     */
+    default void close() {
+    }
+}
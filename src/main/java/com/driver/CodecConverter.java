@@ -0,0 +1,66 @@
+package com.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+/**
+ * Offline tool that re-encodes every record of a collection in another {@link RecordCodec.Format}.
+ * Run it while no {@link JSONDatabase} has the directory open. Records still in the write-ahead log are
+ * replayed in their original format on the next open, which readers handle transparently.
+ * Compressed records moved to another format are rewritten uncompressed, read with the directory's dictionaries.
+ *
+ * Usage: {@code CodecConverter <directory> <collection> <PRETTY_JSON|JSON|SMILE|CBOR> [FILE_PER_RECORD|SEGMENT]}
+ */
+public class CodecConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CodecConverter <directory> <collection> <PRETTY_JSON|JSON|SMILE|CBOR> [FILE_PER_RECORD|SEGMENT]");
+            System.exit(1);
+        }
+        File directory = new File(args[0]);
+        RecordCodec.Format format = RecordCodec.Format.valueOf(args[2]);
+        StorageEngine.Type type = args.length > 3 ? StorageEngine.Type.valueOf(args[3]) : StorageEngine.Type.FILE_PER_RECORD;
+        DatabaseConfig defaults = new DatabaseConfig();
+        StorageEngine storage = type == StorageEngine.Type.SEGMENT
+                ? new SegmentStorageEngine(directory, defaults.getSegmentSizeBytes(),
+                        defaults.getCompactionLiveRatio(), defaults.getCompactionIntervalMillis())
+                : new FileStorageEngine(directory);
+        try {
+            RecordCodec codec = new RecordCodec(RecordCodec.Format.PRETTY_JSON, new HashMap<String, RecordCodec.Format>(),
+                    new RecordCompressor(directory, RecordCodec.Compression.NONE,
+                            new HashMap<String, RecordCodec.Compression>(), Deflater.BEST_SPEED, 0));
+            int converted = convert(codec, storage, args[1], format);
+            Logger.log("CODEC", "Converted {} records in {} to {}", converted, args[1], format);
+        } finally {
+            storage.close();
+        }
+    }
+
+    /**
+     * Rewrites every record of the collection that is not already in the target format.
+     * Returns the number of records rewritten.
+     */
+    public static int convert(StorageEngine storage, String collection, RecordCodec.Format format) throws IOException {
+        return convert(new RecordCodec(), storage, collection, format);
+    }
+
+    static int convert(RecordCodec codec, StorageEngine storage, String collection, RecordCodec.Format format)
+            throws IOException {
+        int converted = 0;
+        for (String resource : storage.listResources(collection)) {
+            byte[] data = storage.read(collection, resource);
+            if (data == null) {
+                continue;
+            }
+            byte[] encoded = codec.convert(data, format);
+            if (encoded != data) {
+                storage.write(collection, resource, encoded);
+                converted++;
+            }
+        }
+        storage.sync();
+        return converted;
+    }
+}
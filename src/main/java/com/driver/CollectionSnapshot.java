@@ -0,0 +1,187 @@
+package com.driver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Point-in-time view of a collection used by streaming scans.
+ * - Only the sorted resource names are captured up front; record contents are read lazily.
+ * - While the snapshot is open, writers hand it the previous version of any record they change
+ *   (a before-image), so the scan still returns the record as it was when the snapshot was taken.
+ * - The snapshot closes itself once every resource has been visited, or when its stream is closed.
+ */
+public class CollectionSnapshot implements Closeable {
+    /**
+     * Reads the current bytes of a record, or null if it does not exist.
+     */
+    public interface RecordReader {
+        byte[] read(String collection, String resource) throws IOException;
+    }
+
+    /**
+     * Decodes record bytes into a value.
+     */
+    public interface RecordDecoder<T> {
+        T decode(String resource, byte[] data) throws IOException;
+    }
+
+    private static final byte[] ABSENT = new byte[0];
+    private static final int MIN_SPLIT = 64;
+
+    private final String collection;
+    private final String[] resources;
+    private final RecordReader reader;
+    private final Consumer<CollectionSnapshot> onClose;
+    private final ConcurrentHashMap<String, byte[]> beforeImages = new ConcurrentHashMap<>();
+    private final AtomicLong beforeImageBytes = new AtomicLong();
+    private final AtomicInteger visited = new AtomicInteger();
+    private volatile boolean closed;
+
+    public CollectionSnapshot(String collection, String[] resources, RecordReader reader,
+                              Consumer<CollectionSnapshot> onClose) {
+        this.collection = collection;
+        this.resources = resources;
+        this.reader = reader;
+        this.onClose = onClose;
+        Arrays.sort(this.resources);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public int size() {
+        return resources.length;
+    }
+
+    /**
+     * Records the version a record had when the snapshot was taken. Writers call this under the record's
+     * write lock before changing the record; only the first change after the snapshot matters.
+     */
+    public void recordBeforeImage(String resource, byte[] previous) {
+        if (!closed && beforeImages.putIfAbsent(resource, previous == null ? ABSENT : previous) == null
+                && previous != null) {
+            beforeImageBytes.addAndGet(previous.length);
+        }
+    }
+
+    /**
+     * Total size of the before-images the snapshot holds.
+     */
+    public long beforeImageBytes() {
+        return beforeImageBytes.get();
+    }
+
+    /**
+     * Returns the record as of the snapshot, or null if it did not exist then.
+     * The current version is read before the before-image is checked, so a concurrent write is never missed.
+     */
+    public byte[] read(String resource) throws IOException {
+        byte[] current = reader.read(collection, resource);
+        byte[] image = beforeImages.get(resource);
+        if (image != null) {
+            return image == ABSENT ? null : image;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the index of the first resource strictly after the cursor; null starts from the beginning.
+     */
+    public int positionAfter(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(resources, cursor);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    public String resourceAt(int index) {
+        return resources[index];
+    }
+
+    /**
+     * Returns a splittable, lazily decoding view over the snapshot.
+     */
+    public <T> Spliterator<T> spliterator(RecordDecoder<T> decoder) {
+        return new SnapshotSpliterator<>(decoder, 0, resources.length);
+    }
+
+    private void markVisited() {
+        if (visited.incrementAndGet() >= resources.length) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            beforeImages.clear();
+            beforeImageBytes.set(0);
+            onClose.accept(this);
+        }
+    }
+
+    private final class SnapshotSpliterator<T> implements Spliterator<T> {
+        private final RecordDecoder<T> decoder;
+        private int from;
+        private final int to;
+
+        SnapshotSpliterator(RecordDecoder<T> decoder, int from, int to) {
+            this.decoder = decoder;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (from < to) {
+                String resource = resources[from++];
+                T value;
+                try {
+                    byte[] data = read(resource);
+                    value = data == null ? null : decoder.decode(resource, data);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + collection + "/" + resource, e);
+                } finally {
+                    markVisited();
+                }
+                if (value != null) {
+                    action.accept(value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int remaining = to - from;
+            if (remaining < MIN_SPLIT) {
+                return null;
+            }
+            int mid = from + remaining / 2;
+            SnapshotSpliterator<T> prefix = new SnapshotSpliterator<>(decoder, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,638 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * A columnar copy of a few fields of every record of a collection, so analytical scans read packed ints
+ * instead of decoding documents.
+ * - Each column is a memory-mapped file of one int per row under {@code <directory>/<collection>.columns/}:
+ *   the value itself for an int column (such as {@code age}), or an id into the column's dictionary for a
+ *   string column (such as {@code company} or {@code address.city}). The row's resource name is the key column.
+ * - Writes only queue the new field values; they are applied in the background, and before every scan,
+ *   so scans see every completed write.
+ * - {@link #aggregate} runs an {@link Aggregation} over the columns. Filters on string columns are evaluated once
+ *   per dictionary value rather than once per row.
+ * As with views, the row keys and dictionaries are checkpointed on shutdown and the checkpoint is removed once
+ * loaded, so after a crash the columns are rebuilt from the records.
+ */
+public class ColumnStore {
+    /**
+     * The fields a column store keeps, by field path.
+     */
+    public static final class Columns {
+        private final List<String> ints = new ArrayList<>();
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * Integer fields, stored as is. Numbers and canonical integer strings such as {@code "30"} fit.
+         */
+        public Columns ints(String... fieldPaths) {
+            ints.addAll(Arrays.asList(fieldPaths));
+            return this;
+        }
+
+        /**
+         * Fields with few distinct values, stored as ids into a dictionary of their string values.
+         */
+        public Columns strings(String... fieldPaths) {
+            strings.addAll(Arrays.asList(fieldPaths));
+            return this;
+        }
+
+        List<String> paths() {
+            List<String> paths = new ArrayList<>(ints);
+            paths.addAll(strings);
+            return paths;
+        }
+
+        String describe() {
+            return "ints=" + ints + ", strings=" + strings;
+        }
+    }
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int NULL_CODE = -1;
+    private static final int INITIAL_ROWS = 1024;
+    private static final Object[] DELETED = new Object[0];
+    private static final Object[] UNREADABLE = new Object[0];
+
+    private static final class Column {
+        final FieldPath path;
+        final boolean dictionary;
+        final File file;
+        MappedByteBuffer buffer;
+        IntBuffer cells;
+        // String columns: value by id, and id by value.
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> codes = new HashMap<>();
+        // Int columns: rows whose value is present but not an int, which only a record scan can aggregate.
+        final BitSet lossy = new BitSet();
+
+        Column(FieldPath path, boolean dictionary, File file) {
+            this.path = path;
+            this.dictionary = dictionary;
+            this.file = file;
+        }
+
+        int codeOf(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    private interface RowFilter {
+        boolean matches(int row);
+    }
+
+    private final String collection;
+    private final Columns definition;
+    private final File directory;
+    private final Column[] columns;
+    private final Map<String, Column> columnsByPath = new HashMap<>();
+    private final ConcurrentHashMap<String, Object[]> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock.
+    private String[] keys = new String[0];
+    private final Map<String, Integer> rowOf = new HashMap<>();
+    private final ArrayDeque<Integer> freeRows = new ArrayDeque<>();
+    private final Set<String> unreadable = new HashSet<>();
+    private int rowCount;
+    private int capacity;
+
+    public ColumnStore(String collection, Columns definition, File directory) {
+        this.collection = collection;
+        this.definition = definition;
+        this.directory = directory;
+        List<Column> all = new ArrayList<>();
+        for (String path : definition.ints) {
+            all.add(new Column(FieldPath.of(path), false, new File(directory, path + ".int")));
+        }
+        for (String path : definition.strings) {
+            all.add(new Column(FieldPath.of(path), true, new File(directory, path + ".ids")));
+        }
+        this.columns = all.toArray(new Column[0]);
+        for (Column column : columns) {
+            if (columnsByPath.put(column.path.path(), column) != null) {
+                throw new IllegalArgumentException("Column " + column.path + " is declared twice");
+            }
+        }
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    Columns getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Queues a write; a null record means it was deleted. Only the columns' fields are read, right away,
+     * so the record may change afterwards. The caller must hold the record's write lock.
+     */
+    public void update(String resource, Object record) {
+        if (record == null) {
+            pending.put(resource, DELETED);
+            return;
+        }
+        Object[] values = new Object[columns.length];
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                Object value = columns[i].path.get(record);
+                values[i] = columns[i].dictionary && value != null ? value.toString() : value;
+            }
+        } catch (RuntimeException e) {
+            // Kept as a row of nulls; aggregations fall back to reading the records until it is rewritten.
+            Logger.log("WARN", "Cannot read the columns of {}/{}: {}", collection, resource, e.getMessage());
+            values = UNREADABLE;
+        }
+        pending.put(resource, values);
+    }
+
+    /**
+     * Number of queued writes not yet applied to the columns.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Applies the queued writes to the columns.
+     */
+    public void refresh() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyPending() throws IOException {
+        for (Map.Entry<String, Object[]> write : pending.entrySet()) {
+            Object[] values = write.getValue();
+            apply(write.getKey(), values == DELETED ? null : values);
+            // A newer write of the same resource stays queued.
+            pending.remove(write.getKey(), values);
+        }
+    }
+
+    private void apply(String resource, Object[] values) throws IOException {
+        if (values == null) {
+            Integer row = rowOf.remove(resource);
+            unreadable.remove(resource);
+            if (row != null) {
+                keys[row] = null;
+                for (Column column : columns) {
+                    column.lossy.clear(row);
+                }
+                freeRows.push(row);
+            }
+            return;
+        }
+        Integer row = rowOf.get(resource);
+        if (row == null) {
+            row = freeRows.isEmpty() ? rowCount++ : freeRows.pop();
+            ensureCapacity(row + 1);
+            keys[row] = resource;
+            rowOf.put(resource, row);
+        }
+        if (values == UNREADABLE) {
+            unreadable.add(resource);
+            values = new Object[columns.length];
+        } else {
+            unreadable.remove(resource);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            Column column = columns[i];
+            Object value = values[i];
+            if (column.dictionary) {
+                column.cells.put(row, value == null ? NULL_CODE : column.codeOf((String) value));
+            } else {
+                int cell = toInt(value);
+                column.cells.put(row, cell);
+                column.lossy.set(row, value != null && cell == NULL_INT);
+            }
+        }
+    }
+
+    /**
+     * Returns the value as an int cell: integral numbers and canonical integer strings in range, else null.
+     * A string such as {@code "030"} does not fit, since a scan must give filters the same string a record does.
+     */
+    private static int toInt(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            long number = ((Number) value).longValue();
+            return number > NULL_INT && number <= Integer.MAX_VALUE ? (int) number : NULL_INT;
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.length() > 0 && text.length() <= 11) {
+                try {
+                    int number = Integer.parseInt(text);
+                    return number != NULL_INT && Integer.toString(number).equals(text) ? number : NULL_INT;
+                } catch (NumberFormatException e) {
+                    return NULL_INT;
+                }
+            }
+        }
+        return NULL_INT;
+    }
+
+    private void ensureCapacity(int rows) throws IOException {
+        if (rows <= capacity) {
+            return;
+        }
+        int grown = Math.max(INITIAL_ROWS, capacity);
+        while (grown < rows) {
+            grown *= 2;
+        }
+        for (Column column : columns) {
+            column.buffer = map(column.file, grown);
+            column.cells = column.buffer.asIntBuffer();
+        }
+        keys = Arrays.copyOf(keys, grown);
+        capacity = grown;
+    }
+
+    private static MappedByteBuffer map(File file, int rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) rows * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Removes every row, as when the collection is dropped. Dictionaries are kept.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            pending.clear();
+            Arrays.fill(keys, null);
+            rowOf.clear();
+            freeRows.clear();
+            unreadable.clear();
+            for (Column column : columns) {
+                column.lossy.clear();
+            }
+            rowCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of records in the store, after applying the queued writes.
+     */
+    public long count() throws IOException {
+        lock.writeLock().lock();
+        try {
+            applyPending();
+            return rowOf.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the aggregation over the columns, giving the same result as {@link JSONDatabase#aggregate}.
+     *
+     * @throws IllegalArgumentException if the aggregation uses a field the store lacks, groups by an int column,
+     *                                  or some record's value does not fit its int column
+     */
+    public AggregationResult aggregate(Aggregation aggregation) throws IOException {
+        AggregationResult result = aggregateIfCovered(aggregation);
+        if (result == null) {
+            throw new IllegalArgumentException("Column store of " + collection + " (" + definition.describe()
+                    + ") cannot answer " + aggregation.describe());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the resources whose records pass the aggregation's filters, in name order.
+     *
+     * @throws IllegalArgumentException as {@link #aggregate} does
+     */
+    public List<String> select(Aggregation filter) throws IOException {
+        lock.writeLock().lock();
+        try {
+            applyPending();
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            RowFilter rows = covers(filter) ? compile(filter) : null;
+            if (rows == null) {
+                throw new IllegalArgumentException("Column store of " + collection + " (" + definition.describe()
+                        + ") cannot answer " + filter.describe());
+            }
+            TreeSet<String> selected = new TreeSet<>();
+            int[] candidates = rowsOf(filter);
+            int n = candidates == null ? rowCount : candidates.length;
+            for (int i = 0; i < n; i++) {
+                int row = candidates == null ? i : candidates[i];
+                if (keys[row] != null && rows.matches(row)) {
+                    selected.add(keys[row]);
+                }
+            }
+            return new ArrayList<>(selected);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the aggregation over the columns, or returns null if they cannot answer it exactly.
+     */
+    AggregationResult aggregateIfCovered(Aggregation aggregation) throws IOException {
+        lock.writeLock().lock();
+        try {
+            applyPending();
+            // Downgraded so scans run concurrently.
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            if (!covers(aggregation)) {
+                return null;
+            }
+            Column groupBy = aggregation.getGroupBy() == null ? null : columnsByPath.get(aggregation.getGroupBy().path());
+            if (groupBy != null && !groupBy.dictionary) {
+                return null;
+            }
+            RowFilter filter = compile(aggregation);
+            List<FieldPath> fields = aggregation.getStatsFields();
+            Map<String, Integer> statsIndex = aggregation.getStatsIndex();
+            Column[] stats = new Column[fields.size()];
+            double[][] numbers = new double[fields.size()][];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = columnsByPath.get(fields.get(i).path());
+                if (stats[i].dictionary) {
+                    numbers[i] = new double[stats[i].values.size()];
+                    for (int code = 0; code < numbers[i].length; code++) {
+                        numbers[i][code] = Aggregation.toNumber(stats[i].values.get(code));
+                    }
+                }
+            }
+
+            // Bucket 0 is the null group; a string value's bucket is its id + 1.
+            AggregationResult.Bucket[] buckets = new AggregationResult.Bucket[groupBy == null ? 1 : groupBy.values.size() + 1];
+            double[] values = new double[stats.length];
+            int[] candidates = rowsOf(aggregation);
+            int n = candidates == null ? rowCount : candidates.length;
+            for (int c = 0; c < n; c++) {
+                int row = candidates == null ? c : candidates[c];
+                if (keys[row] == null || !filter.matches(row)) {
+                    continue;
+                }
+                int group = groupBy == null ? 0 : groupBy.cells.get(row) + 1;
+                AggregationResult.Bucket bucket = buckets[group];
+                if (bucket == null) {
+                    bucket = new AggregationResult.Bucket(statsIndex);
+                    buckets[group] = bucket;
+                }
+                for (int i = 0; i < stats.length; i++) {
+                    int cell = stats[i].cells.get(row);
+                    if (stats[i].dictionary) {
+                        values[i] = cell == NULL_CODE ? Double.NaN : numbers[i][cell];
+                    } else {
+                        values[i] = cell == NULL_INT ? Double.NaN : cell;
+                    }
+                }
+                bucket.add(values);
+            }
+
+            AggregationResult.Bucket total = new AggregationResult.Bucket(statsIndex);
+            Map<String, AggregationResult.Bucket> groups = new HashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != null) {
+                    total.merge(buckets[i]);
+                    groups.put(i == 0 ? null : groupBy.values.get(i - 1), buckets[i]);
+                }
+            }
+            return new AggregationResult(total, groupBy == null ? Collections.<String, AggregationResult.Bucket>emptyMap() : groups);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if every field the aggregation reads is a column holding exactly the records' values.
+     */
+    private boolean covers(Aggregation aggregation) {
+        if (!unreadable.isEmpty()) {
+            return false;
+        }
+        for (FieldPath path : aggregation.projection().paths()) {
+            Column column = columnsByPath.get(path.path());
+            if (column == null || !column.lossy.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the rows of the aggregation's resource list, or null to scan every row.
+     */
+    private int[] rowsOf(Aggregation aggregation) {
+        if (aggregation.getResources() == null) {
+            return null;
+        }
+        int[] rows = new int[aggregation.getResources().size()];
+        int n = 0;
+        for (String resource : aggregation.getResources()) {
+            Integer row = rowOf.get(resource);
+            if (row != null) {
+                rows[n++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Compiles the aggregation's filters to checks on the cells of a row.
+     */
+    private RowFilter compile(Aggregation aggregation) {
+        List<RowFilter> filters = new ArrayList<>();
+        for (Map.Entry<FieldPath, String> equality : aggregation.getEqualities().entrySet()) {
+            Column column = columnsByPath.get(equality.getKey().path());
+            Integer expected = column.dictionary ? column.codes.get(equality.getValue()) : toInt(equality.getValue());
+            if (expected == null || expected == NULL_INT && !column.dictionary) {
+                return row -> false;
+            }
+            int cell = expected;
+            filters.add(row -> column.cells.get(row) == cell);
+        }
+        for (Map.Entry<FieldPath, Predicate<Object>> condition : aggregation.getConditions()) {
+            Column column = columnsByPath.get(condition.getKey().path());
+            Predicate<Object> test = condition.getValue();
+            if (column.dictionary) {
+                boolean[] accepted = new boolean[column.values.size()];
+                for (int code = 0; code < accepted.length; code++) {
+                    accepted[code] = test.test(column.values.get(code));
+                }
+                boolean acceptsNull = test.test(null);
+                filters.add(row -> {
+                    int code = column.cells.get(row);
+                    return code == NULL_CODE ? acceptsNull : accepted[code];
+                });
+            } else {
+                filters.add(row -> {
+                    int cell = column.cells.get(row);
+                    return test.test(cell == NULL_INT ? null : Integer.valueOf(cell));
+                });
+            }
+        }
+        if (filters.isEmpty()) {
+            return row -> true;
+        }
+        RowFilter[] all = filters.toArray(new RowFilter[0]);
+        return row -> {
+            for (RowFilter filter : all) {
+                if (!filter.matches(row)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Builds the columns from the collection's records, replacing any column files.
+     * The caller must hold the collection's write lock so no write slips in during a build.
+     */
+    void build(Map<String, ?> records) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            for (Column column : columns) {
+                column.file.delete();
+            }
+            for (Map.Entry<String, ?> record : records.entrySet()) {
+                update(record.getKey(), record.getValue());
+            }
+            applyPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the row keys and dictionaries as {@code {definition, rows, keys, dictionaries, lossy}};
+     * the cells are already in the mapped column files, which are forced to disk first.
+     */
+    void save(File file, ObjectMapper objectMapper) throws IOException {
+        lock.writeLock().lock();
+        try {
+            applyPending();
+            if (capacity == 0 || !unreadable.isEmpty()) {
+                // Nothing to keep, or records the next start must read again.
+                return;
+            }
+            Map<String, Object> checkpoint = new LinkedHashMap<>();
+            checkpoint.put("definition", collection + ": " + definition.describe());
+            checkpoint.put("rows", rowCount);
+            checkpoint.put("keys", Arrays.asList(keys).subList(0, rowCount));
+            Map<String, List<String>> dictionaries = new LinkedHashMap<>();
+            Map<String, int[]> lossy = new LinkedHashMap<>();
+            for (Column column : columns) {
+                column.buffer.force();
+                if (column.dictionary) {
+                    dictionaries.put(column.path.path(), column.values);
+                } else {
+                    lossy.put(column.path.path(), column.lossy.stream().toArray());
+                }
+            }
+            checkpoint.put("dictionaries", dictionaries);
+            checkpoint.put("lossy", lossy);
+            objectMapper.writeValue(file, checkpoint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restores a store saved by {@link #save}, mapping the existing column files.
+     * Fails if the checkpoint was written for a different definition or a column file is missing.
+     */
+    @SuppressWarnings("unchecked")
+    void load(File file, ObjectMapper objectMapper) throws IOException {
+        Map<String, Object> checkpoint = objectMapper.readValue(file, Map.class);
+        if (!(collection + ": " + definition.describe()).equals(checkpoint.get("definition"))) {
+            throw new IOException("Checkpoint was saved for a different definition: " + checkpoint.get("definition"));
+        }
+        int rows = ((Number) checkpoint.get("rows")).intValue();
+        List<String> savedKeys = (List<String>) checkpoint.get("keys");
+        Map<String, List<String>> dictionaries = (Map<String, List<String>>) checkpoint.get("dictionaries");
+        Map<String, List<Number>> lossy = (Map<String, List<Number>>) checkpoint.get("lossy");
+        lock.writeLock().lock();
+        try {
+            for (Column column : columns) {
+                if (column.file.length() < (long) rows * Integer.BYTES) {
+                    throw new IOException("Column file " + column.file.getName() + " is missing or truncated");
+                }
+            }
+            ensureCapacity(Math.max(rows, 1));
+            rowCount = rows;
+            for (int row = 0; row < rows; row++) {
+                String key = savedKeys.get(row);
+                keys[row] = key;
+                if (key == null) {
+                    freeRows.push(row);
+                } else {
+                    rowOf.put(key, row);
+                }
+            }
+            for (Column column : columns) {
+                if (column.dictionary) {
+                    for (String value : dictionaries.get(column.path.path())) {
+                        column.codeOf(value);
+                    }
+                } else {
+                    for (Number row : lossy.get(column.path.path())) {
+                        column.lossy.set(row.intValue());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the column stores of a database, at most one per collection, and the background job that applies
+ * queued writes to them.
+ * - Columns live under {@code <directory>/<collection>.columns/}; their row keys and dictionaries are
+ *   checkpointed there on shutdown.
+ * - As with views, a checkpoint is removed once loaded, so after a crash the columns are rebuilt from the records.
+ */
+public class ColumnStoreManager {
+    private final File directory;
+    private final ObjectMapper objectMapper;
+    private final long refreshIntervalMillis;
+    private final ConcurrentHashMap<String, ColumnStore> stores = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    public ColumnStoreManager(File directory, ObjectMapper objectMapper, long refreshIntervalMillis) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * Declares the column store of a collection, loading its checkpoint or building it from the records.
+     * Callers must hold the collection's write lock so no write slips in during a build.
+     */
+    public synchronized ColumnStore register(String collection, ColumnStore.Columns columns,
+                                             IndexManager.RecordSource source) throws IOException {
+        ColumnStore existing = stores.get(collection);
+        if (existing != null) {
+            if (!existing.getDefinition().describe().equals(columns.describe())) {
+                throw new IllegalArgumentException("Collection " + collection + " already has the columns "
+                        + existing.getDefinition().describe());
+            }
+            return existing;
+        }
+
+        File columnDirectory = new File(directory, collection + ".columns");
+        ColumnStore store = new ColumnStore(collection, columns, columnDirectory);
+        File file = checkpointFile(collection);
+        boolean loaded = false;
+        if (file.exists()) {
+            try {
+                store.load(file, objectMapper);
+                loaded = true;
+                Logger.log("COLUMNS", "Loaded columns of {} ({} records)", collection, store.count());
+            } catch (IOException | RuntimeException e) {
+                store = new ColumnStore(collection, columns, columnDirectory);
+                Logger.log("ERROR", "Unusable checkpoint {}, rebuilding: {}", file.getPath(), e.getMessage());
+            }
+            file.delete();
+        }
+        if (!loaded) {
+            store.build(source.load(collection));
+            Logger.log("COLUMNS", "Built columns of {} ({} records)", collection, store.count());
+        }
+        stores.put(collection, store);
+        if (refresher == null && refreshIntervalMillis > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "column-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refreshAll, refreshIntervalMillis, refreshIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return store;
+    }
+
+    /**
+     * Returns the column store of a collection, or null if none was declared.
+     */
+    public ColumnStore get(String collection) {
+        return stores.get(collection);
+    }
+
+    /**
+     * Queues a write for the collection's columns; a null record means it was deleted.
+     */
+    public void onWrite(String collection, String resource, Object record) {
+        ColumnStore store = stores.get(collection);
+        if (store != null) {
+            store.update(resource, record);
+        }
+    }
+
+    public void onDropCollection(String collection) {
+        ColumnStore store = stores.get(collection);
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    /**
+     * Number of queued writes over every store.
+     */
+    public long pendingCount() {
+        long pending = 0;
+        for (ColumnStore store : stores.values()) {
+            pending += store.pendingCount();
+        }
+        return pending;
+    }
+
+    private File checkpointFile(String collection) {
+        return new File(new File(directory, collection + ".columns"), "columns.json");
+    }
+
+    private void refreshAll() {
+        for (ColumnStore store : stores.values()) {
+            try {
+                store.refresh();
+            } catch (IOException | RuntimeException e) {
+                Logger.log("ERROR", "Failed to refresh the columns of {}: {}", store.getCollection(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the background job and checkpoints every store so the next start can skip the rebuild.
+     */
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdown();
+            try {
+                refresher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (ColumnStore store : new ArrayList<>(stores.values())) {
+            try {
+                store.save(checkpointFile(store.getCollection()), objectMapper);
+            } catch (IOException e) {
+                Logger.log("ERROR", "Failed to checkpoint the columns of {}: {}", store.getCollection(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.driver;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RecordCache} that keeps records serialized instead of as object graphs, decoding them on every hit.
+ * - Records are encoded by a {@link CompactRecordEncoder}: field names and repeated values become ids into a
+ *   dictionary shared by all records, and integer strings become varints. A typical user takes under 100 bytes
+ *   instead of several hundred bytes of objects, headers and strings.
+ * - {@link Storage#HEAP} keeps each record in one {@code byte[]}. {@link Storage#OFF_HEAP} copies it into direct
+ *   memory slabs ({@link SlabAllocator}), so cached records cost the garbage collector one small handle each.
+ * - The memory budget bounds the encoded bytes (plus per-entry bookkeeping on the heap). Admission and eviction
+ *   follow the W-TinyLFU policy of {@link TinyLfuCache}, weighted by size.
+ * Every hit returns a new object, so callers may modify it without affecting the cache. When no chunk is free
+ * for a record, the coldest entries are evicted to make one; a record that still cannot be stored (a binary
+ * value, or one larger than a slab) is simply not cached.
+ */
+public class CompactRecordCache implements RecordCache<Object> {
+    /**
+     * Where the serialized records are kept.
+     */
+    public enum Storage {
+        /** One byte array per record on the Java heap. */
+        HEAP,
+        /** Direct-memory slabs outside the Java heap, allocated up to the budget. */
+        OFF_HEAP
+    }
+
+    // Approximate heap cost of a cached entry besides its bytes: map node, key, queue node and handle.
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int DICTIONARY_SIZE = 1 << 16;
+    // Evictions tried to free a chunk for a record before giving up on caching it.
+    private static final int MAX_EVICTIONS_PER_PUT = 16;
+
+    private static final class Entry {
+        final Class<?> type;
+        final byte[] bytes;
+        final SlabAllocator.Chunk chunk;
+
+        Entry(Class<?> type, byte[] bytes, SlabAllocator.Chunk chunk) {
+            this.type = type;
+            this.bytes = bytes;
+            this.chunk = chunk;
+        }
+    }
+
+    private final CompactRecordEncoder encoder = new CompactRecordEncoder(DICTIONARY_SIZE);
+    private final SlabAllocator slabs;
+    private final TinyLfuCache<Entry> entries;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code memoryBudgetBytes} of encoded records. Off-heap memory is allocated
+     * in 1 MB slabs, at least one.
+     */
+    public CompactRecordCache(Storage storage, long memoryBudgetBytes, long expireAfterWriteMillis) {
+        if (storage == Storage.OFF_HEAP) {
+            this.slabs = new SlabAllocator(memoryBudgetBytes);
+            this.entries = new TinyLfuCache<>(slabs.capacityBytes(), expireAfterWriteMillis,
+                    entry -> entry.chunk.capacity(), entry -> slabs.free(entry.chunk));
+        } else {
+            this.slabs = null;
+            this.entries = new TinyLfuCache<>(memoryBudgetBytes, expireAfterWriteMillis,
+                    entry -> entry.bytes.length + ENTRY_OVERHEAD, null);
+        }
+    }
+
+    @Override
+    public Object get(String collection, String resource) {
+        Entry entry = entries.get(collection, resource);
+        if (entry == null) {
+            return null;
+        }
+        byte[] data = entry.bytes != null ? entry.bytes : slabs.read(entry.chunk);
+        if (data == null) {
+            // Evicted while being read.
+            return null;
+        }
+        try {
+            return encoder.decode(data, entry.type);
+        } catch (IOException e) {
+            Logger.log("WARN", "Dropping undecodable cache entry {}/{}: {}", collection, resource, e.getMessage());
+            entries.invalidate(collection, resource);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String collection, String resource, Object value) {
+        byte[] data;
+        try {
+            data = encoder.encode(value);
+        } catch (IOException e) {
+            data = null;
+        }
+        Entry entry = null;
+        if (data != null && slabs == null) {
+            entry = new Entry(value.getClass(), data, null);
+        } else if (data != null) {
+            SlabAllocator.Chunk chunk = slabs.allocate(data);
+            // The slabs may be full of chunks of other sizes even below the budget.
+            for (int i = 0; chunk == null && i < MAX_EVICTIONS_PER_PUT && entries.evictColdest(); i++) {
+                chunk = slabs.allocate(data);
+            }
+            entry = chunk != null ? new Entry(value.getClass(), null, chunk) : null;
+        }
+        if (entry == null) {
+            // The previous version must not stay cached.
+            rejected.increment();
+            entries.invalidate(collection, resource);
+            return;
+        }
+        entries.put(collection, resource, entry);
+    }
+
+    @Override
+    public void invalidate(String collection, String resource) {
+        entries.invalidate(collection, resource);
+    }
+
+    @Override
+    public void invalidateCollection(String collection) {
+        entries.invalidateCollection(collection);
+    }
+
+    @Override
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the policy's counters; the weight is the memory used, in bytes.
+     */
+    @Override
+    public CacheStats stats() {
+        return entries.stats();
+    }
+
+    /**
+     * Number of records that could not be cached since the cache was created.
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of distinct strings in the shared dictionary.
+     */
+    public int dictionarySize() {
+        return encoder.dictionarySize();
+    }
+
+    /**
+     * Visits the hottest entries, decoding each one.
+     */
+    @Override
+    public void forEachHottest(EntryVisitor<? super Object> visitor) {
+        entries.forEachHottest((collection, resource, entry) -> {
+            byte[] data = entry.bytes != null ? entry.bytes : slabs.read(entry.chunk);
+            if (data == null) {
+                return true;
+            }
+            try {
+                return visitor.visit(collection, resource, encoder.decode(data, entry.type));
+            } catch (IOException e) {
+                return true;
+            }
+        });
+    }
+}
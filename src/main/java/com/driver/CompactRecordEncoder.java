@@ -0,0 +1,311 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encodes records into a compact token stream for {@link CompactRecordCache}, and back into objects.
+ * - Field names and repeated short string values (companies, cities, countries) are replaced by ids into a string
+ *   dictionary shared by every record of the cache. A value is added on its second sighting, so unique values
+ *   such as names do not fill the dictionary.
+ * - Strings holding a canonical integer, such as {@code age}, are stored as varints and decoded back to the
+ *   same string.
+ * Decoding replays the tokens into a {@link TokenBuffer} and binds it with a reader per type, so any type
+ * Jackson can serialize is supported. Records with embedded binary values are not encoded.
+ */
+final class CompactRecordEncoder {
+    private static final int START_OBJECT = 1;
+    private static final int END_OBJECT = 2;
+    private static final int START_ARRAY = 3;
+    private static final int END_ARRAY = 4;
+    private static final int FIELD_REF = 5;
+    private static final int FIELD = 6;
+    private static final int STRING_REF = 7;
+    private static final int STRING = 8;
+    private static final int DIGITS = 9;
+    private static final int LONG = 10;
+    private static final int DOUBLE = 11;
+    private static final int BIG_INTEGER = 12;
+    private static final int BIG_DECIMAL = 13;
+    private static final int TRUE = 14;
+    private static final int FALSE = 15;
+    private static final int NULL = 16;
+
+    private static final int MAX_DICTIONARY_STRING = 64;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> strings;
+    private final Map<String, Boolean> sightings = new ConcurrentHashMap<>();
+    private int nextId;
+
+    CompactRecordEncoder(int maxDictionarySize) {
+        this.strings = new AtomicReferenceArray<>(maxDictionarySize);
+    }
+
+    int dictionarySize() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the compact form of the value, or null if it holds a token this encoding does not support.
+     */
+    byte[] encode(Object value) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+        mapper.writeValue(tokens, value);
+        try (ByteArrayBuilder out = new ByteArrayBuilder(); JsonParser parser = tokens.asParser()) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                switch (token) {
+                    case START_OBJECT:
+                        out.append(START_OBJECT);
+                        break;
+                    case END_OBJECT:
+                        out.append(END_OBJECT);
+                        break;
+                    case START_ARRAY:
+                        out.append(START_ARRAY);
+                        break;
+                    case END_ARRAY:
+                        out.append(END_ARRAY);
+                        break;
+                    case FIELD_NAME:
+                        writeString(out, parser.getCurrentName(), FIELD_REF, FIELD, true);
+                        break;
+                    case VALUE_STRING:
+                        String text = parser.getText();
+                        if (isCanonicalInteger(text)) {
+                            out.append(DIGITS);
+                            writeVarLong(out, zigZag(Long.parseLong(text)));
+                        } else {
+                            writeString(out, text, STRING_REF, STRING, false);
+                        }
+                        break;
+                    case VALUE_NUMBER_INT:
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                            out.append(BIG_INTEGER);
+                            writeLiteral(out, parser.getBigIntegerValue().toString());
+                        } else {
+                            out.append(LONG);
+                            writeVarLong(out, zigZag(parser.getLongValue()));
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                            out.append(BIG_DECIMAL);
+                            writeLiteral(out, parser.getDecimalValue().toString());
+                        } else {
+                            out.append(DOUBLE);
+                            long bits = Double.doubleToRawLongBits(parser.getDoubleValue());
+                            for (int shift = 56; shift >= 0; shift -= 8) {
+                                out.append((int) (bits >>> shift));
+                            }
+                        }
+                        break;
+                    case VALUE_TRUE:
+                        out.append(TRUE);
+                        break;
+                    case VALUE_FALSE:
+                        out.append(FALSE);
+                        break;
+                    case VALUE_NULL:
+                        out.append(NULL);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return out.toByteArray();
+        }
+    }
+
+    <T> T decode(byte[] data, Class<T> type) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+        int[] position = {0};
+        while (position[0] < data.length) {
+            int tag = data[position[0]++];
+            switch (tag) {
+                case START_OBJECT:
+                    tokens.writeStartObject();
+                    break;
+                case END_OBJECT:
+                    tokens.writeEndObject();
+                    break;
+                case START_ARRAY:
+                    tokens.writeStartArray();
+                    break;
+                case END_ARRAY:
+                    tokens.writeEndArray();
+                    break;
+                case FIELD_REF:
+                    tokens.writeFieldName(lookup((int) readVarLong(data, position)));
+                    break;
+                case FIELD:
+                    tokens.writeFieldName(readLiteral(data, position));
+                    break;
+                case STRING_REF:
+                    tokens.writeString(lookup((int) readVarLong(data, position)));
+                    break;
+                case STRING:
+                    tokens.writeString(readLiteral(data, position));
+                    break;
+                case DIGITS:
+                    tokens.writeString(Long.toString(unZigZag(readVarLong(data, position))));
+                    break;
+                case LONG:
+                    tokens.writeNumber(unZigZag(readVarLong(data, position)));
+                    break;
+                case DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (data[position[0]++] & 0xFF);
+                    }
+                    tokens.writeNumber(Double.longBitsToDouble(bits));
+                    break;
+                case BIG_INTEGER:
+                    tokens.writeNumber(new BigInteger(readLiteral(data, position)));
+                    break;
+                case BIG_DECIMAL:
+                    tokens.writeNumber(new BigDecimal(readLiteral(data, position)));
+                    break;
+                case TRUE:
+                    tokens.writeBoolean(true);
+                    break;
+                case FALSE:
+                    tokens.writeBoolean(false);
+                    break;
+                case NULL:
+                    tokens.writeNull();
+                    break;
+                default:
+                    throw new IOException("Corrupt compact record: tag " + tag);
+            }
+        }
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, mapper::readerFor);
+        }
+        try (JsonParser parser = tokens.asParser()) {
+            return reader.readValue(parser);
+        }
+    }
+
+    private void writeString(ByteArrayBuilder out, String value, int refTag, int literalTag, boolean always) {
+        int id = idOf(value, always);
+        if (id >= 0) {
+            out.append(refTag);
+            writeVarLong(out, id);
+        } else {
+            out.append(literalTag);
+            writeLiteral(out, value);
+        }
+    }
+
+    /**
+     * Returns the dictionary id of a string, adding it if it qualifies, or -1 to store it literally.
+     */
+    private int idOf(String value, boolean always) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (value.length() > MAX_DICTIONARY_STRING || ids.size() >= strings.length()) {
+            return -1;
+        }
+        if (!always && sightings.putIfAbsent(value, Boolean.TRUE) == null) {
+            // Bounded: forget first sightings once there are many more of them than dictionary slots.
+            if (sightings.size() > 4 * strings.length()) {
+                sightings.clear();
+            }
+            return -1;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id == null) {
+                if (nextId >= strings.length()) {
+                    return -1;
+                }
+                id = nextId++;
+                // Published before the id, so a reader that sees the id also sees the string.
+                strings.set(id, value);
+                ids.put(value, id);
+                sightings.remove(value);
+            }
+            return id;
+        }
+    }
+
+    private String lookup(int id) throws IOException {
+        String value = id < strings.length() ? strings.get(id) : null;
+        if (value == null) {
+            throw new IOException("Corrupt compact record: string " + id);
+        }
+        return value;
+    }
+
+    private static boolean isCanonicalInteger(String text) {
+        int length = text.length();
+        int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 18 || (text.charAt(start) == '0' && (length - start > 1 || start == 1))) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeLiteral(ByteArrayBuilder out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readLiteral(byte[] data, int[] position) {
+        int length = (int) readVarLong(data, position);
+        String value = new String(data, position[0], length, StandardCharsets.UTF_8);
+        position[0] += length;
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayBuilder out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.append((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.append((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
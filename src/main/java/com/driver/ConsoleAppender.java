@@ -0,0 +1,35 @@
+package com.driver;
+
+import java.io.PrintStream;
+
+/**
+ * Prints messages as {@code [CATEGORY] [Thread-<id>] message}, the original console format.
+ */
+public class ConsoleAppender implements LogAppender {
+    private final PrintStream out;
+
+    /**
+     * Prints to whatever {@link System#out} is at the time of each message.
+     */
+    public ConsoleAppender() {
+        this(null);
+    }
+
+    public ConsoleAppender(PrintStream out) {
+        this.out = out;
+    }
+
+    private PrintStream out() {
+        return out != null ? out : System.out;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        out().println("[" + event.getCategory() + "] [Thread-" + event.getThreadId() + "] " + event.getMessage());
+    }
+
+    @Override
+    public void flush() {
+        out().flush();
+    }
+}
@@ -0,0 +1,623 @@
+package com.driver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * Tunable settings for a {@link JSONDatabase} instance.
+ * Setters return {@code this} so options can be chained.
+ */
+public class DatabaseConfig {
+    private boolean walEnabled = true;
+    private boolean walFsync = true;
+    private long walMaxBatchDelayMicros = 0;
+    private int walMaxBatchSize = 1024;
+    private long walCheckpointBytes = 4L * 1024 * 1024;
+    private long writeBehindIntervalMillis = 0;
+    private int writeBehindMaxDirty = 10_000;
+    private long cacheMaximumSize = 10_000;
+    private long cacheExpireAfterWriteMillis = 0;
+    private RecordCache<?> recordCache;
+    private CompactRecordCache.Storage compactCache;
+    private long cacheMemoryBudgetBytes = 64L * 1024 * 1024;
+    private final Map<String, List<String>> indexes = new LinkedHashMap<>();
+    private final Map<String, Map<String, Aggregation>> views = new LinkedHashMap<>();
+    private final Map<String, ColumnStore.Columns> columnStores = new LinkedHashMap<>();
+    private long columnRefreshIntervalMillis = 1_000;
+    private StorageEngine.Type storageType = StorageEngine.Type.FILE_PER_RECORD;
+    private StorageEngine storageEngine;
+    private final List<String> shardDirectories = new ArrayList<>();
+    private long segmentSizeBytes = 64L * 1024 * 1024;
+    private double compactionLiveRatio = 0.5;
+    private long compactionIntervalMillis = 10_000;
+    private RecordCodec.Format defaultCodec = RecordCodec.Format.PRETTY_JSON;
+    private final Map<String, RecordCodec.Format> codecs = new LinkedHashMap<>();
+    private RecordCodec.Compression defaultCompression = RecordCodec.Compression.NONE;
+    private final Map<String, RecordCodec.Compression> compressions = new LinkedHashMap<>();
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private int compressionDictionarySamples = 256;
+    private int lockStripes = 64;
+    private ExecutorStrategy executorStrategy = ExecutorStrategy.FIXED_POOL;
+    private int executorPoolSize = 10;
+    private ExecutorService executor;
+    private ChangeEventSink eventSink;
+    private int eventBufferSize = 8192;
+    private int eventBatchSize = 256;
+    private EventPipeline.OverflowPolicy eventOverflowPolicy = EventPipeline.OverflowPolicy.DROP;
+    private final Set<ChangeEvent.Type> disabledEvents = EnumSet.noneOf(ChangeEvent.Type.class);
+    private long eventShutdownTimeoutMillis = 5_000;
+    private MetricsRegistry metricsRegistry;
+    private boolean cacheWarmUp = false;
+    private long cacheSnapshotIntervalMillis = 60_000;
+    private long warmUpMemoryBudgetBytes = 64L * 1024 * 1024;
+    private int warmUpThreads = 4;
+    private final Set<Class<?>> warmUpTypes = new HashSet<>();
+    private boolean jmxEnabled = true;
+
+    /**
+     * Enables the write-ahead log. When disabled, writes go straight to the record files.
+     */
+    public DatabaseConfig walEnabled(boolean walEnabled) {
+        this.walEnabled = walEnabled;
+        return this;
+    }
+
+    /**
+     * When true (the default) a write is acknowledged only after its group commit has been fsynced.
+     * When false the log is written but durability is left to the operating system.
+     */
+    public DatabaseConfig walFsync(boolean walFsync) {
+        this.walFsync = walFsync;
+        return this;
+    }
+
+    /**
+     * Maximum time the log writer waits for more writers to join a group commit before flushing.
+     * Zero flushes as soon as the previous fsync returns.
+     */
+    public DatabaseConfig walMaxBatchDelayMicros(long walMaxBatchDelayMicros) {
+        this.walMaxBatchDelayMicros = walMaxBatchDelayMicros;
+        return this;
+    }
+
+    /**
+     * Maximum number of appends combined into a single group commit.
+     */
+    public DatabaseConfig walMaxBatchSize(int walMaxBatchSize) {
+        this.walMaxBatchSize = walMaxBatchSize;
+        return this;
+    }
+
+    /**
+     * Log size after which the log is truncated once every entry has been materialized.
+     */
+    public DatabaseConfig walCheckpointBytes(long walCheckpointBytes) {
+        this.walCheckpointBytes = walCheckpointBytes;
+        return this;
+    }
+
+    /**
+     * Enables write-behind: writes are acknowledged once they are in the cache and the log's dirty set,
+     * and the latest version of each dirty record is logged at most this many milliseconds later.
+     * Writes acknowledged in that window are lost on a crash; {@link JSONDatabase#flush()} closes it on demand.
+     * 0 (the default) makes every write durable before it is acknowledged. Needs the write-ahead log.
+     */
+    public DatabaseConfig writeBehindIntervalMillis(long writeBehindIntervalMillis) {
+        this.writeBehindIntervalMillis = writeBehindIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Number of dirty records at which write-behind logs them without waiting for the interval.
+     */
+    public DatabaseConfig writeBehindMaxDirty(int writeBehindMaxDirty) {
+        this.writeBehindMaxDirty = writeBehindMaxDirty;
+        return this;
+    }
+
+    /**
+     * Maximum number of records kept in the default W-TinyLFU record cache.
+     */
+    public DatabaseConfig cacheMaximumSize(long cacheMaximumSize) {
+        this.cacheMaximumSize = cacheMaximumSize;
+        return this;
+    }
+
+    /**
+     * Caches records serialized, on the heap or off it, instead of as objects; see {@link CompactRecordCache}.
+     * The cache is then bounded by {@link #cacheMemoryBudgetBytes} rather than by a number of records.
+     */
+    public DatabaseConfig compactCache(CompactRecordCache.Storage compactCache) {
+        this.compactCache = compactCache;
+        return this;
+    }
+
+    /**
+     * Memory the compact record cache may use for serialized records, split evenly between shards.
+     */
+    public DatabaseConfig cacheMemoryBudgetBytes(long cacheMemoryBudgetBytes) {
+        this.cacheMemoryBudgetBytes = cacheMemoryBudgetBytes;
+        return this;
+    }
+
+    /**
+     * Cached records older than this are re-read from storage. Zero (the default) disables expiry.
+     */
+    public DatabaseConfig cacheExpireAfterWriteMillis(long cacheExpireAfterWriteMillis) {
+        this.cacheExpireAfterWriteMillis = cacheExpireAfterWriteMillis;
+        return this;
+    }
+
+    /**
+     * Replaces the default record cache with a custom implementation.
+     * The cache holds the decoded records of every collection, whatever their type.
+     */
+    public DatabaseConfig recordCache(RecordCache<?> recordCache) {
+        this.recordCache = recordCache;
+        return this;
+    }
+
+    /**
+     * Warms the record cache up on start, in the background while requests are already served: from the hot set
+     * saved by the last run, or else from the stored records. The hot set is saved on shutdown and every
+     * {@link #cacheSnapshotIntervalMillis} milliseconds.
+     */
+    public DatabaseConfig cacheWarmUp(boolean cacheWarmUp) {
+        this.cacheWarmUp = cacheWarmUp;
+        return this;
+    }
+
+    /**
+     * How often the cache's hot set is saved while the database runs; zero saves it only on shutdown.
+     */
+    public DatabaseConfig cacheSnapshotIntervalMillis(long cacheSnapshotIntervalMillis) {
+        this.cacheSnapshotIntervalMillis = cacheSnapshotIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Stops the warm-up once the records loaded add up to this many encoded bytes.
+     */
+    public DatabaseConfig warmUpMemoryBudgetBytes(long warmUpMemoryBudgetBytes) {
+        this.warmUpMemoryBudgetBytes = warmUpMemoryBudgetBytes;
+        return this;
+    }
+
+    /**
+     * Number of threads loading records during the warm-up.
+     */
+    public DatabaseConfig warmUpThreads(int warmUpThreads) {
+        this.warmUpThreads = warmUpThreads;
+        return this;
+    }
+
+    /**
+     * Record types, besides {@link User} and {@link com.fasterxml.jackson.databind.JsonNode}, whose cached records
+     * are restored by the warm-up. Records cached as other types are left for the first read.
+     */
+    public DatabaseConfig warmUpTypes(Class<?>... types) {
+        this.warmUpTypes.addAll(Arrays.asList(types));
+        return this;
+    }
+
+    /**
+     * Declares a secondary index on a field path (e.g. {@code address.city}), built or loaded on startup.
+     */
+    public DatabaseConfig index(String collection, String fieldPath) {
+        indexes.computeIfAbsent(collection, c -> new ArrayList<>()).add(fieldPath);
+        return this;
+    }
+
+    /**
+     * Declares a named materialized view over a collection, built or loaded from its checkpoint on startup.
+     */
+    public DatabaseConfig view(String collection, String name, Aggregation definition) {
+        views.computeIfAbsent(collection, c -> new LinkedHashMap<>()).put(name, definition);
+        return this;
+    }
+
+    /**
+     * Declares a column store over a collection, built or loaded from its checkpoint on startup.
+     * Aggregations that only use its columns then scan them instead of the records.
+     */
+    public DatabaseConfig columnStore(String collection, ColumnStore.Columns columns) {
+        columnStores.put(collection, columns);
+        return this;
+    }
+
+    /**
+     * How often queued writes are applied to the column stores in the background; scans apply them anyway.
+     * Zero applies them only when a store is scanned.
+     */
+    public DatabaseConfig columnRefreshIntervalMillis(long columnRefreshIntervalMillis) {
+        this.columnRefreshIntervalMillis = columnRefreshIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Selects a built-in storage engine. The default keeps one JSON file per record.
+     */
+    public DatabaseConfig storageType(StorageEngine.Type storageType) {
+        this.storageType = storageType;
+        return this;
+    }
+
+    /**
+     * Plugs in a custom storage engine instead of a built-in one. The database closes it on shutdown.
+     */
+    public DatabaseConfig storageEngine(StorageEngine storageEngine) {
+        this.storageEngine = storageEngine;
+        return this;
+    }
+
+    /**
+     * Spreads the records of every collection over several directories, e.g. one per disk, by hashing their
+     * resource names. Each directory gets its own engine of the selected {@link #storageType} and the record cache
+     * is partitioned the same way. The write-ahead log, indexes and views stay in the database directory.
+     * The list must not change once records were written.
+     */
+    public DatabaseConfig shardDirectories(String... directories) {
+        this.shardDirectories.clear();
+        this.shardDirectories.addAll(Arrays.asList(directories));
+        return this;
+    }
+
+    /**
+     * Size at which the segment engine seals its active segment and starts a new one.
+     */
+    public DatabaseConfig segmentSizeBytes(long segmentSizeBytes) {
+        this.segmentSizeBytes = segmentSizeBytes;
+        return this;
+    }
+
+    /**
+     * Sealed segments whose live fraction drops below this ratio are compacted.
+     */
+    public DatabaseConfig compactionLiveRatio(double compactionLiveRatio) {
+        this.compactionLiveRatio = compactionLiveRatio;
+        return this;
+    }
+
+    public DatabaseConfig compactionIntervalMillis(long compactionIntervalMillis) {
+        this.compactionIntervalMillis = compactionIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Format new records are written in unless their collection declares its own.
+     * Records are always read in whatever format they were written in.
+     */
+    public DatabaseConfig defaultCodec(RecordCodec.Format format) {
+        this.defaultCodec = format;
+        return this;
+    }
+
+    /**
+     * Writes new records of the collection in the given format, e.g. {@code SMILE} for hot collections.
+     */
+    public DatabaseConfig codec(String collection, RecordCodec.Format format) {
+        codecs.put(collection, format);
+        return this;
+    }
+
+    /**
+     * Compression of new records, unless their collection declares its own. It applies to the record files and
+     * to the write-ahead log, which holds the same bytes. Records are always read however they were written.
+     */
+    public DatabaseConfig compression(RecordCodec.Compression compression) {
+        this.defaultCompression = compression;
+        return this;
+    }
+
+    /**
+     * Compresses new records of the collection, or not.
+     */
+    public DatabaseConfig compression(String collection, RecordCodec.Compression compression) {
+        compressions.put(collection, compression);
+        return this;
+    }
+
+    /**
+     * Deflate level from 1 (fastest, the default) to 9 (smallest).
+     */
+    public DatabaseConfig compressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * Number of a compressed collection's first records sampled to train its dictionary; 0 compresses
+     * without dictionaries.
+     */
+    public DatabaseConfig compressionDictionarySamples(int compressionDictionarySamples) {
+        this.compressionDictionarySamples = compressionDictionarySamples;
+        return this;
+    }
+
+    /**
+     * Number of record lock stripes per collection, rounded up to a power of two.
+     * Writers to records on different stripes of a collection never wait for each other.
+     */
+    public DatabaseConfig lockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+        return this;
+    }
+
+    /**
+     * Selects how asynchronous operations are run. The default is a fixed pool of platform threads.
+     */
+    public DatabaseConfig executorStrategy(ExecutorStrategy executorStrategy) {
+        this.executorStrategy = executorStrategy;
+        return this;
+    }
+
+    /**
+     * Number of threads of the {@link ExecutorStrategy#FIXED_POOL} executor.
+     */
+    public DatabaseConfig executorPoolSize(int executorPoolSize) {
+        this.executorPoolSize = executorPoolSize;
+        return this;
+    }
+
+    /**
+     * Runs asynchronous operations on a custom executor instead of a built-in one. The caller keeps owning it:
+     * {@link JSONDatabase#shutdown()} leaves it running, so operations should be finished before shutting down.
+     */
+    public DatabaseConfig executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Delivers change events to this sink. Overrides the Kafka bootstrap address given to the constructor.
+     * The database closes it on shutdown.
+     */
+    public DatabaseConfig eventSink(ChangeEventSink eventSink) {
+        this.eventSink = eventSink;
+        return this;
+    }
+
+    /**
+     * Capacity of the ring buffer between the data path and the event sink, rounded up to a power of two.
+     */
+    public DatabaseConfig eventBufferSize(int eventBufferSize) {
+        this.eventBufferSize = eventBufferSize;
+        return this;
+    }
+
+    /**
+     * Maximum number of events handed to the sink in one call.
+     */
+    public DatabaseConfig eventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+        return this;
+    }
+
+    /**
+     * What happens to an event when the buffer is full. The default drops it so the data path never waits.
+     */
+    public DatabaseConfig eventOverflowPolicy(EventPipeline.OverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * Stops emitting events of these types, e.g. {@code READ}.
+     */
+    public DatabaseConfig disableEvents(ChangeEvent.Type... types) {
+        disabledEvents.addAll(Arrays.asList(types));
+        return this;
+    }
+
+    /**
+     * How long shutdown waits for queued events to be delivered before abandoning them.
+     */
+    public DatabaseConfig eventShutdownTimeoutMillis(long eventShutdownTimeoutMillis) {
+        this.eventShutdownTimeoutMillis = eventShutdownTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Records the database's metrics in this registry instead of a new {@link SimpleMetricsRegistry}.
+     */
+    public DatabaseConfig metricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    /**
+     * Publishes the metrics as a JMX MBean (the default). See {@link MetricsMBean} for the naming.
+     */
+    public DatabaseConfig jmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+        return this;
+    }
+
+    public boolean isWalEnabled() {
+        return walEnabled;
+    }
+
+    public boolean isWalFsync() {
+        return walFsync;
+    }
+
+    public long getWalMaxBatchDelayMicros() {
+        return walMaxBatchDelayMicros;
+    }
+
+    public int getWalMaxBatchSize() {
+        return walMaxBatchSize;
+    }
+
+    public long getWalCheckpointBytes() {
+        return walCheckpointBytes;
+    }
+
+    public long getWriteBehindIntervalMillis() {
+        return writeBehindIntervalMillis;
+    }
+
+    public int getWriteBehindMaxDirty() {
+        return writeBehindMaxDirty;
+    }
+
+    public long getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public long getCacheExpireAfterWriteMillis() {
+        return cacheExpireAfterWriteMillis;
+    }
+
+    public RecordCache<?> getRecordCache() {
+        return recordCache;
+    }
+
+    public CompactRecordCache.Storage getCompactCache() {
+        return compactCache;
+    }
+
+    public long getCacheMemoryBudgetBytes() {
+        return cacheMemoryBudgetBytes;
+    }
+
+    public Map<String, List<String>> getIndexes() {
+        return indexes;
+    }
+
+    public Map<String, Map<String, Aggregation>> getViews() {
+        return views;
+    }
+
+    public Map<String, ColumnStore.Columns> getColumnStores() {
+        return columnStores;
+    }
+
+    public long getColumnRefreshIntervalMillis() {
+        return columnRefreshIntervalMillis;
+    }
+
+    public StorageEngine.Type getStorageType() {
+        return storageType;
+    }
+
+    public StorageEngine getStorageEngine() {
+        return storageEngine;
+    }
+
+    public boolean isCacheWarmUp() {
+        return cacheWarmUp;
+    }
+
+    public long getCacheSnapshotIntervalMillis() {
+        return cacheSnapshotIntervalMillis;
+    }
+
+    public long getWarmUpMemoryBudgetBytes() {
+        return warmUpMemoryBudgetBytes;
+    }
+
+    public int getWarmUpThreads() {
+        return warmUpThreads;
+    }
+
+    public Set<Class<?>> getWarmUpTypes() {
+        return warmUpTypes;
+    }
+
+    public List<String> getShardDirectories() {
+        return shardDirectories;
+    }
+
+    public long getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public double getCompactionLiveRatio() {
+        return compactionLiveRatio;
+    }
+
+    public long getCompactionIntervalMillis() {
+        return compactionIntervalMillis;
+    }
+
+    public RecordCodec.Format getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    public Map<String, RecordCodec.Format> getCodecs() {
+        return codecs;
+    }
+
+    public RecordCodec.Compression getCompression() {
+        return defaultCompression;
+    }
+
+    public Map<String, RecordCodec.Compression> getCompressions() {
+        return compressions;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public int getCompressionDictionarySamples() {
+        return compressionDictionarySamples;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public ExecutorStrategy getExecutorStrategy() {
+        return executorStrategy;
+    }
+
+    public int getExecutorPoolSize() {
+        return executorPoolSize;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public ChangeEventSink getEventSink() {
+        return eventSink;
+    }
+
+    public int getEventBufferSize() {
+        return eventBufferSize;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public EventPipeline.OverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+
+    public Set<ChangeEvent.Type> getDisabledEvents() {
+        return disabledEvents;
+    }
+
+    public long getEventShutdownTimeoutMillis() {
+        return eventShutdownTimeoutMillis;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+}
@@ -0,0 +1,78 @@
+package com.driver;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics a {@link JSONDatabase} records, looked up once in its {@link MetricsRegistry}.
+ * Operation latencies run from the call to the completion of the returned stage, so they include time
+ * spent queued on the executor and waiting for the group commit.
+ */
+final class DatabaseMetrics {
+    final LatencyHistogram readHit;
+    final LatencyHistogram readMiss;
+    final LatencyHistogram insertOrUpdate;
+    final LatencyHistogram delete;
+    final LatencyHistogram insertAll;
+    final LatencyHistogram deleteAll;
+    final LatencyHistogram readAll;
+    final LatencyHistogram commit;
+    final LongAdder commitConflicts;
+    final LongAdder bytesRead;
+    final LongAdder bytesWritten;
+    /** Tasks handed to the executor that have not started running yet. */
+    final LongAdder queuedTasks;
+
+    private final MetricsRegistry registry;
+    private final ConcurrentHashMap<String, CollectionLocks> collections = new ConcurrentHashMap<>();
+
+    DatabaseMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.readHit = registry.histogram("read.hit");
+        this.readMiss = registry.histogram("read.miss");
+        this.insertOrUpdate = registry.histogram("insertOrUpdate");
+        this.delete = registry.histogram("delete");
+        this.insertAll = registry.histogram("insertAll");
+        this.deleteAll = registry.histogram("deleteAll");
+        this.readAll = registry.histogram("readAll");
+        this.commit = registry.histogram("commit");
+        this.commitConflicts = registry.counter("commit.conflicts");
+        this.bytesRead = registry.counter("storage.bytesRead");
+        this.bytesWritten = registry.counter("storage.bytesWritten");
+        this.queuedTasks = registry.counter("executor.queued");
+    }
+
+    /**
+     * Returns the lock wait and hold histograms of a collection.
+     */
+    CollectionLocks locks(String collection) {
+        CollectionLocks locks = collections.get(collection);
+        return locks != null ? locks : collections.computeIfAbsent(collection, CollectionLocks::new);
+    }
+
+    /**
+     * Lock timing of one collection: the time to acquire its intent and stripe locks, and the time they were held.
+     */
+    final class CollectionLocks {
+        private final LatencyHistogram wait;
+        private final LatencyHistogram hold;
+
+        private CollectionLocks(String collection) {
+            this.wait = registry.histogram("lock.wait." + collection);
+            this.hold = registry.histogram("lock.hold." + collection);
+        }
+
+        /**
+         * Records the wait that began at {@code waitStart} and returns the acquisition time to pass to {@link #released}.
+         */
+        long acquired(long waitStart) {
+            long now = System.nanoTime();
+            wait.record(now - waitStart);
+            return now;
+        }
+
+        void released(long acquired) {
+            hold.recordSince(acquired);
+        }
+    }
+}
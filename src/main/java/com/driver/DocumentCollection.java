@@ -0,0 +1,157 @@
+package com.driver;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * A typed handle on one collection of a {@link JSONDatabase}, obtained from {@link JSONDatabase#collection}.
+ * - Records are encoded and decoded with readers and writers bound to the record type once,
+ *   through reusable output buffers, so every entity type gets the same efficiency as the built-in {@link User} API.
+ * - A {@link com.fasterxml.jackson.databind.JsonNode} type makes the collection schemaless; secondary indexes,
+ *   aggregations, views and projected reads work on its documents like on any other record.
+ * - Operations share the collection's locks, cache, write-ahead log and change events with the untyped API.
+ *   A record cached by a handle of another type is decoded again instead of being returned.
+ */
+public class DocumentCollection<T> {
+    private final JSONDatabase database;
+    private final String name;
+    private final RecordBinding<T> binding;
+
+    DocumentCollection(JSONDatabase database, String name, RecordBinding<T> binding) {
+        this.database = database;
+        this.name = name;
+        this.binding = binding;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return binding.type();
+    }
+
+    RecordBinding<T> binding() {
+        return binding;
+    }
+
+    public Future<Void> insertOrUpdate(String resource, T value) {
+        return insertOrUpdateAsync(resource, value);
+    }
+
+    public CompletableFuture<Void> insertOrUpdateAsync(String resource, T value) {
+        return database.insertOrUpdateAsync(binding, name, resource, value);
+    }
+
+    public Future<T> read(String resource) {
+        return readAsync(resource);
+    }
+
+    public CompletableFuture<T> readAsync(String resource) {
+        return database.readAsync(binding, name, resource);
+    }
+
+    /**
+     * Reads only the given fields of a record, keyed by field path; see {@link JSONDatabase#read(String, String, String...)}.
+     */
+    public Future<Map<String, Object>> read(String resource, String... fields) {
+        return readAsync(resource, fields);
+    }
+
+    public CompletableFuture<Map<String, Object>> readAsync(String resource, String... fields) {
+        return database.readAsync(name, resource, fields);
+    }
+
+    public Future<Void> delete(String resource) {
+        return deleteAsync(resource);
+    }
+
+    public CompletableFuture<Void> deleteAsync(String resource) {
+        return database.deleteAsync(name, resource);
+    }
+
+    public Future<Void> insertAll(Map<String, ? extends T> values) {
+        return insertAllAsync(values);
+    }
+
+    public CompletableFuture<Void> insertAllAsync(Map<String, ? extends T> values) {
+        return database.insertAllAsync(binding, name, values);
+    }
+
+    public Future<Map<String, T>> readMany(Collection<String> resources) {
+        return readManyAsync(resources);
+    }
+
+    public CompletableFuture<Map<String, T>> readManyAsync(Collection<String> resources) {
+        return database.readManyAsync(binding, name, resources);
+    }
+
+    public Future<Void> deleteAll(Collection<String> resources) {
+        return deleteAllAsync(resources);
+    }
+
+    public CompletableFuture<Void> deleteAllAsync(Collection<String> resources) {
+        return database.deleteAllAsync(name, resources);
+    }
+
+    /**
+     * Reads every record of the collection, decoded, as of the moment this is called.
+     * Shards are read in parallel, as by {@link JSONDatabase#readAll}.
+     */
+    public Future<List<T>> readAll() {
+        return readAllAsync();
+    }
+
+    public CompletableFuture<List<T>> readAllAsync() {
+        return database.readAllAsync(binding, name);
+    }
+
+    /**
+     * Streams the records of the collection with the snapshot semantics of {@link JSONDatabase#scan(String, boolean)}.
+     */
+    public Stream<T> scan(boolean parallel) throws IOException {
+        return database.scan(binding, name, parallel);
+    }
+
+    public Stream<T> scan() throws IOException {
+        return scan(false);
+    }
+
+    public Stream<Map<String, Object>> scan(Projection projection, boolean parallel) throws IOException {
+        return database.scan(name, projection, parallel);
+    }
+
+    public Future<ScanPage<T>> scanPage(String cursor, int limit) {
+        return scanPageAsync(cursor, limit);
+    }
+
+    public CompletableFuture<ScanPage<T>> scanPageAsync(String cursor, int limit) {
+        return database.scanPageAsync(binding, name, cursor, limit);
+    }
+
+    public Future<Void> createIndex(String fieldPath) {
+        return database.createIndexAsync(name, fieldPath);
+    }
+
+    public Future<List<T>> findBy(String fieldPath, String value) {
+        return findByAsync(fieldPath, value);
+    }
+
+    public CompletableFuture<List<T>> findByAsync(String fieldPath, String value) {
+        return database.findByAsync(binding, name, fieldPath, value);
+    }
+
+    public Future<AggregationResult> aggregate(Aggregation aggregation) {
+        return database.aggregateAsync(name, aggregation);
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentCollection[" + name + ", " + binding.type().getSimpleName() + "]";
+    }
+}
@@ -0,0 +1,258 @@
+package com.driver;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples event emission from delivery.
+ * - Emitters claim a slot of a bounded ring buffer with a single CAS; they never take a lock or wait for the sink.
+ * - A dedicated thread drains the buffer in batches of up to {@code maxBatchSize} and hands them to the sink.
+ * - When the buffer is full the {@link OverflowPolicy} decides between dropping the event and waiting for space.
+ * - Publish latency (emission to delivery) and queue depth are tracked and reported by {@link #stats()}.
+ *   The latency distribution and the duration of each sink call are also recorded as the {@code events.latency}
+ *   and {@code events.publish} histograms of the {@link MetricsRegistry}.
+ */
+public class EventPipeline {
+    /**
+     * What {@link #emit} does when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the new event and count it as dropped. Emitters are never slowed down. */
+        DROP,
+        /** Wait until the drain thread frees a slot, applying backpressure to the emitter. */
+        BLOCK
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ChangeEventSink sink;
+    private final OverflowPolicy overflowPolicy;
+    private final Set<ChangeEvent.Type> enabledTypes;
+    private final int maxBatchSize;
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    // Next slot to claim (emitters) and next slot to drain (drain thread only).
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final Thread drainThread;
+    private volatile boolean draining;
+    private volatile boolean closed;
+    private volatile boolean abandoned;
+    // BLOCK emitters wait on this monitor while the ring is full; the drain thread notifies it after freeing slots.
+    private final Object space = new Object();
+    private final AtomicInteger blockedEmitters = new AtomicInteger();
+
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final LatencyHistogram latencyHistogram;
+    private final LatencyHistogram publishHistogram;
+
+    public EventPipeline(ChangeEventSink sink, int capacity, int maxBatchSize, OverflowPolicy overflowPolicy,
+                         Set<ChangeEvent.Type> disabledTypes) {
+        this(sink, capacity, maxBatchSize, overflowPolicy, disabledTypes, new SimpleMetricsRegistry());
+    }
+
+    /**
+     * Starts the drain thread. The capacity is rounded up to a power of two.
+     */
+    public EventPipeline(ChangeEventSink sink, int capacity, int maxBatchSize, OverflowPolicy overflowPolicy,
+                         Set<ChangeEvent.Type> disabledTypes, MetricsRegistry metrics) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.sink = sink;
+        this.overflowPolicy = overflowPolicy;
+        this.maxBatchSize = maxBatchSize;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.enabledTypes = EnumSet.allOf(ChangeEvent.Type.class);
+        this.enabledTypes.removeAll(disabledTypes);
+        this.latencyHistogram = metrics.histogram("events.latency");
+        this.publishHistogram = metrics.histogram("events.publish");
+        metrics.gauge("events.queueDepth", this::queueDepth);
+        metrics.gauge("events.dropped", dropped::sum);
+        sink.bindMetrics(metrics);
+        this.drainThread = new Thread(this::drainLoop, "event-pipeline");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Returns true if events of this type are delivered; emitters can skip building disabled events.
+     */
+    public boolean isEnabled(ChangeEvent.Type type) {
+        return enabledTypes.contains(type);
+    }
+
+    public void emit(ChangeEvent.Type type, String collection, String resource, String message) {
+        if (isEnabled(type)) {
+            emit(new ChangeEvent(type, collection, resource, message));
+        }
+    }
+
+    /**
+     * Queues an event for delivery. Returns false if it was dropped because the buffer was full or the pipeline is closed.
+     */
+    public boolean emit(ChangeEvent event) {
+        if (!isEnabled(event.getType())) {
+            return false;
+        }
+        while (!closed) {
+            long slot = tail.get();
+            if (slot - head.get() >= ring.length()) {
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    break;
+                }
+                if (!awaitSpace()) {
+                    break;
+                }
+                continue;
+            }
+            if (tail.compareAndSet(slot, slot + 1)) {
+                // The drain thread treats a null slot as not yet written and waits for it.
+                ring.set((int) slot & mask, event);
+                emitted.increment();
+                if (!draining) {
+                    LockSupport.unpark(drainThread);
+                }
+                return true;
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Parks a BLOCK emitter until the drain thread frees a slot or the pipeline closes.
+     * The wait is timed so that a wakeup racing with the registration below only costs one idle period.
+     * Returns false if the emitter was interrupted; the event is then counted as dropped.
+     */
+    private boolean awaitSpace() {
+        blockedEmitters.incrementAndGet();
+        try {
+            LockSupport.unpark(drainThread);
+            synchronized (space) {
+                while (!closed && tail.get() - head.get() >= ring.length()) {
+                    space.wait(TimeUnit.NANOSECONDS.toMillis(IDLE_PARK_NANOS));
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            blockedEmitters.decrementAndGet();
+        }
+    }
+
+    private void signalSpace() {
+        if (blockedEmitters.get() > 0) {
+            synchronized (space) {
+                space.notifyAll();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<ChangeEvent> batch = new ArrayList<>(maxBatchSize);
+        while (!abandoned) {
+            draining = true;
+            long position = head.get();
+            while (batch.size() < maxBatchSize) {
+                int index = (int) position & mask;
+                ChangeEvent event = ring.get(index);
+                if (event == null) {
+                    break;
+                }
+                ring.lazySet(index, null);
+                head.lazySet(++position);
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                signalSpace();
+                deliver(batch);
+                batch.clear();
+                continue;
+            }
+            if (closed && tail.get() == head.get()) {
+                return;
+            }
+            draining = false;
+            if (ring.get((int) head.get() & mask) == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void deliver(List<ChangeEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            sink.publish(batch);
+        } catch (Exception e) {
+            failed.add(batch.size());
+            Logger.log("ERROR", "Failed to publish {} change events: {}", batch.size(), e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        publishHistogram.record(now - start);
+        for (ChangeEvent event : batch) {
+            long latency = now - event.getCreatedNanos();
+            latencyNanos.add(latency);
+            latencyHistogram.record(latency);
+            long max = maxLatencyNanos.get();
+            while (latency > max && !maxLatencyNanos.compareAndSet(max, latency)) {
+                max = maxLatencyNanos.get();
+            }
+        }
+        published.add(batch.size());
+    }
+
+    /**
+     * Number of events emitted but not yet handed to the sink.
+     */
+    public long queueDepth() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    public EventStats stats() {
+        return new EventStats(emitted.sum(), published.sum(), dropped.sum(), failed.sum(), queueDepth(),
+                latencyNanos.sum(), maxLatencyNanos.get());
+    }
+
+    /**
+     * Stops accepting events, delivers what is queued for up to the timeout, then closes the sink.
+     * Events still queued after the timeout are abandoned.
+     */
+    public void close(long timeoutMillis) {
+        closed = true;
+        LockSupport.unpark(drainThread);
+        synchronized (space) {
+            space.notifyAll();
+        }
+        try {
+            drainThread.join(timeoutMillis);
+            if (drainThread.isAlive()) {
+                Logger.log("WARN", "Abandoning {} undelivered change events", queueDepth());
+                abandoned = true;
+                drainThread.interrupt();
+                drainThread.join(timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.driver;
+
+/**
+ * Point-in-time snapshot of an {@link EventPipeline}'s counters.
+ */
+public class EventStats {
+    private final long emittedCount;
+    private final long publishedCount;
+    private final long droppedCount;
+    private final long failedCount;
+    private final long queueDepth;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    public EventStats(long emittedCount, long publishedCount, long droppedCount, long failedCount, long queueDepth,
+                      long totalLatencyNanos, long maxLatencyNanos) {
+        this.emittedCount = emittedCount;
+        this.publishedCount = publishedCount;
+        this.droppedCount = droppedCount;
+        this.failedCount = failedCount;
+        this.queueDepth = queueDepth;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public long getEmittedCount() {
+        return emittedCount;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * Number of events discarded because the ring buffer was full or the pipeline was closed.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Number of events in batches the sink failed to publish.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Mean time from emission to delivery of the published events, in microseconds.
+     */
+    public double averageLatencyMicros() {
+        return publishedCount == 0 ? 0.0 : totalLatencyNanos / 1_000.0 / publishedCount;
+    }
+
+    public double maxLatencyMicros() {
+        return maxLatencyNanos / 1_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "EventStats{emitted=" + emittedCount + ", published=" + publishedCount + ", dropped=" + droppedCount
+                + ", failed=" + failedCount + ", queueDepth=" + queueDepth
+                + ", avgLatencyMicros=" + String.format("%.1f", averageLatencyMicros())
+                + ", maxLatencyMicros=" + String.format("%.1f", maxLatencyMicros()) + "}";
+    }
+}
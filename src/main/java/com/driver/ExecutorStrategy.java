@@ -0,0 +1,39 @@
+package com.driver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How a {@link JSONDatabase} runs its asynchronous operations.
+ */
+public enum ExecutorStrategy {
+    /**
+     * A fixed pool of platform threads, sized by {@link DatabaseConfig#executorPoolSize(int)}.
+     */
+    FIXED_POOL,
+
+    /**
+     * One virtual thread per operation, so blocking file I/O does not tie up a scarce pool thread and
+     * thousands of operations can be in flight. Requires a Java 21+ runtime; on older runtimes an
+     * unbounded cached pool of platform threads is used instead.
+     */
+    VIRTUAL_THREADS;
+
+    /**
+     * Creates the executor for this strategy.
+     */
+    public ExecutorService create(int poolSize) {
+        if (this == FIXED_POOL) {
+            return Executors.newFixedThreadPool(poolSize);
+        }
+        try {
+            // Looked up reflectively so the driver still builds and runs on runtimes without virtual threads.
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Logger.log("WARN", "Virtual threads are not available on this runtime, using a cached thread pool");
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dotted path to a field of a record, such as {@code company} or {@code address.city}.
+ * - Objects are read through their Jackson bean properties (public fields, getters, {@code @JsonProperty}),
+ *   resolved once per class and cached, so a path names the same value as in the encoded record.
+ *   A segment the class has no property for reads as null, as it would from the encoded record;
+ *   {@link #validate} rejects such paths up front.
+ * - {@link JsonNode} documents and nested maps are walked directly. A map that holds the full path as a key,
+ *   such as a record produced by a {@link Projection}, is looked up by it instead.
+ */
+public final class FieldPath {
+    private static final ConcurrentHashMap<String, FieldPath> PATHS = new ConcurrentHashMap<>();
+    private static final SerializationConfig BEANS = new ObjectMapper().getSerializationConfig();
+
+    private final String path;
+    private final String[] names;
+    // Per segment, the property accessor of each class seen there; empty if the class has no such property.
+    private final ConcurrentHashMap<Class<?>, Optional<AnnotatedMember>>[] accessors;
+
+    @SuppressWarnings("unchecked")
+    private FieldPath(String path) {
+        this.path = path;
+        this.names = path.split("\\.");
+        this.accessors = (ConcurrentHashMap<Class<?>, Optional<AnnotatedMember>>[])
+                new ConcurrentHashMap<?, ?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            accessors[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Returns the (shared) path object for a dotted path.
+     */
+    public static FieldPath of(String path) {
+        return PATHS.computeIfAbsent(path, FieldPath::new);
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Returns the path segments, e.g. {@code ["address", "city"]}.
+     */
+    public String[] names() {
+        return names.clone();
+    }
+
+    /**
+     * Returns the value at this path, or null if any step along the path is null or missing.
+     */
+    public Object get(Object record) {
+        if (names.length > 1 && record instanceof Map && ((Map<?, ?>) record).containsKey(path)) {
+            return ((Map<?, ?>) record).get(path);
+        }
+        Object current = record;
+        for (int i = 0; i < names.length && current != null; i++) {
+            if (current instanceof Map) {
+                current = ((Map<?, ?>) current).get(names[i]);
+                continue;
+            }
+            if (current instanceof JsonNode) {
+                JsonNode child = ((JsonNode) current).get(names[i]);
+                current = child == null || child.isNull() ? null
+                        : child.isValueNode() ? child.asText() : child;
+                continue;
+            }
+            AnnotatedMember accessor = resolve(i, current.getClass());
+            current = accessor == null ? null : accessor.getValue(current);
+        }
+        return current;
+    }
+
+    /**
+     * Checks that records of the given type have this path, as far as its declared property types tell;
+     * segments under a map, {@link JsonNode} or untyped property are not checked.
+     *
+     * @throws IllegalArgumentException naming the first segment the type has no property for
+     */
+    public void validate(Class<?> type) {
+        Class<?> current = type;
+        for (int i = 0; i < names.length; i++) {
+            if (current == Object.class || Map.class.isAssignableFrom(current) || JsonNode.class.isAssignableFrom(current)) {
+                return;
+            }
+            AnnotatedMember accessor = resolve(i, current);
+            if (accessor == null) {
+                throw new IllegalArgumentException("Unknown field '" + names[i] + "' in path '" + path
+                        + "' for " + current.getSimpleName());
+            }
+            current = accessor.getRawType();
+        }
+    }
+
+    /**
+     * Returns the value at this path as a string, or null.
+     */
+    public String getString(Object record) {
+        Object value = get(record);
+        return value == null ? null : value.toString();
+    }
+
+    private AnnotatedMember resolve(int index, Class<?> type) {
+        Optional<AnnotatedMember> accessor = accessors[index].get(type);
+        if (accessor == null) {
+            accessor = Optional.empty();
+            for (BeanPropertyDefinition property : BEANS.introspect(BEANS.constructType(type)).findProperties()) {
+                if (property.getName().equals(names[index]) && property.getAccessor() != null) {
+                    property.getAccessor().fixAccess(true);
+                    accessor = Optional.of(property.getAccessor());
+                    break;
+                }
+            }
+            accessors[index].put(type, accessor);
+        }
+        return accessor.orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -3,20 +3,44 @@ package com.driver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Handles file operations for reading/writing JSON data.
  */
 public class FileHandler {
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final RecordCodec codec = new RecordCodec();
 
     public static void writeToFile(File file, Object data) throws IOException {
         objectMapper.writeValue(file, data);
     }
 
+    /**
+     * Writes the data in the given record format.
+     */
+    public static void writeToFile(File file, Object data, RecordCodec.Format format) throws IOException {
+        Files.write(file.toPath(), codec.encode(data, format));
+    }
+
+    /**
+     * Writes the data in the given record format, deflated unless the compression is {@code NONE}.
+     */
+    public static void writeToFile(File file, Object data, RecordCodec.Format format,
+                                   RecordCodec.Compression compression) throws IOException {
+        Files.write(file.toPath(), codec.encode(data, format, compression));
+    }
+
+    /**
+     * Reads a file written in any {@link RecordCodec.Format}, compressed or not; the format is detected from the content.
+     */
     public static <T> T readFromFile(File file, Class<T> clazz) throws IOException {
-        return objectMapper.readValue(file, clazz);
+        return codec.decode(Files.readAllBytes(file.toPath()), clazz);
     }
 
     public static boolean fileExists(File file) {
@@ -26,4 +50,53 @@ public class FileHandler {
     public static void deleteFile(File file) {
         file.delete();
     }
+
+    /**
+     * Writes the bytes to a hidden temporary file next to the target and renames it into place,
+     * so readers see either the old or the new content, never a partial write.
+     */
+    public static void writeAtomically(File file, byte[] data) throws IOException {
+        File temp = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+        Files.write(temp.toPath(), data);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the file's bytes, or null if it does not exist.
+     */
+    public static byte[] readBytes(File file) throws IOException {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Forces the file's content to stable storage.
+     */
+    public static void sync(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces a directory's entries to stable storage, so files created, renamed into or deleted from it survive a crash.
+     * Platforms that cannot open a directory (Windows) make their directory updates durable on their own; there
+     * this does nothing.
+     */
+    public static void syncDirectory(File directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package com.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original layout: one {@code <resource>.json} file per record under {@code <directory>/<collection>/}.
+ * Files are replaced atomically; fsyncs are deferred to {@link #sync()}, which also syncs the directories whose
+ * entries changed so that renames, deletes and drops are as durable as the file contents.
+ */
+public class FileStorageEngine implements StorageEngine {
+    private static final String EXTENSION = ".json";
+
+    private final File directory;
+    private final Set<File> unsyncedFiles = ConcurrentHashMap.newKeySet();
+    private final Set<File> unsyncedDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<String> knownCollections = ConcurrentHashMap.newKeySet();
+
+    public FileStorageEngine(File directory) {
+        this.directory = directory;
+    }
+
+    private File fileOf(String collection, String resource) {
+        return new File(new File(directory, collection), resource + EXTENSION);
+    }
+
+    @Override
+    public byte[] read(String collection, String resource) throws IOException {
+        return FileHandler.readBytes(fileOf(collection, resource));
+    }
+
+    @Override
+    public void write(String collection, String resource, byte[] data) throws IOException {
+        File file = fileOf(collection, resource);
+        // Only the first write to a collection pays for the directory check.
+        if (!knownCollections.contains(collection)) {
+            if (file.getParentFile().mkdirs()) {
+                unsyncedDirectories.add(directory);
+            }
+            knownCollections.add(collection);
+        }
+        FileHandler.writeAtomically(file, data);
+        unsyncedFiles.add(file);
+        unsyncedDirectories.add(file.getParentFile());
+    }
+
+    @Override
+    public void delete(String collection, String resource) throws IOException {
+        File file = fileOf(collection, resource);
+        if (Files.deleteIfExists(file.toPath())) {
+            unsyncedDirectories.add(file.getParentFile());
+        }
+    }
+
+    @Override
+    public void dropCollection(String collection) throws IOException {
+        knownCollections.remove(collection);
+        File collectionDir = new File(directory, collection);
+        if (collectionDir.isDirectory()) {
+            for (File child : Objects.requireNonNull(collectionDir.listFiles())) child.delete();
+        }
+        collectionDir.delete();
+        unsyncedDirectories.add(directory);
+    }
+
+    @Override
+    public boolean collectionExists(String collection) {
+        return new File(directory, collection).exists();
+    }
+
+    @Override
+    public List<String> listResources(String collection) throws IOException {
+        List<String> resources = new ArrayList<>();
+        Path dir = new File(directory, collection).toPath();
+        if (!Files.isDirectory(dir)) {
+            return resources;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                resources.add(name.substring(0, name.length() - EXTENSION.length()));
+            }
+        }
+        return resources;
+    }
+
+    @Override
+    public List<String> listCollections() {
+        return StorageEngine.collectionDirectories(directory);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (Iterator<File> it = unsyncedFiles.iterator(); it.hasNext(); ) {
+            File file = it.next();
+            it.remove();
+            if (file.exists()) {
+                FileHandler.sync(file);
+            }
+        }
+        // Directories after their files: a synced entry must not point at unsynced content.
+        for (Iterator<File> it = unsyncedDirectories.iterator(); it.hasNext(); ) {
+            File dir = it.next();
+            it.remove();
+            if (dir.isDirectory()) {
+                FileHandler.syncDirectory(dir);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+    }
+}
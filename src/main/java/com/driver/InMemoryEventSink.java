@@ -0,0 +1,27 @@
+package com.driver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps every delivered event in memory, e.g. for tests or in-process listeners.
+ */
+public class InMemoryEventSink implements ChangeEventSink {
+    private final List<ChangeEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<ChangeEvent> batch) {
+        events.addAll(batch);
+    }
+
+    /**
+     * Returns a copy of the events delivered so far.
+     */
+    public synchronized List<ChangeEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the secondary indexes of a database.
+ * - Indexes live in memory and are saved under {@code <directory>/<collection>.indexes/} on shutdown.
+ * - A saved index file is removed once loaded, so after a crash the index is rebuilt from the records
+ *   instead of trusting a stale file.
+ */
+public class IndexManager {
+    /**
+     * Supplies every record of a collection, keyed by resource, for index rebuilds.
+     * Records may be of any type {@link FieldPath} can read, including projected field maps.
+     */
+    public interface RecordSource {
+        Map<String, ?> load(String collection) throws IOException;
+    }
+
+    private final File directory;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, SecondaryIndex>> indexes = new ConcurrentHashMap<>();
+
+    public IndexManager(File directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Declares an index on a field path, loading its saved copy or rebuilding it from the records.
+     * Callers must hold the collection's write lock so no write slips in during a rebuild.
+     */
+    public SecondaryIndex register(String collection, String fieldPath, RecordSource source) throws IOException {
+        ConcurrentHashMap<String, SecondaryIndex> byField = indexes.computeIfAbsent(collection, c -> new ConcurrentHashMap<>());
+        SecondaryIndex existing = byField.get(fieldPath);
+        if (existing != null) {
+            return existing;
+        }
+
+        SecondaryIndex index = new SecondaryIndex(FieldPath.of(fieldPath));
+        File file = indexFile(collection, fieldPath);
+        boolean loaded = false;
+        if (file.exists()) {
+            try {
+                index.load(file, objectMapper);
+                loaded = true;
+                Logger.log("INDEX", "Loaded index {}.{} ({} entries)", collection, fieldPath, index.size());
+            } catch (IOException e) {
+                Logger.log("ERROR", "Corrupt index file {}, rebuilding: {}", file.getPath(), e.getMessage());
+            }
+            file.delete();
+        }
+        if (!loaded) {
+            for (Map.Entry<String, ?> record : source.load(collection).entrySet()) {
+                index.update(record.getKey(), record.getValue());
+            }
+            Logger.log("INDEX", "Built index {}.{} ({} entries)", collection, fieldPath, index.size());
+        }
+        byField.put(fieldPath, index);
+        return index;
+    }
+
+    /**
+     * Returns the index on a field path, or null if none was declared.
+     */
+    public SecondaryIndex get(String collection, String fieldPath) {
+        Map<String, SecondaryIndex> byField = indexes.get(collection);
+        return byField == null ? null : byField.get(fieldPath);
+    }
+
+    public Collection<SecondaryIndex> indexesOf(String collection) {
+        Map<String, SecondaryIndex> byField = indexes.get(collection);
+        return byField == null ? Collections.<SecondaryIndex>emptyList() : byField.values();
+    }
+
+    /**
+     * Re-indexes a record after a write; a null record means it was deleted.
+     */
+    public void onWrite(String collection, String resource, Object record) {
+        for (SecondaryIndex index : indexesOf(collection)) {
+            index.update(resource, record);
+        }
+    }
+
+    public void onDropCollection(String collection) {
+        for (SecondaryIndex index : indexesOf(collection)) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Saves every index so the next start can skip the rebuild.
+     */
+    public void saveAll() {
+        for (Map.Entry<String, ConcurrentHashMap<String, SecondaryIndex>> collection : indexes.entrySet()) {
+            for (Map.Entry<String, SecondaryIndex> index : collection.getValue().entrySet()) {
+                try {
+                    index.getValue().save(indexFile(collection.getKey(), index.getKey()), objectMapper);
+                } catch (IOException e) {
+                    Logger.log("ERROR", "Failed to save index {}.{}: {}", collection.getKey(), index.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private File indexFile(String collection, String fieldPath) {
+        return new File(new File(directory, collection + ".indexes"), fieldPath + ".idx");
+    }
+}
@@ -4,10 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A JSON-based database supporting multi-threaded operations, caching, ACID transactions, and Kafka event streaming.
@@ -15,30 +20,215 @@ import java.util.concurrent.locks.ReentrantLock;
 public class JSONDatabase {
     private final String directory;
     private final ObjectMapper objectMapper;
-    private final ConcurrentHashMap<String, ReentrantLock> collectionLocks;
+    private final RecordCodec codec;
+    private final LockManager locks;
     private final ExecutorService executorService;
+    // False for an executor supplied through DatabaseConfig#executor, which its owner shuts down.
+    private final boolean ownsExecutor;
     private final TransactionManager transactionManager;
-    private final ConcurrentHashMap<String, User> cache;
-    private final KafkaProducerService kafkaProducer;
+    private final RecordCache<Object> cache;
+    private final RecordBinding<User> users;
+    private final ConcurrentHashMap<String, DocumentCollection<?>> collections = new ConcurrentHashMap<>();
+    private final EventPipeline events;
+    private final long eventShutdownTimeoutMillis;
+    private final WriteAheadLog wal;
+    private final IndexManager indexManager;
+    private final ViewManager viewManager;
+    private final ColumnStoreManager columnStoreManager;
+    private final ConcurrentHashMap<String, Set<CollectionSnapshot>> openSnapshots = new ConcurrentHashMap<>();
+    // Snapshots of paged scans awaiting their next page, by collection and cursor.
+    private final ConcurrentHashMap<String, PagedSnapshot> pagedSnapshots = new ConcurrentHashMap<>();
+    private final StorageEngine storage;
+    // Whole-collection reads fan out over the shards with a parallel stream when records are spread over disks.
+    private final boolean sharded;
+    private final MetricsRegistry metricsRegistry;
+    private final DatabaseMetrics metrics;
+    private final MetricsMBean metricsBean;
+    private final File cacheSnapshotFile;
+    private final CacheWarmer cacheWarmer;
+    private final ScheduledExecutorService cacheSnapshotter;
+    // The transaction joined by every write, between startTransaction() and its commit or rollback.
+    private volatile Transaction sharedTransaction;
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    private static final long PAGED_SNAPSHOT_IDLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long PAGED_SNAPSHOT_MAX_BEFORE_IMAGE_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * A paged scan's snapshot, kept open between pages so the next page seeks instead of listing the collection.
+     */
+    private static final class PagedSnapshot {
+        final CollectionSnapshot snapshot;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        PagedSnapshot(CollectionSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
 
     /**
      * Initializes the database with a specified directory.
      */
     public JSONDatabase(String directory, String kafkaBootstrapServers, String kafkaTopic) {
+        this(directory, kafkaBootstrapServers, kafkaTopic, new DatabaseConfig());
+    }
+
+    /**
+     * Initializes the database with a specified directory and configuration, publishing change events to Kafka
+     * unless the configuration supplies another event sink.
+     */
+    public JSONDatabase(String directory, String kafkaBootstrapServers, String kafkaTopic, DatabaseConfig config) {
+        this(directory, config, config.getEventSink() != null ? config.getEventSink()
+                : new KafkaProducerService(kafkaBootstrapServers, kafkaTopic));
+    }
+
+    /**
+     * Initializes the database without Kafka. Change events go to the configured sink, or nowhere.
+     */
+    public JSONDatabase(String directory, DatabaseConfig config) {
+        this(directory, config, config.getEventSink() != null ? config.getEventSink() : new NoOpEventSink());
+    }
+
+    public JSONDatabase(String directory) {
+        this(directory, new DatabaseConfig());
+    }
+
+    /**
+     * If the write-ahead log is enabled, entries left by a previous run are replayed before this returns.
+     */
+    private JSONDatabase(String directory, DatabaseConfig config, ChangeEventSink eventSink) {
         this.directory = directory;
         this.objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-        this.collectionLocks = new ConcurrentHashMap<>();
-        this.executorService = Executors.newFixedThreadPool(10);
+        try {
+            this.codec = new RecordCodec(config.getDefaultCodec(), config.getCodecs(),
+                    new RecordCompressor(new File(directory), config.getCompression(), config.getCompressions(),
+                            config.getCompressionLevel(), config.getCompressionDictionarySamples()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load compression dictionaries from " + directory, e);
+        }
+        this.locks = new LockManager(config.getLockStripes());
+        this.ownsExecutor = config.getExecutor() == null;
+        this.executorService = ownsExecutor ? config.getExecutorStrategy().create(config.getExecutorPoolSize())
+                : config.getExecutor();
+        this.users = codec.binding(User.class);
+        int shards = config.getShardDirectories().size();
+        if (config.getRecordCache() != null) {
+            this.cache = uncheckedCache(config.getRecordCache());
+        } else if (shards > 1) {
+            this.cache = new PartitionedRecordCache<>(shards, () -> createCache(config, shards));
+        } else {
+            this.cache = createCache(config, 1);
+        }
+        this.metricsRegistry = config.getMetricsRegistry() != null ? config.getMetricsRegistry() : new SimpleMetricsRegistry();
+        this.metrics = new DatabaseMetrics(metricsRegistry);
+        metricsRegistry.gauge("cache.size", cache::size);
+        metricsRegistry.gauge("cache.hitRatio", () -> cache.stats().hitRate());
+        this.events = new EventPipeline(eventSink, config.getEventBufferSize(), config.getEventBatchSize(),
+                config.getEventOverflowPolicy(), config.getDisabledEvents(), metricsRegistry);
+        this.eventShutdownTimeoutMillis = config.getEventShutdownTimeoutMillis();
+
+        if (config.getStorageEngine() != null) {
+            this.storage = config.getStorageEngine();
+        } else if (shards > 0) {
+            List<File> shardDirectories = new ArrayList<>();
+            for (String shardDirectory : config.getShardDirectories()) {
+                shardDirectories.add(new File(shardDirectory));
+            }
+            try {
+                this.storage = new ShardedStorageEngine(shardDirectories, dir -> createStorage(dir, config));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open shard directories " + shardDirectories, e);
+            }
+        } else {
+            this.storage = createStorage(new File(directory), config);
+        }
+        this.sharded = storage instanceof ShardedStorageEngine && ((ShardedStorageEngine) storage).shardCount() > 1;
+
+        WriteAheadLog.Applier applier = new WriteAheadLog.Applier() {
+            @Override
+            public void apply(WriteAheadLog.Entry entry) throws IOException {
+                materialize(entry);
+            }
+
+            @Override
+            public void sync() throws IOException {
+                storage.sync();
+            }
+        };
+        try {
+            this.wal = config.isWalEnabled() ? new WriteAheadLog(new File(directory, "wal.log"), config, applier) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-ahead log in " + directory, e);
+        }
+        if (wal != null) {
+            metricsRegistry.gauge("wal.dirty", wal::dirtyCount);
+            metricsRegistry.gauge("wal.coalesced", wal::coalescedCount);
+        } else if (config.getWriteBehindIntervalMillis() > 0) {
+            Logger.log("WARN", "Write-behind needs the write-ahead log; writes in {} are written through", directory);
+        }
         this.transactionManager = new TransactionManager();
-        this.cache = new ConcurrentHashMap<>();
-        this.kafkaProducer = new KafkaProducerService(kafkaBootstrapServers, kafkaTopic);
+
+        this.indexManager = new IndexManager(new File(directory), objectMapper);
+        this.viewManager = new ViewManager(new File(directory), objectMapper);
+        this.columnStoreManager = new ColumnStoreManager(new File(directory), objectMapper,
+                config.getColumnRefreshIntervalMillis());
+        metricsRegistry.gauge("columns.pending", columnStoreManager::pendingCount);
+        for (Map.Entry<String, List<String>> declared : config.getIndexes().entrySet()) {
+            for (String fieldPath : declared.getValue()) {
+                try {
+                    registerIndex(declared.getKey(), fieldPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to build index " + declared.getKey() + "." + fieldPath, e);
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Aggregation>> declared : config.getViews().entrySet()) {
+            for (Map.Entry<String, Aggregation> view : declared.getValue().entrySet()) {
+                try {
+                    registerView(declared.getKey(), view.getKey(), view.getValue());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to build view " + view.getKey(), e);
+                }
+            }
+        }
+        for (Map.Entry<String, ColumnStore.Columns> declared : config.getColumnStores().entrySet()) {
+            try {
+                registerColumnStore(declared.getKey(), declared.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to build the columns of " + declared.getKey(), e);
+            }
+        }
+        this.metricsBean = config.isJmxEnabled()
+                ? MetricsMBean.register(new File(directory).getAbsolutePath(), metricsRegistry) : null;
+
+        this.cacheSnapshotFile = new File(directory, "cache.snapshot");
+        if (config.isCacheWarmUp()) {
+            long maxEntries = config.getRecordCache() != null || config.getCompactCache() != null
+                    ? Long.MAX_VALUE : config.getCacheMaximumSize();
+            this.cacheWarmer = new CacheWarmer(this, cacheSnapshotFile, config.getWarmUpMemoryBudgetBytes(), maxEntries,
+                    config.getWarmUpThreads(), config.getWarmUpTypes());
+            cacheWarmer.start();
+            long interval = config.getCacheSnapshotIntervalMillis();
+            this.cacheSnapshotter = interval > 0 ? Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+            if (cacheSnapshotter != null) {
+                cacheSnapshotter.scheduleWithFixedDelay(this::saveCacheSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.cacheWarmer = null;
+            this.cacheSnapshotter = null;
+        }
     }
 
-    /**
-     * Retrieves or creates a lock for the given collection.
-     */
-    private ReentrantLock getOrCreateLock(String collection) {
-        return collectionLocks.computeIfAbsent(collection, k -> new ReentrantLock());
+    private static StorageEngine createStorage(File directory, DatabaseConfig config) {
+        if (config.getStorageType() == StorageEngine.Type.SEGMENT) {
+            return new SegmentStorageEngine(directory, config.getSegmentSizeBytes(),
+                    config.getCompactionLiveRatio(), config.getCompactionIntervalMillis());
+        }
+        return new FileStorageEngine(directory);
     }
 
     /**
@@ -48,64 +238,155 @@ public class JSONDatabase {
         executorService.invokeAll(tasks);
     }
 
+    /**
+     * Returns a handle on a collection whose records are of the given type, e.g. {@code collection("orders", Order.class)}.
+     * - The handle's readers and writers are bound to the type once and shared by every handle on it,
+     *   so each entity type is encoded and decoded at full speed in the same database.
+     * - Use {@link com.fasterxml.jackson.databind.JsonNode} for schemaless collections.
+     * Handles are cached; asking again for the same collection and type returns the same one.
+     *
+     * @throws IllegalArgumentException if an index or view of the collection has a field path the type lacks
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DocumentCollection<T> collection(String name, Class<T> type) {
+        return (DocumentCollection<T>) collections.computeIfAbsent(name + "/" + type.getName(), key -> {
+            for (SecondaryIndex index : indexManager.indexesOf(name)) {
+                index.getField().validate(type);
+            }
+            for (MaterializedView view : viewManager.viewsOf(name)) {
+                for (FieldPath path : view.getDefinition().projection().paths()) {
+                    path.validate(type);
+                }
+            }
+            return new DocumentCollection<>(this, name, codec.binding(type));
+        });
+    }
+
     /**
      * Inserts or updates a user in the database asynchronously with transaction support, caching, and Kafka event publishing.
      */
     public Future<Void> insertOrUpdate(String collection, String resource, User user) {
-        return executorService.submit(() -> {
-            long threadId = Thread.currentThread().getId();
-            Logger.log("THREAD", "Thread " + threadId + " is inserting/updating " + resource);
+        return insertOrUpdateAsync(collection, resource, user);
+    }
 
-            ReentrantLock lock = getOrCreateLock(collection);
-            lock.lock();
-            try {
-                File collectionDir = new File(directory, collection);
-                if (!collectionDir.exists()) {
-                    collectionDir.mkdirs();
-                }
+    /**
+     * Inserts or updates a user. The returned stage completes once the write is durable;
+     * no thread is held while the write waits for its group commit.
+     */
+    public CompletableFuture<Void> insertOrUpdateAsync(String collection, String resource, User user) {
+        return insertOrUpdateAsync(users, collection, resource, user);
+    }
 
-                File file = new File(collectionDir, resource + ".json");
-                String jsonData = objectMapper.writeValueAsString(user);
+    <T> CompletableFuture<Void> insertOrUpdateAsync(RecordBinding<T> binding, String collection, String resource, T value) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            Logger.log("THREAD", "Inserting/updating {}", resource);
 
-                if (transactionManager.isTransactionActive()) {
-                    transactionManager.addToTransaction(file.getAbsolutePath(), jsonData);
+            WriteAheadLog.Entry entry = WriteAheadLog.Entry.put(collection, resource, binding.encode(collection, value));
+            Transaction shared = sharedTransaction;
+            if (shared != null) {
+                shared.buffer(entry);
+                return DONE;
+            }
+            CompletableFuture<Void> durable = null;
+            long sequence;
+            DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+            long waitStart = System.nanoTime();
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            StampedLock stripe = locks.stripe(collection, resource);
+            long stamp = stripe.writeLock();
+            long acquired = lockMetrics.acquired(waitStart);
+            try {
+                sequence = nextSequence();
+                captureBeforeImages(entry, sequence);
+                if (wal != null) {
+                    durable = wal.append(entry);
                 } else {
-                    objectMapper.writeValue(file, user);
-                    cache.put(resource, user);
-                    kafkaProducer.publishEvent("INSERT_UPDATE", "User " + resource + " updated in " + collection);
+                    materialize(entry);
                 }
+                cache.put(collection, resource, value);
+                onWrite(collection, resource, value);
             } finally {
-                lock.unlock();
+                stripe.unlockWrite(stamp);
+                intent.unlock();
+                lockMetrics.released(acquired);
             }
-            return null;
-        });
+            // Wait for the group commit outside the lock so concurrent writers can join the same fsync.
+            return publishWhenDurable(durable, new ChangeEvent(ChangeEvent.Type.INSERT_UPDATE, collection, resource,
+                    "User " + resource + " updated in " + collection, sequence, Collections.singletonMap(resource, entry.payload)));
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> metrics.insertOrUpdate.recordSince(start));
     }
 
     /**
-     * Reads a user from the database asynchronously with caching, mutex locking, and Kafka event publishing.
+     * Reads a user from the database asynchronously with caching, striped locking, and Kafka event publishing.
+     * Cache misses on different records proceed in parallel and do not block each other.
      */
     public Future<User> read(String collection, String resource) {
-        return executorService.submit(() -> {
-            if (cache.containsKey(resource)) {
-                Logger.log("CACHE", "Cache hit for user: " + resource);
-                return cache.get(resource);
+        return readAsync(collection, resource);
+    }
+
+    public CompletableFuture<User> readAsync(String collection, String resource) {
+        return readAsync(users, collection, resource);
+    }
+
+    <T> CompletableFuture<T> readAsync(RecordBinding<T> binding, String collection, String resource) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            T cached = binding.cast(cache.get(collection, resource));
+            if (cached != null) {
+                Logger.log("CACHE", "Cache hit for user: {}", resource);
+                metrics.readHit.recordSince(start);
+                return cached;
             }
 
-            Logger.log("CACHE", "Cache miss for user: " + resource + ". Reading from disk...");
-            ReentrantLock lock = getOrCreateLock(collection);
-            lock.lock();
+            Logger.log("CACHE", "Cache miss for user: {}. Reading from disk...", resource);
+            DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+            long waitStart = System.nanoTime();
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            long acquired = lockMetrics.acquired(waitStart);
+            T value;
             try {
-                File file = new File(directory + "/" + collection + "/" + resource + ".json");
-                if (!file.exists()) {
-                    return null;
-                }
-                User user = objectMapper.readValue(file, User.class);
-                cache.put(resource, user);
-                kafkaProducer.publishEvent("READ", "User " + resource + " read from " + collection);
-                return user;
+                value = loadRecord(binding, collection, resource);
             } finally {
-                lock.unlock();
+                intent.unlock();
+                lockMetrics.released(acquired);
+            }
+            if (value != null) {
+                events.emit(ChangeEvent.Type.READ, collection, resource, "User " + resource + " read from " + collection);
+            }
+            metrics.readMiss.recordSince(start);
+            return value;
+        });
+    }
+
+    /**
+     * Reads only the given fields of a user, keyed by field path, or null if the user does not exist.
+     * - A cached user is projected in memory. Otherwise the stored record is streamed through {@link Projection},
+     *   which skips the other fields without building objects; the partial result is not cached.
+     * - Paths are dotted, e.g. {@code read("users", "Ann", "age", "address.city")}.
+     */
+    public Future<Map<String, Object>> read(String collection, String resource, String... fields) {
+        return readAsync(collection, resource, fields);
+    }
+
+    public CompletableFuture<Map<String, Object>> readAsync(String collection, String resource, String... fields) {
+        Projection projection = Projection.of(fields);
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            Object cached = cache.get(collection, resource);
+            if (cached != null) {
+                metrics.readHit.recordSince(start);
+                return projection.extract(cached);
+            }
+            byte[] data = readLocked(collection, resource);
+            Map<String, Object> fieldValues = data == null ? null : codec.project(data, projection);
+            if (fieldValues != null) {
+                events.emit(ChangeEvent.Type.READ, collection, resource, "User " + resource + " read from " + collection);
             }
+            metrics.readMiss.recordSince(start);
+            return fieldValues;
         });
     }
 
@@ -113,144 +394,1405 @@ public class JSONDatabase {
      * Reads a user from the database asynchronously with caching support.
      */
     public Future<User> readWithCache(String collection, String resource) {
-        return executorService.submit(() -> {
-            if (cache.containsKey(resource)) {
-                Logger.log("CACHE", "Cache hit for user: " + resource);
-                return cache.get(resource);
-            }
+        return readWithCacheAsync(collection, resource);
+    }
 
-            Logger.log("CACHE", "Cache miss for user: " + resource + ". Reading from disk...");
-            return read(collection, resource).get();
-        });
+    /**
+     * Returns an already completed stage on a cache hit; a miss is chained to {@link #readAsync}
+     * instead of blocking a pool thread on it.
+     */
+    public CompletableFuture<User> readWithCacheAsync(String collection, String resource) {
+        long start = System.nanoTime();
+        User cached = users.cast(cache.get(collection, resource));
+        if (cached != null) {
+            Logger.log("CACHE", "Cache hit for user: {}", resource);
+            metrics.readHit.recordSince(start);
+            return CompletableFuture.completedFuture(cached);
+        }
+        return readAsync(collection, resource);
     }
 
     /**
      * Reads all users from the specified collection asynchronously.
+     * The collection lock is held only while the snapshot's resource names are listed, not while records are read.
+     * Records stored in a binary codec are returned as JSON text. With several shard directories the shards
+     * are read in parallel; the result keeps the resource order either way.
      */
     public Future<List<String>> readAll(String collection) {
-        return executorService.submit(() -> {
-            ReentrantLock lock = getOrCreateLock(collection);
-            lock.lock();
+        return readAllAsync(collection);
+    }
+
+    public CompletableFuture<List<String>> readAllAsync(String collection) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            CollectionSnapshot snapshot = openSnapshot(collection);
+            try (Stream<String> records = StreamSupport.stream(snapshot.spliterator(
+                    (resource, data) -> codec.toJsonString(data)), sharded).onClose(snapshot::close)) {
+                return records.collect(Collectors.toList());
+            }
+        }).whenComplete((ignored, error) -> metrics.readAll.recordSince(start));
+    }
+
+    /**
+     * Lists the resource names of a collection, including writes still pending in the log.
+     */
+    CompletableFuture<Set<String>> resourcesAsync(String collection) {
+        return supplyAsync(() -> listResources(collection));
+    }
+
+    <T> CompletableFuture<List<T>> readAllAsync(RecordBinding<T> binding, String collection) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            try (Stream<T> records = scan(binding, collection, sharded)) {
+                return records.collect(Collectors.toList());
+            }
+        }).whenComplete((ignored, error) -> metrics.readAll.recordSince(start));
+    }
+
+    /**
+     * Streams the users of a collection as of the moment this method is called.
+     * - Records are read and decoded lazily, one at a time, so memory stays bounded for any collection size.
+     * - Writers are not blocked while the stream is consumed; a write after the snapshot is not visible to it.
+     * - A parallel stream splits the sorted resource range across the common fork-join pool.
+     * The stream should be closed (e.g. with try-with-resources) if it is not fully consumed.
+     */
+    public Stream<User> scan(String collection, boolean parallel) throws IOException {
+        return scan(users, collection, parallel);
+    }
+
+    <T> Stream<T> scan(RecordBinding<T> binding, String collection, boolean parallel) throws IOException {
+        CollectionSnapshot snapshot = openSnapshot(collection);
+        return StreamSupport.stream(snapshot.spliterator(
+                (resource, data) -> binding.decode(data)), parallel).onClose(snapshot::close);
+    }
+
+    public Stream<User> scan(String collection) throws IOException {
+        return scan(collection, false);
+    }
+
+    /**
+     * Streams only the projected fields of each user, with the same snapshot semantics as {@link #scan(String, boolean)}.
+     * Records are never fully decoded, which saves most of the work on wide records.
+     */
+    public Stream<Map<String, Object>> scan(String collection, Projection projection, boolean parallel) throws IOException {
+        CollectionSnapshot snapshot = openSnapshot(collection);
+        return StreamSupport.stream(snapshot.spliterator(
+                (resource, data) -> codec.project(data, projection)), parallel).onClose(snapshot::close);
+    }
+
+    public Stream<Map<String, Object>> scan(String collection, Projection projection) throws IOException {
+        return scan(collection, projection, false);
+    }
+
+    /**
+     * Reads one page of a collection in resource-name order, starting after the cursor (null for the first page).
+     * - The first page opens a snapshot of the collection, and the next page continues the same snapshot,
+     *   so paging through a collection lists it once and every page is as of the first one.
+     * - Between pages, writes to the collection keep before-images for the snapshot. A snapshot left unused for
+     *   a minute, or holding more than 16 MB of before-images, is closed by the next write or page; a cursor that
+     *   outlives it resumes from a new snapshot at the same resource name, which may reflect writes made in between.
+     */
+    public Future<ScanPage<User>> scanPage(String collection, String cursor, int limit) {
+        return scanPageAsync(collection, cursor, limit);
+    }
+
+    public CompletableFuture<ScanPage<User>> scanPageAsync(String collection, String cursor, int limit) {
+        return scanPageAsync(users, collection, cursor, limit);
+    }
+
+    <T> CompletableFuture<ScanPage<T>> scanPageAsync(RecordBinding<T> binding, String collection, String cursor, int limit) {
+        return supplyAsync(() -> {
+            closeStalePagedSnapshots();
+            PagedSnapshot paged = cursor == null ? null : pagedSnapshots.remove(collection + '\u0000' + cursor);
+            if (paged == null) {
+                paged = new PagedSnapshot(openSnapshot(collection));
+            }
+            CollectionSnapshot snapshot = paged.snapshot;
+            boolean more = false;
             try {
-                File dir = new File(directory, collection);
-                if (!dir.exists() || !dir.isDirectory()) {
-                    return new ArrayList<>();
+                List<T> records = new ArrayList<>();
+                int position = snapshot.positionAfter(cursor);
+                String last = null;
+                while (position < snapshot.size() && records.size() < limit) {
+                    String resource = snapshot.resourceAt(position++);
+                    byte[] data = snapshot.read(resource);
+                    if (data != null) {
+                        records.add(binding.decode(data));
+                    }
+                    last = resource;
+                }
+                more = position < snapshot.size();
+                if (more) {
+                    paged.lastUsedNanos = System.nanoTime();
+                    pagedSnapshots.put(collection + '\u0000' + last, paged);
+                }
+                return new ScanPage<>(records, more ? last : null);
+            } finally {
+                if (!more) {
+                    snapshot.close();
                 }
+            }
+        });
+    }
 
-                List<String> records = new ArrayList<>();
-                for (File file : Objects.requireNonNull(dir.listFiles())) {
-                    if (file.isFile() && file.getName().endsWith(".json")) {
-                        records.add(new String(Files.readAllBytes(file.toPath())));
+    /**
+     * Closes the snapshots of paged scans that were left idle or hold too many before-images.
+     * A snapshot whose next page is being read is out of the map, so it is never closed under its reader.
+     */
+    private void closeStalePagedSnapshots() {
+        if (pagedSnapshots.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Map.Entry<String, PagedSnapshot> paged : pagedSnapshots.entrySet()) {
+            PagedSnapshot value = paged.getValue();
+            if ((now - value.lastUsedNanos > PAGED_SNAPSHOT_IDLE_NANOS
+                    || value.snapshot.beforeImageBytes() > PAGED_SNAPSHOT_MAX_BEFORE_IMAGE_BYTES)
+                    && pagedSnapshots.remove(paged.getKey(), value)) {
+                value.snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * Declares a secondary index on a field path such as {@code company} or {@code address.city}.
+     * Existing records are indexed before the returned future completes.
+     */
+    public Future<Void> createIndex(String collection, String fieldPath) {
+        return createIndexAsync(collection, fieldPath);
+    }
+
+    public CompletableFuture<Void> createIndexAsync(String collection, String fieldPath) {
+        return supplyAsync(() -> {
+            registerIndex(collection, fieldPath);
+            return null;
+        });
+    }
+
+    /**
+     * Finds the users whose field equals the value.
+     * With an index on the field only the matching records are read; otherwise a snapshot of the collection is
+     * scanned, without holding writers off.
+     */
+    public Future<List<User>> findBy(String collection, String fieldPath, String value) {
+        return findByAsync(collection, fieldPath, value);
+    }
+
+    public CompletableFuture<List<User>> findByAsync(String collection, String fieldPath, String value) {
+        return findByAsync(users, collection, fieldPath, value);
+    }
+
+    <T> CompletableFuture<List<T>> findByAsync(RecordBinding<T> binding, String collection, String fieldPath, String value) {
+        return supplyAsync(() -> {
+            FieldPath.of(fieldPath).validate(binding.type());
+            SecondaryIndex index = indexManager.get(collection, fieldPath);
+            if (index == null) {
+                Logger.log("INDEX", "No index on {}.{}, scanning collection", collection, fieldPath);
+                FieldPath path = FieldPath.of(fieldPath);
+                try (Stream<T> records = scan(binding, collection, false)) {
+                    return records.filter(record -> value.equals(path.getString(record))).collect(Collectors.toList());
+                }
+            }
+            List<T> matches = new ArrayList<>();
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            try {
+                for (String resource : index.lookup(value)) {
+                    T record = binding.cast(cache.get(collection, resource));
+                    if (record == null) {
+                        record = loadRecord(binding, collection, resource);
                     }
+                    if (record != null) {
+                        matches.add(record);
+                    }
+                }
+                return matches;
+            } finally {
+                intent.unlock();
+            }
+        });
+    }
+
+    /**
+     * Runs an aggregate query over a collection as a parallel fork-join pipeline.
+     * - Filters are pushed down to the scan: equality filters on indexed fields (and {@link Aggregation#resources})
+     *   narrow the records read to their matches, and the other filters are applied as each record is decoded,
+     *   so rejected records never reach the accumulators. A scan decodes only the fields the query uses.
+     * - Each split accumulates into its own primitive counters, which are merged once per split.
+     * Without index pushdown the query runs over a snapshot of the collection and does not block writers.
+     * A query that only uses fields of the collection's {@link ColumnStore} scans its columns instead of any record.
+     */
+    public Future<AggregationResult> aggregate(String collection, Aggregation aggregation) {
+        return aggregateAsync(collection, aggregation);
+    }
+
+    public CompletableFuture<AggregationResult> aggregateAsync(String collection, Aggregation aggregation) {
+        Projection projection = aggregation.projection();
+        return supplyAsync(() -> {
+            ColumnStore columns = columnStoreManager.get(collection);
+            AggregationResult columnar = columns == null ? null : columns.aggregateIfCovered(aggregation);
+            if (columnar != null) {
+                return columnar;
+            }
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            try {
+                Set<String> candidates = candidatesOf(collection, aggregation);
+                if (candidates != null) {
+                    return candidates.parallelStream()
+                            .map(resource -> {
+                                try {
+                                    Object cached = cache.get(collection, resource);
+                                    if (cached != null) {
+                                        return cached;
+                                    }
+                                    byte[] data = readUnderStripe(collection, resource);
+                                    return data == null ? null : codec.project(data, projection);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException("Failed to read " + collection + "/" + resource, e);
+                                }
+                            })
+                            .filter(record -> record != null && aggregation.matches(record))
+                            .collect(aggregation::newAccumulator, Aggregation.Accumulator::add, Aggregation.Accumulator::merge)
+                            .toResult();
                 }
-                return records;
             } finally {
-                lock.unlock();
+                intent.unlock();
+            }
+            CollectionSnapshot snapshot = openSnapshot(collection);
+            try (Stream<Map<String, Object>> records = StreamSupport.stream(snapshot.spliterator((resource, data) -> {
+                Map<String, Object> record = codec.project(data, projection);
+                return record != null && aggregation.matches(record) ? record : null;
+            }), true).onClose(snapshot::close)) {
+                return records.collect(aggregation::newAccumulator, Aggregation.Accumulator::add,
+                        Aggregation.Accumulator::merge).toResult();
             }
         });
     }
 
+    /**
+     * Returns the only resources an aggregation can match, from its resource list and the indexes of its equality
+     * filters, or null if it has to scan the collection. The caller must hold the collection's intent lock.
+     */
+    private Set<String> candidatesOf(String collection, Aggregation aggregation) {
+        Set<String> candidates = aggregation.getResources() == null ? null : new HashSet<>(aggregation.getResources());
+        for (Map.Entry<FieldPath, String> equality : aggregation.getEqualities().entrySet()) {
+            SecondaryIndex index = indexManager.get(collection, equality.getKey().path());
+            if (index == null) {
+                continue;
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(index.lookup(equality.getValue()));
+            } else {
+                candidates.retainAll(index.lookup(equality.getValue()));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Declares a materialized view: an aggregation over the collection that is kept up to date by every write,
+     * so reading it takes constant time. Existing records are aggregated before the returned future completes,
+     * unless a checkpoint saved by the last clean shutdown can be loaded instead.
+     */
+    public Future<MaterializedView> createView(String collection, String name, Aggregation definition) {
+        return createViewAsync(collection, name, definition);
+    }
+
+    public CompletableFuture<MaterializedView> createViewAsync(String collection, String name, Aggregation definition) {
+        return supplyAsync(() -> registerView(collection, name, definition));
+    }
+
+    /**
+     * Returns the materialized view with the given name, or null if none was declared.
+     */
+    public MaterializedView view(String name) {
+        return viewManager.get(name);
+    }
+
+    /**
+     * Declares a column store: the given fields of every record, kept as memory-mapped int columns that writes
+     * update in the background. Aggregations using only those fields then scan the columns, and
+     * {@link ColumnStore#select} finds records by them. Existing records are loaded before the returned future
+     * completes, unless a checkpoint saved by the last clean shutdown can be loaded instead.
+     */
+    public Future<ColumnStore> createColumnStore(String collection, ColumnStore.Columns columns) {
+        return supplyAsync(() -> registerColumnStore(collection, columns));
+    }
+
+    /**
+     * Returns the column store of a collection, or null if none was declared.
+     */
+    public ColumnStore columnStore(String collection) {
+        return columnStoreManager.get(collection);
+    }
+
+    private ColumnStore registerColumnStore(String collection, ColumnStore.Columns columns) throws IOException {
+        ReentrantReadWriteLock.WriteLock exclusive = locks.intent(collection).writeLock();
+        exclusive.lock();
+        try {
+            return columnStoreManager.register(collection, columns,
+                    c -> projectAll(loadCollection(c), Projection.of(columns.paths())));
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private MaterializedView registerView(String collection, String name, Aggregation definition) throws IOException {
+        validatePaths(collection, definition.projection().paths());
+        ReentrantReadWriteLock.WriteLock exclusive = locks.intent(collection).writeLock();
+        exclusive.lock();
+        try {
+            return viewManager.register(name, collection, definition,
+                    c -> projectAll(loadCollection(c), definition.projection()));
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private void registerIndex(String collection, String fieldPath) throws IOException {
+        validatePaths(collection, Collections.singletonList(FieldPath.of(fieldPath)));
+        ReentrantReadWriteLock.WriteLock exclusive = locks.intent(collection).writeLock();
+        exclusive.lock();
+        try {
+            indexManager.register(collection, fieldPath, c -> projectAll(loadCollection(c), Projection.of(fieldPath)));
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Checks field paths against the record types of the collection's handles, so an index or view is not
+     * built on a path its records cannot have.
+     */
+    private void validatePaths(String collection, Collection<FieldPath> paths) {
+        for (DocumentCollection<?> handle : collections.values()) {
+            if (handle.getName().equals(collection)) {
+                for (FieldPath path : paths) {
+                    path.validate(handle.getType());
+                }
+            }
+        }
+    }
+
     /**
      * Deletes a user or collection from the database asynchronously with transaction support and Kafka event publishing.
      */
     public Future<Void> delete(String collection, String resource) {
-        return executorService.submit(() -> {
-            ReentrantLock lock = getOrCreateLock(collection);
-            lock.lock();
+        return deleteAsync(collection, resource);
+    }
+
+    /**
+     * Deletes a user, or the whole collection if the resource is empty. The returned stage completes once the delete is durable.
+     */
+    public CompletableFuture<Void> deleteAsync(String collection, String resource) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            CompletableFuture<Void> durable = null;
+            long sequence;
+            boolean dropCollection = resource.isEmpty();
+            // Dropping a collection excludes every record writer; deleting a record only its stripe.
+            ReentrantReadWriteLock intentLock = locks.intent(collection);
+            StampedLock stripe = dropCollection ? null : locks.stripe(collection, resource);
+            long stamp = 0;
+            DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+            long waitStart = System.nanoTime();
+            if (dropCollection) {
+                intentLock.writeLock().lock();
+            } else {
+                intentLock.readLock().lock();
+                stamp = stripe.writeLock();
+            }
+            long acquired = lockMetrics.acquired(waitStart);
             try {
-                File target = new File(directory, collection + (resource.isEmpty() ? "" : "/" + resource + ".json"));
+                if (dropCollection ? !collectionExists(collection) : readRecord(collection, resource) == null) {
+                    return DONE;
+                }
+
+                WriteAheadLog.Entry entry = dropCollection
+                        ? WriteAheadLog.Entry.dropCollection(collection)
+                        : WriteAheadLog.Entry.delete(collection, resource);
+                Transaction shared = sharedTransaction;
+                if (shared != null) {
+                    shared.buffer(entry);
+                    return DONE;
+                }
+                sequence = nextSequence();
+                captureBeforeImages(entry, sequence);
+                if (wal != null) {
+                    durable = wal.append(entry);
+                } else {
+                    materialize(entry);
+                }
+                if (dropCollection) {
+                    cache.invalidateCollection(collection);
+                    onDropCollection(collection);
+                } else {
+                    cache.invalidate(collection, resource);
+                    onWrite(collection, resource, null);
+                }
+            } finally {
+                if (dropCollection) {
+                    intentLock.writeLock().unlock();
+                } else {
+                    stripe.unlockWrite(stamp);
+                    intentLock.readLock().unlock();
+                }
+                lockMetrics.released(acquired);
+            }
+            return publishWhenDurable(durable, new ChangeEvent(ChangeEvent.Type.DELETE, collection, resource,
+                    "User " + resource + " deleted from " + collection, sequence,
+                    dropCollection ? Collections.<String, byte[]>emptyMap() : Collections.<String, byte[]>singletonMap(resource, null)));
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> metrics.delete.recordSince(start));
+    }
 
-                if (!target.exists()) {
-                    return null;
+    /**
+     * Inserts or updates a batch of users in one collection.
+     * - Records are serialized up front, then the collection's intent lock and each touched stripe are locked once.
+     * - All writes go to the write-ahead log as a single frame and one INSERT_UPDATE_BATCH event is published.
+     */
+    public Future<Void> insertAll(String collection, Map<String, User> users) {
+        return insertAllAsync(collection, users);
+    }
+
+    public CompletableFuture<Void> insertAllAsync(String collection, Map<String, User> users) {
+        return insertAllAsync(this.users, collection, users);
+    }
+
+    <T> CompletableFuture<Void> insertAllAsync(RecordBinding<T> binding, String collection, Map<String, ? extends T> values) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            if (values.isEmpty()) {
+                return DONE;
+            }
+            Logger.log("THREAD", "Inserting/updating {} records", values.size());
+            List<WriteAheadLog.Entry> entries = new ArrayList<>(values.size());
+            for (Map.Entry<String, byte[]> encoded : binding.encodeAll(collection, values).entrySet()) {
+                entries.add(WriteAheadLog.Entry.put(collection, encoded.getKey(), encoded.getValue()));
+            }
+            Transaction shared = sharedTransaction;
+            if (shared != null) {
+                entries.forEach(shared::buffer);
+                return DONE;
+            }
+            CompletableFuture<Void> durable;
+            long sequence;
+            DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+            long waitStart = System.nanoTime();
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            LockManager.HeldStripes stripes = locks.lockStripes(collection, values.keySet(), true);
+            long acquired = lockMetrics.acquired(waitStart);
+            try {
+                sequence = nextSequence();
+                durable = applyBatch(entries, sequence);
+                for (Map.Entry<String, ? extends T> value : values.entrySet()) {
+                    cache.put(collection, value.getKey(), value.getValue());
+                    onWrite(collection, value.getKey(), value.getValue());
                 }
+            } finally {
+                stripes.unlock();
+                intent.unlock();
+                lockMetrics.released(acquired);
+            }
+            return publishWhenDurable(durable, new ChangeEvent(ChangeEvent.Type.INSERT_UPDATE_BATCH, collection, null,
+                    values.size() + " users updated in " + collection, sequence, recordsOf(entries)));
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> metrics.insertAll.recordSince(start));
+    }
+
+    /**
+     * Reads a batch of users from one collection, keyed by resource; missing users are left out.
+     * Cache hits are served without locking; the misses are read under one pass over their stripes
+     * and a single READ_BATCH event is published for them.
+     */
+    public Future<Map<String, User>> readMany(String collection, Collection<String> resources) {
+        return readManyAsync(collection, resources);
+    }
+
+    public CompletableFuture<Map<String, User>> readManyAsync(String collection, Collection<String> resources) {
+        return readManyAsync(users, collection, resources);
+    }
 
-                if (transactionManager.isTransactionActive()) {
-                    transactionManager.addToTransaction(target.getAbsolutePath(), null);
+    <T> CompletableFuture<Map<String, T>> readManyAsync(RecordBinding<T> binding, String collection,
+                                                        Collection<String> resources) {
+        return supplyAsync(() -> {
+            Map<String, T> result = new LinkedHashMap<>();
+            List<String> misses = new ArrayList<>();
+            for (String resource : resources) {
+                T cached = binding.cast(cache.get(collection, resource));
+                if (cached != null) {
+                    result.put(resource, cached);
                 } else {
-                    if (target.isDirectory()) {
-                        for (File file : Objects.requireNonNull(target.listFiles())) file.delete();
+                    misses.add(resource);
+                }
+            }
+            if (misses.isEmpty()) {
+                return result;
+            }
+            Logger.log("CACHE", "Cache miss for {} users. Reading from disk...", misses.size());
+            int loaded = 0;
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            LockManager.HeldStripes stripes = locks.lockStripes(collection, misses, false);
+            try {
+                for (String resource : misses) {
+                    byte[] data = readRecord(collection, resource);
+                    if (data != null) {
+                        T value = binding.decode(data);
+                        cache.put(collection, resource, value);
+                        result.put(resource, value);
+                        loaded++;
+                    }
+                }
+            } finally {
+                stripes.unlock();
+                intent.unlock();
+            }
+            if (loaded > 0) {
+                events.emit(ChangeEvent.Type.READ_BATCH, collection, null, loaded + " users read from " + collection);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Deletes a batch of users from one collection as a single write-ahead log frame,
+     * publishing one DELETE_BATCH event. Users that do not exist are skipped.
+     */
+    public Future<Void> deleteAll(String collection, Collection<String> resources) {
+        return deleteAllAsync(collection, resources);
+    }
+
+    public CompletableFuture<Void> deleteAllAsync(String collection, Collection<String> resources) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            List<WriteAheadLog.Entry> entries = new ArrayList<>();
+            CompletableFuture<Void> durable;
+            long sequence;
+            DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+            long waitStart = System.nanoTime();
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            LockManager.HeldStripes stripes = locks.lockStripes(collection, resources, true);
+            long acquired = lockMetrics.acquired(waitStart);
+            try {
+                for (String resource : new LinkedHashSet<>(resources)) {
+                    if (readRecord(collection, resource) != null) {
+                        entries.add(WriteAheadLog.Entry.delete(collection, resource));
                     }
-                    target.delete();
-                    cache.remove(resource);
-                    kafkaProducer.publishEvent("DELETE", "User " + resource + " deleted from " + collection);
+                }
+                if (entries.isEmpty()) {
+                    return DONE;
+                }
+                Transaction shared = sharedTransaction;
+                if (shared != null) {
+                    entries.forEach(shared::buffer);
+                    return DONE;
+                }
+                sequence = nextSequence();
+                durable = applyBatch(entries, sequence);
+                for (WriteAheadLog.Entry entry : entries) {
+                    cache.invalidate(collection, entry.resource);
+                    onWrite(collection, entry.resource, null);
                 }
             } finally {
-                lock.unlock();
+                stripes.unlock();
+                intent.unlock();
+                lockMetrics.released(acquired);
+            }
+            return publishWhenDurable(durable, new ChangeEvent(ChangeEvent.Type.DELETE_BATCH, collection, null,
+                    entries.size() + " users deleted from " + collection, sequence, recordsOf(entries)));
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> metrics.deleteAll.recordSince(start));
+    }
+
+    /**
+     * Logs a batch as one write-ahead log frame and returns the durability future.
+     * Without a write-ahead log the batch is applied directly.
+     * The caller must hold the write locks of every record in the batch.
+     */
+    private CompletableFuture<Void> applyBatch(List<WriteAheadLog.Entry> entries, long sequence) throws IOException {
+        for (WriteAheadLog.Entry entry : entries) {
+            captureBeforeImages(entry, sequence);
+        }
+        if (wal != null) {
+            return wal.append(entries);
+        }
+        for (WriteAheadLog.Entry entry : entries) {
+            materialize(entry);
+        }
+        return DONE;
+    }
+
+    /**
+     * Reads and caches a record on a cache miss. The caller must hold the collection's intent lock.
+     * The record is first read under an optimistic stamp; only if a writer on the same stripe interfered
+     * is it re-read under the stripe's read lock. The cache is filled while the read lock is held,
+     * so a concurrent writer's newer version is never overwritten.
+     */
+    private <T> T loadRecord(RecordBinding<T> binding, String collection, String resource) throws IOException {
+        StampedLock stripe = locks.stripe(collection, resource);
+        long stamp = stripe.tryOptimisticRead();
+        T value = null;
+        if (stamp != 0) {
+            try {
+                byte[] data = readRecord(collection, resource);
+                value = data == null ? null : binding.decode(data);
+                stamp = stripe.tryConvertToReadLock(stamp);
+            } catch (IOException | RuntimeException e) {
+                // Possibly a view torn by a concurrent write; retry under the lock, which reports real failures.
+                stamp = 0;
+            }
+        }
+        if (stamp == 0) {
+            stamp = stripe.readLock();
+            try {
+                byte[] data = readRecord(collection, resource);
+                value = data == null ? null : binding.decode(data);
+            } catch (IOException | RuntimeException e) {
+                stripe.unlockRead(stamp);
+                throw e;
+            }
+        }
+        try {
+            if (value != null) {
+                cache.put(collection, resource, value);
+            }
+            return value;
+        } finally {
+            stripe.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the current bytes of a record under its stripe's read lock, or null if it does not exist.
+     * Takes the collection's intent lock itself, so the caller must not hold it exclusively.
+     */
+    private byte[] readLocked(String collection, String resource) throws IOException {
+        DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection);
+        long waitStart = System.nanoTime();
+        ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+        intent.lock();
+        long acquired = lockMetrics.acquired(waitStart);
+        try {
+            return readUnderStripe(collection, resource);
+        } finally {
+            intent.unlock();
+            lockMetrics.released(acquired);
+        }
+    }
+
+    /**
+     * Returns the current bytes of a record under its stripe's read lock. The caller must hold the collection's
+     * intent lock, possibly on another thread, as the parallel branches of an aggregation do.
+     */
+    private byte[] readUnderStripe(String collection, String resource) throws IOException {
+        StampedLock stripe = locks.stripe(collection, resource);
+        long stamp = stripe.readLock();
+        try {
+            return readRecord(collection, resource);
+        } finally {
+            stripe.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the current bytes of a record, looking at entries still pending in the write-ahead log
+     * before the storage engine. Returns null if the record does not exist.
+     */
+    private byte[] readRecord(String collection, String resource) throws IOException {
+        WriteAheadLog.Entry pending = wal != null ? wal.lookup(collection, resource) : null;
+        if (pending != null) {
+            return pending.op == WriteAheadLog.PUT ? pending.payload : null;
+        }
+        byte[] data = storage.read(collection, resource);
+        if (data != null) {
+            metrics.bytesRead.add(data.length);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the resource names of a collection, merging entries still pending in the write-ahead log
+     * over the storage engine's listing. The caller must hold the collection's intent lock exclusively.
+     */
+    private Set<String> listResources(String collection) throws IOException {
+        // Snapshot the pending entries before listing storage: the snapshot can only be older than storage.
+        Map<String, WriteAheadLog.Entry> pending = wal != null
+                ? wal.pendingFor(collection) : Collections.<String, WriteAheadLog.Entry>emptyMap();
+        Set<String> resources = new HashSet<>();
+        if (!pending.containsKey("")) {
+            resources.addAll(storage.listResources(collection));
+        }
+        for (WriteAheadLog.Entry entry : pending.values()) {
+            if (entry.op == WriteAheadLog.PUT) {
+                resources.add(entry.resource);
+            } else {
+                resources.remove(entry.resource);
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * Captures the resource names of a collection under a brief exclusive collection lock and registers the snapshot,
+     * so later writers record before-images for it.
+     */
+    private CollectionSnapshot openSnapshot(String collection) throws IOException {
+        ReentrantReadWriteLock.WriteLock exclusive = locks.intent(collection).writeLock();
+        exclusive.lock();
+        try {
+            Set<String> resources = listResources(collection);
+            Set<CollectionSnapshot> open = openSnapshots.computeIfAbsent(collection, c -> ConcurrentHashMap.newKeySet());
+            CollectionSnapshot snapshot = new CollectionSnapshot(collection, resources.toArray(new String[0]),
+                    this::readRecord, open::remove);
+            if (snapshot.size() > 0) {
+                open.add(snapshot);
+            }
+            return snapshot;
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Hands the current version of the records an entry is about to change to every open snapshot of the collection
+     * and, while transactions are open, to the transaction manager under the change's sequence number.
+     * The caller must hold the record's stripe, or the collection's intent lock exclusively.
+     */
+    private void captureBeforeImages(WriteAheadLog.Entry entry, long sequence) throws IOException {
+        Set<CollectionSnapshot> open = openSnapshots.get(entry.collection);
+        boolean snapshots = open != null && !open.isEmpty();
+        boolean versions = transactionManager.isTracking();
+        if (!snapshots && !versions) {
+            return;
+        }
+        if (snapshots) {
+            closeStalePagedSnapshots();
+        }
+        if (entry.op == WriteAheadLog.DROP_COLLECTION) {
+            if (versions) {
+                for (String resource : listResources(entry.collection)) {
+                    transactionManager.recordVersion(entry.collection, resource, sequence,
+                            readRecord(entry.collection, resource));
+                }
+                transactionManager.recordDrop(entry.collection, sequence);
+            }
+            if (snapshots) {
+                for (CollectionSnapshot snapshot : open) {
+                    for (int i = 0; i < snapshot.size(); i++) {
+                        String resource = snapshot.resourceAt(i);
+                        snapshot.recordBeforeImage(resource, readRecord(entry.collection, resource));
+                    }
+                }
+            }
+            return;
+        }
+        byte[] previous = readRecord(entry.collection, entry.resource);
+        if (versions) {
+            transactionManager.recordVersion(entry.collection, entry.resource, sequence, previous);
+        }
+        if (snapshots) {
+            for (CollectionSnapshot snapshot : open) {
+                snapshot.recordBeforeImage(entry.resource, previous);
+            }
+        }
+    }
+
+    /**
+     * Returns every record of a collection keyed by resource. The caller must hold the collection's intent lock exclusively.
+     */
+    private Map<String, byte[]> loadCollection(String collection) throws IOException {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        for (String resource : listResources(collection)) {
+            byte[] data = readRecord(collection, resource);
+            if (data != null) {
+                records.put(resource, data);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads only the projected fields of each record, for index and view builds that must work on any record type.
+     */
+    private Map<String, Map<String, Object>> projectAll(Map<String, byte[]> records, Projection projection)
+            throws IOException {
+        Map<String, Map<String, Object>> projected = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> record : records.entrySet()) {
+            Map<String, Object> fields = codec.project(record.getValue(), projection);
+            if (fields != null) {
+                projected.put(record.getKey(), fields);
+            }
+        }
+        return projected;
+    }
+
+    private boolean collectionExists(String collection) {
+        if (wal != null) {
+            Map<String, WriteAheadLog.Entry> pending = wal.pendingFor(collection);
+            for (WriteAheadLog.Entry entry : pending.values()) {
+                if (entry.op == WriteAheadLog.PUT) {
+                    return true;
+                }
+            }
+            if (pending.containsKey("")) {
+                return false;
+            }
+        }
+        return storage.collectionExists(collection);
+    }
+
+    /**
+     * Brings the secondary indexes and materialized views up to date with a write, and queues it for the column
+     * store; a null record means it was deleted. The caller must hold the record's write lock.
+     */
+    private void onWrite(String collection, String resource, Object record) {
+        indexManager.onWrite(collection, resource, record);
+        viewManager.onWrite(collection, resource, record);
+        columnStoreManager.onWrite(collection, resource, record);
+    }
+
+    private void onDropCollection(String collection) {
+        indexManager.onDropCollection(collection);
+        viewManager.onDropCollection(collection);
+        columnStoreManager.onDropCollection(collection);
+    }
+
+    /**
+     * Applies a logged mutation to the storage engine. Writes are not fsynced here;
+     * the engine is synced before the write-ahead log is truncated.
+     */
+    private void materialize(WriteAheadLog.Entry entry) throws IOException {
+        switch (entry.op) {
+            case WriteAheadLog.PUT:
+                storage.write(entry.collection, entry.resource, entry.payload);
+                metrics.bytesWritten.add(entry.payload.length);
+                break;
+            case WriteAheadLog.DELETE:
+                storage.delete(entry.collection, entry.resource);
+                break;
+            case WriteAheadLog.DROP_COLLECTION:
+                storage.dropCollection(entry.collection);
+                break;
+            default:
+                throw new IOException("Unknown write-ahead log operation: " + entry.op);
+        }
+    }
+
+    /**
+     * Runs a task on the database's executor. A checked exception thrown by the task fails the returned stage.
+     */
+    private <T> CompletableFuture<T> supplyAsync(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        metrics.queuedTasks.increment();
+        try {
+            executorService.execute(() -> {
+                metrics.queuedTasks.decrement();
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.queuedTasks.decrement();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Creates the default cache, or one partition of a cache split into {@code partitions}.
+     */
+    private static RecordCache<Object> createCache(DatabaseConfig config, int partitions) {
+        if (config.getCompactCache() != null) {
+            return new CompactRecordCache(config.getCompactCache(),
+                    Math.max(1, config.getCacheMemoryBudgetBytes() / partitions), config.getCacheExpireAfterWriteMillis());
+        }
+        return new TinyLfuCache<>(Math.max(1, config.getCacheMaximumSize() / partitions),
+                config.getCacheExpireAfterWriteMillis());
+    }
+
+    /**
+     * A configured cache holds records of every type stored in the database; reads check the type of what they get.
+     */
+    @SuppressWarnings("unchecked")
+    private static RecordCache<Object> uncheckedCache(RecordCache<?> cache) {
+        return (RecordCache<Object>) cache;
+    }
+
+    /**
+     * Emits change events once the write is durable (immediately if there is no write-ahead log).
+     * - Nothing blocks while the group commit is pending.
+     * - The write-ahead log completes its futures on its writer thread, so the events, and every stage a caller
+     *   chains on the returned future, are moved to the database's executor; a caller's stage may then block,
+     *   even on another write, without stalling the group commit.
+     */
+    private CompletableFuture<Void> publishWhenDurable(CompletableFuture<Void> durable, ChangeEvent... events) {
+        BiFunction<Void, Throwable, Void> publish = (ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                throw new CompletionException(new IOException("Write-ahead log append failed", cause));
+            }
+            for (ChangeEvent event : events) {
+                this.events.emit(selfContained(event));
+            }
+            return null;
+        };
+        return durable == null ? DONE.handle(publish) : durable.handleAsync(publish, this::executeCallback);
+    }
+
+    /**
+     * Returns a stage that completes like the given write-ahead log stage, but on the database's executor.
+     */
+    private CompletableFuture<Void> offWriterThread(CompletableFuture<Void> stage) {
+        return stage.whenCompleteAsync((ignored, error) -> { }, this::executeCallback);
+    }
+
+    /**
+     * Runs a completion stage on the database's executor, or on the common pool once the executor is shut down,
+     * so writes still in the group commit during {@link #shutdown()} complete normally.
+     */
+    private void executeCallback(Runnable callback) {
+        try {
+            executorService.execute(callback);
+        } catch (RejectedExecutionException e) {
+            ForkJoinPool.commonPool().execute(callback);
+        }
+    }
+
+    /**
+     * Returns the event with its records inflated if they were compressed with this database's dictionaries,
+     * which the sink's readers do not have.
+     */
+    private ChangeEvent selfContained(ChangeEvent event) {
+        if (!events.isEnabled(event.getType())) {
+            return event;
+        }
+        Map<String, byte[]> records = null;
+        for (Map.Entry<String, byte[]> record : event.getRecords().entrySet()) {
+            if (record.getValue() != null && RecordCompressor.usesDictionary(record.getValue())) {
+                if (records == null) {
+                    records = new LinkedHashMap<>(event.getRecords());
+                }
+                try {
+                    records.put(record.getKey(), codec.selfContained(record.getValue()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
+        }
+        return records == null ? event : new ChangeEvent(event.getType(), event.getCollection(), event.getResource(),
+                event.getMessage(), event.getSequence(), records);
+    }
+
+    /**
+     * Returns the sequence number of a change. The caller must hold the changed records' write locks, so later
+     * writes to a record always get higher numbers.
+     */
+    private long nextSequence() {
+        return transactionManager.nextSequences(1);
+    }
+
+    /**
+     * Returns the records written by a batch of entries, keyed by resource, with null for deletes.
+     */
+    private static Map<String, byte[]> recordsOf(List<WriteAheadLog.Entry> entries) {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        for (WriteAheadLog.Entry entry : entries) {
+            records.put(entry.resource, entry.op == WriteAheadLog.PUT ? entry.payload : null);
+        }
+        return records;
+    }
+
+    /**
+     * Returns a snapshot of the change-event pipeline's throughput, drop and latency counters.
+     */
+    public EventStats eventStats() {
+        return events.stats();
+    }
+
+    /**
+     * Returns a snapshot of the record cache's hit, miss and eviction counters.
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the registry holding the database's operation latencies, lock timings, I/O counters and gauges.
+     */
+    public MetricsRegistry metrics() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Returns a stage that completes once every write acknowledged so far is durable in the write-ahead log,
+     * including writes still held back by write-behind.
+     */
+    public CompletableFuture<Void> flush() {
+        return wal != null ? offWriterThread(wal.flush()) : DONE;
+    }
+
+    /**
+     * Returns a stage that completes once every write acknowledged so far is in the record files and forced to disk.
+     */
+    public CompletableFuture<Void> sync() {
+        if (wal != null) {
+            return offWriterThread(wal.sync());
+        }
+        return supplyAsync(() -> {
+            storage.sync();
             return null;
         });
     }
 
     /**
-     * Starts a new transaction.
+     * Returns a stage that completes once the cache warm-up started on construction has finished,
+     * or an already completed one if warm-up is not enabled.
      */
-    public void startTransaction() {
-        transactionManager.startTransaction();
+    public CompletableFuture<Void> warmedUp() {
+        return cacheWarmer != null ? cacheWarmer.done() : DONE;
     }
 
     /**
-     * Commits the ongoing transaction.
+     * Saves the cache's hot set for the next start's warm-up. Skipped while the warm-up of this start is still
+     * running, so a partly warmed cache never replaces the previous snapshot.
      */
-    public void commitTransaction() throws IOException {
-        transactionManager.commitTransaction();
+    private void saveCacheSnapshot() {
+        if (cacheWarmer == null || !cacheWarmer.isComplete()) {
+            return;
+        }
+        List<CacheSnapshot.Entry> entries = new ArrayList<>();
+        cache.forEachHottest((collection, resource, value) ->
+                entries.add(new CacheSnapshot.Entry(collection, resource, value.getClass().getName())));
+        try {
+            CacheSnapshot.write(cacheSnapshotFile, entries);
+            Logger.log("CACHE", "Saved cache snapshot of {} records", entries.size());
+        } catch (IOException e) {
+            Logger.log("ERROR", "Failed to save cache snapshot: {}", e.getMessage());
+        }
     }
 
     /**
-     * Rolls back the ongoing transaction.
+     * Loads the current version of a record into the cache for the warm-up and returns its encoded size,
+     * or 0 if it no longer exists. Locks like a read, so a concurrent write is never overwritten with older data.
      */
-    public void rollbackTransaction() {
-        transactionManager.rollbackTransaction();
+    long warmRecord(RecordBinding<?> binding, String collection, String resource) throws IOException {
+        ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+        intent.lock();
+        StampedLock stripe = locks.stripe(collection, resource);
+        long stamp = stripe.readLock();
+        try {
+            byte[] data = readRecord(collection, resource);
+            if (data == null) {
+                return 0;
+            }
+            cache.put(collection, resource, binding.decode(data));
+            return data.length;
+        } finally {
+            stripe.unlockRead(stamp);
+            intent.unlock();
+        }
+    }
+
+    List<String> listCollections() throws IOException {
+        return storage.listCollections();
     }
 
     /**
-     * Calculates statistics for users (average age, company distribution) with and without caching.
+     * Lists a collection's resources for the warm-up under a brief exclusive collection lock.
      */
-    public void calculateUserStatistics(String collection, List<String> userNames) throws ExecutionException, InterruptedException {
-        long start, end;
-        List<Long> timesWithoutCache = new ArrayList<>();
-        List<Long> timesWithCache = new ArrayList<>();
+    List<String> listResourcesForWarmUp(String collection) throws IOException {
+        ReentrantReadWriteLock.WriteLock exclusive = locks.intent(collection).writeLock();
+        exclusive.lock();
+        try {
+            return new ArrayList<>(listResources(collection));
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    <T> RecordBinding<T> bindingFor(Class<T> type) {
+        return codec.binding(type);
+    }
+
+    /**
+     * Begins a transaction that reads a snapshot of the database as of now and buffers its writes until commit.
+     * Any number of transactions can be open at once.
+     */
+    public Transaction begin() {
+        Transaction transaction = new Transaction(this, transactionManager.begin());
+        Logger.log("TRANSACTION", "Transaction started at sequence {}", transaction.getStartSequence());
+        return transaction;
+    }
+
+    RecordBinding<User> userBinding() {
+        return users;
+    }
 
-        start = System.nanoTime();
-        computeStatistics(userNames, false);
-        end = System.nanoTime();
-        timesWithoutCache.add(end - start);
+    void endTransaction(long startSequence) {
+        transactionManager.end(startSequence);
+    }
 
-        start = System.nanoTime();
-        computeStatistics(userNames, true);
-        end = System.nanoTime();
-        timesWithCache.add(end - start);
+    /**
+     * Reads a user as of a transaction's start sequence: the version it had before the oldest change made after
+     * that sequence, or the current one if it has not changed since. Waits only for a writer of the same stripe.
+     */
+    <T> CompletableFuture<T> readAsOf(RecordBinding<T> binding, String collection, String resource, long startSequence) {
+        return supplyAsync(() -> {
+            ReentrantReadWriteLock.ReadLock intent = locks.intent(collection).readLock();
+            intent.lock();
+            StampedLock stripe = locks.stripe(collection, resource);
+            long stamp = stripe.readLock();
+            try {
+                TransactionManager.Version version = transactionManager.versionAt(collection, resource, startSequence);
+                if (version != null) {
+                    return version.before == null ? null : binding.decode(version.before);
+                }
+                T cached = binding.cast(cache.get(collection, resource));
+                if (cached != null) {
+                    return cached;
+                }
+                byte[] data = readRecord(collection, resource);
+                return data == null ? null : binding.decode(data);
+            } finally {
+                stripe.unlockRead(stamp);
+                intent.unlock();
+            }
+        });
+    }
 
-        double avgNoCache = timesWithoutCache.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1_000_000.0;
-        double avgCache = timesWithCache.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1_000_000.0;
-        double improvement = ((avgNoCache - avgCache) / avgNoCache) * 100;
+    /**
+     * Commits a transaction's writes.
+     * - The touched collections' intent locks are taken in name order (exclusively for a dropped collection),
+     *   each followed by the written records' stripes, so concurrent commits cannot deadlock.
+     * - Under the locks the writes are validated against changes made since the transaction began, given
+     *   consecutive sequence numbers and appended to the write-ahead log as a single frame: one fsync makes the
+     *   whole commit durable, and recovery replays it all or nothing. Records are materialized through
+     *   temporary files renamed into place.
+     * - Without a write-ahead log the writes are applied directly and the storage engine is synced once.
+     */
+    CompletableFuture<Void> commit(long startSequence, List<WriteAheadLog.Entry> writes) {
+        long start = System.nanoTime();
+        return supplyAsync(() -> {
+            if (writes.isEmpty()) {
+                transactionManager.end(startSequence);
+                return DONE;
+            }
+            Map<String, List<String>> resourcesByCollection = new TreeMap<>();
+            Set<String> dropped = new HashSet<>();
+            for (WriteAheadLog.Entry write : writes) {
+                List<String> resources = resourcesByCollection.computeIfAbsent(write.collection, c -> new ArrayList<>());
+                if (write.op == WriteAheadLog.DROP_COLLECTION) {
+                    dropped.add(write.collection);
+                } else {
+                    resources.add(write.resource);
+                }
+            }
+            Deque<Runnable> held = new ArrayDeque<>();
+            List<WriteAheadLog.Entry> entries = new ArrayList<>();
+            CompletableFuture<Void> durable;
+            List<ChangeEvent> changes = new ArrayList<>();
+            try {
+                for (Map.Entry<String, List<String>> collection : resourcesByCollection.entrySet()) {
+                    DatabaseMetrics.CollectionLocks lockMetrics = metrics.locks(collection.getKey());
+                    long waitStart = System.nanoTime();
+                    ReentrantReadWriteLock intent = locks.intent(collection.getKey());
+                    if (dropped.contains(collection.getKey())) {
+                        intent.writeLock().lock();
+                        held.push(intent.writeLock()::unlock);
+                    } else {
+                        intent.readLock().lock();
+                        held.push(intent.readLock()::unlock);
+                        held.push(locks.lockStripes(collection.getKey(), collection.getValue(), true)::unlock);
+                    }
+                    long acquired = lockMetrics.acquired(waitStart);
+                    held.push(() -> lockMetrics.released(acquired));
+                }
+                String conflict = transactionManager.findConflict(startSequence, writes);
+                if (conflict != null) {
+                    metrics.commitConflicts.increment();
+                    Logger.log("TRANSACTION", "Transaction aborted: {} changed since it began", conflict);
+                    throw new TransactionConflictException(conflict);
+                }
+                for (WriteAheadLog.Entry write : writes) {
+                    boolean noOp = write.op == WriteAheadLog.DROP_COLLECTION ? !collectionExists(write.collection)
+                            : write.op == WriteAheadLog.DELETE && readRecord(write.collection, write.resource) == null;
+                    if (!noOp) {
+                        entries.add(write);
+                    }
+                }
+                if (entries.isEmpty()) {
+                    return DONE;
+                }
+                long sequence = transactionManager.nextSequences(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    captureBeforeImages(entries.get(i), sequence + i);
+                }
+                if (wal != null) {
+                    durable = wal.append(entries);
+                } else {
+                    for (WriteAheadLog.Entry entry : entries) {
+                        materialize(entry);
+                    }
+                    storage.sync();
+                    durable = DONE;
+                }
+                for (WriteAheadLog.Entry entry : entries) {
+                    changes.add(applyCommitted(entry, sequence++));
+                }
+            } finally {
+                while (!held.isEmpty()) {
+                    held.pop().run();
+                }
+                transactionManager.end(startSequence);
+            }
+            Logger.log("TRANSACTION", "Transaction committed {} changes.", entries.size());
+            return publishWhenDurable(durable, changes.toArray(new ChangeEvent[0]));
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> metrics.commit.recordSince(start));
+    }
 
-        Logger.log("BENCHMARK", "Avg Calculation Time WITHOUT Cache: " + avgNoCache + " ms");
-        Logger.log("BENCHMARK", "Avg Calculation Time WITH Cache: " + avgCache + " ms");
-        Logger.log("BENCHMARK", "Performance Improvement: " + String.format("%.2f", improvement) + "%");
+    /**
+     * Refreshes the cache and secondary indexes for a committed entry and returns its change event.
+     */
+    private ChangeEvent applyCommitted(WriteAheadLog.Entry entry, long sequence) throws IOException {
+        if (entry.op == WriteAheadLog.DROP_COLLECTION) {
+            cache.invalidateCollection(entry.collection);
+            onDropCollection(entry.collection);
+            return new ChangeEvent(ChangeEvent.Type.DELETE, entry.collection, "",
+                    "Collection " + entry.collection + " dropped", sequence, Collections.<String, byte[]>emptyMap());
+        }
+        if (entry.op == WriteAheadLog.DELETE) {
+            cache.invalidate(entry.collection, entry.resource);
+            onWrite(entry.collection, entry.resource, null);
+            return new ChangeEvent(ChangeEvent.Type.DELETE, entry.collection, entry.resource,
+                    "User " + entry.resource + " deleted from " + entry.collection, sequence,
+                    Collections.<String, byte[]>singletonMap(entry.resource, null));
+        }
+        // The payload's record type is not known here, so the cache entry is dropped rather than replaced.
+        cache.invalidate(entry.collection, entry.resource);
+        onWrite(entry.collection, entry.resource, codec.decodeTree(entry.payload));
+        return new ChangeEvent(ChangeEvent.Type.INSERT_UPDATE, entry.collection, entry.resource,
+                "User " + entry.resource + " updated in " + entry.collection, sequence,
+                Collections.singletonMap(entry.resource, entry.payload));
     }
 
-    private double computeStatistics(List<String> userNames, boolean useCache) throws ExecutionException, InterruptedException {
-        int totalAge = 0;
-        Map<String, Integer> companyCount = new HashMap<>();
-        int userCount = userNames.size();
+    /**
+     * Starts a transaction that every subsequent write joins, from any thread, until it is committed or rolled back.
+     * Starting another one rolls back the previous one.
+     * @deprecated shared by all threads; use {@link #begin()}.
+     */
+    @Deprecated
+    public void startTransaction() {
+        Transaction previous = sharedTransaction;
+        sharedTransaction = begin();
+        if (previous != null) {
+            previous.rollback();
+        }
+    }
 
-        for (String user : userNames) {
-            User userData = useCache ? read("users", user).get() : read("users", user).get();
-            if (userData != null) {
-                totalAge += Integer.parseInt(userData.age);
-                companyCount.put(userData.company, companyCount.getOrDefault(userData.company, 0) + 1);
+    /**
+     * Commits the transaction started by {@link #startTransaction()}, then refreshes the cache and secondary indexes
+     * and emits a change event for each committed record.
+     * @deprecated use {@link #begin()} and {@link Transaction#commit()}.
+     */
+    @Deprecated
+    public void commitTransaction() throws IOException {
+        Transaction shared = sharedTransaction;
+        if (shared == null) {
+            Logger.log("TRANSACTION", "No active transaction to commit.");
+            return;
+        }
+        sharedTransaction = null;
+        try {
+            shared.commit().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while committing transaction", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException("Failed to commit transaction", e.getCause());
+        }
+    }
+
+    /**
+     * Rolls back the transaction started by {@link #startTransaction()}.
+     * @deprecated use {@link #begin()} and {@link Transaction#rollback()}.
+     */
+    @Deprecated
+    public void rollbackTransaction() {
+        Transaction shared = sharedTransaction;
+        if (shared == null) {
+            Logger.log("TRANSACTION", "No active transaction to rollback.");
+            return;
         }
+        sharedTransaction = null;
+        shared.rollback();
+    }
+
+    /**
+     * Logs the company distribution and average age of the given users, computed by one aggregate query
+     * that reads only those users.
+     */
+    public void calculateUserStatistics(String collection, List<String> userNames) throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        AggregationResult result = aggregate(collection, new Aggregation()
+                .resources(userNames)
+                .groupBy("company")
+                .stats("age")).get();
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
 
-        Logger.log("STATS", "Company Distribution: " + companyCount.toString());
-        return userCount == 0 ? 0 : (double) totalAge / userCount;
+        Logger.log("STATS", "Company Distribution: {}", result.counts());
+        Logger.log("STATS", "Average Age: {}", result.total().avg("age"));
+        Logger.log("BENCHMARK", "Calculation Time: {} ms", millis);
     }
 
     /**
-     * Shuts down the database's thread pool and Kafka producer.
+     * Shuts down the database's own thread pool (not one passed to {@link DatabaseConfig#executor}), saves the secondary
+     * indexes, view and column checkpoints, flushes the write-ahead log, closes the storage engine, delivers queued
+     * change events before closing the event sink, and unregisters the metrics MBean.
      */
     public void shutdown() {
-        kafkaProducer.close();
-        executorService.shutdown();
+        if (ownsExecutor) {
+            executorService.shutdown();
+            try {
+                executorService.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (cacheWarmer != null) {
+            cacheWarmer.close();
+            if (cacheSnapshotter != null) {
+                cacheSnapshotter.shutdownNow();
+            }
+            saveCacheSnapshot();
+        }
+        for (PagedSnapshot paged : pagedSnapshots.values()) {
+            paged.snapshot.close();
+        }
+        pagedSnapshots.clear();
+        indexManager.saveAll();
+        viewManager.saveAll();
+        columnStoreManager.close();
+        if (wal != null) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                Logger.log("ERROR", "Failed to close write-ahead log: {}", e.getMessage());
+            }
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            Logger.log("ERROR", "Failed to close storage engine: {}", e.getMessage());
+        }
+        events.close(eventShutdownTimeoutMillis);
+        if (metricsBean != null) {
+            metricsBean.unregister();
+        }
     }
 }
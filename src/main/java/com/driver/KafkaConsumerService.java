@@ -31,7 +31,7 @@ public class KafkaConsumerService {
             ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(500));
 
             for (ConsumerRecord<String, String> record : records) {
-                Logger.log("KAFKA_CONSUMER", "Received event: " + record.value());
+                Logger.log("KAFKA_CONSUMER", "Received event: {}", record.value());
             }
         }
     }
@@ -1,11 +1,22 @@
 package com.driver;
 
 import org.apache.kafka.clients.producer.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 
-public class KafkaProducerService {
+/**
+ * Publishes change events to a Kafka topic as JSON messages keyed by {@code <collection>/<resource>},
+ * so a {@link ReplicaApplier} can replay them in order per record.
+ */
+public class KafkaProducerService implements ChangeEventSink {
     private final Producer<String, String> producer;
     private final String topic;
+    private final ChangeEventCodec eventCodec = new ChangeEventCodec();
+    private volatile LatencyHistogram sendLatency = new LatencyHistogram();
+    private volatile LongAdder sendErrors = new LongAdder();
 
     public KafkaProducerService(String bootstrapServers, String topic) {
         this.topic = topic;
@@ -18,19 +29,53 @@ public class KafkaProducerService {
         this.producer = new KafkaProducer<>(props);
     }
 
+    /**
+     * Publishes through an existing producer, e.g. a {@code MockProducer} in tests.
+     */
+    public KafkaProducerService(Producer<String, String> producer, String topic) {
+        this.producer = producer;
+        this.topic = topic;
+    }
+
+    /**
+     * Records the time from send to broker acknowledgement as {@code kafka.send}, and failed sends as {@code kafka.errors}.
+     */
+    @Override
+    public void bindMetrics(MetricsRegistry metrics) {
+        sendLatency = metrics.histogram("kafka.send");
+        sendErrors = metrics.counter("kafka.errors");
+    }
+
+    /**
+     * Hands the batch to the producer, which sends it asynchronously; failures are logged per message.
+     */
+    @Override
+    public void publish(List<ChangeEvent> events) throws IOException {
+        for (ChangeEvent event : events) {
+            for (Map.Entry<String, String> message : eventCodec.toMessages(event)) {
+                publishEvent(message.getKey(), message.getValue());
+            }
+        }
+    }
+
     public void publishEvent(String key, String message) {
         ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, message);
+        LatencyHistogram latency = sendLatency;
+        LongAdder errors = sendErrors;
+        long start = System.nanoTime();
         producer.send(record, (metadata, exception) -> {
+            latency.recordSince(start);
             if (exception != null) {
-                Logger.log("ERROR", "Failed to send Kafka message: " + exception.getMessage());
-            } else {
-                Logger.log("KAFKA", "Event sent to topic " + metadata.topic() +
-                        " | partition " + metadata.partition() +
-                        " | offset " + metadata.offset());
+                errors.increment();
+                Logger.log("ERROR", "Failed to send Kafka message: {}", exception.getMessage());
+            } else if (Logger.isEnabled("KAFKA")) {
+                Logger.log("KAFKA", "Event sent to topic {} | partition {} | offset {}",
+                        metadata.topic(), metadata.partition(), metadata.offset());
             }
         });
     }
 
+    @Override
     public void close() {
         producer.close();
     }
@@ -0,0 +1,114 @@
+package com.driver;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Hands out the locks guarding a database's records.
+ * - Every collection has an intent lock. Single-record operations hold it shared; operations that need
+ *   the whole collection to stand still (dropping it, opening a snapshot, rebuilding an index, committing
+ *   a transaction) hold it exclusively.
+ * - Under the shared intent lock a record is guarded by one of a fixed number of {@link StampedLock}
+ *   stripes, chosen by the resource's hash. Writers take the stripe's write lock; readers validate an
+ *   optimistic stamp and only block when a writer on the same stripe got in the way.
+ * Locks are always acquired intent first, then stripe; multiple stripes in ascending stripe order.
+ */
+public class LockManager {
+    private final int stripeMask;
+    private final ConcurrentHashMap<String, CollectionLocks> collections = new ConcurrentHashMap<>();
+
+    private final class CollectionLocks {
+        final ReentrantReadWriteLock intent = new ReentrantReadWriteLock();
+        final StampedLock[] stripes = new StampedLock[stripeMask + 1];
+
+        CollectionLocks() {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new StampedLock();
+            }
+        }
+    }
+
+    /**
+     * Creates a lock manager with the given number of stripes per collection, rounded up to a power of two.
+     */
+    public LockManager(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripeMask = size - 1;
+    }
+
+    private CollectionLocks locksOf(String collection) {
+        return collections.computeIfAbsent(collection, c -> new CollectionLocks());
+    }
+
+    /**
+     * Returns the collection's intent lock.
+     */
+    public ReentrantReadWriteLock intent(String collection) {
+        return locksOf(collection).intent;
+    }
+
+    /**
+     * Returns the index of the stripe guarding a resource.
+     */
+    public int stripeIndex(String resource) {
+        int h = resource.hashCode();
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+
+    /**
+     * Returns the stripe guarding a resource. The caller must hold the collection's intent lock.
+     */
+    public StampedLock stripe(String collection, String resource) {
+        return locksOf(collection).stripes[stripeIndex(resource)];
+    }
+
+    public int stripeCount() {
+        return stripeMask + 1;
+    }
+
+    /**
+     * Locks every stripe guarding the resources, each once and in ascending order so that concurrent
+     * batches cannot deadlock. The caller must hold the collection's intent lock.
+     */
+    public HeldStripes lockStripes(String collection, Collection<String> resources, boolean exclusive) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String resource : resources) {
+            indexes.add(stripeIndex(resource));
+        }
+        StampedLock[] stripes = locksOf(collection).stripes;
+        StampedLock[] held = new StampedLock[indexes.size()];
+        long[] stamps = new long[held.length];
+        int i = 0;
+        for (int index : indexes) {
+            held[i] = stripes[index];
+            stamps[i] = exclusive ? held[i].writeLock() : held[i].readLock();
+            i++;
+        }
+        return new HeldStripes(held, stamps);
+    }
+
+    /**
+     * A set of stripes locked by {@link #lockStripes}.
+     */
+    public static final class HeldStripes {
+        private final StampedLock[] stripes;
+        private final long[] stamps;
+
+        private HeldStripes(StampedLock[] stripes, long[] stamps) {
+            this.stripes = stripes;
+            this.stamps = stamps;
+        }
+
+        public void unlock() {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock(stamps[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.driver;
+
+/**
+ * Destination of the messages accepted by {@link Logger}.
+ */
+public interface LogAppender {
+    void append(LogEvent event);
+
+    /**
+     * Writes out anything buffered.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Flushes and releases the appender's resources.
+     */
+    default void close() {
+        flush();
+    }
+}
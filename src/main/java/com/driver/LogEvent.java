@@ -0,0 +1,62 @@
+package com.driver;
+
+/**
+ * A log message captured by {@link Logger}. The message is only formatted when an appender asks for it,
+ * usually on the appender's own thread.
+ */
+public final class LogEvent {
+    private final Logger.Level level;
+    private final String category;
+    private final long threadId;
+    private final long timeMillis;
+    private final String pattern;
+    private final Object[] args;
+
+    LogEvent(Logger.Level level, String category, String pattern, Object[] args) {
+        this.level = level;
+        this.category = category;
+        this.threadId = Thread.currentThread().getId();
+        this.timeMillis = System.currentTimeMillis();
+        this.pattern = pattern;
+        this.args = args;
+    }
+
+    public Logger.Level getLevel() {
+        return level;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Id of the thread that logged the message.
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns the message with each {@code {}} in the pattern replaced by the next argument.
+     */
+    public String getMessage() {
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+        StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+        int from = 0;
+        for (Object arg : args) {
+            int at = pattern.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            message.append(pattern, from, at).append(arg);
+            from = at + 2;
+        }
+        return message.append(pattern, from, pattern.length()).toString();
+    }
+}
@@ -1,11 +1,156 @@
 package com.driver;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Utility class for logging messages with thread information.
+ * - Every message belongs to a category such as {@code CACHE} or {@code TRANSACTION}. Each category has a level
+ *   and can be switched off on its own; a message is only captured if its category is enabled and its level
+ *   reaches the global threshold. The check comes first, so a suppressed message costs no formatting.
+ * - Messages take {@code {}} placeholders that are filled in on the appender's thread, not the caller's.
+ * - By default messages go through an {@link AsyncAppender} to the console, or to a {@link RollingFileAppender}
+ *   if the {@code com.driver.log.file} system property names a file. {@code com.driver.log.level} sets the threshold.
+ * - {@code CACHE}, {@code THREAD} and {@code KAFKA} log per operation and default to {@link Level#DEBUG};
+ *   {@code ERROR} and {@code WARN} log at their own level and every other category at {@link Level#INFO}.
  */
 public class Logger {
-    public static void log(String level, String message) {
-        long threadId = Thread.currentThread().getId();
-        System.out.println("[" + level + "] [Thread-" + threadId + "] " + message);
+    /**
+     * Message levels in increasing severity. {@code OFF} as the threshold suppresses everything.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final int MAX_BACKUPS = 5;
+
+    private static final ConcurrentHashMap<String, Category> categories = new ConcurrentHashMap<>();
+    private static volatile Level threshold = Level.valueOf(System.getProperty("com.driver.log.level", "INFO"));
+    private static volatile LogAppender appender = defaultAppender();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> appender.close(), "log-shutdown"));
+    }
+
+    private static final class Category {
+        final String name;
+        volatile Level level;
+        volatile boolean enabled = true;
+
+        Category(String name) {
+            this.name = name;
+            this.level = defaultLevel(name);
+        }
+    }
+
+    private static Level defaultLevel(String category) {
+        switch (category) {
+            case "ERROR":
+                return Level.ERROR;
+            case "WARN":
+                return Level.WARN;
+            case "CACHE":
+            case "THREAD":
+            case "KAFKA":
+                return Level.DEBUG;
+            default:
+                return Level.INFO;
+        }
+    }
+
+    private static LogAppender defaultAppender() {
+        String file = System.getProperty("com.driver.log.file");
+        if (file != null) {
+            try {
+                return new AsyncAppender(new RollingFileAppender(new File(file), MAX_FILE_BYTES, MAX_BACKUPS), BUFFER_SIZE);
+            } catch (IOException e) {
+                System.err.println("Failed to open log file " + file + ", logging to the console: " + e.getMessage());
+            }
+        }
+        return new AsyncAppender(new ConsoleAppender(), BUFFER_SIZE);
+    }
+
+    private static Category category(String name) {
+        Category category = categories.get(name);
+        return category != null ? category : categories.computeIfAbsent(name, Category::new);
+    }
+
+    /**
+     * Returns true if messages of the category are currently captured. Guard expensive arguments with it.
+     */
+    public static boolean isEnabled(String category) {
+        Category c = category(category);
+        return c.enabled && c.level.compareTo(threshold) >= 0;
+    }
+
+    public static void log(String category, String message) {
+        Category c = category(category);
+        if (c.enabled && c.level.compareTo(threshold) >= 0) {
+            appender.append(new LogEvent(c.level, c.name, message, null));
+        }
+    }
+
+    public static void log(String category, String pattern, Object arg) {
+        Category c = category(category);
+        if (c.enabled && c.level.compareTo(threshold) >= 0) {
+            appender.append(new LogEvent(c.level, c.name, pattern, new Object[]{arg}));
+        }
+    }
+
+    public static void log(String category, String pattern, Object arg1, Object arg2) {
+        Category c = category(category);
+        if (c.enabled && c.level.compareTo(threshold) >= 0) {
+            appender.append(new LogEvent(c.level, c.name, pattern, new Object[]{arg1, arg2}));
+        }
+    }
+
+    public static void log(String category, String pattern, Object... args) {
+        Category c = category(category);
+        if (c.enabled && c.level.compareTo(threshold) >= 0) {
+            appender.append(new LogEvent(c.level, c.name, pattern, args));
+        }
+    }
+
+    /**
+     * Sets the lowest level that is logged.
+     */
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    /**
+     * Sets the level of a category's messages, e.g. {@code setCategoryLevel("CACHE", Level.INFO)} to log cache hits
+     * without enabling every debug category.
+     */
+    public static void setCategoryLevel(String category, Level level) {
+        category(category).level = level;
+    }
+
+    public static void setCategoryEnabled(String category, boolean enabled) {
+        category(category).enabled = enabled;
+    }
+
+    /**
+     * Replaces the appender and returns the previous one, which is flushed but left open.
+     */
+    public static LogAppender setAppender(LogAppender newAppender) {
+        LogAppender previous = appender;
+        appender = newAppender;
+        previous.flush();
+        return previous;
+    }
+
+    /**
+     * Waits for the messages logged so far to be written.
+     */
+    public static void flush() {
+        appender.flush();
     }
 }
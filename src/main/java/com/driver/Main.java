@@ -3,9 +3,10 @@ package com.driver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
-import java.util.ArrayList;
 
 /**
  * Main class for demonstrating JSON database operations with ACID transactions, multi-threading, caching, and Kafka event streaming.
@@ -30,10 +31,10 @@ public class Main {
         try {
             Logger.log("INFO", "Reading users from JSON file...");
             User[] users = objectMapper.readValue(jsonFile, User[].class);
-            Logger.log("SUCCESS", "Found " + users.length + " users in JSON.");
+            Logger.log("SUCCESS", "Found {} users in JSON.", users.length);
 
-            // Perform Insertions in Parallel
-            insertUsersInParallel(db, users);
+            // Insert all users as one batch
+            insertUsersInBatch(db, users);
 
             // Read all users
             readAllUsers(db);
@@ -51,7 +52,7 @@ public class Main {
             deleteUser(db, "Jane Doe");
 
         } catch (IOException | InterruptedException | ExecutionException e) {
-            Logger.log("ERROR", "Failed to process JSON: " + e.getMessage());
+            Logger.log("ERROR", "Failed to process JSON: {}", e.getMessage());
         } finally {
             db.shutdown();
             Logger.log("INFO", "Application execution completed.");
@@ -59,21 +60,17 @@ public class Main {
     }
 
     /**
-     * Inserts multiple users in parallel.
+     * Inserts multiple users with a single batch write.
      */
-    private static void insertUsersInParallel(JSONDatabase db, User[] users) throws InterruptedException {
-        Logger.log("INFO", "Inserting users in parallel...");
-        List<Callable<Void>> tasks = new ArrayList<>();
-        
+    private static void insertUsersInBatch(JSONDatabase db, User[] users) throws InterruptedException, ExecutionException {
+        Logger.log("INFO", "Inserting users in a batch...");
+        Map<String, User> batch = new LinkedHashMap<>();
         for (User user : users) {
-            tasks.add(() -> {
-                db.insertOrUpdate("users", user.name, user).get();
-                Logger.log("KAFKA", "Kafka event sent: User " + user.name + " inserted/updated.");
-                return null;
-            });
+            batch.put(user.name, user);
         }
 
-        db.executeTasks(tasks);
+        db.insertAll("users", batch).get();
+        Logger.log("KAFKA", "Kafka event sent: {} users inserted/updated.", batch.size());
         Logger.log("SUCCESS", "All users inserted successfully!");
     }
 
@@ -96,17 +93,17 @@ public class Main {
      * Reads, updates, and re-inserts a user.
      */
     private static void updateUser(JSONDatabase db, String userName, String newCompany) throws InterruptedException, ExecutionException {
-        Logger.log("INFO", "Updating user: " + userName + "...");
+        Logger.log("INFO", "Updating user: {}...", userName);
         Future<User> futureUser = db.read("users", userName);
         User user = futureUser.get();
 
         if (user != null) {
             user.company = newCompany;
             db.insertOrUpdate("users", userName, user).get();
-            Logger.log("SUCCESS", userName + "'s company updated to " + newCompany);
-            Logger.log("KAFKA", "Kafka event sent: User " + userName + " updated to company " + newCompany);
+            Logger.log("SUCCESS", "{}'s company updated to {}", userName, newCompany);
+            Logger.log("KAFKA", "Kafka event sent: User {} updated to company {}", userName, newCompany);
         } else {
-            Logger.log("ERROR", userName + " not found!");
+            Logger.log("ERROR", "{} not found!", userName);
         }
     }
 
@@ -115,13 +112,13 @@ public class Main {
      */
     private static void simulateTransaction(JSONDatabase db) throws InterruptedException, ExecutionException {
         Logger.log("TRANSACTION", "Starting a new transaction...");
-        db.startTransaction();
+        Transaction transaction = db.begin();
 
         try {
             User testUser = new User("TransactionUser", "35", "5551234567", "TestCorp",
                     new Address("New York", "NY", "USA", "10001"));
 
-            db.insertOrUpdate("users", "TransactionUser", testUser).get();
+            transaction.insertOrUpdate("users", "TransactionUser", testUser);
             Logger.log("TRANSACTION", "Inserted TransactionUser");
 
             // Simulate an error condition
@@ -129,13 +126,13 @@ public class Main {
                 throw new RuntimeException("Simulated error! Rolling back...");
             }
 
-            db.commitTransaction();
+            transaction.commit().get();
             Logger.log("TRANSACTION", "Transaction committed successfully!");
             Logger.log("KAFKA", "Kafka event sent: Transaction committed successfully.");
 
         } catch (Exception e) {
-            Logger.log("ERROR", "Transaction failed: " + e.getMessage());
-            db.rollbackTransaction();
+            Logger.log("ERROR", "Transaction failed: {}", e.getMessage());
+            transaction.rollback();
             Logger.log("TRANSACTION", "Transaction rolled back!");
             Logger.log("KAFKA", "Kafka event sent: Transaction rolled back due to error.");
         }
@@ -158,9 +155,9 @@ public class Main {
      * Deletes a user from the database.
      */
     private static void deleteUser(JSONDatabase db, String userName) throws InterruptedException, ExecutionException {
-        Logger.log("INFO", "Deleting user: " + userName + "...");
+        Logger.log("INFO", "Deleting user: {}...", userName);
         db.delete("users", userName).get();
-        Logger.log("SUCCESS", "User " + userName + " deleted successfully!");
-        Logger.log("KAFKA", "Kafka event sent: User " + userName + " deleted.");
+        Logger.log("SUCCESS", "User {} deleted successfully!", userName);
+        Logger.log("KAFKA", "Kafka event sent: User {} deleted.", userName);
     }
 }
\ No newline at end of file
@@ -0,0 +1,342 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link Aggregation} kept up to date as the collection changes, so reading it costs the same for any collection size.
+ * - Group values are dictionary-encoded to dense int ids; each group's counters are adders, and min/max come from a
+ *   sorted multiset of the group's values.
+ * - Like {@link SecondaryIndex}, the view remembers what each resource contributed. A write subtracts the old
+ *   contribution and adds the new one, so neither updates nor deletes read the previous record.
+ * - Updates of one resource are expected under its record lock; different resources may be updated concurrently.
+ */
+public class MaterializedView {
+    private static final String NULL_GROUP = "\u0000";
+
+    /**
+     * What one resource adds to the view: its group id and the numeric value (or NaN) of each stats field.
+     */
+    private static final class Contribution {
+        final int group;
+        final double[] values;
+
+        Contribution(int group, double[] values) {
+            this.group = group;
+            this.values = values;
+        }
+    }
+
+    private final class Group {
+        final LongAdder count = new LongAdder();
+        final LongAdder[] valueCounts = new LongAdder[fields.size()];
+        final DoubleAdder[] sums = new DoubleAdder[fields.size()];
+        final ConcurrentSkipListMap<Double, Long>[] values;
+
+        @SuppressWarnings("unchecked")
+        Group() {
+            values = (ConcurrentSkipListMap<Double, Long>[]) new ConcurrentSkipListMap<?, ?>[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                valueCounts[i] = new LongAdder();
+                sums[i] = new DoubleAdder();
+                values[i] = new ConcurrentSkipListMap<>();
+            }
+        }
+
+        void apply(double[] contribution, int sign) {
+            count.add(sign);
+            for (int i = 0; i < contribution.length; i++) {
+                double value = contribution[i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                valueCounts[i].add(sign);
+                sums[i].add(sign * value);
+                if (sign > 0) {
+                    values[i].merge(value, 1L, Long::sum);
+                } else {
+                    values[i].computeIfPresent(value, (v, n) -> n == 1 ? null : n - 1);
+                }
+            }
+        }
+
+        AggregationResult.Bucket toBucket() {
+            long[] counts = new long[fields.size()];
+            double[] totals = new double[fields.size()];
+            double[] mins = new double[fields.size()];
+            double[] maxs = new double[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                counts[i] = valueCounts[i].sum();
+                totals[i] = sums[i].sum();
+                Map.Entry<Double, Long> first = values[i].firstEntry();
+                Map.Entry<Double, Long> last = values[i].lastEntry();
+                mins[i] = first == null ? Double.NaN : first.getKey();
+                maxs[i] = last == null ? Double.NaN : last.getKey();
+            }
+            return new AggregationResult.Bucket(statsIndex, count.sum(), counts, totals, mins, maxs);
+        }
+    }
+
+    private final String name;
+    private final String collection;
+    private final Aggregation definition;
+    private final List<FieldPath> fields;
+    private final Map<String, Integer> statsIndex;
+    private final ConcurrentHashMap<String, Integer> groupIds = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<String> groupKeys = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Group> groups = new CopyOnWriteArrayList<>();
+    private final Group total;
+    private final ConcurrentHashMap<String, Contribution> contributions = new ConcurrentHashMap<>();
+
+    public MaterializedView(String name, String collection, Aggregation definition) {
+        if (definition.getResources() != null) {
+            throw new IllegalArgumentException("A materialized view cannot be restricted to a resource list");
+        }
+        this.name = name;
+        this.collection = collection;
+        this.definition = definition;
+        this.fields = definition.getStatsFields();
+        this.statsIndex = definition.getStatsIndex();
+        this.total = new Group();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    Aggregation getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Updates the view after a write. A null record removes the resource.
+     */
+    public void update(String resource, Object record) {
+        Contribution next;
+        try {
+            next = record != null && definition.matches(record) ? contributionOf(record) : null;
+        } catch (RuntimeException e) {
+            // Left out of the view until it is rewritten, rather than failing a write that is already logged.
+            Logger.log("WARN", "Cannot read {}/{} for view {}: {}", collection, resource, name, e.getMessage());
+            next = null;
+        }
+        Contribution previous = next == null ? contributions.remove(resource) : contributions.put(resource, next);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        if (next != null) {
+            apply(next, 1);
+        }
+    }
+
+    private Contribution contributionOf(Object record) {
+        FieldPath groupBy = definition.getGroupBy();
+        String key = groupBy == null ? NULL_GROUP : groupBy.getString(record);
+        double[] values = new double[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Aggregation.toNumber(fields.get(i).get(record));
+        }
+        return new Contribution(groupIdOf(key == null ? NULL_GROUP : key), values);
+    }
+
+    private int groupIdOf(String key) {
+        Integer id = groupIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (groups) {
+            return groupIds.computeIfAbsent(key, k -> {
+                groups.add(new Group());
+                groupKeys.add(k);
+                return groups.size() - 1;
+            });
+        }
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        groups.get(contribution.group).apply(contribution.values, sign);
+        total.apply(contribution.values, sign);
+    }
+
+    public void clear() {
+        for (String resource : new ArrayList<>(contributions.keySet())) {
+            update(resource, null);
+        }
+    }
+
+    private Group groupOf(String key) {
+        Integer id = groupIds.get(key == null ? NULL_GROUP : key);
+        return id == null ? null : groups.get(id);
+    }
+
+    /**
+     * Number of records in the view.
+     */
+    public long count() {
+        return total.count.sum();
+    }
+
+    /**
+     * Number of records in a group; the null group holds records without the group-by field.
+     */
+    public long count(String group) {
+        Group g = groupOf(group);
+        return g == null ? 0 : g.count.sum();
+    }
+
+    public double sum(String field) {
+        return total.sums[indexOf(field)].sum();
+    }
+
+    public double sum(String group, String field) {
+        Group g = groupOf(group);
+        return g == null ? 0 : g.sums[indexOf(field)].sum();
+    }
+
+    /**
+     * Returns the average of the field over the view, or NaN if it has no numeric values.
+     */
+    public double avg(String field) {
+        return avg(total, indexOf(field));
+    }
+
+    public double avg(String group, String field) {
+        Group g = groupOf(group);
+        return g == null ? Double.NaN : avg(g, indexOf(field));
+    }
+
+    private static double avg(Group group, int index) {
+        long n = group.valueCounts[index].sum();
+        return n == 0 ? Double.NaN : group.sums[index].sum() / n;
+    }
+
+    public double min(String field) {
+        return min(total, indexOf(field));
+    }
+
+    public double min(String group, String field) {
+        Group g = groupOf(group);
+        return g == null ? Double.NaN : min(g, indexOf(field));
+    }
+
+    private static double min(Group group, int index) {
+        Map.Entry<Double, Long> first = group.values[index].firstEntry();
+        return first == null ? Double.NaN : first.getKey();
+    }
+
+    public double max(String field) {
+        return max(total, indexOf(field));
+    }
+
+    public double max(String group, String field) {
+        Group g = groupOf(group);
+        return g == null ? Double.NaN : max(g, indexOf(field));
+    }
+
+    private static double max(Group group, int index) {
+        Map.Entry<Double, Long> last = group.values[index].lastEntry();
+        return last == null ? Double.NaN : last.getKey();
+    }
+
+    private int indexOf(String field) {
+        Integer index = statsIndex.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("View " + name + " has no stats for " + field);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of records per non-empty group, largest group first.
+     */
+    public Map<String, Long> groupCounts() {
+        return result().counts();
+    }
+
+    /**
+     * Copies the current counters into an {@link AggregationResult}, in time proportional to the number of groups.
+     */
+    public AggregationResult result() {
+        Map<String, AggregationResult.Bucket> buckets = new HashMap<>();
+        if (definition.getGroupBy() != null) {
+            for (int id = 0; id < groups.size(); id++) {
+                Group group = groups.get(id);
+                if (group.count.sum() > 0) {
+                    String key = groupKeys.get(id);
+                    buckets.put(NULL_GROUP.equals(key) ? null : key, group.toBucket());
+                }
+            }
+        }
+        return new AggregationResult(total.toBucket(), buckets);
+    }
+
+    /**
+     * Writes the view as {@code {definition, groups: [key...], contributions: {resource: [groupId, values...]}}}.
+     */
+    public void save(File file, ObjectMapper objectMapper) throws IOException {
+        Map<String, Object> checkpoint = new LinkedHashMap<>();
+        checkpoint.put("definition", collection + ": " + definition.describe());
+        checkpoint.put("groups", new ArrayList<>(groupKeys));
+        Map<String, double[]> entries = new HashMap<>();
+        for (Map.Entry<String, Contribution> contribution : contributions.entrySet()) {
+            double[] entry = new double[fields.size() + 1];
+            entry[0] = contribution.getValue().group;
+            System.arraycopy(contribution.getValue().values, 0, entry, 1, fields.size());
+            entries.put(contribution.getKey(), entry);
+        }
+        checkpoint.put("contributions", entries);
+        File parent = file.getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        objectMapper.writeValue(file, checkpoint);
+    }
+
+    /**
+     * Restores a view saved by {@link #save}, replaying the contributions into fresh counters.
+     * Fails if the checkpoint was written for a different definition.
+     */
+    @SuppressWarnings("unchecked")
+    public void load(File file, ObjectMapper objectMapper) throws IOException {
+        Map<String, Object> checkpoint = objectMapper.readValue(file, Map.class);
+        if (!(collection + ": " + definition.describe()).equals(checkpoint.get("definition"))) {
+            throw new IOException("Checkpoint was saved for a different definition: " + checkpoint.get("definition"));
+        }
+        List<String> keys = (List<String>) checkpoint.get("groups");
+        Map<String, List<Object>> entries = (Map<String, List<Object>>) checkpoint.get("contributions");
+        int[] ids = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            ids[i] = groupIdOf(keys.get(i));
+        }
+        for (Map.Entry<String, List<Object>> entry : entries.entrySet()) {
+            List<Object> values = entry.getValue();
+            double[] contribution = new double[fields.size()];
+            Arrays.fill(contribution, Double.NaN);
+            for (int i = 0; i < contribution.length && i + 1 < values.size(); i++) {
+                contribution[i] = Aggregation.toNumber(values.get(i + 1));
+            }
+            Contribution restored = new Contribution(ids[((Number) values.get(0)).intValue()], contribution);
+            Contribution previous = contributions.put(entry.getKey(), restored);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(restored, 1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.driver;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes a {@link MetricsRegistry} as a read-only JMX MBean named
+ * {@code com.driver:type=JSONDatabase,name="<directory>"}.
+ * - Counters and gauges are attributes under their own names. A histogram {@code h} is flattened into
+ *   {@code h.count}, {@code h.meanMicros}, {@code h.p50Micros}, {@code h.p90Micros}, {@code h.p99Micros},
+ *   {@code h.p999Micros} and {@code h.maxMicros}.
+ * - The attribute list is rebuilt on every query, so metrics registered later (e.g. for a new collection) appear too.
+ */
+public class MetricsMBean implements DynamicMBean {
+    private final MetricsRegistry registry;
+    private final ObjectName objectName;
+
+    private MetricsMBean(MetricsRegistry registry, ObjectName objectName) {
+        this.registry = registry;
+        this.objectName = objectName;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server. An MBean left under the same name, e.g. by an
+     * instance that was never shut down, is replaced. Returns null if registration fails.
+     */
+    public static MetricsMBean register(String name, MetricsRegistry registry) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName("com.driver:type=JSONDatabase,name=" + ObjectName.quote(name));
+            MetricsMBean bean = new MetricsMBean(registry, objectName);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+            return bean;
+        } catch (JMException e) {
+            Logger.log("ERROR", "Failed to register metrics MBean for {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            Logger.log("ERROR", "Failed to unregister metrics MBean {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> metric : registry.snapshot().entrySet()) {
+            Object value = metric.getValue();
+            if (value instanceof LatencyHistogram.Snapshot) {
+                LatencyHistogram.Snapshot histogram = (LatencyHistogram.Snapshot) value;
+                String name = metric.getKey();
+                attributes.put(name + ".count", histogram.count());
+                attributes.put(name + ".meanMicros", histogram.mean() / 1_000.0);
+                attributes.put(name + ".p50Micros", histogram.percentile(50) / 1_000.0);
+                attributes.put(name + ".p90Micros", histogram.percentile(90) / 1_000.0);
+                attributes.put(name + ".p99Micros", histogram.percentile(99) / 1_000.0);
+                attributes.put(name + ".p999Micros", histogram.percentile(99.9) / 1_000.0);
+                attributes.put(name + ".maxMicros", histogram.max() / 1_000.0);
+            } else if (value != null) {
+                attributes.put(metric.getKey(), value);
+            }
+        }
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            if (attributes.containsKey(name)) {
+                list.add(new Attribute(name, attributes.get(name)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String, Object> attribute : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+                    attribute.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "JSONDatabase metrics",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
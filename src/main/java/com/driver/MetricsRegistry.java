@@ -0,0 +1,29 @@
+package com.driver;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, latency histograms and gauges recorded by a {@link JSONDatabase}.
+ * - The database looks metrics up once and keeps the returned objects, so lookups stay off the hot path;
+ *   implementations must return the same object for the same name.
+ * - Plug in another implementation through {@link DatabaseConfig#metricsRegistry} to forward the values
+ *   to an external monitoring system.
+ */
+public interface MetricsRegistry {
+    LongAdder counter(String name);
+
+    LatencyHistogram histogram(String name);
+
+    /**
+     * Registers a value computed when the metrics are read, such as a queue depth. Replaces an earlier gauge of that name.
+     */
+    void gauge(String name, Supplier<? extends Number> value);
+
+    /**
+     * Returns every metric by name: a {@link Long} for counters, a {@link Number} for gauges and a
+     * {@link LatencyHistogram.Snapshot} for histograms.
+     */
+    Map<String, Object> snapshot();
+}
@@ -0,0 +1,12 @@
+package com.driver;
+
+import java.util.List;
+
+/**
+ * Discards every event. Used when a database is created without an event destination.
+ */
+public class NoOpEventSink implements ChangeEventSink {
+    @Override
+    public void publish(List<ChangeEvent> events) {
+    }
+}
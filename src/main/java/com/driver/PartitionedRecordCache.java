@@ -0,0 +1,118 @@
+package com.driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A {@link RecordCache} split into independent partitions by resource, one per storage shard.
+ * Each partition has its own policy lock, so writers to different shards do not contend on cache bookkeeping.
+ * Records go to the partition of their shard, chosen by {@link ShardedStorageEngine#shardOf}.
+ */
+public class PartitionedRecordCache<V> implements RecordCache<V> {
+    private final RecordCache<V>[] partitions;
+
+    private static final class Entry<V> {
+        final String collection;
+        final String resource;
+        final V value;
+
+        Entry(String collection, String resource, V value) {
+            this.collection = collection;
+            this.resource = resource;
+            this.value = value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public PartitionedRecordCache(int partitionCount, Supplier<RecordCache<V>> partitionFactory) {
+        this.partitions = (RecordCache<V>[]) new RecordCache<?>[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = partitionFactory.get();
+        }
+    }
+
+    private RecordCache<V> partitionFor(String resource) {
+        return partitions[ShardedStorageEngine.shardOf(resource, partitions.length)];
+    }
+
+    @Override
+    public V get(String collection, String resource) {
+        return partitionFor(resource).get(collection, resource);
+    }
+
+    @Override
+    public void put(String collection, String resource, V value) {
+        partitionFor(resource).put(collection, resource, value);
+    }
+
+    @Override
+    public void invalidate(String collection, String resource) {
+        partitionFor(resource).invalidate(collection, resource);
+    }
+
+    @Override
+    public void invalidateCollection(String collection) {
+        for (RecordCache<V> partition : partitions) {
+            partition.invalidateCollection(collection);
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (RecordCache<V> partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    /**
+     * Interleaves the partitions' hottest entries, so a visitor that stops early keeps the hot set of every shard.
+     */
+    @Override
+    public void forEachHottest(EntryVisitor<? super V> visitor) {
+        List<List<Entry<V>>> hottest = new ArrayList<>(partitions.length);
+        for (RecordCache<V> partition : partitions) {
+            List<Entry<V>> entries = new ArrayList<>();
+            partition.forEachHottest((collection, resource, value) -> entries.add(new Entry<>(collection, resource, value)));
+            hottest.add(entries);
+        }
+        for (int rank = 0; ; rank++) {
+            boolean more = false;
+            for (List<Entry<V>> entries : hottest) {
+                if (rank < entries.size()) {
+                    more = true;
+                    Entry<V> entry = entries.get(rank);
+                    if (!visitor.visit(entry.collection, entry.resource, entry.value)) {
+                        return;
+                    }
+                }
+            }
+            if (!more) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of all partitions added together.
+     */
+    @Override
+    public CacheStats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long size = 0;
+        long weight = 0;
+        for (RecordCache<V> partition : partitions) {
+            CacheStats stats = partition.stats();
+            hits += stats.getHitCount();
+            misses += stats.getMissCount();
+            evictions += stats.getEvictionCount();
+            size += stats.getSize();
+            weight += stats.getWeight();
+        }
+        return new CacheStats(hits, misses, evictions, size, weight);
+    }
+}
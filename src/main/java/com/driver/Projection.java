@@ -0,0 +1,193 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of field paths to read from records without binding them to objects.
+ * - {@link #extract(JsonParser)} walks the token stream of an encoded record, descends only into objects on a
+ *   requested path, skips every other value with {@link JsonParser#skipChildren()} and stops reading as soon as
+ *   all paths were found. It works on every {@link RecordCodec.Format}.
+ * - The result maps each requested path, in the order given, to its value: a {@link String}, {@link Number} or
+ *   {@link Boolean} for scalars, a {@link JsonNode} for objects and arrays, or null if the path is missing.
+ *   {@link FieldPath} looks such maps up by the full path, so they can be passed to an {@link Aggregation}.
+ */
+public final class Projection {
+    private final List<FieldPath> paths;
+    private final Node root = new Node();
+    private final int leafCount;
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        // The requested path ending at this node, if any.
+        FieldPath leaf;
+    }
+
+    private Projection(Collection<String> fieldPaths) {
+        List<FieldPath> unique = new ArrayList<>();
+        for (String fieldPath : fieldPaths) {
+            FieldPath path = FieldPath.of(fieldPath);
+            if (unique.contains(path)) {
+                continue;
+            }
+            unique.add(path);
+            Node node = root;
+            for (String name : path.names()) {
+                node = node.children.computeIfAbsent(name, n -> new Node());
+            }
+            node.leaf = path;
+        }
+        this.paths = Collections.unmodifiableList(unique);
+        this.leafCount = countLeaves(root);
+    }
+
+    public static Projection of(String... fieldPaths) {
+        return new Projection(Arrays.asList(fieldPaths));
+    }
+
+    public static Projection of(Collection<String> fieldPaths) {
+        return new Projection(fieldPaths);
+    }
+
+    public List<FieldPath> paths() {
+        return paths;
+    }
+
+    // A leaf captures its whole subtree, so requested paths below it are not counted separately.
+    private static int countLeaves(Node node) {
+        if (node.leaf != null) {
+            return 1;
+        }
+        int count = 0;
+        for (Node child : node.children.values()) {
+            count += countLeaves(child);
+        }
+        return count;
+    }
+
+    private Map<String, Object> emptyResult() {
+        Map<String, Object> result = new LinkedHashMap<>(paths.size() * 2);
+        for (FieldPath path : paths) {
+            result.put(path.path(), null);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the projected paths from a parser positioned before the record's first token.
+     * Returns null if the record is not an object.
+     */
+    public Map<String, Object> extract(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        Map<String, Object> result = emptyResult();
+        if (leafCount > 0) {
+            readObject(parser, root, result, new int[]{leafCount});
+        }
+        return result;
+    }
+
+    /**
+     * Projects an already decoded record, e.g. a cached {@link User}; values are the record's own field values.
+     */
+    public Map<String, Object> extract(Object record) {
+        Map<String, Object> result = emptyResult();
+        for (FieldPath path : paths) {
+            result.put(path.path(), path.get(record));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the fields of the current object. Returns true once every leaf was found, leaving the rest unread.
+     */
+    private boolean readObject(JsonParser parser, Node node, Map<String, Object> result, int[] remaining)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.leaf != null) {
+                Object value = readValue(parser, token);
+                result.put(child.leaf.path(), value);
+                if (!child.children.isEmpty()) {
+                    fillDescendants(child, value instanceof JsonNode ? (JsonNode) value : null, result);
+                }
+                if (--remaining[0] == 0) {
+                    return true;
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                if (readObject(parser, child, result, remaining)) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+            case START_ARRAY:
+                return parser.readValueAsTree();
+            default:
+                return parser.getEmbeddedObject();
+        }
+    }
+
+    /**
+     * Fills requested paths nested under a captured subtree, e.g. {@code address.city} when {@code address} is also requested.
+     */
+    private static void fillDescendants(Node node, JsonNode value, Map<String, Object> result) {
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            JsonNode childValue = value == null ? null : value.get(child.getKey());
+            if (child.getValue().leaf != null) {
+                result.put(child.getValue().leaf.path(), valueOf(childValue));
+            }
+            fillDescendants(child.getValue(), childValue, result);
+        }
+    }
+
+    private static Object valueOf(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        return node.isValueNode() ? node.asText() : node;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection" + paths;
+    }
+}
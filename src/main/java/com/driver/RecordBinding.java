@@ -0,0 +1,82 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes and decodes records of one type with readers and writers bound to it once, for every format.
+ * - Jackson resolves the root (de)serializer of a pre-bound {@link ObjectReader} or {@link ObjectWriter} when it is
+ *   built, instead of looking it up again on every call as {@link ObjectMapper#readValue} does.
+ * - Encoding goes through a per-thread output buffer that keeps its largest block between records.
+ * Obtained from {@link RecordCodec#binding(Class)}, which builds one binding per type.
+ */
+final class RecordBinding<T> {
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private final RecordCodec codec;
+    private final Class<T> type;
+    // Indexed by RecordCodec.Format ordinal.
+    private final ObjectReader[] readers;
+    private final ObjectWriter[] writers;
+
+    RecordBinding(RecordCodec codec, Class<T> type) {
+        this.codec = codec;
+        this.type = type;
+        RecordCodec.Format[] formats = RecordCodec.Format.values();
+        this.readers = new ObjectReader[formats.length];
+        this.writers = new ObjectWriter[formats.length];
+        for (RecordCodec.Format format : formats) {
+            ObjectMapper mapper = codec.mapperFor(format);
+            readers[format.ordinal()] = mapper.readerFor(type);
+            writers[format.ordinal()] = mapper.writerFor(type);
+        }
+    }
+
+    Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Returns the value if it is of this type, or null; values of other types count as cache misses.
+     */
+    T cast(Object value) {
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    T decode(byte[] data) throws IOException {
+        ObjectReader reader = readers[RecordCodec.detect(data).ordinal()];
+        return RecordCompressor.isCompressed(data) ? reader.readValue(codec.open(data)) : reader.readValue(data);
+    }
+
+    byte[] encode(String collection, T value) throws IOException {
+        RecordCodec.Format format = codec.formatOf(collection);
+        return codec.compress(collection, format, encode(value, format));
+    }
+
+    byte[] encode(T value, RecordCodec.Format format) throws IOException {
+        ByteArrayBuilder buffer = BUFFER.get();
+        try {
+            writers[format.ordinal()].writeValue(buffer, value);
+            return buffer.toByteArray();
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Encodes a batch of records in the collection's format, keyed like the input.
+     */
+    Map<String, byte[]> encodeAll(String collection, Map<String, ? extends T> values) throws IOException {
+        RecordCodec.Format format = codec.formatOf(collection);
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends T> value : values.entrySet()) {
+            encoded.put(value.getKey(), codec.compress(collection, format, encode(value.getValue(), format)));
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,40 @@
+package com.driver;
+
+/**
+ * Cache of decoded records keyed by (collection, resource).
+ * Implementations must be thread-safe; {@link JSONDatabase} calls them from its worker threads without extra locking.
+ */
+public interface RecordCache<V> {
+    /**
+     * Returns the cached value, or null on a miss. A single call both checks and fetches.
+     */
+    V get(String collection, String resource);
+
+    void put(String collection, String resource, V value);
+
+    void invalidate(String collection, String resource);
+
+    /**
+     * Drops every cached record of the collection.
+     */
+    void invalidateCollection(String collection);
+
+    long size();
+
+    CacheStats stats();
+
+    /**
+     * Visits cached entries from the most to the least worth keeping, until the visitor returns false.
+     * Used to snapshot the hot set for the next start; visitors must be quick, as they may run under the cache's lock.
+     * The default visits nothing.
+     */
+    default void forEachHottest(EntryVisitor<? super V> visitor) {
+    }
+
+    /**
+     * Receives cache entries from {@link #forEachHottest}.
+     */
+    interface EntryVisitor<V> {
+        boolean visit(String collection, String resource, V value);
+    }
+}
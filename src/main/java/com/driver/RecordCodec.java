@@ -0,0 +1,231 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes records in a per-collection on-disk format and decodes any supported format.
+ * - The format is recognized from the data itself: Smile starts with its {@code :)\n} header,
+ *   CBOR with the self-describe tag {@code 0xD9D9F7}, anything else is JSON.
+ *   Collections can therefore switch formats and still read their older records.
+ * - {@link Format#PRETTY_JSON} matches the layout of existing databases and is the default.
+ * - Collections can also be {@link Compression compressed}; compressed records name their format in a header
+ *   and are inflated while the parser reads them (see {@link RecordCompressor}).
+ */
+public class RecordCodec {
+    /**
+     * Supported on-disk formats.
+     */
+    public enum Format {
+        /** Indented JSON, the original on-disk layout. */
+        PRETTY_JSON,
+        /** JSON without whitespace. */
+        JSON,
+        /** Jackson's binary JSON (Smile). */
+        SMILE,
+        /** Concise Binary Object Representation (RFC 8949). */
+        CBOR
+    }
+
+    /**
+     * Compression applied to encoded records.
+     */
+    public enum Compression {
+        /** Records are stored as encoded. */
+        NONE,
+        /** Deflate, with a dictionary trained on the collection's first records. */
+        DEFLATE
+    }
+
+    private static final byte[] SMILE_HEADER = {0x3A, 0x29, 0x0A};
+    private static final byte[] CBOR_TAG = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+
+    private final ObjectMapper prettyJson = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    private final ObjectMapper cbor = new ObjectMapper(CBORFactory.builder().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER).build());
+
+    private final Format defaultFormat;
+    private final Map<String, Format> collectionFormats = new ConcurrentHashMap<>();
+    private final Map<Class<?>, RecordBinding<?>> bindings = new ConcurrentHashMap<>();
+    private final RecordCompressor compressor;
+
+    public RecordCodec(Format defaultFormat, Map<String, Format> collectionFormats) {
+        this(defaultFormat, collectionFormats, new RecordCompressor());
+    }
+
+    RecordCodec(Format defaultFormat, Map<String, Format> collectionFormats, RecordCompressor compressor) {
+        this.defaultFormat = defaultFormat;
+        this.collectionFormats.putAll(collectionFormats);
+        this.compressor = compressor;
+    }
+
+    public RecordCodec() {
+        this(Format.PRETTY_JSON, new ConcurrentHashMap<String, Format>());
+    }
+
+    /**
+     * Returns the format new records of the collection are written in.
+     */
+    public Format formatOf(String collection) {
+        Format format = collectionFormats.get(collection);
+        return format != null ? format : defaultFormat;
+    }
+
+    public byte[] encode(String collection, Object value) throws IOException {
+        Format format = formatOf(collection);
+        return compress(collection, format, encode(value, format));
+    }
+
+    public byte[] encode(Object value, Format format) throws IOException {
+        return mapperFor(format).writeValueAsBytes(value);
+    }
+
+    /**
+     * Encodes the value in the format and compresses it without a dictionary, e.g. for standalone files.
+     */
+    public byte[] encode(Object value, Format format, Compression compression) throws IOException {
+        byte[] encoded = encode(value, format);
+        return compression == Compression.NONE ? encoded : compressor.compress(format, encoded);
+    }
+
+    /**
+     * Compresses an encoded record if its collection is compressed.
+     */
+    byte[] compress(String collection, Format format, byte[] encoded) throws IOException {
+        return compressor.compress(collection, format, encoded);
+    }
+
+    public <T> T decode(byte[] data, Class<T> type) throws IOException {
+        return binding(type).decode(data);
+    }
+
+    /**
+     * Returns the readers and writers bound to a record type, built on first use and shared afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    <T> RecordBinding<T> binding(Class<T> type) {
+        RecordBinding<?> binding = bindings.get(type);
+        if (binding == null) {
+            binding = bindings.computeIfAbsent(type, t -> new RecordBinding<>(this, t));
+        }
+        return (RecordBinding<T>) binding;
+    }
+
+    /**
+     * Reads only the projected paths of a record in any format, without binding it to an object.
+     */
+    public Map<String, Object> project(byte[] data, Projection projection) throws IOException {
+        try (JsonParser parser = createParser(data)) {
+            return projection.extract(parser);
+        }
+    }
+
+    public JsonNode decodeTree(byte[] data) throws IOException {
+        ObjectMapper mapper = mapperFor(detect(data));
+        return RecordCompressor.isCompressed(data) ? mapper.readTree(compressor.open(data)) : mapper.readTree(data);
+    }
+
+    /**
+     * Returns a parser over a record in any format; compressed records are inflated as the parser reads them.
+     */
+    JsonParser createParser(byte[] data) throws IOException {
+        ObjectMapper mapper = mapperFor(detect(data));
+        return RecordCompressor.isCompressed(data) ? mapper.createParser(compressor.open(data)) : mapper.createParser(data);
+    }
+
+    /**
+     * Returns the stream a compressed record is read from.
+     */
+    InputStream open(byte[] data) throws IOException {
+        return compressor.open(data);
+    }
+
+    /**
+     * Returns the record without compression if reading it needs this database's dictionaries, so it can be
+     * handed to other databases, e.g. in change events.
+     */
+    public byte[] selfContained(byte[] data) throws IOException {
+        return RecordCompressor.usesDictionary(data) ? compressor.expand(data) : data;
+    }
+
+    /**
+     * Returns the record as JSON text; JSON records are returned unchanged, binary ones are transcoded to indented JSON.
+     */
+    public String toJsonString(byte[] data) throws IOException {
+        if (RecordCompressor.isCompressed(data)) {
+            data = compressor.expand(data);
+        }
+        Format format = detect(data);
+        if (format == Format.JSON) {
+            return new String(data);
+        }
+        return prettyJson.writeValueAsString(mapperFor(format).readTree(data));
+    }
+
+    /**
+     * Re-encodes a record in the target format; returns the input if it is already in that format.
+     * Compressed records are re-encoded without compression.
+     */
+    public byte[] convert(byte[] data, Format target) throws IOException {
+        Format source = detect(data);
+        if (source == target || (source == Format.JSON && target == Format.PRETTY_JSON)) {
+            return data;
+        }
+        return mapperFor(target).writeValueAsBytes(decodeTree(data));
+    }
+
+    /**
+     * Recognizes the format of encoded data. Pretty and compact JSON are both reported as {@link Format#JSON}.
+     * For compressed data, the format of the record inside is returned.
+     */
+    public static Format detect(byte[] data) {
+        if (RecordCompressor.isCompressed(data)) {
+            return RecordCompressor.formatOf(data);
+        }
+        if (startsWith(data, SMILE_HEADER)) {
+            return Format.SMILE;
+        }
+        if (startsWith(data, CBOR_TAG)) {
+            return Format.CBOR;
+        }
+        return Format.JSON;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the shared mapper for a format. Mappers are thread-safe once configured.
+     */
+    public ObjectMapper mapperFor(Format format) {
+        switch (format) {
+            case PRETTY_JSON:
+                return prettyJson;
+            case SMILE:
+                return smile;
+            case CBOR:
+                return cbor;
+            default:
+                return json;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.driver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deflate compression of encoded records, with an optional dictionary trained per collection.
+ * - A compressed record is {@code [0x5A][format ordinal][dictionary id][raw deflate stream]}. No JSON, Smile or CBOR
+ *   record starts with {@code 0x5A} ('Z'), so compressed and plain records mix freely in a collection.
+ * - Small records compress poorly on their own, since every record repeats the same keys and values. A collection's
+ *   first records are sampled and the byte strings they share most are kept as a preset dictionary, which deflate
+ *   then references as if it had just seen them. The dictionary id is its Adler-32, as in zlib.
+ * - Dictionaries are saved as {@code <directory>/<collection>.dictionary} before the first record using them is
+ *   written, are loaded on open and are never replaced, so every record stays readable.
+ * - Records shorter than {@link #MIN_SIZE} or that would not shrink are stored as they are.
+ */
+final class RecordCompressor {
+    static final byte MAGIC = 0x5A;
+    static final int MIN_SIZE = 64;
+    private static final int HEADER_SIZE = 6;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+    private static final int SEGMENT_SIZE = 32;
+    private static final int GRAM_SIZE = 8;
+    private static final String DICTIONARY_SUFFIX = ".dictionary";
+
+    private static final class Dictionary {
+        final int id;
+        final byte[] bytes;
+
+        Dictionary(byte[] bytes) {
+            this.bytes = bytes;
+            Adler32 adler = new Adler32();
+            adler.update(bytes);
+            this.id = (int) adler.getValue();
+        }
+    }
+
+    private final File directory;
+    private final RecordCodec.Compression defaultCompression;
+    private final Map<String, RecordCodec.Compression> collectionCompression = new ConcurrentHashMap<>();
+    private final int dictionarySamples;
+    private final Map<Integer, Dictionary> dictionaries = new ConcurrentHashMap<>();
+    private final Map<String, Dictionary> collectionDictionaries = new ConcurrentHashMap<>();
+    private final Map<String, List<byte[]>> samples = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * Creates a compressor whose dictionaries live in the directory; with a null directory, or no samples,
+     * records are compressed without dictionaries.
+     */
+    RecordCompressor(File directory, RecordCodec.Compression defaultCompression,
+                     Map<String, RecordCodec.Compression> collectionCompression, int level, int dictionarySamples)
+            throws IOException {
+        this.directory = directory;
+        this.defaultCompression = defaultCompression;
+        this.collectionCompression.putAll(collectionCompression);
+        this.dictionarySamples = directory != null ? dictionarySamples : 0;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        if (directory != null) {
+            loadDictionaries();
+        }
+    }
+
+    RecordCompressor() {
+        this.directory = null;
+        this.defaultCompression = RecordCodec.Compression.NONE;
+        this.dictionarySamples = 0;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    }
+
+    private void loadDictionaries() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(DICTIONARY_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Dictionary dictionary = new Dictionary(FileHandler.readBytes(file));
+            String name = file.getName();
+            dictionaries.put(dictionary.id, dictionary);
+            collectionDictionaries.put(name.substring(0, name.length() - DICTIONARY_SUFFIX.length()), dictionary);
+        }
+    }
+
+    RecordCodec.Compression compressionOf(String collection) {
+        RecordCodec.Compression compression = collectionCompression.get(collection);
+        return compression != null ? compression : defaultCompression;
+    }
+
+    /**
+     * Compresses a record of the collection if the collection asks for it, using its dictionary once trained.
+     */
+    byte[] compress(String collection, RecordCodec.Format format, byte[] encoded) throws IOException {
+        if (compressionOf(collection) == RecordCodec.Compression.NONE || encoded.length < MIN_SIZE) {
+            return encoded;
+        }
+        return deflate(encoded, format, dictionaryFor(collection, encoded));
+    }
+
+    /**
+     * Compresses a record without a dictionary, so it can be read by any codec.
+     */
+    byte[] compress(RecordCodec.Format format, byte[] encoded) {
+        return encoded.length < MIN_SIZE ? encoded : deflate(encoded, format, null);
+    }
+
+    private byte[] deflate(byte[] encoded, RecordCodec.Format format, Dictionary dictionary) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary.bytes);
+        }
+        deflater.setInput(encoded);
+        deflater.finish();
+        // Worth storing only if it saves space, so the output buffer is never larger than the input.
+        byte[] out = new byte[encoded.length];
+        ByteBuffer.wrap(out).put(MAGIC).put((byte) format.ordinal()).putInt(dictionary != null ? dictionary.id : 0);
+        int length = HEADER_SIZE;
+        while (!deflater.finished() && length < out.length) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        if (!deflater.finished()) {
+            return encoded;
+        }
+        byte[] compressed = new byte[length];
+        System.arraycopy(out, 0, compressed, 0, length);
+        return compressed;
+    }
+
+    static boolean isCompressed(byte[] data) {
+        return data.length > HEADER_SIZE && data[0] == MAGIC;
+    }
+
+    /**
+     * Returns the format of the record inside compressed data.
+     */
+    static RecordCodec.Format formatOf(byte[] data) {
+        return RecordCodec.Format.values()[data[1]];
+    }
+
+    /**
+     * Returns true if reading the compressed data needs a dictionary that other databases do not have.
+     */
+    static boolean usesDictionary(byte[] data) {
+        return isCompressed(data) && ByteBuffer.wrap(data).getInt(2) != 0;
+    }
+
+    /**
+     * Returns a stream that inflates the record as the parser reads it, with no intermediate copy of the record.
+     * The stream reuses the calling thread's inflater and must be fully consumed or abandoned before the
+     * thread opens another one.
+     */
+    InputStream open(byte[] data) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        int id = ByteBuffer.wrap(data).getInt(2);
+        if (id != 0) {
+            inflater.setDictionary(dictionary(id).bytes);
+        }
+        return new InflaterInputStream(new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE),
+                inflater, 512);
+    }
+
+    /**
+     * Returns the record inside compressed data.
+     */
+    byte[] expand(byte[] data) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        int id = ByteBuffer.wrap(data).getInt(2);
+        if (id != 0) {
+            inflater.setDictionary(dictionary(id).bytes);
+        }
+        inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed record");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed record", e);
+        }
+        return out.toByteArray();
+    }
+
+    private Dictionary dictionary(int id) throws IOException {
+        Dictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new IOException("Unknown compression dictionary " + Integer.toHexString(id));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Returns the collection's dictionary, or null while its first records are still being sampled.
+     * The record completing the sample trains and saves the dictionary.
+     */
+    private Dictionary dictionaryFor(String collection, byte[] encoded) throws IOException {
+        Dictionary dictionary = collectionDictionaries.get(collection);
+        if (dictionary != null || dictionarySamples <= 0) {
+            return dictionary;
+        }
+        List<byte[]> sampled = samples.computeIfAbsent(collection, c -> new ArrayList<>());
+        synchronized (sampled) {
+            dictionary = collectionDictionaries.get(collection);
+            if (dictionary != null || sampled.size() >= dictionarySamples) {
+                return dictionary;
+            }
+            sampled.add(encoded);
+            if (sampled.size() < dictionarySamples) {
+                return null;
+            }
+            long start = System.nanoTime();
+            dictionary = new Dictionary(train(sampled, DICTIONARY_SIZE));
+            File file = new File(directory, collection + DICTIONARY_SUFFIX);
+            directory.mkdirs();
+            FileHandler.writeAtomically(file, dictionary.bytes);
+            FileHandler.sync(file);
+            FileHandler.syncDirectory(directory);
+            dictionaries.put(dictionary.id, dictionary);
+            collectionDictionaries.put(collection, dictionary);
+            samples.remove(collection);
+            Logger.log("CODEC", "Trained a {} byte dictionary for {} from {} records in {} ms", dictionary.bytes.length,
+                    collection, sampled.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return dictionary;
+        }
+    }
+
+    /**
+     * Builds a dictionary from sample records by greedily picking the segments whose 8-byte substrings occur in
+     * the most samples, discounting substrings an earlier pick already covers. The best segments go last,
+     * where deflate reaches them with the shortest distances.
+     */
+    static byte[] train(List<byte[]> samples, int maxSize) {
+        Map<Long, Integer> frequency = new HashMap<>();
+        for (byte[] sample : samples) {
+            Map<Long, Boolean> seen = new HashMap<>();
+            for (int i = 0; i + GRAM_SIZE <= sample.length; i++) {
+                if (seen.put(gram(sample, i), Boolean.TRUE) == null) {
+                    frequency.merge(gram(sample, i), 1, Integer::sum);
+                }
+            }
+        }
+        PriorityQueue<long[]> candidates = new PriorityQueue<>((a, b) -> Long.compare(b[0], a[0]));
+        for (int s = 0; s < samples.size(); s++) {
+            for (int offset = 0; offset + GRAM_SIZE <= samples.get(s).length; offset += SEGMENT_SIZE) {
+                candidates.add(new long[]{score(samples.get(s), offset, frequency), s, offset});
+            }
+        }
+        List<byte[]> picked = new ArrayList<>();
+        int size = 0;
+        while (!candidates.isEmpty() && size < maxSize) {
+            long[] candidate = candidates.poll();
+            byte[] sample = samples.get((int) candidate[1]);
+            int offset = (int) candidate[2];
+            long score = score(sample, offset, frequency);
+            if (score <= 0) {
+                continue;
+            }
+            if (score < candidate[0]) {
+                candidate[0] = score;
+                candidates.add(candidate);
+                continue;
+            }
+            int end = Math.min(sample.length, offset + SEGMENT_SIZE + GRAM_SIZE - 1);
+            byte[] segment = new byte[Math.min(end - offset, maxSize - size)];
+            System.arraycopy(sample, offset, segment, 0, segment.length);
+            picked.add(segment);
+            size += segment.length;
+            for (int i = offset; i + GRAM_SIZE <= end; i++) {
+                frequency.put(gram(sample, i), 0);
+            }
+        }
+        byte[] dictionary = new byte[size];
+        int position = 0;
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            System.arraycopy(picked.get(i), 0, dictionary, position, picked.get(i).length);
+            position += picked.get(i).length;
+        }
+        return dictionary;
+    }
+
+    /**
+     * Sums, over the substrings starting in a segment, the number of other samples that share each one.
+     */
+    private static long score(byte[] sample, int offset, Map<Long, Integer> frequency) {
+        long score = 0;
+        for (int i = offset; i < offset + SEGMENT_SIZE && i + GRAM_SIZE <= sample.length; i++) {
+            score += Math.max(0, frequency.getOrDefault(gram(sample, i), 0) - 1);
+        }
+        return score;
+    }
+
+    private static long gram(byte[] data, int offset) {
+        long gram = 0;
+        for (int i = 0; i < GRAM_SIZE; i++) {
+            gram = (gram << 8) | (data[offset + i] & 0xFF);
+        }
+        return gram;
+    }
+}
@@ -0,0 +1,332 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a follower {@link JSONDatabase} in sync by applying the change events a primary publishes to Kafka.
+ * - A dedicated thread polls the topic in batches; each polled partition is applied on its own worker, so
+ *   partitions are applied in parallel while messages of one partition (and hence of one record) stay in order.
+ * - Within a partition batch only the newest change per record is written, with the follower's batch APIs.
+ * - Applying is idempotent: a change whose sequence number is not newer than the last one applied to the record is
+ *   skipped, so redelivered messages are harmless. Offsets are committed only after a partition's batch is applied.
+ * - A collection drop travels on a different partition than the collection's records, so it only deletes records
+ *   applied with an older sequence. Drops and record batches of one collection are applied one at a time.
+ * - Per-record sequences are forgotten once every assigned partition has applied past them, since no drop or
+ *   change older than that can still arrive, and when a newer drop of their collection is applied.
+ * The caller subscribes or assigns the consumer; the applier takes ownership and closes it.
+ */
+public class ReplicaApplier implements Closeable {
+    private static final long LAG_REFRESH_MILLIS = 1_000;
+
+    private final Consumer<String, String> consumer;
+    private final JSONDatabase follower;
+    private final Duration pollTimeout;
+    private final ExecutorService workers;
+    private final ChangeEventCodec eventCodec = new ChangeEventCodec();
+    private final RecordCodec recordCodec = new RecordCodec();
+    private final ConcurrentHashMap<String, Long> appliedSequences = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TopicPartition, Long> partitionSequences = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object> collectionLocks = new ConcurrentHashMap<>();
+    private final Thread pollThread;
+    private volatile boolean running;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final LongAdder appliedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final AtomicLong lag = new AtomicLong();
+    private long lagRefreshedAt;
+
+    public ReplicaApplier(Consumer<String, String> consumer, JSONDatabase follower, int applyThreads, Duration pollTimeout) {
+        this.consumer = consumer;
+        this.follower = follower;
+        this.pollTimeout = pollTimeout;
+        this.workers = Executors.newFixedThreadPool(applyThreads);
+        this.pollThread = new Thread(this::pollLoop, "replica-applier");
+    }
+
+    public ReplicaApplier(Consumer<String, String> consumer, JSONDatabase follower) {
+        this(consumer, follower, 4, Duration.ofMillis(500));
+    }
+
+    public void start() {
+        running = true;
+        pollThread.start();
+    }
+
+    private void pollLoop() {
+        Logger.log("REPLICA", "Replica applier started");
+        try {
+            while (running) {
+                ConsumerRecords<String, String> records = consumer.poll(pollTimeout);
+                if (!records.isEmpty()) {
+                    applyBatch(records);
+                }
+                refreshLag(records.isEmpty());
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            consumer.close();
+            Logger.log("REPLICA", "Replica applier stopped");
+        }
+    }
+
+    /**
+     * Applies each partition of the poll on a worker, then commits the partitions that were applied.
+     * A partition that failed is rewound to its first polled offset so the batch is retried on the next poll.
+     */
+    private void applyBatch(ConsumerRecords<String, String> records) throws InterruptedException {
+        Map<TopicPartition, Future<?>> tasks = new LinkedHashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, String>> messages = records.records(partition);
+            tasks.put(partition, workers.submit(() -> {
+                applyPartition(partition, messages);
+                return null;
+            }));
+        }
+        Map<TopicPartition, OffsetAndMetadata> applied = new HashMap<>();
+        for (Map.Entry<TopicPartition, Future<?>> task : tasks.entrySet()) {
+            List<ConsumerRecord<String, String>> messages = records.records(task.getKey());
+            try {
+                task.getValue().get();
+                applied.put(task.getKey(), new OffsetAndMetadata(messages.get(messages.size() - 1).offset() + 1));
+            } catch (ExecutionException e) {
+                Logger.log("ERROR", "Failed to apply {}, retrying: {}", task.getKey(), e.getCause());
+                consumer.seek(task.getKey(), messages.get(0).offset());
+            }
+        }
+        if (!applied.isEmpty()) {
+            consumer.commitSync(applied);
+        }
+        forgetAppliedSequences();
+    }
+
+    /**
+     * Drops the per-record sequences below the lowest sequence applied on any assigned partition. Partitions deliver
+     * in sequence order, so every change or drop still to come is newer than that watermark. Nothing is dropped
+     * until each assigned partition has applied a change.
+     */
+    private void forgetAppliedSequences() {
+        Set<TopicPartition> assignment = consumer.assignment();
+        partitionSequences.keySet().retainAll(assignment);
+        long watermark = assignment.isEmpty() ? 0 : Long.MAX_VALUE;
+        for (TopicPartition partition : assignment) {
+            watermark = Math.min(watermark, partitionSequences.getOrDefault(partition, 0L));
+        }
+        if (watermark == 0) {
+            return;
+        }
+        long floor = watermark;
+        // Drop sequences, keyed "<collection>/", are kept: there is one per collection.
+        appliedSequences.entrySet().removeIf(applied -> !applied.getKey().endsWith("/") && applied.getValue() < floor);
+    }
+
+    /**
+     * Applies one partition's messages in order. Changes are collected per collection, newest per record,
+     * and flushed as batches; dropping a collection flushes what came before it first.
+     */
+    private void applyPartition(TopicPartition partition, List<ConsumerRecord<String, String>> messages) throws Exception {
+        Map<String, Map<String, ChangeEvent>> pending = new LinkedHashMap<>();
+        long newest = 0;
+        for (ConsumerRecord<String, String> message : messages) {
+            ChangeEvent event = eventCodec.fromMessage(message.value());
+            if (!event.isChange()) {
+                continue;
+            }
+            newest = Math.max(newest, event.getSequence());
+            // A drop is tracked under "<collection>/"; it also hides older changes that arrive late from other partitions.
+            String dropKey = event.getCollection() + "/";
+            if (event.getRecords().isEmpty()) {
+                flush(pending);
+                applyDrop(event);
+                continue;
+            }
+            Map<String, ChangeEvent> collection = pending.computeIfAbsent(event.getCollection(), c -> new LinkedHashMap<>());
+            ChangeEvent superseded = collection.get(event.getResource());
+            long applied = Math.max(appliedSequences.getOrDefault(dropKey + event.getResource(), 0L),
+                    appliedSequences.getOrDefault(dropKey, 0L));
+            if (applied >= event.getSequence() || (superseded != null && superseded.getSequence() >= event.getSequence())) {
+                skippedCount.increment();
+                continue;
+            }
+            if (superseded != null) {
+                skippedCount.increment();
+            }
+            collection.put(event.getResource(), event);
+        }
+        flush(pending);
+        partitionSequences.merge(partition, newest, Math::max);
+    }
+
+    /**
+     * Drops a collection as of the drop's sequence: records already applied with a newer sequence came from changes
+     * made after the drop on the primary, so they are kept and every other record is deleted.
+     */
+    private void applyDrop(ChangeEvent drop) throws Exception {
+        String dropKey = drop.getCollection() + "/";
+        synchronized (lockFor(drop.getCollection())) {
+            if (appliedSequences.getOrDefault(dropKey, 0L) >= drop.getSequence()) {
+                skippedCount.increment();
+                return;
+            }
+            Set<String> newer = new HashSet<>();
+            for (Map.Entry<String, Long> applied : appliedSequences.entrySet()) {
+                String key = applied.getKey();
+                if (key.length() > dropKey.length() && key.startsWith(dropKey) && applied.getValue() > drop.getSequence()) {
+                    newer.add(key.substring(dropKey.length()));
+                }
+            }
+            if (newer.isEmpty()) {
+                follower.delete(drop.getCollection(), "").get();
+            } else {
+                Set<String> older = follower.resourcesAsync(drop.getCollection()).get();
+                older.removeAll(newer);
+                if (!older.isEmpty()) {
+                    follower.deleteAll(drop.getCollection(), older).get();
+                }
+            }
+            appliedSequences.merge(dropKey, drop.getSequence(), Math::max);
+            // Records the drop covers no longer need a sequence of their own.
+            appliedSequences.entrySet().removeIf(applied -> applied.getKey().length() > dropKey.length()
+                    && applied.getKey().startsWith(dropKey) && applied.getValue() <= drop.getSequence());
+            appliedCount.increment();
+        }
+    }
+
+    /**
+     * Writes the pending changes collection by collection. Changes that a drop applied meanwhile by another
+     * partition's worker has made obsolete are skipped.
+     */
+    private void flush(Map<String, Map<String, ChangeEvent>> pending) throws Exception {
+        for (Map.Entry<String, Map<String, ChangeEvent>> collection : pending.entrySet()) {
+            synchronized (lockFor(collection.getKey())) {
+                long dropped = appliedSequences.getOrDefault(collection.getKey() + "/", 0L);
+                // Records are applied as documents, so collections of any record type replicate.
+                Map<String, JsonNode> puts = new LinkedHashMap<>();
+                Set<String> deletes = new LinkedHashSet<>();
+                List<ChangeEvent> applied = new ArrayList<>(collection.getValue().size());
+                for (ChangeEvent event : collection.getValue().values()) {
+                    if (event.getSequence() <= dropped) {
+                        skippedCount.increment();
+                        continue;
+                    }
+                    applied.add(event);
+                    byte[] record = event.getRecords().get(event.getResource());
+                    if (record == null) {
+                        deletes.add(event.getResource());
+                    } else {
+                        puts.put(event.getResource(), recordCodec.decodeTree(record));
+                    }
+                }
+                if (!puts.isEmpty()) {
+                    follower.collection(collection.getKey(), JsonNode.class).insertAll(puts).get();
+                }
+                if (!deletes.isEmpty()) {
+                    follower.deleteAll(collection.getKey(), deletes).get();
+                }
+                for (ChangeEvent event : applied) {
+                    appliedSequences.merge(collection.getKey() + "/" + event.getResource(), event.getSequence(), Math::max);
+                }
+                appliedCount.add(applied.size());
+            }
+        }
+        pending.clear();
+    }
+
+    private Object lockFor(String collection) {
+        return collectionLocks.computeIfAbsent(collection, c -> new Object());
+    }
+
+    /**
+     * Recomputes the lag at most once a second, or right away once the applier has caught up with the topic.
+     */
+    private void refreshLag(boolean idle) {
+        long now = System.currentTimeMillis();
+        if (!idle && now - lagRefreshedAt < LAG_REFRESH_MILLIS) {
+            return;
+        }
+        lagRefreshedAt = now;
+        Set<TopicPartition> assignment = consumer.assignment();
+        if (assignment.isEmpty()) {
+            lag.set(0);
+            return;
+        }
+        long behind = 0;
+        for (Map.Entry<TopicPartition, Long> end : consumer.endOffsets(assignment).entrySet()) {
+            behind += Math.max(0, end.getValue() - consumer.position(end.getKey()));
+        }
+        lag.set(behind);
+    }
+
+    /**
+     * Number of messages on the assigned partitions not yet applied, as of the last refresh.
+     */
+    public long replicationLag() {
+        return lag.get();
+    }
+
+    public long appliedCount() {
+        return appliedCount.sum();
+    }
+
+    /**
+     * Number of changes not written because a newer change to the same record was applied instead.
+     */
+    public long skippedCount() {
+        return skippedCount.sum();
+    }
+
+    /**
+     * Stops polling and closes the consumer once the batch in flight has been applied. If stopping interrupts
+     * the offset commit, the batch is simply applied again, idempotently, by the next applier.
+     * Closing again has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (running) {
+            running = false;
+            consumer.wakeup();
+            try {
+                pollThread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // Never started: the poll loop, which otherwise closes the consumer, did not run.
+            consumer.close();
+        }
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package com.driver;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Appends timestamped messages to a file and rotates it by size.
+ * - Once the file reaches {@code maxFileBytes} it is renamed to {@code <name>.1}, older files move up one
+ *   number and the oldest beyond {@code maxBackups} is deleted.
+ * - Not thread-safe on its own; wrap it in an {@link AsyncAppender}, whose single drain thread serializes calls.
+ */
+public class RollingFileAppender implements LogAppender {
+    private final File file;
+    private final long maxFileBytes;
+    private final int maxBackups;
+    private final SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private Writer writer;
+    private long size;
+
+    public RollingFileAppender(File file, long maxFileBytes, int maxBackups) throws IOException {
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxBackups = maxBackups;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create log directory " + parent);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        size = file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        String line = timestamp.format(new Date(event.getTimeMillis())) + " " + event.getLevel()
+                + " [" + event.getCategory() + "] [Thread-" + event.getThreadId() + "] " + event.getMessage()
+                + System.lineSeparator();
+        try {
+            if (size > 0 && size + line.length() > maxFileBytes) {
+                rotate();
+            }
+            writer.write(line);
+            size += line.getBytes(StandardCharsets.UTF_8).length;
+        } catch (IOException e) {
+            System.err.println("Failed to write log file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        new File(file.getPath() + "." + maxBackups).delete();
+        for (int i = maxBackups - 1; i >= 1; i--) {
+            File backup = new File(file.getPath() + "." + i);
+            if (backup.exists()) {
+                backup.renameTo(new File(file.getPath() + "." + (i + 1)));
+            }
+        }
+        if (maxBackups > 0) {
+            file.renameTo(new File(file.getPath() + ".1"));
+        } else {
+            file.delete();
+        }
+        open();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to flush log file " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close log file " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.driver;
+
+import java.util.List;
+
+/**
+ * One page of a paged collection scan.
+ * Pass {@link #getNextCursor()} to the next call to continue; it is null after the last page.
+ */
+public class ScanPage<T> {
+    private final List<T> records;
+    private final String nextCursor;
+
+    public ScanPage(List<T> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getRecords() {
+        return records;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.driver;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash index from one field's value to the resources holding that value.
+ * - Updates of one resource are expected under its record lock; different resources may be updated
+ *   concurrently, so posting sets are changed atomically. Lookups are lock-free.
+ * - A reverse map remembers each resource's indexed value, so updates and deletes
+ *   never need to read the previous record.
+ */
+public class SecondaryIndex {
+    private static final TypeReference<Map<String, List<String>>> FILE_FORMAT =
+            new TypeReference<Map<String, List<String>>>() {};
+
+    private final FieldPath field;
+    private final ConcurrentHashMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> valueByResource = new ConcurrentHashMap<>();
+
+    public SecondaryIndex(FieldPath field) {
+        this.field = field;
+    }
+
+    public FieldPath getField() {
+        return field;
+    }
+
+    /**
+     * Re-indexes a resource after a write. A null record removes the resource.
+     */
+    public void update(String resource, Object record) {
+        String newValue;
+        try {
+            newValue = record == null ? null : field.getString(record);
+        } catch (RuntimeException e) {
+            // Left out of the index until it is rewritten, rather than failing a write that is already logged.
+            Logger.log("WARN", "Cannot index {} of {}: {}", field, resource, e.getMessage());
+            newValue = null;
+        }
+        String oldValue = newValue == null ? valueByResource.remove(resource) : valueByResource.put(resource, newValue);
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        if (oldValue != null) {
+            postings.computeIfPresent(oldValue, (v, resources) -> {
+                resources.remove(resource);
+                return resources.isEmpty() ? null : resources;
+            });
+        }
+        if (newValue != null) {
+            postings.compute(newValue, (v, resources) -> {
+                Set<String> updated = resources != null ? resources : ConcurrentHashMap.<String>newKeySet();
+                updated.add(resource);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Returns the resources whose field equals the value.
+     */
+    public Set<String> lookup(String value) {
+        Set<String> resources = postings.get(value);
+        return resources == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(resources);
+    }
+
+    public void clear() {
+        postings.clear();
+        valueByResource.clear();
+    }
+
+    public int size() {
+        return valueByResource.size();
+    }
+
+    /**
+     * Writes the index as {@code {value: [resources...]}}.
+     */
+    public void save(File file, ObjectMapper objectMapper) throws IOException {
+        Map<String, List<String>> snapshot = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : postings.entrySet()) {
+            snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        File parent = file.getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        objectMapper.writeValue(file, snapshot);
+    }
+
+    public void load(File file, ObjectMapper objectMapper) throws IOException {
+        clear();
+        Map<String, List<String>> snapshot = objectMapper.readValue(file, FILE_FORMAT);
+        for (Map.Entry<String, List<String>> entry : snapshot.entrySet()) {
+            Set<String> resources = ConcurrentHashMap.newKeySet();
+            resources.addAll(entry.getValue());
+            postings.put(entry.getKey(), resources);
+            for (String resource : entry.getValue()) {
+                valueByResource.put(resource, entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured storage engine.
+ * - Each collection is a sequence of append-only segment files under {@code <directory>/<collection>/}.
+ * - An in-memory key directory maps each resource to (segment, offset, length); a read is one slice
+ *   of the segment's memory mapping, a write is one sequential append.
+ * - A background compactor rewrites the live records of mostly-dead segments and deletes them. The latest
+ *   tombstone of a deleted key counts as live until the key is written again or nothing older can hold it.
+ * - Each sealed segment gets a {@code .hint} file listing its key directory entries, so reopening a collection
+ *   only scans the active segment; the sealed ones are indexed from their hints.
+ *
+ * Record layout: [crc32][key length][value length, -1 for a tombstone][key][value].
+ */
+public class SegmentStorageEngine implements StorageEngine {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 12;
+    private static final String HINT_SUFFIX = ".hint";
+    private static final int HINT_MAGIC = 0x48494E54;
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+        volatile int writePosition;
+        final AtomicLong liveBytes = new AtomicLong();
+
+        Segment(long id, File file, long capacity) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        }
+
+        byte[] read(int offset, int length) {
+            byte[] data = new byte[length];
+            ByteBuffer slice = map.duplicate();
+            slice.position(offset);
+            slice.get(data);
+            return data;
+        }
+
+        int capacity() {
+            return map.capacity();
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final int recordOffset;
+        final int valueOffset;
+        final int valueLength;
+        final int recordSize;
+
+        Location(Segment segment, int recordOffset, int valueOffset, int valueLength, int recordSize) {
+            this.segment = segment;
+            this.recordOffset = recordOffset;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordSize = recordSize;
+        }
+    }
+
+    /**
+     * The segments and key directory of one collection. Appends are serialized by the write lock.
+     */
+    private final class CollectionLog {
+        final File dir;
+        final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+        // The latest tombstone of each deleted key, kept while an older segment may still hold the key.
+        final HashMap<String, Location> tombstones = new HashMap<>();
+        final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+        final ReentrantLock writeLock = new ReentrantLock();
+        volatile Segment active;
+
+        CollectionLog(File dir) throws IOException {
+            this.dir = dir;
+            File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+            if (files != null && files.length > 0) {
+                Arrays.sort(files);
+                Segment segment = null;
+                for (int i = 0; i < files.length; i++) {
+                    String name = files[i].getName();
+                    long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    // The tail segment is mapped at full capacity so it can keep taking appends.
+                    boolean tail = i == files.length - 1;
+                    segment = new Segment(id, files[i], tail ? segmentSize : files[i].length());
+                    if (tail || !loadHint(segment)) {
+                        recover(segment);
+                    }
+                    segments.put(id, segment);
+                }
+                active = segment;
+            } else {
+                active = newSegment(1, segmentSize);
+            }
+        }
+
+        /**
+         * Rebuilds the key directory from a segment, stopping at the first torn or unwritten record.
+         */
+        private void recover(Segment segment) {
+            ByteBuffer buffer = segment.map.duplicate();
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.limit()) {
+                buffer.position(position);
+                int crc = buffer.getInt();
+                int keyLength = buffer.getInt();
+                int valueLength = buffer.getInt();
+                int recordSize = HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+                if (keyLength <= 0 || valueLength < -1 || position + recordSize > buffer.limit()) {
+                    break;
+                }
+                byte[] body = new byte[recordSize - 4];
+                buffer.position(position + 4);
+                buffer.get(body);
+                CRC32 checksum = new CRC32();
+                checksum.update(body, 0, body.length);
+                if ((int) checksum.getValue() != crc) {
+                    break;
+                }
+                String key = new String(body, 8, keyLength, StandardCharsets.UTF_8);
+                replay(segment, key, position, keyLength, valueLength);
+                position += recordSize;
+            }
+            segment.writePosition = position;
+        }
+
+        /**
+         * Applies one record found during recovery to the key directory.
+         */
+        private void replay(Segment segment, String key, int position, int keyLength, int valueLength) {
+            int recordSize = HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+            Location location = new Location(segment, position, position + HEADER_SIZE + keyLength, valueLength, recordSize);
+            segment.liveBytes.addAndGet(recordSize);
+            Location previous;
+            if (valueLength < 0) {
+                previous = index.remove(key);
+                release(tombstones.put(key, location));
+            } else {
+                previous = index.put(key, location);
+                release(tombstones.remove(key));
+            }
+            release(previous);
+        }
+
+        private void release(Location location) {
+            if (location != null) {
+                location.segment.liveBytes.addAndGet(-location.recordSize);
+            }
+        }
+
+        /**
+         * Writes the key directory entries of a sealed segment to its hint file, so the next start can rebuild
+         * them without reading and checksumming every record. The hint is advisory: without one the segment is
+         * recovered by scanning it.
+         * Layout: [magic][segment length][record count], then per record [key length][key][value length][offset],
+         * then the CRC32 of everything before it.
+         */
+        private void writeHint(Segment segment) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                ByteBuffer buffer = segment.map.duplicate();
+                List<byte[]> keys = new ArrayList<>();
+                List<int[]> records = new ArrayList<>();
+                int position = 0;
+                while (position < segment.writePosition) {
+                    buffer.position(position + 4);
+                    int keyLength = buffer.getInt();
+                    int valueLength = buffer.getInt();
+                    byte[] key = new byte[keyLength];
+                    buffer.get(key);
+                    keys.add(key);
+                    records.add(new int[]{valueLength, position});
+                    position += HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+                }
+                out.writeInt(HINT_MAGIC);
+                out.writeInt(segment.writePosition);
+                out.writeInt(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    out.writeInt(keys.get(i).length);
+                    out.write(keys.get(i));
+                    out.writeInt(records.get(i)[0]);
+                    out.writeInt(records.get(i)[1]);
+                }
+                CRC32 checksum = new CRC32();
+                checksum.update(bytes.toByteArray());
+                out.writeInt((int) checksum.getValue());
+                out.flush();
+                FileHandler.writeAtomically(hintFile(segment), bytes.toByteArray());
+            } catch (IOException e) {
+                Logger.log("WARN", "Failed to write hint for {}: {}", segment.file.getPath(), e.getMessage());
+            }
+        }
+
+        /**
+         * Rebuilds the key directory entries of a sealed segment from its hint file.
+         * Returns false, leaving the key directory untouched, if there is no usable hint.
+         */
+        private boolean loadHint(Segment segment) {
+            File file = hintFile(segment);
+            if (!file.exists()) {
+                return false;
+            }
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                CRC32 checksum = new CRC32();
+                checksum.update(data, 0, data.length - 4);
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                if (data.length < 16 || buffer.getInt(data.length - 4) != (int) checksum.getValue()
+                        || buffer.getInt() != HINT_MAGIC || buffer.getInt() != segment.file.length()) {
+                    Logger.log("WARN", "Ignoring stale hint {}", file.getPath());
+                    return false;
+                }
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    byte[] key = new byte[buffer.getInt()];
+                    buffer.get(key);
+                    int valueLength = buffer.getInt();
+                    int position = buffer.getInt();
+                    replay(segment, new String(key, StandardCharsets.UTF_8), position, key.length, valueLength);
+                }
+                segment.writePosition = (int) segment.file.length();
+                return true;
+            } catch (IOException | RuntimeException e) {
+                Logger.log("WARN", "Ignoring unreadable hint {}: {}", file.getPath(), e.getMessage());
+                return false;
+            }
+        }
+
+        private Segment newSegment(long id, long capacity) throws IOException {
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            Segment segment = new Segment(id, new File(dir, String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), capacity);
+            segments.put(id, segment);
+            return segment;
+        }
+
+        /**
+         * Appends a record (value null for a tombstone) and returns its location. Caller holds the write lock.
+         */
+        Location append(String key, byte[] value) throws IOException {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            int valueLength = value == null ? -1 : value.length;
+            int recordSize = HEADER_SIZE + keyBytes.length + Math.max(valueLength, 0);
+
+            Segment segment = active;
+            if (segment.writePosition + recordSize > segment.capacity()) {
+                seal(segment);
+                writeHint(segment);
+                segment = newSegment(segment.id + 1, Math.max(segmentSize, recordSize));
+                active = segment;
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(recordSize);
+            record.putInt(0);
+            record.putInt(keyBytes.length);
+            record.putInt(valueLength);
+            record.put(keyBytes);
+            if (value != null) {
+                record.put(value);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(record.array(), 4, recordSize - 4);
+            record.putInt(0, (int) checksum.getValue());
+            record.flip();
+
+            int offset = segment.writePosition;
+            int position = offset;
+            while (record.hasRemaining()) {
+                position += segment.channel.write(record, position);
+            }
+            segment.writePosition = position;
+            return new Location(segment, offset, offset + HEADER_SIZE + keyBytes.length, valueLength, recordSize);
+        }
+
+        void put(String key, byte[] value) throws IOException {
+            writeLock.lock();
+            try {
+                Location location = append(key, value);
+                location.segment.liveBytes.addAndGet(location.recordSize);
+                release(index.put(key, location));
+                release(tombstones.remove(key));
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void remove(String key) throws IOException {
+            writeLock.lock();
+            try {
+                Location previous = index.get(key);
+                if (previous == null) {
+                    return;
+                }
+                Location tombstone = append(key, null);
+                tombstone.segment.liveBytes.addAndGet(tombstone.recordSize);
+                tombstones.put(key, tombstone);
+                index.remove(key);
+                release(previous);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void seal(Segment segment) throws IOException {
+            segment.channel.force(false);
+            segment.channel.truncate(segment.writePosition);
+        }
+
+        /**
+         * Copies the live records and tombstones of a sealed segment to the active segment, then deletes it.
+         * The tombstones of the oldest segment are dropped instead, as nothing older is left for them to hide.
+         * Each copy happens under the write lock, so a concurrent overwrite of the same key always lands after
+         * the copy in log order.
+         */
+        void compact(Segment segment) throws IOException {
+            boolean oldest = segments.firstKey() == segment.id;
+            ByteBuffer buffer = segment.map.duplicate();
+            int position = 0;
+            int copied = 0;
+            while (position < segment.writePosition) {
+                buffer.position(position + 4);
+                int keyLength = buffer.getInt();
+                int valueLength = buffer.getInt();
+                int recordSize = HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                String key = new String(keyBytes, StandardCharsets.UTF_8);
+
+                writeLock.lock();
+                try {
+                    Location current = index.get(key);
+                    if (valueLength >= 0 && current != null && current.segment == segment && current.recordOffset == position) {
+                        byte[] value = segment.read(current.valueOffset, current.valueLength);
+                        Location moved = append(key, value);
+                        moved.segment.liveBytes.addAndGet(moved.recordSize);
+                        index.put(key, moved);
+                        copied++;
+                    } else if (valueLength < 0) {
+                        Location tombstone = tombstones.get(key);
+                        if (tombstone != null && tombstone.segment == segment && tombstone.recordOffset == position) {
+                            release(tombstones.remove(key));
+                            if (!oldest) {
+                                Location moved = append(key, null);
+                                moved.segment.liveBytes.addAndGet(moved.recordSize);
+                                tombstones.put(key, moved);
+                            }
+                        }
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+                position += recordSize;
+            }
+
+            active.channel.force(false);
+            segments.remove(segment.id);
+            segment.channel.close();
+            segment.file.delete();
+            hintFile(segment).delete();
+            Logger.log("STORAGE", "Compacted {} ({} live records moved)", segment.file.getPath(), copied);
+        }
+
+        void close() throws IOException {
+            for (Segment segment : segments.values()) {
+                if (segment == active) {
+                    seal(segment);
+                }
+                segment.channel.close();
+            }
+        }
+    }
+
+    private static File hintFile(Segment segment) {
+        String name = segment.file.getName();
+        return new File(segment.file.getParentFile(), name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + HINT_SUFFIX);
+    }
+
+    private final File directory;
+    private final long segmentSize;
+    private final double compactionLiveRatio;
+    private final ConcurrentHashMap<String, CollectionLog> collections = new ConcurrentHashMap<>();
+    private final ReentrantLock openLock = new ReentrantLock();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * @param segmentSize size at which the active segment is sealed and a new one started
+     * @param compactionLiveRatio sealed segments whose live fraction falls below this are compacted
+     * @param compactionIntervalMillis how often the compactor checks for candidates
+     */
+    public SegmentStorageEngine(File directory, long segmentSize, double compactionLiveRatio, long compactionIntervalMillis) {
+        this.directory = directory;
+        this.segmentSize = Math.min(segmentSize, Integer.MAX_VALUE);
+        this.compactionLiveRatio = compactionLiveRatio;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactAll, compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the collection's log, opening (and recovering) it on first use.
+     * With {@code create} false a collection that does not exist on disk yields null.
+     */
+    private CollectionLog logFor(String collection, boolean create) throws IOException {
+        CollectionLog log = collections.get(collection);
+        if (log != null) {
+            return log;
+        }
+        File dir = new File(directory, collection);
+        if (!create && !dir.isDirectory()) {
+            return null;
+        }
+        openLock.lock();
+        try {
+            log = collections.get(collection);
+            if (log == null) {
+                log = new CollectionLog(dir);
+                collections.put(collection, log);
+            }
+            return log;
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] read(String collection, String resource) throws IOException {
+        CollectionLog log = logFor(collection, false);
+        Location location = log == null ? null : log.index.get(resource);
+        return location == null ? null : location.segment.read(location.valueOffset, location.valueLength);
+    }
+
+    @Override
+    public void write(String collection, String resource, byte[] data) throws IOException {
+        logFor(collection, true).put(resource, data);
+    }
+
+    @Override
+    public void delete(String collection, String resource) throws IOException {
+        CollectionLog log = logFor(collection, false);
+        if (log != null) {
+            log.remove(resource);
+        }
+    }
+
+    @Override
+    public void dropCollection(String collection) throws IOException {
+        openLock.lock();
+        try {
+            CollectionLog log = collections.remove(collection);
+            if (log != null) {
+                log.writeLock.lock();
+                try {
+                    log.close();
+                } finally {
+                    log.writeLock.unlock();
+                }
+            }
+            File dir = new File(directory, collection);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) file.delete();
+            }
+            dir.delete();
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean collectionExists(String collection) {
+        return collections.containsKey(collection) || new File(directory, collection).isDirectory();
+    }
+
+    @Override
+    public List<String> listResources(String collection) throws IOException {
+        CollectionLog log = logFor(collection, false);
+        return log == null ? new ArrayList<String>() : new ArrayList<>(log.index.keySet());
+    }
+
+    @Override
+    public List<String> listCollections() {
+        return StorageEngine.collectionDirectories(directory);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (CollectionLog log : collections.values()) {
+            log.active.channel.force(false);
+        }
+    }
+
+    /**
+     * Compacts every sealed segment whose live fraction is below the threshold, oldest first.
+     */
+    private void compactAll() {
+        for (CollectionLog log : collections.values()) {
+            for (Segment segment : log.segments.values()) {
+                if (segment == log.active || segment.writePosition == 0) {
+                    continue;
+                }
+                double liveRatio = (double) segment.liveBytes.get() / segment.writePosition;
+                if (liveRatio < compactionLiveRatio) {
+                    try {
+                        log.compact(segment);
+                    } catch (IOException e) {
+                        Logger.log("ERROR", "Compaction of {} failed: {}", segment.file.getPath(), e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CollectionLog log : collections.values()) {
+            log.close();
+        }
+        collections.clear();
+    }
+}
@@ -0,0 +1,209 @@
+package com.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hash-partitions every collection across several storage engines, typically one per disk.
+ * - A record lives in the shard chosen by {@link #shardOf}, so single-record reads and writes touch one engine,
+ *   and writers of different shards never share a file, segment or directory.
+ * - Operations on a whole collection (listing, dropping) and {@link #sync()} fan out to every shard at once,
+ *   each on the shard's own lane thread, so the fsyncs of a group commit run in parallel on all disks.
+ * - Each shard directory is stamped with its position on first use; opening it with another shard count
+ *   fails instead of silently routing records to the wrong shard.
+ */
+public class ShardedStorageEngine implements StorageEngine {
+    private static final String SHARD_FILE = "shard.id";
+
+    private final StorageEngine[] shards;
+    private final ExecutorService[] lanes;
+
+    /**
+     * Creates one engine per directory with the factory, after checking each directory's shard stamp.
+     */
+    public ShardedStorageEngine(List<File> directories, EngineFactory factory) throws IOException {
+        this.shards = new StorageEngine[directories.size()];
+        this.lanes = new ExecutorService[directories.size()];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                File directory = directories.get(i);
+                checkStamp(directory, i, shards.length);
+                shards[i] = factory.create(directory);
+                String name = "shard-" + i;
+                lanes[i] = Executors.newSingleThreadExecutor(task -> {
+                    Thread thread = new Thread(task, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            for (int i = 0; i < shards.length && shards[i] != null; i++) {
+                shards[i].close();
+                lanes[i].shutdown();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the engine of one shard directory.
+     */
+    public interface EngineFactory {
+        StorageEngine create(File directory) throws IOException;
+    }
+
+    /**
+     * Returns the shard a resource belongs to. Stable across runs, since {@link String#hashCode()} is specified.
+     */
+    public static int shardOf(String resource, int shardCount) {
+        int h = resource.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private StorageEngine shardFor(String resource) {
+        return shards[shardOf(resource, shards.length)];
+    }
+
+    private static void checkStamp(File directory, int index, int count) throws IOException {
+        File stamp = new File(directory, SHARD_FILE);
+        String expected = index + "/" + count;
+        if (stamp.exists()) {
+            String actual = new String(Files.readAllBytes(stamp.toPath()), StandardCharsets.UTF_8).trim();
+            if (!actual.equals(expected)) {
+                throw new IOException("Directory " + directory + " holds shard " + actual + ", not " + expected);
+            }
+            return;
+        }
+        directory.mkdirs();
+        FileHandler.writeAtomically(stamp, expected.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public byte[] read(String collection, String resource) throws IOException {
+        return shardFor(resource).read(collection, resource);
+    }
+
+    @Override
+    public void write(String collection, String resource, byte[] data) throws IOException {
+        shardFor(resource).write(collection, resource, data);
+    }
+
+    @Override
+    public void delete(String collection, String resource) throws IOException {
+        shardFor(resource).delete(collection, resource);
+    }
+
+    @Override
+    public void dropCollection(String collection) throws IOException {
+        onEveryShard(shard -> {
+            shard.dropCollection(collection);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean collectionExists(String collection) {
+        for (StorageEngine shard : shards) {
+            if (shard.collectionExists(collection)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<String> listResources(String collection) throws IOException {
+        List<String> resources = new ArrayList<>();
+        for (List<String> shardResources : onEveryShard(shard -> shard.listResources(collection))) {
+            resources.addAll(shardResources);
+        }
+        return resources;
+    }
+
+    @Override
+    public List<String> listCollections() throws IOException {
+        Set<String> collections = new LinkedHashSet<>();
+        for (StorageEngine shard : shards) {
+            collections.addAll(shard.listCollections());
+        }
+        return new ArrayList<>(collections);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        onEveryShard(shard -> {
+            shard.sync();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            onEveryShard(shard -> {
+                shard.close();
+                return null;
+            });
+        } finally {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    private interface ShardTask<T> {
+        T run(StorageEngine shard) throws IOException;
+    }
+
+    /**
+     * Runs a task on every shard's lane and waits for all of them; the first failure is rethrown.
+     */
+    private <T> List<T> onEveryShard(ShardTask<T> task) throws IOException {
+        if (shards.length == 1) {
+            return Collections.singletonList(task.run(shards[0]));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            StorageEngine shard = shards[i];
+            futures.add(lanes[i].submit((Callable<T>) () -> task.run(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        IOException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof IOException ? (IOException) cause
+                            : cause instanceof UncheckedIOException ? ((UncheckedIOException) cause).getCause()
+                            : new IOException("Shard operation failed", cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+}
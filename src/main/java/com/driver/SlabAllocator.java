@@ -0,0 +1,223 @@
+package com.driver;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed budget of off-heap memory, handed out in power-of-two chunks from 1 MB direct-buffer slabs.
+ * - Each slab serves one chunk size at a time; a slab whose chunks are all freed goes back to a shared pool
+ *   and can serve another size, so the memory follows the size mix of the records. Until then a record may
+ *   take a chunk of up to four times its size from a slab of a larger size.
+ * - Every chunk starts with a generation number that changes when the chunk is freed. A {@link Chunk} handle
+ *   remembers the generation it was allocated with, so a reader racing a free sees a mismatch instead of
+ *   another record's bytes. Reads are optimistic and validated against the slab's {@link StampedLock}.
+ *   A slab also counts how often it was given a new chunk size, which invalidates handles from before.
+ * Slabs are allocated on demand and never returned to the operating system.
+ */
+final class SlabAllocator {
+    static final int SLAB_SIZE = 1 << 20;
+    static final int MIN_CHUNK = 64;
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * An allocated chunk. Immutable; freeing it invalidates the handle.
+     */
+    static final class Chunk {
+        final Slab slab;
+        final int offset;
+        final int length;
+        final int generation;
+        final int epoch;
+
+        Chunk(Slab slab, int offset, int length, int generation, int epoch) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.generation = generation;
+            this.epoch = epoch;
+        }
+
+        boolean isLive() {
+            return slab.epoch == epoch && slab.memory.getInt(offset) == generation;
+        }
+
+        int capacity() {
+            return slab.chunkSize;
+        }
+    }
+
+    static final class Slab {
+        final ByteBuffer memory = ByteBuffer.allocateDirect(SLAB_SIZE);
+        final StampedLock lock = new StampedLock();
+        int chunkSize;
+        // Written under the write lock; read by lock holders and by validated optimistic readers.
+        int epoch;
+        int used;
+        int bump;
+        int[] free;
+        int freeCount;
+
+        void assign(int chunkSize) {
+            long stamp = lock.writeLock();
+            epoch++;
+            lock.unlockWrite(stamp);
+            this.chunkSize = chunkSize;
+            this.used = 0;
+            this.bump = 0;
+            this.free = new int[SLAB_SIZE / chunkSize];
+            this.freeCount = 0;
+        }
+
+        boolean hasRoom() {
+            return freeCount > 0 || bump + chunkSize <= SLAB_SIZE;
+        }
+    }
+
+    // A chunk may come from a slab of up to 4x the needed size once no slab of that size is left.
+    private static final int MAX_SIZE_CLASS_STEP = 2;
+
+    private final int maxSlabs;
+    private final ArrayDeque<Slab> emptySlabs = new ArrayDeque<>();
+    // Partially used slabs per chunk size class (64 bytes << i).
+    private final ArrayDeque<Slab>[] partial;
+    private int allocatedSlabs;
+    private long usedBytes;
+
+    @SuppressWarnings("unchecked")
+    SlabAllocator(long budgetBytes) {
+        this.maxSlabs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes / SLAB_SIZE));
+        int classes = Integer.numberOfTrailingZeros(SLAB_SIZE / MIN_CHUNK) + 1;
+        this.partial = (ArrayDeque<Slab>[]) new ArrayDeque<?>[classes];
+        for (int i = 0; i < classes; i++) {
+            partial[i] = new ArrayDeque<>();
+        }
+    }
+
+    static int chunkSizeFor(int length) {
+        int needed = Math.max(MIN_CHUNK, length + HEADER_SIZE);
+        return needed > SLAB_SIZE ? -1 : Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    long capacityBytes() {
+        return (long) maxSlabs * SLAB_SIZE;
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Copies the data into a new chunk, or returns null if it is too large or no memory is free.
+     */
+    Chunk allocate(byte[] data) {
+        int chunkSize = chunkSizeFor(data.length);
+        if (chunkSize < 0) {
+            return null;
+        }
+        Slab slab;
+        int offset;
+        synchronized (this) {
+            int sizeClass = Integer.numberOfTrailingZeros(chunkSize / MIN_CHUNK);
+            slab = partial[sizeClass].peekFirst();
+            if (slab == null) {
+                slab = emptySlabs.pollFirst();
+                if (slab == null && allocatedSlabs < maxSlabs) {
+                    slab = new Slab();
+                    allocatedSlabs++;
+                }
+                if (slab != null) {
+                    slab.assign(chunkSize);
+                    partial[sizeClass].addFirst(slab);
+                }
+            }
+            for (int larger = sizeClass + 1; slab == null && larger <= sizeClass + MAX_SIZE_CLASS_STEP
+                    && larger < partial.length; larger++) {
+                slab = partial[larger].peekFirst();
+            }
+            if (slab == null) {
+                return null;
+            }
+            ArrayDeque<Slab> slabs = partial[Integer.numberOfTrailingZeros(slab.chunkSize / MIN_CHUNK)];
+            chunkSize = slab.chunkSize;
+            if (slab.freeCount > 0) {
+                offset = slab.free[--slab.freeCount];
+            } else {
+                offset = slab.bump;
+                slab.bump += chunkSize;
+            }
+            slab.used++;
+            usedBytes += chunkSize;
+            if (!slab.hasRoom()) {
+                slabs.remove(slab);
+            }
+        }
+        long stamp = slab.lock.writeLock();
+        try {
+            int generation = slab.memory.getInt(offset);
+            ByteBuffer target = slab.memory.duplicate();
+            target.position(offset + HEADER_SIZE);
+            target.put(data);
+            return new Chunk(slab, offset, data.length, generation, slab.epoch);
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns a copy of the chunk's data, or null if the chunk has been freed since the handle was made.
+     */
+    byte[] read(Chunk chunk) {
+        Slab slab = chunk.slab;
+        byte[] data = new byte[chunk.length];
+        long stamp = slab.lock.tryOptimisticRead();
+        if (copy(chunk, data) && slab.lock.validate(stamp)) {
+            return data;
+        }
+        stamp = slab.lock.readLock();
+        try {
+            return copy(chunk, data) ? data : null;
+        } finally {
+            slab.lock.unlockRead(stamp);
+        }
+    }
+
+    private static boolean copy(Chunk chunk, byte[] data) {
+        if (!chunk.isLive()) {
+            return false;
+        }
+        ByteBuffer source = chunk.slab.memory.duplicate();
+        source.position(chunk.offset + HEADER_SIZE);
+        source.get(data);
+        return true;
+    }
+
+    /**
+     * Frees the chunk. Freeing a handle whose chunk was already freed does nothing.
+     */
+    void free(Chunk chunk) {
+        Slab slab = chunk.slab;
+        long stamp = slab.lock.writeLock();
+        try {
+            if (!chunk.isLive()) {
+                return;
+            }
+            slab.memory.putInt(chunk.offset, chunk.generation + 1);
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+        synchronized (this) {
+            ArrayDeque<Slab> slabs = partial[Integer.numberOfTrailingZeros(slab.chunkSize / MIN_CHUNK)];
+            boolean wasFull = !slab.hasRoom();
+            slab.free[slab.freeCount++] = chunk.offset;
+            slab.used--;
+            usedBytes -= slab.chunkSize;
+            if (slab.used == 0) {
+                slabs.remove(slab);
+                emptySlabs.addFirst(slab);
+            } else if (wasFull) {
+                slabs.addLast(slab);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.driver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent store for encoded records, keyed by (collection, resource).
+ * {@link JSONDatabase} serializes writes per record, through the lock stripes of {@link LockManager}, so writes
+ * to different records of a collection may arrive concurrently; a collection-wide change (dropping it, committing
+ * a transaction) arrives alone. Implementations must also allow reads concurrently with writes and with each other.
+ */
+public interface StorageEngine extends Closeable {
+    /**
+     * Built-in engine implementations.
+     */
+    enum Type {
+        /** One {@code <resource>.json} file per record under {@code <directory>/<collection>/}. */
+        FILE_PER_RECORD,
+        /** Append-only segment files with an in-memory key directory and background compaction. */
+        SEGMENT
+    }
+
+    /**
+     * Returns the stored bytes of a record, or null if it does not exist.
+     */
+    byte[] read(String collection, String resource) throws IOException;
+
+    void write(String collection, String resource, byte[] data) throws IOException;
+
+    void delete(String collection, String resource) throws IOException;
+
+    /**
+     * Removes a collection and all of its records.
+     */
+    void dropCollection(String collection) throws IOException;
+
+    boolean collectionExists(String collection);
+
+    /**
+     * Returns the resource names currently stored in a collection, in no particular order.
+     */
+    List<String> listResources(String collection) throws IOException;
+
+    /**
+     * Returns the names of the collections stored, for a cache warm-up. The default knows of none.
+     */
+    default List<String> listCollections() throws IOException {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Forces every write made so far to stable storage.
+     */
+    void sync() throws IOException;
+
+    /**
+     * Returns the collection directories under a root, skipping the index and view directories kept beside them.
+     */
+    static List<String> collectionDirectories(File directory) {
+        List<String> collections = new ArrayList<>();
+        File[] children = directory.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                String name = child.getName();
+                if (!name.endsWith(".indexes") && !name.endsWith(".views") && !name.endsWith(".columns")) {
+                    collections.add(name);
+                }
+            }
+        }
+        return collections;
+    }
+}
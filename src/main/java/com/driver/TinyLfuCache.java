@@ -0,0 +1,475 @@
+package com.driver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Weight-bounded {@link RecordCache} using the W-TinyLFU policy.
+ * - New entries enter a small LRU admission window (1% of the capacity).
+ * - Entries leaving the window compete with the main region's LRU victim; a count-min
+ *   frequency sketch decides which of the two is kept.
+ * - The main region is a segmented LRU: probation for entries seen once, protected (80%) for entries hit again.
+ *
+ * Lookups go straight to a ConcurrentHashMap. Policy bookkeeping happens under a lock that reads
+ * only try to take, so a contended read skips its reordering instead of waiting.
+ */
+public class TinyLfuCache<V> implements RecordCache<V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final class Key {
+        final String collection;
+        final String resource;
+        final int hash;
+
+        Key(String collection, String resource) {
+            this.collection = collection;
+            this.resource = resource;
+            this.hash = 31 * collection.hashCode() + resource.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && collection.equals(other.collection) && resource.equals(other.resource);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node<V> {
+        final Key key;
+        volatile V value;
+        volatile long writeNanos;
+        int weight;
+        int queue;
+        Node<V> prev, next;
+
+        Node(Key key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked LRU list; head is least recently used.
+     */
+    private static final class AccessQueue<V> {
+        Node<V> head, tail;
+        long weight;
+
+        void addLast(Node<V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) head = node; else tail.next = node;
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<V> node) {
+            if (node.prev == null) head = node.next; else node.prev.next = node.next;
+            if (node.next == null) tail = node.prev; else node.next.prev = node.prev;
+            node.prev = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToBack(Node<V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Node<V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final AccessQueue<V> window = new AccessQueue<>();
+    private final AccessQueue<V> probation = new AccessQueue<>();
+    private final AccessQueue<V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long expireAfterWriteNanos;
+    private final ToIntFunction<V> weigher;
+    private final Consumer<? super V> removalListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code maximumSize} entries.
+     */
+    public TinyLfuCache(long maximumSize, long expireAfterWriteMillis) {
+        this(maximumSize, expireAfterWriteMillis, value -> 1);
+    }
+
+    /**
+     * Creates a cache bounded by the total weight of its entries.
+     *
+     * @param expireAfterWriteMillis entries older than this are treated as absent; zero disables expiry
+     * @param weigher returns the weight of a value, e.g. its approximate size in bytes
+     */
+    public TinyLfuCache(long maximumWeight, long expireAfterWriteMillis, ToIntFunction<V> weigher) {
+        this(maximumWeight, expireAfterWriteMillis, weigher, null);
+    }
+
+    /**
+     * Creates a weight-bounded cache that hands every value it drops (evicted, expired, invalidated or replaced)
+     * to the listener, under the policy lock, e.g. to release memory the value refers to.
+     */
+    TinyLfuCache(long maximumWeight, long expireAfterWriteMillis, ToIntFunction<V> weigher,
+                 Consumer<? super V> removalListener) {
+        this.removalListener = removalListener;
+        this.maximumWeight = Math.max(1, maximumWeight);
+        this.windowMaximum = Math.max(1, this.maximumWeight / 100);
+        this.protectedMaximum = (long) ((this.maximumWeight - windowMaximum) * 0.8);
+        this.expireAfterWriteNanos = expireAfterWriteMillis * 1_000_000L;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch((int) Math.min(this.maximumWeight, 1 << 20));
+    }
+
+    @Override
+    public V get(String collection, String resource) {
+        Key key = new Key(collection, resource);
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            recordMiss(key);
+            return null;
+        }
+        if (isExpired(node)) {
+            misses.increment();
+            policyLock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    unlink(node);
+                    evictions.increment();
+                    removed(node.value);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+            return null;
+        }
+        V value = node.value;
+        hits.increment();
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key.hash);
+                onAccess(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String collection, String resource, V value) {
+        Objects.requireNonNull(value);
+        Key key = new Key(collection, resource);
+        int weight = Math.max(1, weigher.applyAsInt(value));
+        policyLock.lock();
+        try {
+            sketch.increment(key.hash);
+            Node<V> node = data.get(key);
+            if (node != null) {
+                AccessQueue<V> queue = queueOf(node);
+                queue.remove(node);
+                V replaced = node.value;
+                node.weight = weight;
+                node.value = value;
+                if (replaced != value) {
+                    removed(replaced);
+                }
+                node.writeNanos = System.nanoTime();
+                queue.addLast(node);
+                onAccess(node);
+            } else {
+                node = new Node<>(key);
+                node.value = value;
+                node.weight = weight;
+                node.writeNanos = System.nanoTime();
+                node.queue = WINDOW;
+                window.addLast(node);
+                data.put(key, node);
+            }
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(String collection, String resource) {
+        Key key = new Key(collection, resource);
+        policyLock.lock();
+        try {
+            Node<V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+                removed(node.value);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateCollection(String collection) {
+        policyLock.lock();
+        try {
+            for (Iterator<Node<V>> it = data.values().iterator(); it.hasNext(); ) {
+                Node<V> node = it.next();
+                if (node.key.collection.equals(collection)) {
+                    it.remove();
+                    unlink(node);
+                    removed(node.value);
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return data.size();
+    }
+
+    @Override
+    public CacheStats stats() {
+        long weight;
+        policyLock.lock();
+        try {
+            weight = window.weight + probation.weight + protectedQueue.weight;
+        } finally {
+            policyLock.unlock();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), data.size(), weight);
+    }
+
+    /**
+     * Visits the protected segment, then the admission window, then probation, most recently used first.
+     * Expired entries are skipped.
+     */
+    @Override
+    public void forEachHottest(EntryVisitor<? super V> visitor) {
+        policyLock.lock();
+        try {
+            for (AccessQueue<V> queue : Arrays.asList(protectedQueue, window, probation)) {
+                for (Node<V> node = queue.tail; node != null; node = node.prev) {
+                    if (!isExpired(node) && !visitor.visit(node.key.collection, node.key.resource, node.value)) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least valuable entry (the head of probation, then of the window, then of the protected segment)
+     * for an owner that needs memory the weights do not account for. Returns false if the cache is empty.
+     */
+    boolean evictColdest() {
+        policyLock.lock();
+        try {
+            Node<V> victim = probation.head != null ? probation.head
+                    : window.head != null ? window.head : protectedQueue.head;
+            if (victim == null) {
+                return false;
+            }
+            unlink(victim);
+            data.remove(victim.key, victim);
+            evictions.increment();
+            removed(victim.value);
+            return true;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void removed(V value) {
+        if (removalListener != null) {
+            removalListener.accept(value);
+        }
+    }
+
+    private boolean isExpired(Node<V> node) {
+        return expireAfterWriteNanos > 0 && System.nanoTime() - node.writeNanos > expireAfterWriteNanos;
+    }
+
+    private void recordMiss(Key key) {
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key.hash);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private AccessQueue<V> queueOf(Node<V> node) {
+        return node.queue == WINDOW ? window : node.queue == PROBATION ? probation : protectedQueue;
+    }
+
+    private void unlink(Node<V> node) {
+        queueOf(node).remove(node);
+    }
+
+    /**
+     * Moves an accessed entry to the back of its queue, promoting probation hits to the protected segment.
+     * Must be called with the policy lock held, and only for nodes still in the map.
+     */
+    private void onAccess(Node<V> node) {
+        if (data.get(node.key) != node) {
+            return;
+        }
+        if (node.queue == PROBATION) {
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+                Node<V> demoted = protectedQueue.head;
+                protectedQueue.remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            queueOf(node).moveToBack(node);
+        }
+    }
+
+    /**
+     * Moves overflow from the admission window into probation, then evicts until the cache fits.
+     * A candidate fresh from the window only displaces the probation victim if it was seen more often.
+     */
+    private void evict() {
+        Node<V> firstCandidate = null;
+        while (window.weight > windowMaximum && window.head != null) {
+            Node<V> node = window.head;
+            window.remove(node);
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (firstCandidate == null) {
+                firstCandidate = node;
+            }
+        }
+
+        while (window.weight + probation.weight + protectedQueue.weight > maximumWeight) {
+            Node<V> victim = probation.head;
+            Node<V> candidate = firstCandidate;
+            Node<V> evicted;
+            if (victim == null) {
+                evicted = protectedQueue.head != null ? protectedQueue.head : window.head;
+            } else if (candidate == null || candidate == victim) {
+                evicted = victim;
+                if (candidate == victim) {
+                    firstCandidate = candidate.next;
+                }
+            } else if (sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash)) {
+                evicted = victim;
+            } else {
+                evicted = candidate;
+                firstCandidate = candidate.next;
+            }
+            if (evicted == null) {
+                return;
+            }
+            unlink(evicted);
+            data.remove(evicted.key, evicted);
+            evictions.increment();
+            removed(evicted.value);
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters used to estimate access frequency.
+     * Counters are halved after a sample period so stale popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(int capacity) {
+            int length = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = 10 * Math.max(16, capacity);
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xFL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size >>>= 1;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return ((int) h) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.driver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * A transaction started by {@link JSONDatabase#begin()}.
+ * - Reads see the database as of the moment the transaction began, plus the transaction's own writes.
+ *   They never wait for other transactions.
+ * - Writes are buffered until {@link #commit()}, which applies them atomically, or fails with a
+ *   {@link TransactionConflictException} if another change to a written record committed first.
+ * - A transaction that is neither committed nor rolled back keeps old versions alive; use try-with-resources.
+ */
+public class Transaction implements AutoCloseable {
+    private final JSONDatabase database;
+    private final long startSequence;
+    // "<collection>/<resource>" -> buffered write, in the order the writes must be applied.
+    private final Map<String, WriteAheadLog.Entry> writes = new LinkedHashMap<>();
+    private boolean active = true;
+
+    Transaction(JSONDatabase database, long startSequence) {
+        this.database = database;
+        this.startSequence = startSequence;
+    }
+
+    /**
+     * Returns the sequence number of the last change visible to this transaction.
+     */
+    public long getStartSequence() {
+        return startSequence;
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    public Future<User> read(String collection, String resource) {
+        return readAsync(collection, resource);
+    }
+
+    public CompletableFuture<User> readAsync(String collection, String resource) {
+        return readAsync(database.userBinding(), collection, resource);
+    }
+
+    /**
+     * Reads a record of a typed collection with the same snapshot semantics as {@link #read(String, String)}.
+     */
+    public <T> Future<T> read(DocumentCollection<T> collection, String resource) {
+        return readAsync(collection, resource);
+    }
+
+    public <T> CompletableFuture<T> readAsync(DocumentCollection<T> collection, String resource) {
+        return readAsync(collection.binding(), collection.getName(), resource);
+    }
+
+    private <T> CompletableFuture<T> readAsync(RecordBinding<T> binding, String collection, String resource) {
+        WriteAheadLog.Entry own;
+        synchronized (this) {
+            checkActive();
+            own = writes.get(collection + "/" + resource);
+            if (own == null && writes.containsKey(collection + "/")) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        if (own == null) {
+            return database.readAsOf(binding, collection, resource, startSequence);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            result.complete(own.op == WriteAheadLog.PUT ? binding.decode(own.payload) : null);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Buffers an insert or update. The user is serialized right away, not at commit.
+     */
+    public void insertOrUpdate(String collection, String resource, User user) throws IOException {
+        buffer(WriteAheadLog.Entry.put(collection, resource, database.userBinding().encode(collection, user)));
+    }
+
+    /**
+     * Buffers an insert or update in a typed collection.
+     */
+    public <T> void insertOrUpdate(DocumentCollection<T> collection, String resource, T value) throws IOException {
+        String name = collection.getName();
+        buffer(WriteAheadLog.Entry.put(name, resource, collection.binding().encode(name, value)));
+    }
+
+    /**
+     * Buffers the deletion of a user, or of the whole collection if the resource is empty.
+     */
+    public void delete(String collection, String resource) {
+        buffer(resource.isEmpty()
+                ? WriteAheadLog.Entry.dropCollection(collection)
+                : WriteAheadLog.Entry.delete(collection, resource));
+    }
+
+    synchronized void buffer(WriteAheadLog.Entry entry) {
+        checkActive();
+        if (entry.op == WriteAheadLog.DROP_COLLECTION) {
+            // Earlier writes to the collection are dropped with it.
+            writes.values().removeIf(write -> write.collection.equals(entry.collection));
+        }
+        // Re-inserting moves a rewritten record after any drop buffered since its first write.
+        writes.remove(entry.key());
+        writes.put(entry.key(), entry);
+    }
+
+    /**
+     * Applies the buffered writes as one atomic, durable change. The returned future fails with a
+     * {@link TransactionConflictException} if a written record was changed after the transaction began.
+     */
+    public Future<Void> commit() {
+        return commitAsync();
+    }
+
+    public CompletableFuture<Void> commitAsync() {
+        List<WriteAheadLog.Entry> entries;
+        synchronized (this) {
+            checkActive();
+            active = false;
+            entries = new ArrayList<>(writes.values());
+            writes.clear();
+        }
+        return database.commit(startSequence, entries);
+    }
+
+    /**
+     * Discards the buffered writes. Does nothing if the transaction already ended.
+     */
+    public void rollback() {
+        synchronized (this) {
+            if (!active) {
+                return;
+            }
+            active = false;
+            writes.clear();
+        }
+        database.endTransaction(startSequence);
+        Logger.log("TRANSACTION", "Transaction rolled back.");
+    }
+
+    /**
+     * Rolls the transaction back unless it was committed.
+     */
+    @Override
+    public void close() {
+        rollback();
+    }
+
+    private void checkActive() {
+        if (!active) {
+            throw new IllegalStateException("Transaction is no longer active");
+        }
+    }
+}
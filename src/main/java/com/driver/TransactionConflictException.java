@@ -0,0 +1,25 @@
+package com.driver;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a transaction cannot commit because a record it writes was changed after it began.
+ * Nothing of the transaction was applied; it can be retried from the start.
+ */
+public class TransactionConflictException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    public TransactionConflictException(String key) {
+        super("Transaction conflicts with a concurrent change to " + key);
+        this.key = key;
+    }
+
+    /**
+     * Returns the conflicting {@code <collection>/<resource>}, or the collection name for a dropped collection.
+     */
+    public String getKey() {
+        return key;
+    }
+}
@@ -1,58 +1,163 @@
 package com.driver;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Manages ACID transactions (commit & rollback).
+ * Coordinates concurrent multi-version transactions.
+ * - Every change gets a sequence number; a transaction reads the database as of the sequence current when it began.
+ * - While any transaction is open, writers keep the version they overwrite, tagged with the overwriting change's
+ *   sequence, so an open transaction can still read the value it started with. Versions that no open transaction
+ *   can see any more are pruned when a transaction ends.
+ * - Commits are optimistic: a transaction fails to commit if a record it writes was changed by someone else after
+ *   it began (first committer wins).
+ * The caller holds the changed records' write locks when calling {@link #nextSequences} and {@link #recordVersion}.
  */
 public class TransactionManager {
-    private final Map<String, String> transactionLog = new HashMap<>();
-    private boolean transactionActive = false;
+    /**
+     * The value a record had before the change with the given sequence; {@code before} is null if it did not exist.
+     */
+    static final class Version {
+        final long sequence;
+        final byte[] before;
+        volatile Version older;
 
-    public void startTransaction() {
-        transactionActive = true;
-        transactionLog.clear();
-        Logger.log("TRANSACTION", "Transaction started.");
+        Version(long sequence, byte[] before, Version older) {
+            this.sequence = sequence;
+            this.before = before;
+            this.older = older;
+        }
     }
 
-    public void commitTransaction() throws IOException {
-        if (!transactionActive) {
-            Logger.log("TRANSACTION", "No active transaction to commit.");
-            return;
-        }
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicInteger openCount = new AtomicInteger();
+    // Start sequence of every open transaction -> number of transactions that started at it.
+    private final ConcurrentSkipListMap<Long, Integer> openStarts = new ConcurrentSkipListMap<>();
+    // "<collection>/<resource>" -> newest overwritten version, newest first.
+    private final ConcurrentHashMap<String, Version> versions = new ConcurrentHashMap<>();
+    // "<collection>/<resource>", "<collection>/" (drops) and "<collection>" (any change) -> sequence of the last change.
+    private final ConcurrentHashMap<String, Long> lastChanges = new ConcurrentHashMap<>();
 
-        Logger.log("TRANSACTION", "Committing transaction...");
-        for (Map.Entry<String, String> entry : transactionLog.entrySet()) {
-            Files.write(new File(entry.getKey()).toPath(), entry.getValue().getBytes());
-        }
+    /**
+     * Reserves {@code count} consecutive sequence numbers and returns the first. Numbers follow the clock in
+     * microseconds where possible, which keeps them increasing across restarts unless writes outpaced one per microsecond.
+     * A transaction never starts in the middle of a reserved range, so a multi-record commit is seen all or nothing.
+     */
+    public long nextSequences(int count) {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        return lastSequence.updateAndGet(previous -> Math.max(previous + count, now + count - 1)) - count + 1;
+    }
 
-        transactionLog.clear();
-        transactionActive = false;
-        Logger.log("TRANSACTION", "Transaction committed successfully.");
+    /**
+     * Registers a new transaction and returns its start sequence.
+     */
+    public synchronized long begin() {
+        // Counted before the sequence is read, so every writer numbered after the start sees the transaction.
+        openCount.incrementAndGet();
+        long start = lastSequence.get();
+        openStarts.merge(start, 1, Integer::sum);
+        return start;
     }
 
-    public void rollbackTransaction() {
-        if (!transactionActive) {
-            Logger.log("TRANSACTION", "No active transaction to rollback.");
-            return;
+    /**
+     * Unregisters a transaction and prunes the versions no open transaction can see.
+     */
+    public void end(long start) {
+        long horizon;
+        synchronized (this) {
+            openStarts.computeIfPresent(start, (s, n) -> n == 1 ? null : n - 1);
+            openCount.decrementAndGet();
+            horizon = lastSequence.get();
+            Map.Entry<Long, Integer> oldest = openStarts.firstEntry();
+            if (oldest != null) {
+                horizon = Math.min(horizon, oldest.getKey());
+            }
         }
+        prune(horizon);
+    }
+
+    /**
+     * Returns true while any transaction is open, i.e. while writers must record the versions they overwrite.
+     */
+    public boolean isTracking() {
+        return openCount.get() > 0;
+    }
 
-        transactionLog.clear();
-        transactionActive = false;
-        Logger.log("TRANSACTION", "Transaction rolled back.");
+    public int openTransactions() {
+        return openCount.get();
     }
 
-    public void addToTransaction(String filePath, String data) {
-        if (transactionActive) {
-            transactionLog.put(filePath, data);
+    /**
+     * Records that the change with the given sequence overwrites a record whose previous content was {@code before}.
+     */
+    public void recordVersion(String collection, String resource, long sequence, byte[] before) {
+        versions.compute(collection + "/" + resource, (key, newest) -> new Version(sequence, before, newest));
+        lastChanges.merge(collection + "/" + resource, sequence, Math::max);
+        lastChanges.merge(collection, sequence, Math::max);
+    }
+
+    /**
+     * Records that the change with the given sequence drops a collection. The dropped records' versions are
+     * recorded separately with {@link #recordVersion}.
+     */
+    public void recordDrop(String collection, long sequence) {
+        lastChanges.merge(collection + "/", sequence, Math::max);
+        lastChanges.merge(collection, sequence, Math::max);
+    }
+
+    /**
+     * Returns the oldest version overwritten after the start sequence, whose {@code before} is what a transaction
+     * started at that sequence sees; or null if the record has not changed since. The caller must hold the
+     * record's read lock.
+     */
+    Version versionAt(String collection, String resource, long start) {
+        Version visible = null;
+        for (Version version = versions.get(collection + "/" + resource);
+             version != null && version.sequence > start; version = version.older) {
+            visible = version;
         }
+        return visible;
     }
 
-    public boolean isTransactionActive() {
-        return transactionActive;
+    /**
+     * Returns the key of the first write that was changed by someone else after the start sequence, or null if
+     * the writes can be committed. The caller must hold the write locks of every record written.
+     */
+    public String findConflict(long start, Collection<WriteAheadLog.Entry> writes) {
+        for (WriteAheadLog.Entry write : writes) {
+            if (write.op == WriteAheadLog.DROP_COLLECTION) {
+                if (lastChanges.getOrDefault(write.collection, 0L) > start) {
+                    return write.collection;
+                }
+            } else if (lastChanges.getOrDefault(write.key(), 0L) > start
+                    || lastChanges.getOrDefault(write.collection + "/", 0L) > start) {
+                return write.key();
+            }
+        }
+        return null;
+    }
+
+    private void prune(long horizon) {
+        for (Iterator<Map.Entry<String, Version>> it = versions.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Version> chain = it.next();
+            Version newest = chain.getValue();
+            if (newest.sequence <= horizon) {
+                versions.remove(chain.getKey(), newest);
+                continue;
+            }
+            for (Version version = newest; version.older != null; version = version.older) {
+                if (version.older.sequence <= horizon) {
+                    version.older = null;
+                    break;
+                }
+            }
+        }
+        lastChanges.values().removeIf(sequence -> sequence <= horizon);
     }
 }
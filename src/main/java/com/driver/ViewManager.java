@@ -0,0 +1,110 @@
+package com.driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the materialized views of a database.
+ * - Views live in memory and are checkpointed under {@code <directory>/<collection>.views/} on shutdown.
+ * - As with indexes, a checkpoint is removed once loaded, so after a crash the view is rebuilt from the records
+ *   instead of trusting a stale file.
+ */
+public class ViewManager {
+    private final File directory;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, MaterializedView> views = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<String, MaterializedView>> viewsByCollection = new ConcurrentHashMap<>();
+
+    public ViewManager(File directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Declares a view, loading its checkpoint or building it from the records.
+     * Callers must hold the collection's write lock so no write slips in during a build.
+     */
+    public MaterializedView register(String name, String collection, Aggregation definition,
+                                     IndexManager.RecordSource source) throws IOException {
+        MaterializedView existing = views.get(name);
+        if (existing != null) {
+            if (!existing.getCollection().equals(collection)) {
+                throw new IllegalArgumentException("View " + name + " is already defined on " + existing.getCollection());
+            }
+            return existing;
+        }
+
+        MaterializedView view = new MaterializedView(name, collection, definition);
+        File file = viewFile(collection, name);
+        boolean loaded = false;
+        if (file.exists()) {
+            try {
+                view.load(file, objectMapper);
+                loaded = true;
+                Logger.log("VIEW", "Loaded view {} ({} records)", name, view.count());
+            } catch (IOException | RuntimeException e) {
+                view = new MaterializedView(name, collection, definition);
+                Logger.log("ERROR", "Unusable checkpoint {}, rebuilding: {}", file.getPath(), e.getMessage());
+            }
+            file.delete();
+        }
+        if (!loaded) {
+            for (Map.Entry<String, ?> record : source.load(collection).entrySet()) {
+                view.update(record.getKey(), record.getValue());
+            }
+            Logger.log("VIEW", "Built view {} ({} records)", name, view.count());
+        }
+        views.put(name, view);
+        viewsByCollection.computeIfAbsent(collection, c -> new ConcurrentHashMap<>()).put(name, view);
+        return view;
+    }
+
+    /**
+     * Returns the view with the given name, or null if none was declared.
+     */
+    public MaterializedView get(String name) {
+        return views.get(name);
+    }
+
+    public Collection<MaterializedView> viewsOf(String collection) {
+        Map<String, MaterializedView> byName = viewsByCollection.get(collection);
+        return byName == null ? Collections.<MaterializedView>emptyList() : byName.values();
+    }
+
+    /**
+     * Applies a write to the collection's views; a null record means it was deleted.
+     */
+    public void onWrite(String collection, String resource, Object record) {
+        for (MaterializedView view : viewsOf(collection)) {
+            view.update(resource, record);
+        }
+    }
+
+    public void onDropCollection(String collection) {
+        for (MaterializedView view : viewsOf(collection)) {
+            view.clear();
+        }
+    }
+
+    /**
+     * Checkpoints every view so the next start can skip the rebuild.
+     */
+    public void saveAll() {
+        for (MaterializedView view : views.values()) {
+            try {
+                view.save(viewFile(view.getCollection(), view.getName()), objectMapper);
+            } catch (IOException e) {
+                Logger.log("ERROR", "Failed to checkpoint view {}: {}", view.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private File viewFile(String collection, String name) {
+        return new File(new File(directory, collection + ".views"), name + ".view");
+    }
+}
@@ -0,0 +1,623 @@
+package com.driver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log with group commit.
+ * - Appends from many threads are combined into one sequential write and one fsync.
+ * - Durable entries are materialized into the record files by a background thread.
+ * - On startup the log is replayed so acknowledged writes survive a crash.
+ *
+ * Each append is stored as one frame: [length][crc32][entries...], so a multi-entry append
+ * (a transaction commit) is replayed all-or-nothing.
+ *
+ * In write-behind mode appends only enter a dirty set, keyed by record, and are acknowledged at once.
+ * A flusher thread logs the dirty set as one frame every interval, or sooner once it holds enough records,
+ * so N updates of a hot record cost one logged entry. The set keeps the order of the latest writes,
+ * and a collection drop removes the collection's earlier dirty entries, so replaying the frame is equivalent
+ * to replaying every write.
+ */
+public class WriteAheadLog implements Closeable {
+    public static final byte PUT = 1;
+    public static final byte DELETE = 2;
+    public static final byte DROP_COLLECTION = 3;
+
+    /**
+     * A single logged mutation. The payload is null for deletes.
+     */
+    public static final class Entry {
+        public final byte op;
+        public final String collection;
+        public final String resource;
+        public final byte[] payload;
+
+        public Entry(byte op, String collection, String resource, byte[] payload) {
+            this.op = op;
+            this.collection = collection;
+            this.resource = resource;
+            this.payload = payload;
+        }
+
+        public static Entry put(String collection, String resource, byte[] payload) {
+            return new Entry(PUT, collection, resource, payload);
+        }
+
+        public static Entry delete(String collection, String resource) {
+            return new Entry(DELETE, collection, resource, null);
+        }
+
+        public static Entry dropCollection(String collection) {
+            return new Entry(DROP_COLLECTION, collection, "", null);
+        }
+
+        String key() {
+            return collection + "/" + resource;
+        }
+    }
+
+    /**
+     * Applies durable entries to the backing store.
+     */
+    public interface Applier {
+        void apply(Entry entry) throws IOException;
+
+        /**
+         * Forces everything applied so far to stable storage, ahead of a log truncation.
+         */
+        void sync() throws IOException;
+    }
+
+    private static final class Batch {
+        final List<Entry> entries;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Batch(List<Entry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    private static final Batch POISON = new Batch(Collections.<Entry>emptyList());
+    private static final Entry STOP = new Entry(DROP_COLLECTION, "", "", null);
+
+    private final File logFile;
+    private final FileChannel channel;
+    private final Applier applier;
+    private final boolean fsync;
+    private final long maxBatchDelayNanos;
+    private final int maxBatchSize;
+    private final long checkpointBytes;
+    private final long writeBehindNanos;
+    private final int writeBehindMaxDirty;
+
+    private final BlockingQueue<Batch> appendQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Entry> materializeQueue = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<String, Entry> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> pendingDrops = new ConcurrentHashMap<>();
+    // Write-behind dirty set, guarded by its own monitor. Drops are keyed by "collection/" plus a NUL.
+    private final LinkedHashMap<String, Entry> dirty = new LinkedHashMap<>();
+    private final Map<Entry, CompletableFuture<Void>> syncBarriers = new ConcurrentHashMap<>();
+    private final AtomicLong durableCount = new AtomicLong();
+    private final AtomicLong materializedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final Thread writerThread;
+    private final Thread materializerThread;
+    private final Thread flusherThread;
+    private volatile boolean closed;
+
+    /**
+     * Opens (or creates) the log, replays any entries left by a previous run and starts the background threads.
+     */
+    public WriteAheadLog(File logFile, DatabaseConfig config, Applier applier) throws IOException {
+        this.logFile = logFile;
+        this.applier = applier;
+        this.fsync = config.isWalFsync();
+        this.maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(config.getWalMaxBatchDelayMicros());
+        this.maxBatchSize = Math.max(1, config.getWalMaxBatchSize());
+        this.checkpointBytes = config.getWalCheckpointBytes();
+        this.writeBehindNanos = TimeUnit.MILLISECONDS.toNanos(config.getWriteBehindIntervalMillis());
+        this.writeBehindMaxDirty = Math.max(1, config.getWriteBehindMaxDirty());
+
+        File parent = logFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.channel = FileChannel.open(logFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+
+        this.writerThread = new Thread(this::writeLoop, "wal-writer");
+        this.writerThread.setDaemon(true);
+        this.materializerThread = new Thread(this::materializeLoop, "wal-materializer");
+        this.materializerThread.setDaemon(true);
+        writerThread.start();
+        materializerThread.start();
+        if (writeBehindNanos > 0) {
+            this.flusherThread = new Thread(this::flushLoop, "wal-flusher");
+            this.flusherThread.setDaemon(true);
+            flusherThread.start();
+        } else {
+            this.flusherThread = null;
+        }
+    }
+
+    /**
+     * Queues entries for the next group commit. The caller must hold the records' write locks (or the
+     * collection's exclusive lock for a drop) so that the order of appends matches the order of the pending view.
+     * The returned future completes once the entries are durable, or at once in write-behind mode.
+     */
+    public CompletableFuture<Void> append(List<Entry> entries) {
+        if (writeBehindNanos > 0) {
+            synchronized (dirty) {
+                if (closed) {
+                    return closedFailure();
+                }
+                updatePending(entries);
+                for (Entry entry : entries) {
+                    if (entry.op == DROP_COLLECTION) {
+                        String prefix = entry.collection + "/";
+                        dirty.keySet().removeIf(key -> key.startsWith(prefix));
+                        dirty.put(prefix + '\u0000', entry);
+                    } else if (dirty.remove(entry.key()) != null) {
+                        coalescedCount.incrementAndGet();
+                        dirty.put(entry.key(), entry);
+                    } else {
+                        dirty.put(entry.key(), entry);
+                    }
+                }
+                if (dirty.size() >= writeBehindMaxDirty) {
+                    dirty.notifyAll();
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        Batch batch = new Batch(entries);
+        // Checked and queued under the lock close() takes, so no batch can land behind the writer's last drain.
+        synchronized (dirty) {
+            if (closed) {
+                return closedFailure();
+            }
+            updatePending(entries);
+            appendQueue.add(batch);
+        }
+        return batch.durable;
+    }
+
+    private CompletableFuture<Void> closedFailure() {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("Write-ahead log is closed: " + logFile));
+        return failed;
+    }
+
+    private void updatePending(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (entry.op == DROP_COLLECTION) {
+                String prefix = entry.collection + "/";
+                pending.keySet().removeIf(key -> key.startsWith(prefix));
+                pendingDrops.put(entry.collection, entry);
+            } else {
+                pending.put(entry.key(), entry);
+            }
+        }
+    }
+
+    public CompletableFuture<Void> append(Entry entry) {
+        return append(Collections.singletonList(entry));
+    }
+
+    /**
+     * Returns a stage that completes once everything appended so far is durable, including the dirty set.
+     */
+    public CompletableFuture<Void> flush() {
+        Batch barrier = new Batch(Collections.<Entry>emptyList());
+        synchronized (dirty) {
+            if (closed) {
+                return CompletableFuture.completedFuture(null);
+            }
+            enqueueDirty();
+            appendQueue.add(barrier);
+        }
+        return barrier.durable;
+    }
+
+    /**
+     * Returns a stage that completes once everything appended so far is durable, applied to the backing store
+     * and forced to stable storage there.
+     */
+    public CompletableFuture<Void> sync() {
+        return flush().thenCompose(ignored -> {
+            CompletableFuture<Void> synced = new CompletableFuture<>();
+            Entry barrier = new Entry(DROP_COLLECTION, "", "", null);
+            syncBarriers.put(barrier, synced);
+            materializeQueue.add(barrier);
+            if (closed && syncBarriers.remove(barrier) != null) {
+                synced.complete(null);
+            }
+            return synced;
+        });
+    }
+
+    /**
+     * Number of writes dropped from the dirty set because a later write to the same record replaced them.
+     */
+    public long coalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int dirtyCount() {
+        synchronized (dirty) {
+            return dirty.size();
+        }
+    }
+
+    /**
+     * Moves the dirty set into the append queue as one batch. The caller holds the dirty set's monitor.
+     */
+    private void enqueueDirty() {
+        if (!dirty.isEmpty()) {
+            appendQueue.add(new Batch(new ArrayList<>(dirty.values())));
+            dirty.clear();
+        }
+    }
+
+    /**
+     * Write-behind loop: logs the dirty set every interval, or as soon as it reaches its size threshold.
+     */
+    private void flushLoop() {
+        synchronized (dirty) {
+            while (!closed) {
+                long deadline = System.nanoTime() + writeBehindNanos;
+                try {
+                    for (long remaining = writeBehindNanos; !closed && dirty.size() < writeBehindMaxDirty && remaining > 0;
+                         remaining = deadline - System.nanoTime()) {
+                        TimeUnit.NANOSECONDS.timedWait(dirty, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (!closed) {
+                    enqueueDirty();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the logged-but-not-yet-materialized state of a record:
+     * a PUT or DELETE entry for the record itself, a DROP_COLLECTION entry if the whole collection
+     * was dropped, or null if the record files are up to date.
+     */
+    public Entry lookup(String collection, String resource) {
+        Entry entry = pending.get(collection + "/" + resource);
+        return entry != null ? entry : pendingDrops.get(collection);
+    }
+
+    /**
+     * Returns all pending entries of a collection keyed by resource, including a
+     * DROP_COLLECTION entry under the empty key if the collection was dropped.
+     */
+    public Map<String, Entry> pendingFor(String collection) {
+        Map<String, Entry> result = new HashMap<>();
+        Entry drop = pendingDrops.get(collection);
+        if (drop != null) {
+            result.put("", drop);
+        }
+        String prefix = collection + "/";
+        for (Map.Entry<String, Entry> entry : pending.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                result.put(entry.getValue().resource, entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Group commit loop: drains the queue, writes all frames with one sequential write and one fsync.
+     */
+    private void writeLoop() {
+        List<Batch> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.clear();
+                Batch first = appendQueue.take();
+                if (first == POISON) {
+                    break;
+                }
+                group.add(first);
+                appendQueue.drainTo(group, maxBatchSize - 1);
+                if (maxBatchDelayNanos > 0) {
+                    long deadline = System.nanoTime() + maxBatchDelayNanos;
+                    while (group.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        Batch next = appendQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        group.add(next);
+                    }
+                }
+                if (group.remove(POISON)) {
+                    running = false;
+                }
+                commitGroup(group);
+                maybeCheckpoint();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void commitGroup(List<Batch> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (Batch batch : group) {
+                // Flush barriers carry no entries and only wait for the batches ahead of them.
+                if (!batch.entries.isEmpty()) {
+                    buffer.write(encodeFrame(batch.entries));
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            channel.position(channel.size());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            Logger.log("ERROR", "Write-ahead log append failed: {}", e.getMessage());
+            for (Batch batch : group) {
+                batch.durable.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Batch batch : group) {
+            durableCount.addAndGet(batch.entries.size());
+            materializeQueue.addAll(batch.entries);
+            batch.durable.complete(null);
+        }
+    }
+
+    /**
+     * Truncates the log once it has grown past the checkpoint size and every entry has been materialized.
+     * An entry that failed to materialize is never counted, so the log is kept for the replay on restart.
+     * Runs on the writer thread, so no new frame can be appended meanwhile.
+     */
+    private void maybeCheckpoint() {
+        try {
+            if (channel.size() < checkpointBytes || !appendQueue.isEmpty()
+                    || materializedCount.get() != durableCount.get() || !pendingIsDirtyOnly()) {
+                return;
+            }
+            truncate();
+        } catch (IOException e) {
+            Logger.log("ERROR", "Write-ahead log checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns true if no pending entry is in the log: each one is still waiting in the dirty set, if any.
+     * Outside write-behind mode this means the pending view is empty.
+     */
+    private boolean pendingIsDirtyOnly() {
+        synchronized (dirty) {
+            for (Entry entry : pending.values()) {
+                if (dirty.get(entry.key()) != entry) {
+                    return false;
+                }
+            }
+            for (Entry drop : pendingDrops.values()) {
+                if (dirty.get(drop.collection + "/\u0000") != drop) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void truncate() throws IOException {
+        applier.sync();
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    /**
+     * Applies durable entries in log order. An entry that has since been superseded by a newer
+     * append for the same record is skipped; the newer entry will be applied when it arrives.
+     */
+    private void materializeLoop() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = materializeQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == STOP) {
+                return;
+            }
+            CompletableFuture<Void> barrier = syncBarriers.remove(entry);
+            if (barrier != null) {
+                try {
+                    applier.sync();
+                    barrier.complete(null);
+                } catch (IOException e) {
+                    barrier.completeExceptionally(e);
+                }
+                continue;
+            }
+            try {
+                if (entry.op == DROP_COLLECTION) {
+                    if (pendingDrops.get(entry.collection) == entry) {
+                        applier.apply(entry);
+                        pendingDrops.remove(entry.collection, entry);
+                    }
+                } else if (pending.get(entry.key()) == entry) {
+                    applier.apply(entry);
+                    pending.remove(entry.key(), entry);
+                }
+                materializedCount.incrementAndGet();
+            } catch (IOException e) {
+                // Not counted: the entry stays in the pending view, so reads stay correct, and checkpoints stop
+                // truncating the log, so a restart replays it.
+                Logger.log("ERROR", "Failed to materialize {}, keeping the log until restart: {}", entry.key(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Re-applies every complete frame found in the log, then truncates it.
+     * A torn or corrupt frame marks the end of the valid log.
+     */
+    private void replay() throws IOException {
+        if (channel.size() == 0) {
+            return;
+        }
+        int frames = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long expectedCrc = in.readInt() & 0xFFFFFFFFL;
+                if (length < 0 || length > channel.size()) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                try {
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, body.length);
+                if (crc.getValue() != expectedCrc) {
+                    break;
+                }
+                for (Entry entry : decodeFrame(body)) {
+                    applier.apply(entry);
+                }
+                frames++;
+            }
+        } catch (EOFException e) {
+            // Torn header at the tail of the log.
+        }
+        truncate();
+        Logger.log("WAL", "Replayed {} frame(s) from {}", frames, logFile.getPath());
+    }
+
+    static byte[] encodeFrame(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeByte(entry.op);
+            writeString(out, entry.collection);
+            writeString(out, entry.resource);
+            if (entry.payload == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(entry.payload.length);
+                out.write(entry.payload);
+            }
+        }
+        out.flush();
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        ByteBuffer frame = ByteBuffer.allocate(8 + bytes.length);
+        frame.putInt(bytes.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(bytes);
+        return frame.array();
+    }
+
+    static List<Entry> decodeFrame(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int count = in.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte op = in.readByte();
+            String collection = readString(in);
+            String resource = readString(in);
+            int payloadLength = in.readInt();
+            byte[] payload = null;
+            if (payloadLength >= 0) {
+                payload = new byte[payloadLength];
+                in.readFully(payload);
+            }
+            entries.add(new Entry(op, collection, resource, payload));
+        }
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Logs the dirty set, flushes outstanding appends, waits for the materializer to catch up and truncates the log.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (dirty) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            enqueueDirty();
+            dirty.notifyAll();
+        }
+        appendQueue.add(POISON);
+        try {
+            if (flusherThread != null) {
+                flusherThread.join();
+            }
+            writerThread.join();
+            for (Batch late; (late = appendQueue.poll()) != null; ) {
+                late.durable.completeExceptionally(new IOException("Write-ahead log is closed: " + logFile));
+            }
+            materializeQueue.add(STOP);
+            materializerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CompletableFuture<Void> barrier : syncBarriers.values()) {
+            barrier.complete(null);
+        }
+        syncBarriers.clear();
+        if (pending.isEmpty() && pendingDrops.isEmpty()) {
+            truncate();
+        }
+        channel.close();
+    }
+}
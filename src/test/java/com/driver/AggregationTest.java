@@ -0,0 +1,108 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit test class for aggregate queries.
+ * Covers grouped statistics, scan and index filter pushdown, and resource-restricted queries.
+ */
+public class AggregationTest {
+    private static final File DIRECTORY = new File("./test_database/aggregation_test");
+    private static final String[] COMPANIES = {"Initech", "Globex", "Hooli"};
+    private static final String[] CITIES = {"Austin", "Boston"};
+    private JSONDatabase db;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        db = new JSONDatabase(DIRECTORY.getPath());
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String name = "user" + i;
+            users.put(name, new User(name, String.valueOf(20 + i % 40), "555" + i, COMPANIES[i % 3],
+                    new Address(CITIES[i % 2], "State", "USA", "00000")));
+        }
+        users.put("unknown", new User("unknown", "n/a", "5550", "Initech", null));
+        db.insertAll("users", users).get();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        db.shutdown();
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    /**
+     * Tests count, sum, average, min and max, in total and per group, skipping non-numeric values.
+     */
+    @Test
+    public void testGroupedStatistics() throws Exception {
+        AggregationResult result = db.aggregate("users", new Aggregation().groupBy("company").stats("age")).get();
+
+        assertEquals(301, result.count());
+        assertEquals(300, result.total().count("age"));
+        assertEquals(20, result.total().min("age"));
+        assertEquals(59, result.total().max("age"));
+        long total = 0;
+        for (int i = 0; i < 300; i++) {
+            total += 20 + i % 40;
+        }
+        assertEquals(total / 300.0, result.total().avg("age"), 1e-9);
+
+        assertEquals(3, result.groups().size());
+        assertEquals(101, result.group("Initech").count());
+        assertEquals(100, result.group("Initech").count("age"));
+        assertEquals("Initech", result.counts().keySet().iterator().next());
+        long sum = 0;
+        for (int i = 1; i < 300; i += 3) {
+            sum += 20 + i % 40;
+        }
+        assertEquals(sum, result.group("Globex").sum("age"), 1e-9);
+    }
+
+    /**
+     * Tests that filters give the same result whether they are evaluated in the scan or answered from an index.
+     */
+    @Test
+    public void testFiltersWithAndWithoutIndex() throws Exception {
+        Aggregation query = new Aggregation()
+                .where("address.city", "Boston")
+                .whereNumber("age", age -> age >= 50)
+                .groupBy("company")
+                .stats("age");
+        AggregationResult scanned = db.aggregate("users", query).get();
+        db.createIndex("users", "address.city").get();
+        AggregationResult indexed = db.aggregate("users", query).get();
+
+        long expected = 0;
+        for (int i = 1; i < 300; i += 2) {
+            if (20 + i % 40 >= 50) {
+                expected++;
+            }
+        }
+        assertEquals(expected, scanned.count());
+        assertEquals(expected, indexed.count());
+        assertEquals(scanned.counts(), indexed.counts());
+        assertEquals(51, indexed.total().min("age"));
+    }
+
+    /**
+     * Tests that a query restricted to a list of resources only aggregates those records.
+     */
+    @Test
+    public void testResourceRestrictedQuery() throws Exception {
+        AggregationResult result = db.aggregate("users", new Aggregation()
+                .resources(Arrays.asList("user0", "user1", "user2", "missing"))
+                .where("company", c -> !c.equals("Hooli"))
+                .stats("age")).get();
+
+        assertEquals(2, result.count());
+        assertEquals(41, result.total().sum("age"), 1e-9);
+        assertTrue(result.groups().isEmpty());
+    }
+}
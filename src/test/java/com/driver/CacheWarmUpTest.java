@@ -0,0 +1,93 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit test class for the cache warm-up on start.
+ * Covers warm-up from a saved cache snapshot, the directory fallback and its memory budget.
+ */
+public class CacheWarmUpTest {
+    private static final File DIRECTORY = new File("./test_database/cache_warmup_test");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static Map<String, User> users(int count) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = "user" + i;
+            users.put(name, new User(name, String.valueOf(20 + i % 10), "5550000000", "Initech",
+                    new Address("Austin", "Texas", "USA", "73301")));
+        }
+        return users;
+    }
+
+    private static Map<String, JsonNode> orders(int count) {
+        Map<String, JsonNode> orders = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            orders.put("o" + i, MAPPER.createObjectNode().put("sku", "sku" + i).put("quantity", i));
+        }
+        return orders;
+    }
+
+    /**
+     * Tests that the hot set saved on shutdown is loaded back on the next start, each record as its cached type.
+     */
+    @Test
+    public void testWarmUpFromSnapshot() throws Exception {
+        DatabaseConfig config = new DatabaseConfig().cacheWarmUp(true).cacheSnapshotIntervalMillis(0);
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), config);
+        db.warmedUp().get();
+        db.insertAll("users", users(20)).get();
+        db.collection("orders", JsonNode.class).insertAll(orders(10)).get();
+        db.shutdown();
+        assertTrue(new File(DIRECTORY, "cache.snapshot").exists());
+
+        db = new JSONDatabase(DIRECTORY.getPath(), config);
+        db.warmedUp().get();
+        assertEquals(30, db.cacheStats().getSize());
+        assertEquals("user3", db.read("users", "user3").get().name);
+        assertEquals(7, db.collection("orders", JsonNode.class).read("o7").get().get("quantity").asInt());
+        assertEquals(0, db.cacheStats().getMissCount());
+        db.shutdown();
+    }
+
+    /**
+     * Tests that without a snapshot the stored records are loaded up to the memory budget,
+     * that a collection whose records are not users is skipped, and that the next start reuses the hot set.
+     */
+    @Test
+    public void testDirectoryWarmUpWithinBudget() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        db.insertAll("users", users(200)).get();
+        db.collection("orders", JsonNode.class).insertAll(orders(5)).get();
+        db.shutdown();
+
+        db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig().cacheWarmUp(true)
+                .cacheSnapshotIntervalMillis(0).warmUpMemoryBudgetBytes(2048).warmUpThreads(2));
+        db.warmedUp().get();
+        long size = db.cacheStats().getSize();
+        assertTrue(size > 0 && size < 200, "Warm-up should stop at the budget, loaded " + size);
+        long misses = db.cacheStats().getMissCount();
+        assertEquals(3, db.collection("orders", JsonNode.class).read("o3").get().get("quantity").asInt());
+        assertEquals(misses + 1, db.cacheStats().getMissCount());
+        long hotSet = db.cacheStats().getSize();
+        db.shutdown();
+
+        db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig().cacheWarmUp(true)
+                .cacheSnapshotIntervalMillis(0));
+        db.warmedUp().get();
+        assertEquals(hotSet, db.cacheStats().getSize());
+        db.shutdown();
+    }
+}
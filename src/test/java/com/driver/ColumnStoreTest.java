@@ -0,0 +1,137 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit test class for column stores.
+ * Covers columnar aggregation and selection, incremental refresh from writes, the fallback to record scans,
+ * and checkpointing.
+ */
+public class ColumnStoreTest {
+    private static final File DIRECTORY = new File("./test_database/column_store_test");
+    private static final String[] COMPANIES = {"Initech", "Globex", "Hooli"};
+    private static final String[] CITIES = {"Austin", "Boston"};
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static DatabaseConfig config() {
+        return new DatabaseConfig().columnRefreshIntervalMillis(20)
+                .columnStore("users", new ColumnStore.Columns().ints("age").strings("company", "address.city"));
+    }
+
+    private static void insertUsers(JSONDatabase db, int count) throws Exception {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = "user" + i;
+            users.put(name, new User(name, String.valueOf(20 + i % 40), "555" + i, COMPANIES[i % 3],
+                    new Address(CITIES[i % 2], "State", "USA", "00000")));
+        }
+        db.insertAll("users", users).get();
+    }
+
+    /**
+     * Tests that aggregations and selections over the columns match the records, follow later writes,
+     * and fall back to a record scan once a value does not fit its column.
+     */
+    @Test
+    public void testColumnarScansFollowWrites() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), config());
+        insertUsers(db, 300);
+        ColumnStore columns = db.columnStore("users");
+        assertEquals(300, columns.count());
+
+        Aggregation byCompany = new Aggregation().groupBy("company").stats("age");
+        AggregationResult result = columns.aggregate(byCompany);
+        assertEquals(300, result.count());
+        assertEquals(20, result.total().min("age"));
+        assertEquals(59, result.total().max("age"));
+        long initech = 0;
+        for (int i = 0; i < 300; i += 3) {
+            initech += 20 + i % 40;
+        }
+        assertEquals(100, result.group("Initech").count());
+        assertEquals(initech, result.group("Initech").sum("age"));
+        assertEquals(result.counts(), db.aggregate("users", byCompany).get().counts());
+
+        Aggregation oldInAustin = new Aggregation().where("address.city", "Austin").whereNumber("age", a -> a >= 58);
+        assertEquals(Arrays.asList("user118", "user158", "user198", "user238", "user278", "user38", "user78"),
+                columns.select(oldInAustin));
+        assertEquals(7, db.aggregate("users", oldInAustin).get().count());
+        assertEquals(100, columns.aggregate(new Aggregation().where("company", s -> s.startsWith("H") || s.startsWith("G"))
+                .where("address.city", "Boston")).count());
+
+        db.delete("users", "user38").get();
+        db.insertOrUpdate("users", "user0", new User("user0", "58", "5550", "Hooli",
+                new Address("Austin", "State", "USA", "00000"))).get();
+        db.insertOrUpdate("users", "newcomer", new User("newcomer", "99", "5551", "Umbrella", null)).get();
+        assertEquals(Arrays.asList("user0", "user118", "user158", "user198", "user238", "user278", "user78"),
+                columns.select(new Aggregation().whereNumber("age", a -> a >= 58).where("address.city", s -> !"Boston".equals(s))));
+        assertEquals(1, columns.aggregate(byCompany).group("Umbrella").count());
+        assertEquals(99, columns.aggregate(new Aggregation().stats("age")).total().max("age"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        db.insertOrUpdate("users", "late", new User("late", "30", "5552", "Initech", null)).get();
+        while (columns.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, columns.pendingCount());
+
+        // A value that is not an int is left to the record scan.
+        db.insertOrUpdate("users", "unknown", new User("unknown", "n/a", "5553", "Initech", null)).get();
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(byCompany));
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(new Aggregation().groupBy("name")));
+        AggregationResult scanned = db.aggregate("users", byCompany).get();
+        assertEquals(302, scanned.count());
+        assertEquals(301, scanned.total().count("age"));
+        // Queries on string columns only are still columnar.
+        assertEquals(302, columns.aggregate(new Aggregation().groupBy("company")).count());
+
+        db.delete("users", "unknown").get();
+        assertEquals(301, columns.aggregate(byCompany).total().count("age"));
+        db.shutdown();
+    }
+
+    /**
+     * Tests that a clean shutdown's checkpoint is loaded with the mapped columns, and that the columns are
+     * rebuilt from the records when it is missing.
+     */
+    @Test
+    public void testCheckpointAndRebuild() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), config());
+        insertUsers(db, 100);
+        db.delete("users", "user7").get();
+        db.shutdown();
+        File checkpoint = new File(DIRECTORY, "users.columns/columns.json");
+        assertTrue(checkpoint.exists());
+        assertTrue(new File(DIRECTORY, "users.columns/age.int").exists());
+
+        db = new JSONDatabase(DIRECTORY.getPath(), config());
+        assertFalse(checkpoint.exists());
+        assertEquals(99, db.columnStore("users").count());
+        AggregationResult loaded = db.columnStore("users").aggregate(new Aggregation().groupBy("address.city").stats("age"));
+        assertEquals(49, loaded.group("Boston").count());
+        db.insertOrUpdate("users", "user7", new User("user7", "27", "5557", "Globex",
+                new Address("Boston", "State", "USA", "00000"))).get();
+        assertEquals(100, db.columnStore("users").count());
+        assertEquals(Arrays.asList("user7"), db.columnStore("users").select(new Aggregation().resources(
+                Arrays.asList("user7", "missing")).where("company", "Globex")));
+
+        // Without a checkpoint, as after a crash, the columns are built from the records.
+        db.shutdown();
+        assertTrue(checkpoint.delete());
+        db = new JSONDatabase(DIRECTORY.getPath(), config());
+        AggregationResult rebuilt = db.columnStore("users").aggregate(new Aggregation().groupBy("address.city").stats("age"));
+        assertEquals(50, rebuilt.group("Boston").count());
+        assertEquals(loaded.group("Austin").sum("age"), rebuilt.group("Austin").sum("age"));
+        db.shutdown();
+    }
+}
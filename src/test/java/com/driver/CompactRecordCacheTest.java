@@ -0,0 +1,110 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.math.BigDecimal;
+
+/**
+ * Unit test class for CompactRecordCache.
+ * Covers the dictionary encoding, off-heap slab reuse, the memory budget and use as a database's cache.
+ */
+public class CompactRecordCacheTest {
+    private static final File DIRECTORY = new File("./test_database/compact_cache_test");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(int i) {
+        return new User("user" + i, String.valueOf(20 + i % 40), "555" + (1000000 + i), i % 3 == 0 ? "Initech" : "Globex",
+                new Address(i % 2 == 0 ? "Austin" : "Boston", i % 2 == 0 ? "Texas" : "Massachusetts", "USA", "0" + i));
+    }
+
+    /**
+     * Tests that records round-trip exactly and that repeated strings shrink to dictionary ids.
+     */
+    @Test
+    public void testEncodingRoundTrip() throws Exception {
+        CompactRecordEncoder encoder = new CompactRecordEncoder(1024);
+        for (int i = 0; i < 100; i++) {
+            encoder.encode(user(i));
+        }
+        byte[] encoded = encoder.encode(user(7));
+        byte[] json = MAPPER.writeValueAsBytes(user(7));
+        assertTrue(encoded.length * 2 < json.length, encoded.length + " vs " + json.length);
+        User decoded = encoder.decode(encoded, User.class);
+        assertEquals(MAPPER.writeValueAsString(user(7)), MAPPER.writeValueAsString(decoded));
+        assertEquals("27", decoded.age);
+        assertEquals("07", decoded.address.pincode);
+
+        ObjectNode document = MAPPER.createObjectNode().put("count", -42L).put("ratio", 0.25).put("flag", true)
+                .put("price", new BigDecimal("12.34")).put("zero", "0").put("negative", "-0").putNull("none");
+        document.putArray("tags").add("a").add(1).addObject().put("nested", "x");
+        JsonNode roundTrip = encoder.decode(encoder.encode(document), JsonNode.class);
+        assertEquals(document.toString(), roundTrip.toString());
+    }
+
+    /**
+     * Tests that freed off-heap chunks are reused, that stale handles read nothing,
+     * and that the cache stays within its budget while returning a fresh copy on every hit.
+     */
+    @Test
+    public void testOffHeapBudgetAndReuse() {
+        SlabAllocator allocator = new SlabAllocator(SlabAllocator.SLAB_SIZE);
+        SlabAllocator.Chunk first = allocator.allocate(new byte[100]);
+        assertEquals(128, first.capacity());
+        allocator.free(first);
+        assertNull(allocator.read(first));
+        assertEquals(0, allocator.usedBytes());
+        SlabAllocator.Chunk second = allocator.allocate(new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, allocator.read(second));
+        assertNull(allocator.read(first));
+
+        CompactRecordCache cache = new CompactRecordCache(CompactRecordCache.Storage.OFF_HEAP, SlabAllocator.SLAB_SIZE, 0);
+        for (int i = 0; i < 50_000; i++) {
+            cache.put("users", "user" + i, user(i));
+        }
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getSize() > 1000 && stats.getSize() < 50_000, "size " + stats.getSize());
+        assertTrue(stats.getWeight() <= SlabAllocator.SLAB_SIZE);
+        assertTrue(cache.dictionarySize() < 100, "dictionary " + cache.dictionarySize());
+
+        cache.put("users", "hot", user(1));
+        User hit = (User) cache.get("users", "hot");
+        assertEquals("Boston", hit.address.city);
+        assertNotSame(hit, cache.get("users", "hot"));
+        cache.put("users", "hot", user(2));
+        assertEquals("Austin", ((User) cache.get("users", "hot")).address.city);
+        cache.invalidateCollection("users");
+        assertEquals(0, cache.size());
+        assertNull(cache.get("users", "hot"));
+    }
+
+    /**
+     * Tests a database whose records of several types are cached off the heap.
+     */
+    @Test
+    public void testDatabaseWithCompactCache() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig()
+                .compactCache(CompactRecordCache.Storage.OFF_HEAP).cacheMemoryBudgetBytes(4L * 1024 * 1024));
+        for (int i = 0; i < 100; i++) {
+            db.insertOrUpdate("users", "user" + i, user(i)).get();
+        }
+        DocumentCollection<JsonNode> orders = db.collection("orders", JsonNode.class);
+        orders.insertOrUpdate("o1", MAPPER.createObjectNode().put("sku", "apple").put("quantity", 3)).get();
+        assertEquals(101, db.cacheStats().getSize());
+
+        assertEquals("Massachusetts", db.read("users", "user9").get().address.state);
+        assertEquals(3, orders.read("o1").get().get("quantity").asInt());
+        assertEquals(2, db.cacheStats().getHitCount());
+        assertEquals(0, db.cacheStats().getMissCount());
+        db.shutdown();
+    }
+}
@@ -0,0 +1,128 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Unit test class for record compression.
+ * Covers dictionary training, compressed databases and their change events, and compressed standalone files.
+ */
+public class CompressionTest {
+    private static final File DIRECTORY = new File("./test_database/compression_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(int i) {
+        return new User("user" + i, String.valueOf(20 + i % 40), "555" + (1000000 + i), i % 3 == 0 ? "Initech" : "Globex",
+                new Address(i % 2 == 0 ? "Austin" : "Boston", i % 2 == 0 ? "Texas" : "Massachusetts", "USA", "7" + i));
+    }
+
+    private static long directorySize(File directory) {
+        long size = 0;
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Tests that a trained dictionary compresses small records much better than deflate alone.
+     */
+    @Test
+    public void testTrainedDictionaryShrinksSmallRecords() throws Exception {
+        RecordCodec codec = new RecordCodec();
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            samples.add(codec.encode(user(i), RecordCodec.Format.JSON));
+        }
+        byte[] dictionary = RecordCompressor.train(samples, 4096);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 4096);
+
+        RecordCompressor compressor = new RecordCompressor();
+        byte[] record = codec.encode(user(500), RecordCodec.Format.JSON);
+        byte[] plain = compressor.compress(RecordCodec.Format.JSON, record);
+        assertTrue(RecordCompressor.isCompressed(plain));
+        assertFalse(RecordCompressor.usesDictionary(plain));
+        assertEquals("user500", codec.decode(plain, User.class).name);
+
+        File directory = new File(DIRECTORY, "trained");
+        directory.mkdirs();
+        Files.write(new File(directory, "users.dictionary").toPath(), dictionary);
+        RecordCodec trained = new RecordCodec(RecordCodec.Format.JSON, Collections.<String, RecordCodec.Format>emptyMap(),
+                new RecordCompressor(directory, RecordCodec.Compression.DEFLATE,
+                        Collections.<String, RecordCodec.Compression>emptyMap(), 1, 100));
+        byte[] compressed = trained.encode("users", user(500));
+        assertTrue(RecordCompressor.usesDictionary(compressed));
+        assertTrue(compressed.length < plain.length, compressed.length + " >= " + plain.length);
+        assertEquals("Austin", trained.decode(compressed, User.class).address.city);
+        assertEquals("Austin", trained.decodeTree(compressed).get("address").get("city").asText());
+        assertEquals(new String(record), new String(trained.selfContained(compressed)));
+
+        byte[] small = trained.encode("users", Collections.singletonMap("a", 1));
+        assertFalse(RecordCompressor.isCompressed(small));
+
+        File file = new File(directory, "user3.json");
+        FileHandler.writeToFile(file, user(3), RecordCodec.Format.PRETTY_JSON, RecordCodec.Compression.DEFLATE);
+        assertTrue(RecordCompressor.isCompressed(Files.readAllBytes(file.toPath())));
+        assertEquals("user3", FileHandler.readFromFile(file, User.class).name);
+    }
+
+    /**
+     * Tests that a compressed collection trains its dictionary, reads back after a restart,
+     * and publishes change events that other databases can read.
+     */
+    @Test
+    public void testCompressedDatabase() throws Exception {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            users.put("user" + i, user(i));
+        }
+        JSONDatabase plain = new JSONDatabase(new File(DIRECTORY, "plain").getPath());
+        plain.insertAll("users", users).get();
+        plain.shutdown();
+
+        InMemoryEventSink sink = new InMemoryEventSink();
+        DatabaseConfig config = new DatabaseConfig().compression(RecordCodec.Compression.DEFLATE)
+                .compressionDictionarySamples(50).eventSink(sink);
+        JSONDatabase db = new JSONDatabase(new File(DIRECTORY, "compressed").getPath(), config);
+        for (int i = 0; i < 60; i++) {
+            db.insertOrUpdate("users", "user" + i, users.get("user" + i)).get();
+        }
+        db.insertAll("users", users).get();
+        db.shutdown();
+
+        File compressed = new File(DIRECTORY, "compressed");
+        assertTrue(new File(compressed, "users.dictionary").exists());
+        long plainSize = directorySize(new File(DIRECTORY, "plain/users"));
+        long compressedSize = directorySize(new File(compressed, "users"));
+        assertTrue(compressedSize * 3 < plainSize, compressedSize + " vs " + plainSize);
+
+        RecordCodec foreign = new RecordCodec();
+        for (ChangeEvent event : sink.getEvents()) {
+            for (byte[] record : event.getRecords().values()) {
+                assertFalse(RecordCompressor.usesDictionary(record));
+                assertNotNull(foreign.decodeTree(record).get("name"));
+            }
+        }
+
+        db = new JSONDatabase(compressed.getPath(), new DatabaseConfig());
+        assertEquals("Massachusetts", db.read("users", "user7").get().address.state);
+        assertEquals("Initech", db.read("users", "user99", "company").get().get("company"));
+        assertEquals(200, db.readAll("users").get().size());
+        AggregationResult result = db.aggregate("users", new Aggregation().groupBy("address.city")).get();
+        assertEquals(200, result.total().count());
+        db.shutdown();
+    }
+}
@@ -0,0 +1,184 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Unit test class for DocumentCollection.
+ * Covers typed and schemaless collections in one database, indexes and aggregations on documents, and transactions.
+ */
+public class DocumentCollectionTest {
+    private static final File DIRECTORY = new File("./test_database/document_collection_test");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    /**
+     * A bean with private fields, read through its getters.
+     */
+    public static class Product {
+        private String sku;
+        private Shipping shipping;
+
+        public Product() {}
+
+        Product(String sku, String region) {
+            this.sku = sku;
+            this.shipping = new Shipping();
+            this.shipping.region = region;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public Shipping getShipping() {
+            return shipping;
+        }
+    }
+
+    public static class Shipping {
+        private String region;
+
+        public String getRegion() {
+            return region;
+        }
+    }
+
+    private static ObjectNode order(String sku, int quantity, String region) {
+        ObjectNode order = MAPPER.createObjectNode().put("sku", sku).put("quantity", quantity);
+        order.putObject("shipping").put("region", region);
+        return order;
+    }
+
+    /**
+     * Tests that users and schemaless orders are stored side by side, with per-type handles and formats.
+     */
+    @Test
+    public void testTypedAndSchemalessCollections() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(),
+                new DatabaseConfig().codec("orders", RecordCodec.Format.SMILE));
+        DocumentCollection<User> users = db.collection("users", User.class);
+        DocumentCollection<JsonNode> orders = db.collection("orders", JsonNode.class);
+        assertSame(users, db.collection("users", User.class));
+        assertEquals(JsonNode.class, orders.getType());
+
+        users.insertOrUpdate("Ann", new User("Ann", "30", "5550000000", "Initech",
+                new Address("Austin", "Texas", "USA", "73301"))).get();
+        orders.insertOrUpdate("o1", order("apple", 3, "north")).get();
+        Map<String, JsonNode> batch = new HashMap<>();
+        batch.put("o2", order("pear", 5, "south"));
+        batch.put("o3", order("apple", 7, "south"));
+        orders.insertAll(batch).get();
+
+        assertEquals("Initech", users.read("Ann").get().company);
+        assertEquals("Initech", db.read("users", "Ann").get().company);
+        assertEquals(3, orders.read("o1").get().get("quantity").asInt());
+        assertEquals("south", orders.read("o3", "shipping.region").get().get("shipping.region"));
+        assertEquals(3, orders.readAll().get().size());
+        assertEquals(2, orders.readMany(Arrays.asList("o1", "o2", "missing")).get().size());
+        db.shutdown();
+
+        db = new JSONDatabase(DIRECTORY.getPath());
+        orders = db.collection("orders", JsonNode.class);
+        assertEquals("pear", orders.read("o2").get().get("sku").asText());
+        // A document cached by one handle is decoded again for a handle of another type.
+        DocumentCollection<JsonNode> userDocuments = db.collection("users", JsonNode.class);
+        assertEquals("Austin", userDocuments.read("Ann").get().get("address").get("city").asText());
+        assertEquals("Austin", db.collection("users", User.class).read("Ann").get().address.city);
+        orders.delete("o1").get();
+        assertNull(orders.read("o1").get());
+        db.shutdown();
+    }
+
+    /**
+     * Tests indexes, aggregations and transactions on a schemaless collection.
+     */
+    @Test
+    public void testIndexesAggregationsAndTransactions() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        DocumentCollection<JsonNode> orders = db.collection("orders", JsonNode.class);
+        orders.insertOrUpdate("o1", order("apple", 3, "north")).get();
+        orders.insertOrUpdate("o2", order("pear", 5, "south")).get();
+        orders.createIndex("shipping.region").get();
+        orders.insertOrUpdate("o3", order("apple", 7, "south")).get();
+
+        List<JsonNode> south = orders.findBy("shipping.region", "south").get();
+        assertEquals(2, south.size());
+        AggregationResult result = orders.aggregate(new Aggregation()
+                .where("sku", "apple").groupBy("shipping.region").stats("quantity")).get();
+        assertEquals(2, result.total().count());
+        assertEquals(10, result.total().sum("quantity"), 1e-9);
+        assertEquals(7, result.group("south").sum("quantity"), 1e-9);
+
+        try (Transaction transaction = db.begin()) {
+            transaction.insertOrUpdate(orders, "o4", order("plum", 2, "north"));
+            assertEquals("plum", transaction.read(orders, "o4").get().get("sku").asText());
+            assertEquals(5, transaction.read(orders, "o2").get().get("quantity").asInt());
+            transaction.commit().get();
+        }
+        assertEquals(2, orders.findBy("shipping.region", "north").get().size());
+        assertEquals(2, orders.read("o4").get().get("quantity").asInt());
+        db.shutdown();
+    }
+
+    /**
+     * Tests indexes and views on records whose fields are private behind getters, and that a path the record
+     * type lacks is rejected when the index is created.
+     */
+    @Test
+    public void testBeanProperties() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        DocumentCollection<Product> products = db.collection("products", Product.class);
+        products.createIndex("shipping.region").get();
+        db.createView("products", "byRegion", new Aggregation().groupBy("shipping.region")).get();
+        products.insertOrUpdate("p1", new Product("apple", "north")).get();
+        products.insertOrUpdate("p2", new Product("pear", "south")).get();
+        products.insertOrUpdate("p3", new Product("plum", "north")).get();
+
+        assertEquals(2, products.findBy("shipping.region", "north").get().size());
+        assertEquals(2, db.view("byRegion").count("north"));
+        assertEquals("apple", FieldPath.of("sku").get(products.read("p1").get()));
+
+        ExecutionException unknown = assertThrows(ExecutionException.class,
+                () -> products.createIndex("shipping.zone").get());
+        assertInstanceOf(IllegalArgumentException.class, unknown.getCause());
+        assertThrows(ExecutionException.class, () -> products.findBy("shipping.zone", "north").get());
+        db.shutdown();
+    }
+
+    /**
+     * Tests that paths into nested maps are walked field by field, while projected maps are looked up by full path.
+     */
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testNestedMapDocuments() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        DocumentCollection<Map> carts = db.collection("carts", Map.class);
+        carts.createIndex("shipping.region").get();
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("sku", "apple");
+        cart.put("shipping", new HashMap<>(Collections.singletonMap("region", "north")));
+        carts.insertOrUpdate("c1", cart).get();
+
+        assertEquals("north", FieldPath.of("shipping.region").get(cart));
+        assertEquals(1, carts.findBy("shipping.region", "north").get().size());
+        Map<String, Object> projected = Projection.of("shipping.region").extract((Object) cart);
+        assertEquals("north", FieldPath.of("shipping.region").get(projected));
+        db.shutdown();
+    }
+}
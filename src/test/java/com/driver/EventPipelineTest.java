@@ -0,0 +1,142 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test class for EventPipeline.
+ * Covers ordered batched delivery, per-type enablement, the drop policy and a database wired to an in-memory sink.
+ */
+public class EventPipelineTest {
+    private static final File DIRECTORY = new File("./test_database/event_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static void awaitPublished(EventPipeline pipeline, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.stats().getPublishedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Tests that events from many threads are all delivered, in per-thread order, and that disabled types are skipped.
+     */
+    @Test
+    public void testDeliversInOrderAndSkipsDisabledTypes() throws InterruptedException {
+        InMemoryEventSink sink = new InMemoryEventSink();
+        EventPipeline pipeline = new EventPipeline(sink, 1024, 64, EventPipeline.OverflowPolicy.BLOCK,
+                EnumSet.of(ChangeEvent.Type.READ));
+        Thread[] emitters = new Thread[4];
+        for (int t = 0; t < emitters.length; t++) {
+            String collection = "c" + t;
+            emitters[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    pipeline.emit(ChangeEvent.Type.INSERT_UPDATE, collection, String.valueOf(i), "update");
+                    pipeline.emit(ChangeEvent.Type.READ, collection, String.valueOf(i), "read");
+                }
+            });
+            emitters[t].start();
+        }
+        for (Thread emitter : emitters) {
+            emitter.join();
+        }
+        awaitPublished(pipeline, 20_000);
+        pipeline.close(1_000);
+
+        List<ChangeEvent> events = sink.getEvents();
+        assertEquals(20_000, events.size());
+        int[] next = new int[emitters.length];
+        for (ChangeEvent event : events) {
+            assertEquals(ChangeEvent.Type.INSERT_UPDATE, event.getType());
+            int emitter = event.getCollection().charAt(1) - '0';
+            assertEquals(String.valueOf(next[emitter]++), event.getResource());
+        }
+        EventStats stats = pipeline.stats();
+        assertEquals(0, stats.getDroppedCount());
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    /**
+     * Tests that a full buffer drops events instead of blocking the emitter when the sink is stalled.
+     */
+    @Test
+    public void testDropsWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ChangeEventSink stalled = events -> release.await();
+        EventPipeline pipeline = new EventPipeline(stalled, 16, 1, EventPipeline.OverflowPolicy.DROP,
+                Collections.<ChangeEvent.Type>emptySet());
+        long start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            pipeline.emit(ChangeEvent.Type.DELETE, "users", "u" + i, "delete");
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000, "Emitting must not wait for the sink");
+        assertTrue(pipeline.stats().getDroppedCount() >= 1_000 - 17);
+        release.countDown();
+        pipeline.close(1_000);
+    }
+
+    /**
+     * Tests that a full buffer parks a blocking emitter until the stalled sink resumes, without dropping anything.
+     */
+    @Test
+    public void testBlocksUntilSpaceFrees() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryEventSink delivered = new InMemoryEventSink();
+        ChangeEventSink stalled = events -> {
+            release.await();
+            delivered.publish(events);
+        };
+        EventPipeline pipeline = new EventPipeline(stalled, 4, 1, EventPipeline.OverflowPolicy.BLOCK,
+                Collections.<ChangeEvent.Type>emptySet());
+        Thread emitter = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                pipeline.emit(ChangeEvent.Type.DELETE, "users", "u" + i, "delete");
+            }
+        });
+        emitter.start();
+        emitter.join(200);
+        assertTrue(emitter.isAlive(), "Emitter must wait while the buffer is full");
+        assertEquals(Thread.State.TIMED_WAITING, emitter.getState());
+
+        release.countDown();
+        emitter.join(5_000);
+        assertFalse(emitter.isAlive());
+        awaitPublished(pipeline, 100);
+        pipeline.close(1_000);
+        assertEquals(100, delivered.getEvents().size());
+        assertEquals(0, pipeline.stats().getDroppedCount());
+    }
+
+    /**
+     * Tests that a database created without Kafka delivers its change events to the configured sink.
+     */
+    @Test
+    public void testDatabaseEmitsToSink() throws Exception {
+        InMemoryEventSink sink = new InMemoryEventSink();
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig()
+                .eventSink(sink)
+                .disableEvents(ChangeEvent.Type.READ));
+        db.insertOrUpdate("users", "Eve", new User("Eve", "33", "1112223333", "Stripe",
+                new Address("Dublin", "Leinster", "Ireland", "D02"))).get();
+        db.read("users", "Eve").get();
+        db.delete("users", "Eve").get();
+        db.shutdown();
+
+        List<ChangeEvent> events = sink.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(ChangeEvent.Type.INSERT_UPDATE, events.get(0).getType());
+        assertEquals(ChangeEvent.Type.DELETE, events.get(1).getType());
+        assertEquals("Eve", events.get(1).getResource());
+    }
+}
@@ -4,9 +4,17 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Unit test class for JSONDatabase.
@@ -122,13 +130,14 @@ public class JSONDatabaseTest {
     @Order(7)
     public void testTransactionCommit() throws ExecutionException, InterruptedException, IOException {
         Logger.log("TEST", "Starting transaction test - Commit scenario...");
-        db.startTransaction();
-
         User user = new User("TransactionUser", "30", "1234567890", "Netflix",
                 new Address("Los Angeles", "California", "USA", "90001"));
 
-        db.insertOrUpdate("users", "TransactionUser", user).get();
-        db.commitTransaction();
+        try (Transaction transaction = db.begin()) {
+            transaction.insertOrUpdate("users", "TransactionUser", user);
+            assertEquals("Netflix", transaction.read("users", "TransactionUser").get().company);
+            transaction.commit().get();
+        }
 
         User retrievedUser = db.read("users", "TransactionUser").get();
         assertNotNull(retrievedUser);
@@ -143,17 +152,17 @@ public class JSONDatabaseTest {
      */
     @Test
     @Order(8)
-    public void testTransactionRollback() throws ExecutionException, InterruptedException {
+    public void testTransactionRollback() throws ExecutionException, InterruptedException, IOException {
         Logger.log("TEST", "Starting transaction test - Rollback scenario...");
-        db.startTransaction();
-
         User user = new User("RollbackUser", "27", "9876543210", "Facebook",
                 new Address("San Francisco", "California", "USA", "94105"));
 
-        db.insertOrUpdate("users", "RollbackUser", user).get();
+        try (Transaction transaction = db.begin()) {
+            transaction.insertOrUpdate("users", "RollbackUser", user);
 
-        Logger.log("TEST", "Simulated error occurred! Rolling back...");
-        db.rollbackTransaction();
+            Logger.log("TEST", "Simulated error occurred! Rolling back...");
+            transaction.rollback();
+        }
 
         User retrievedUser = db.read("users", "RollbackUser").get();
         assertNull(retrievedUser);
@@ -189,6 +198,151 @@ public class JSONDatabaseTest {
         Logger.log("TEST", "testCachePerformance passed!");
     }
 
+    /**
+     * Tests secondary index lookups on a top-level and a nested field.
+     */
+    @Test
+    @Order(10)
+    public void testFindByIndexedField() throws ExecutionException, InterruptedException {
+        db.createIndex("users", "company").get();
+        db.createIndex("users", "address.city").get();
+
+        List<User> byCompany = db.findBy("users", "company", "Netflix").get();
+        assertEquals(1, byCompany.size());
+        assertEquals("TransactionUser", byCompany.get(0).name);
+
+        List<User> byCity = db.findBy("users", "address.city", "Los Angeles").get();
+        assertEquals(1, byCity.size());
+        assertTrue(db.findBy("users", "company", "Facebook").get().isEmpty());
+
+        Logger.log("TEST", "testFindByIndexedField passed!");
+    }
+
+    /**
+     * Tests streaming scans (sequential and parallel) and cursor-based paging.
+     */
+    @Test
+    @Order(11)
+    public void testScanAndPaging() throws ExecutionException, InterruptedException, IOException {
+        List<String> expected = new ArrayList<>();
+        try (Stream<User> users = db.scan("users")) {
+            users.forEach(user -> expected.add(user.name));
+        }
+        assertFalse(expected.isEmpty());
+
+        try (Stream<User> users = db.scan("users", true)) {
+            assertEquals(expected.size(), users.collect(Collectors.toList()).size());
+        }
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            ScanPage<User> page = db.scanPage("users", cursor, 1).get();
+            page.getRecords().forEach(user -> paged.add(user.name));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, paged);
+
+        // Later pages continue the first page's snapshot.
+        ScanPage<User> first = db.scanPage("users", null, 1).get();
+        db.insertOrUpdate("users", "zzzPagingUser", new User("zzzPagingUser", "30", "5550000000", "PagingCorp",
+                new Address("Austin", "Texas", "USA", "73301"))).get();
+        List<String> rest = new ArrayList<>();
+        cursor = first.getNextCursor();
+        while (cursor != null) {
+            ScanPage<User> page = db.scanPage("users", cursor, 2).get();
+            page.getRecords().forEach(user -> rest.add(user.name));
+            cursor = page.getNextCursor();
+        }
+        assertEquals(expected.subList(1, expected.size()), rest);
+        db.delete("users", "zzzPagingUser").get();
+
+        Logger.log("TEST", "testScanAndPaging passed!");
+    }
+
+    /**
+     * Tests that the CompletableFuture API composes a write and a read without blocking in between,
+     * and that a continuation of a write can wait on another write without stalling the write-ahead log.
+     */
+    @Test
+    @Order(12)
+    public void testAsyncComposition() throws ExecutionException, InterruptedException, TimeoutException {
+        User user = new User("AsyncUser", "41", "4444444444", "Apple",
+                new Address("Cupertino", "California", "USA", "95014"));
+        User retrieved = db.insertOrUpdateAsync("users", "AsyncUser", user)
+                .thenCompose(ignored -> db.readWithCacheAsync("users", "AsyncUser"))
+                .get();
+        assertNotNull(retrieved);
+        assertEquals("Apple", retrieved.company);
+
+        // Continuations run off the write-ahead log's writer thread, so one may block on a second write.
+        User nested = new User("AsyncNestedUser", "42", "4444444445", "Apple",
+                new Address("Cupertino", "California", "USA", "95014"));
+        db.insertOrUpdateAsync("users", "AsyncUser", user)
+                .thenRun(() -> db.insertOrUpdateAsync("users", "AsyncNestedUser", nested).join())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("42", db.read("users", "AsyncNestedUser").get().age);
+
+        db.deleteAll("users", Arrays.asList("AsyncUser", "AsyncNestedUser")).get();
+        Logger.log("TEST", "testAsyncComposition passed!");
+    }
+
+    /**
+     * Tests batch inserts, multi-gets and batch deletes.
+     */
+    @Test
+    @Order(13)
+    public void testBatchOperations() throws ExecutionException, InterruptedException {
+        Map<String, User> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            batch.put("BatchUser" + i, new User("BatchUser" + i, String.valueOf(20 + i), "55500000" + i, "BatchCorp",
+                    new Address("Austin", "Texas", "USA", "73301")));
+        }
+        db.insertAll("users", batch).get();
+
+        List<String> names = new ArrayList<>(batch.keySet());
+        names.add("MissingUser");
+        Map<String, User> found = db.readMany("users", names).get();
+        assertEquals(batch.keySet(), found.keySet());
+        assertEquals("25", found.get("BatchUser5").age);
+
+        db.deleteAll("users", names).get();
+        assertTrue(db.readMany("users", names).get().isEmpty());
+        assertNull(db.read("users", "BatchUser0").get());
+
+        Logger.log("TEST", "testBatchOperations passed!");
+    }
+
+    /**
+     * Tests that a paged scan's snapshot is released once writes between its pages pile up too many
+     * before-images, and that its cursor then resumes from a new snapshot.
+     */
+    @Test
+    @Order(14)
+    public void testPagedSnapshotBeforeImageBudget() throws ExecutionException, InterruptedException {
+        StringBuilder padding = new StringBuilder();
+        while (padding.length() < 1024 * 1024) {
+            padding.append("0123456789abcdef");
+        }
+        Map<String, User> large = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            large.put("PagedUser" + (10 + i), new User("PagedUser" + (10 + i), "30", "5550000000", padding.toString(), null));
+        }
+        db.insertAll("paged_users", large).get();
+
+        ScanPage<User> first = db.scanPage("paged_users", null, 1).get();
+        for (String name : large.keySet()) {
+            db.insertOrUpdate("paged_users", name, new User(name, "31", "5550000000", "Small", null)).get();
+        }
+        // The next write finds the snapshot over budget and closes it, so the following page sees the updates.
+        db.insertOrUpdate("paged_users", "PagedUser10", new User("PagedUser10", "31", "5550000000", "Small", null)).get();
+        ScanPage<User> second = db.scanPage("paged_users", first.getNextCursor(), 1).get();
+        assertEquals("Small", second.getRecords().get(0).company);
+
+        db.delete("paged_users", "").get();
+        Logger.log("TEST", "testPagedSnapshotBeforeImageBudget passed!");
+    }
+
     /**
      * Cleans up the test database and Kafka after all tests have completed.
      */
@@ -0,0 +1,95 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Unit test class for LockManager.
+ * Covers stripe selection and the interplay of record stripes with the collection intent lock.
+ */
+public class LockManagerTest {
+
+    /**
+     * Tests that a resource always maps to the same stripe and that stripes are spread and per collection.
+     */
+    @Test
+    public void testStripeSelection() {
+        LockManager locks = new LockManager(50);
+        assertEquals(64, locks.stripeCount());
+        assertSame(locks.stripe("users", "Alice"), locks.stripe("users", "Alice"));
+        assertNotSame(locks.stripe("users", "Alice"), locks.stripe("admins", "Alice"));
+
+        boolean[] used = new boolean[locks.stripeCount()];
+        int distinct = 0;
+        for (int i = 0; i < 1000; i++) {
+            int index = locks.stripeIndex("user" + i);
+            if (!used[index]) {
+                used[index] = true;
+                distinct++;
+            }
+        }
+        assertEquals(locks.stripeCount(), distinct);
+    }
+
+    /**
+     * Tests that writers on different stripes run concurrently while an exclusive intent lock waits for both.
+     */
+    @Test
+    public void testIntentLockExcludesRecordWriters() throws Exception {
+        LockManager locks = new LockManager(64);
+        String first = "user0";
+        String second = "user1";
+        for (int i = 1; locks.stripeIndex(second) == locks.stripeIndex(first); i++) {
+            second = "user" + i;
+        }
+
+        ReentrantReadWriteLock intent = locks.intent("users");
+        intent.readLock().lock();
+        StampedLock firstStripe = locks.stripe("users", first);
+        long firstStamp = firstStripe.writeLock();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            String other = second;
+            Future<Boolean> otherWriter = executor.submit(() -> {
+                intent.readLock().lock();
+                try {
+                    StampedLock stripe = locks.stripe("users", other);
+                    long stamp = stripe.tryWriteLock(1, TimeUnit.SECONDS);
+                    stripe.unlockWrite(stamp);
+                    return stamp != 0;
+                } finally {
+                    intent.readLock().unlock();
+                }
+            });
+            assertTrue(otherWriter.get(5, TimeUnit.SECONDS), "A different stripe should not wait for the first writer");
+            assertEquals(0, firstStripe.tryOptimisticRead(), "Optimistic reads fail while the stripe is write-locked");
+
+            CountDownLatch dropped = new CountDownLatch(1);
+            Future<?> drop = executor.submit(() -> {
+                intent.writeLock().lock();
+                dropped.countDown();
+                intent.writeLock().unlock();
+            });
+            assertFalse(dropped.await(200, TimeUnit.MILLISECONDS), "The exclusive intent lock must wait for record writers");
+
+            firstStripe.unlockWrite(firstStamp);
+            intent.readLock().unlock();
+            drop.get(5, TimeUnit.SECONDS);
+            assertEquals(0, dropped.getCount());
+        } catch (TimeoutException e) {
+            fail("Lock acquisition timed out");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
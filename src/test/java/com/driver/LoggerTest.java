@@ -0,0 +1,121 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test class for Logger and its appenders.
+ * Covers level and category gating, parameterized messages, asynchronous delivery and file rotation.
+ */
+public class LoggerTest {
+    private static final File DIRECTORY = new File("./test_database/logger_test");
+
+    private final List<LogEvent> events = Collections.synchronizedList(new ArrayList<>());
+    private LogAppender previous;
+
+    @BeforeEach
+    public void setUp() {
+        previous = Logger.setAppender(events::add);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Logger.setAppender(previous);
+        Logger.setLevel(Logger.Level.INFO);
+        Logger.setCategoryEnabled("TRANSACTION", true);
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    /**
+     * Tests that messages below the threshold or in a disabled category are never captured, and that
+     * placeholders are filled in order.
+     */
+    @Test
+    public void testLevelsCategoriesAndParameters() {
+        Logger.log("CACHE", "Cache hit for user: {}", "Ann");
+        assertFalse(Logger.isEnabled("CACHE"));
+        Logger.log("TRANSACTION", "Transaction committed {} changes in {} ms", 3, 12L);
+        Logger.log("ERROR", "Literal {} without arguments");
+        assertEquals(2, events.size());
+        assertEquals("Transaction committed 3 changes in 12 ms", events.get(0).getMessage());
+        assertEquals(Logger.Level.INFO, events.get(0).getLevel());
+        assertEquals("Literal {} without arguments", events.get(1).getMessage());
+        assertEquals(Logger.Level.ERROR, events.get(1).getLevel());
+
+        events.clear();
+        Logger.setLevel(Logger.Level.DEBUG);
+        Logger.setCategoryEnabled("TRANSACTION", false);
+        Logger.log("CACHE", "Cache hit for user: {}", "Ann");
+        Logger.log("TRANSACTION", "Transaction rolled back.");
+        Logger.log("THREAD", "{} and {}", "one");
+        assertEquals(2, events.size());
+        assertEquals("CACHE", events.get(0).getCategory());
+        assertEquals("one and {}", events.get(1).getMessage());
+
+        events.clear();
+        Logger.setLevel(Logger.Level.OFF);
+        Logger.log("ERROR", "Suppressed");
+        assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Tests that the async appender delivers every message from many threads in per-thread order and flushes on demand.
+     */
+    @Test
+    public void testAsyncAppenderDeliversInOrder() throws InterruptedException {
+        List<LogEvent> delivered = new ArrayList<>();
+        AsyncAppender async = new AsyncAppender(delivered::add, 1 << 16);
+        Logger.setAppender(async);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    Logger.log("TRANSACTION", "{}", i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Logger.flush();
+        assertEquals(0, async.droppedCount());
+        assertEquals(20_000, delivered.size());
+        Map<Long, Integer> last = new HashMap<>();
+        for (LogEvent event : delivered) {
+            int value = Integer.parseInt(event.getMessage());
+            Integer previousValue = last.put(event.getThreadId(), value);
+            assertEquals(previousValue == null ? 0 : previousValue + 1, value);
+        }
+        async.close();
+    }
+
+    /**
+     * Tests that the file appender rotates at the size limit and keeps only the configured number of backups.
+     */
+    @Test
+    public void testRollingFileAppender() throws Exception {
+        File file = new File(DIRECTORY, "db.log");
+        RollingFileAppender rolling = new RollingFileAppender(file, 200, 2);
+        Logger.setAppender(rolling);
+        for (int i = 0; i < 20; i++) {
+            Logger.log("TRANSACTION", "Transaction {} committed", i);
+        }
+        rolling.close();
+        assertTrue(file.length() <= 200);
+        assertTrue(new File(DIRECTORY, "db.log.1").exists());
+        assertTrue(new File(DIRECTORY, "db.log.2").exists());
+        assertFalse(new File(DIRECTORY, "db.log.3").exists());
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertTrue(lines.get(lines.size() - 1).endsWith("INFO [TRANSACTION] [Thread-" + Thread.currentThread().getId()
+                + "] Transaction 19 committed"));
+    }
+}
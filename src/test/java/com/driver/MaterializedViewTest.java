@@ -0,0 +1,91 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+
+/**
+ * Unit test class for MaterializedView.
+ * Covers incremental maintenance from writes, deletes and commits, and reloading a checkpoint on restart.
+ */
+public class MaterializedViewTest {
+    private static final File DIRECTORY = new File("./test_database/view_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(String name, String age, String company, String city) {
+        return new User(name, age, "5550000000", company, new Address(city, "State", "USA", "00000"));
+    }
+
+    private static Aggregation byCity() {
+        return new Aggregation().groupBy("address.city").stats("age");
+    }
+
+    /**
+     * Tests that inserts, updates, deletes, commits and drops are reflected without rebuilding the view.
+     */
+    @Test
+    public void testIncrementalMaintenance() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        db.insertOrUpdate("users", "Ann", user("Ann", "30", "Initech", "Austin")).get();
+        MaterializedView view = db.createView("users", "ageByCity", byCity()).get();
+        assertEquals(1, view.count("Austin"));
+
+        db.insertOrUpdate("users", "Bob", user("Bob", "40", "Globex", "Austin")).get();
+        db.insertOrUpdate("users", "Cid", user("Cid", "25", "Globex", "Boston")).get();
+        assertEquals(35, view.avg("Austin", "age"), 1e-9);
+        assertEquals(25, view.min("age"));
+
+        db.insertOrUpdate("users", "Ann", user("Ann", "31", "Initech", "Boston")).get();
+        assertEquals(1, view.count("Austin"));
+        assertEquals(2, view.count("Boston"));
+        assertEquals(28, view.avg("Boston", "age"), 1e-9);
+
+        db.delete("users", "Cid").get();
+        assertEquals(31, view.min("Boston", "age"));
+        assertEquals(2, view.count());
+
+        try (Transaction transaction = db.begin()) {
+            transaction.insertOrUpdate("users", "Dee", user("Dee", "50", "Hooli", "Chicago"));
+            transaction.delete("users", "Bob");
+            transaction.commit().get();
+        }
+        assertEquals(0, view.count("Austin"));
+        assertEquals(50, view.max("age"));
+        assertEquals(2, view.result().groups().size());
+
+        db.delete("users", "").get();
+        assertEquals(0, view.count());
+        assertTrue(Double.isNaN(view.avg("age")));
+        db.shutdown();
+    }
+
+    /**
+     * Tests that a view declared in the configuration is restored from its checkpoint after a clean shutdown.
+     */
+    @Test
+    public void testCheckpointRestore() throws Exception {
+        DatabaseConfig config = new DatabaseConfig().view("users", "ageByCity", byCity());
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), config);
+        db.insertOrUpdate("users", "Ann", user("Ann", "30", "Initech", "Austin")).get();
+        db.insertOrUpdate("users", "Bob", user("Bob", "n/a", "Globex", null)).get();
+        db.shutdown();
+        assertTrue(new File(DIRECTORY, "users.views/ageByCity.view").exists());
+
+        db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig().view("users", "ageByCity", byCity()));
+        assertFalse(new File(DIRECTORY, "users.views/ageByCity.view").exists());
+        MaterializedView view = db.view("ageByCity");
+        assertEquals(2, view.count());
+        assertEquals(1, view.count(null));
+        assertEquals(30, view.avg("Austin", "age"), 1e-9);
+        assertEquals(1, view.result().total().count("age"));
+
+        db.delete("users", "Ann").get();
+        assertEquals(0, view.count("Austin"));
+        db.shutdown();
+    }
+}
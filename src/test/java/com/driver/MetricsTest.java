@@ -0,0 +1,83 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Unit test class for the database metrics.
+ * Covers histogram percentiles, per-operation and per-collection recording, and publication through JMX.
+ */
+public class MetricsTest {
+    private static final File DIRECTORY = new File("./test_database/metrics_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(String name) {
+        return new User(name, "30", "5550000000", "Initech", new Address("Austin", "Texas", "USA", "73301"));
+    }
+
+    /**
+     * Tests that percentiles are reported within the bucket precision and never above the maximum.
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(5_000_500, snapshot.mean(), 1e-6);
+        assertEquals(5_000_000, snapshot.percentile(50), 5_000_000 * 0.04);
+        assertEquals(9_900_000, snapshot.percentile(99), 9_900_000 * 0.04);
+        assertEquals(10_000_000, snapshot.max());
+        assertTrue(snapshot.percentile(100) <= snapshot.max());
+        assertEquals(0, new LatencyHistogram().snapshot().percentile(99));
+    }
+
+    /**
+     * Tests that operations, lock timings and I/O are recorded and published as MBean attributes.
+     */
+    @Test
+    public void testDatabaseMetricsAndJmx() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), new DatabaseConfig().walEnabled(false));
+        db.insertOrUpdate("users", "Ann", user("Ann")).get();
+        db.read("users", "Ann").get();
+        db.read("users", "Nobody").get();
+        db.readAll("users").get();
+        try (Transaction transaction = db.begin()) {
+            transaction.insertOrUpdate("users", "Bob", user("Bob"));
+            transaction.commit().get();
+        }
+        db.delete("users", "Bob").get();
+
+        Map<String, Object> metrics = db.metrics().snapshot();
+        assertEquals(1, ((LatencyHistogram.Snapshot) metrics.get("read.hit")).count());
+        assertEquals(1, ((LatencyHistogram.Snapshot) metrics.get("read.miss")).count());
+        for (String operation : new String[]{"insertOrUpdate", "readAll", "commit", "delete"}) {
+            assertEquals(1, ((LatencyHistogram.Snapshot) metrics.get(operation)).count(), operation);
+        }
+        assertEquals(4, ((LatencyHistogram.Snapshot) metrics.get("lock.hold.users")).count());
+        assertTrue((Long) metrics.get("storage.bytesWritten") > 0);
+        assertTrue((Long) metrics.get("storage.bytesRead") > 0);
+        assertEquals(0L, metrics.get("executor.queued"));
+        assertEquals(0.5, ((Number) metrics.get("cache.hitRatio")).doubleValue(), 1e-9);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.driver:type=JSONDatabase,name=" + ObjectName.quote(DIRECTORY.getAbsolutePath()));
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "insertOrUpdate.count"));
+        assertTrue((Double) server.getAttribute(name, "insertOrUpdate.p99Micros") > 0);
+        db.shutdown();
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,81 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Unit test class for Projection.
+ * Covers streaming extraction in every codec, projected reads of cached and stored users, and projected scans.
+ */
+public class ProjectionTest {
+    private static final File DIRECTORY = new File("./test_database/projection_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(String name, String age, String city) {
+        return new User(name, age, "5550000000", "Initech", new Address(city, "Texas", "USA", "73301"));
+    }
+
+    /**
+     * Tests that nested, missing and overlapping paths are extracted the same way from every format.
+     */
+    @Test
+    public void testExtractFromEveryFormat() throws Exception {
+        RecordCodec codec = new RecordCodec();
+        Projection projection = Projection.of("age", "address.city", "address", "address.planet", "nickname");
+        for (RecordCodec.Format format : RecordCodec.Format.values()) {
+            Map<String, Object> fields = codec.project(codec.encode(user("Ann", "30", "Austin"), format), projection);
+            assertEquals(5, fields.size(), format.name());
+            assertEquals("30", fields.get("age"), format.name());
+            assertEquals("Austin", fields.get("address.city"), format.name());
+            assertEquals("Texas", ((JsonNode) fields.get("address")).get("state").asText(), format.name());
+            assertNull(fields.get("address.planet"), format.name());
+            assertNull(fields.get("nickname"), format.name());
+            assertEquals("[age, address.city, address, address.planet, nickname]", fields.keySet().toString());
+        }
+        assertTrue(codec.project(codec.encode(user("Ann", "30", "Austin"), RecordCodec.Format.JSON), Projection.of()).isEmpty());
+    }
+
+    /**
+     * Tests projected reads from the cache and from storage, and a projected scan.
+     */
+    @Test
+    public void testProjectedReadAndScan() throws Exception {
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath());
+        db.insertOrUpdate("users", "Ann", user("Ann", "30", "Austin")).get();
+        db.insertOrUpdate("users", "Bob", user("Bob", "41", "Boston")).get();
+
+        assertEquals("Austin", db.read("users", "Ann", "address.city").get().get("address.city"));
+        assertNull(db.read("users", "Nobody", "company").get());
+
+        Projection projection = Projection.of("name", "age");
+        try (Stream<Map<String, Object>> records = db.scan("users", projection)) {
+            List<String> rows = records.map(r -> r.get("name") + ":" + r.get("age")).collect(Collectors.toList());
+            assertEquals(2, rows.size());
+            assertTrue(rows.contains("Ann:30"));
+            assertTrue(rows.contains("Bob:41"));
+        }
+        db.shutdown();
+
+        db = new JSONDatabase(DIRECTORY.getPath());
+        Map<String, Object> ann = db.read("users", "Ann", "company", "address.city").get();
+        assertEquals("Initech", ann.get("company"));
+        assertEquals("Austin", ann.get("address.city"));
+        assertEquals(0, db.cacheStats().getSize());
+        AggregationResult result = db.aggregate("users", new Aggregation()
+                .whereNumber("age", a -> a > 35).groupBy("address.city").stats("age")).get();
+        assertEquals(1, result.total().count());
+        assertEquals(41, result.group("Boston").avg("age"), 1e-9);
+        db.shutdown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Unit test class for RecordCodec.
+ * Covers round trips in every format, format detection and conversion of stored records.
+ */
+public class RecordCodecTest {
+    private static User sampleUser() {
+        return new User("Alice", "30", "1234567890", "Amazon",
+                new Address("Seattle", "Washington", "USA", "98101"));
+    }
+
+    /**
+     * Tests that a record written in any format is decoded without being told the format.
+     */
+    @Test
+    public void testRoundTripAndDetection() throws IOException {
+        RecordCodec codec = new RecordCodec(RecordCodec.Format.PRETTY_JSON,
+                Collections.singletonMap("hot", RecordCodec.Format.SMILE));
+        assertEquals(RecordCodec.Format.SMILE, codec.formatOf("hot"));
+        assertEquals(RecordCodec.Format.PRETTY_JSON, codec.formatOf("users"));
+
+        byte[] prettyJson = codec.encode(sampleUser(), RecordCodec.Format.PRETTY_JSON);
+        for (RecordCodec.Format format : RecordCodec.Format.values()) {
+            byte[] data = codec.encode(sampleUser(), format);
+            RecordCodec.Format detected = format == RecordCodec.Format.PRETTY_JSON ? RecordCodec.Format.JSON : format;
+            assertEquals(detected, RecordCodec.detect(data));
+
+            User user = codec.decode(data, User.class);
+            assertEquals("Alice", user.name);
+            assertEquals("Seattle", user.address.city);
+            assertEquals(new String(prettyJson), codec.toJsonString(codec.convert(data, RecordCodec.Format.CBOR)));
+        }
+        assertTrue(codec.encode(sampleUser(), RecordCodec.Format.SMILE).length < prettyJson.length);
+        assertTrue(codec.encode(sampleUser(), RecordCodec.Format.CBOR).length < prettyJson.length);
+    }
+}
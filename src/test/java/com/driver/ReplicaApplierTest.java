@@ -0,0 +1,170 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test class for ReplicaApplier.
+ * Replicates a primary into a follower through MockProducer and MockConsumer, including redelivered messages
+ * and a collection drop that arrives after newer changes to the collection.
+ */
+public class ReplicaApplierTest {
+    private static final File PRIMARY = new File("./test_database/replica_primary");
+    private static final File FOLLOWER = new File("./test_database/replica_follower");
+    private static final String TOPIC = "json_database_events";
+    private static final List<TopicPartition> PARTITIONS = Arrays.asList(
+            new TopicPartition(TOPIC, 0), new TopicPartition(TOPIC, 1));
+
+    @BeforeEach
+    @AfterEach
+    public void clean() {
+        TestFiles.deleteRecursively(PRIMARY);
+        TestFiles.deleteRecursively(FOLLOWER);
+    }
+
+    private static User user(String name, String company) {
+        return new User(name, "30", "5550000000", company, new Address("Boston", "Massachusetts", "USA", "02108"));
+    }
+
+    private static void waitFor(ReplicaApplier applier, long changes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (applier.appliedCount() + applier.skippedCount() < changes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Tests that inserts, updates, batch writes and deletes reach the follower, and that replayed messages are skipped.
+     */
+    @Test
+    public void testFollowerConvergesAndIgnoresDuplicates() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        JSONDatabase primary = new JSONDatabase(PRIMARY.getPath(), new DatabaseConfig()
+                .eventSink(new KafkaProducerService(producer, TOPIC)));
+        primary.insertOrUpdate("users", "Alice", user("Alice", "Amazon")).get();
+        primary.insertOrUpdate("users", "Alice", user("Alice", "Google")).get();
+        Map<String, User> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            batch.put("User" + i, user("User" + i, "BatchCorp"));
+        }
+        primary.insertAll("users", batch).get();
+        primary.deleteAll("users", Arrays.asList("User0", "User1")).get();
+        primary.shutdown();
+
+        List<ProducerRecord<String, String>> history = producer.history();
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(PARTITIONS);
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        for (TopicPartition partition : PARTITIONS) {
+            beginning.put(partition, 0L);
+        }
+        consumer.updateBeginningOffsets(beginning);
+        long[] offsets = new long[PARTITIONS.size()];
+        // Deliver everything twice, as after a consumer restart without committed offsets.
+        for (int round = 0; round < 2; round++) {
+            for (ProducerRecord<String, String> record : history) {
+                int partition = Math.abs(record.key().hashCode() % PARTITIONS.size());
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, partition, offsets[partition]++, record.key(), record.value()));
+            }
+        }
+        Map<TopicPartition, Long> end = new HashMap<>();
+        for (TopicPartition partition : PARTITIONS) {
+            end.put(partition, offsets[partition.partition()]);
+        }
+        consumer.updateEndOffsets(end);
+
+        JSONDatabase follower = new JSONDatabase(FOLLOWER.getPath());
+        ReplicaApplier applier = new ReplicaApplier(consumer, follower, 2, Duration.ofMillis(20));
+        applier.start();
+        // Every change message is either applied or skipped.
+        ChangeEventCodec eventCodec = new ChangeEventCodec();
+        long changes = 0;
+        for (ProducerRecord<String, String> record : history) {
+            if (eventCodec.fromMessage(record.value()).isChange()) {
+                changes += 2;
+            }
+        }
+        waitFor(applier, changes);
+        assertEquals(changes, applier.appliedCount() + applier.skippedCount());
+        Thread.sleep(100);
+        assertEquals(0, applier.replicationLag());
+        applier.close();
+
+        assertEquals("Google", follower.read("users", "Alice").get().company);
+        assertNull(follower.read("users", "User0").get());
+        assertNull(follower.read("users", "User1").get());
+        for (int i = 2; i < 10; i++) {
+            assertEquals("BatchCorp", follower.read("users", "User" + i).get().company);
+        }
+        assertTrue(applier.skippedCount() >= changes / 2, "Redelivered changes should be skipped");
+        follower.shutdown();
+    }
+
+    /**
+     * Tests that a drop delivered after a newer put to the collection deletes only the records older than the drop,
+     * and that closing the applier twice closes the consumer once.
+     */
+    @Test
+    public void testLateDropKeepsNewerRecords() throws Exception {
+        ChangeEventCodec eventCodec = new ChangeEventCodec();
+        RecordCodec recordCodec = new RecordCodec();
+        ChangeEvent old = new ChangeEvent(ChangeEvent.Type.INSERT_UPDATE, "users", "Old", "put", 1,
+                Collections.singletonMap("Old", recordCodec.encode(user("Old", "Before"), RecordCodec.Format.JSON)));
+        ChangeEvent drop = new ChangeEvent(ChangeEvent.Type.DELETE, "users", "", "drop", 2,
+                Collections.<String, byte[]>emptyMap());
+        ChangeEvent newer = new ChangeEvent(ChangeEvent.Type.INSERT_UPDATE, "users", "New", "put", 3,
+                Collections.singletonMap("New", recordCodec.encode(user("New", "After"), RecordCodec.Format.JSON)));
+
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(PARTITIONS);
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        for (TopicPartition partition : PARTITIONS) {
+            beginning.put(partition, 0L);
+        }
+        consumer.updateBeginningOffsets(beginning);
+        Map<TopicPartition, Long> end = new HashMap<>();
+        end.put(PARTITIONS.get(0), 2L);
+        end.put(PARTITIONS.get(1), 1L);
+        consumer.updateEndOffsets(end);
+        // Record changes and the drop are keyed differently, so they land on different partitions.
+        long offset = 0;
+        for (ChangeEvent event : Arrays.asList(old, newer)) {
+            Map.Entry<String, String> message = eventCodec.toMessages(event).get(0);
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset++, message.getKey(), message.getValue()));
+        }
+
+        JSONDatabase follower = new JSONDatabase(FOLLOWER.getPath());
+        ReplicaApplier applier = new ReplicaApplier(consumer, follower, 2, Duration.ofMillis(20));
+        applier.start();
+        waitFor(applier, 2);
+        assertEquals("After", follower.read("users", "New").get().company);
+
+        Map.Entry<String, String> message = eventCodec.toMessages(drop).get(0);
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 0, message.getKey(), message.getValue()));
+        waitFor(applier, 3);
+        applier.close();
+        applier.close();
+
+        assertEquals(3, applier.appliedCount());
+        assertNull(follower.read("users", "Old").get(), "The drop must delete the record written before it");
+        assertEquals("After", follower.read("users", "New").get().company, "The drop must keep the newer record");
+        assertTrue(consumer.closed());
+        follower.shutdown();
+    }
+}
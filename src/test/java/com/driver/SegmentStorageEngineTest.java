@@ -0,0 +1,144 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Unit test class for SegmentStorageEngine.
+ * Covers reads after overwrites and deletes, recovery on reopen, hint files and compaction of dead segments.
+ */
+public class SegmentStorageEngineTest {
+    private static final File DIRECTORY = new File("./test_database/segment_test");
+
+    @BeforeEach
+    public void clean() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that the latest write wins, deletes are honored and the key directory is rebuilt on reopen.
+     */
+    @Test
+    public void testRecoveryAfterReopen() throws IOException {
+        SegmentStorageEngine engine = new SegmentStorageEngine(DIRECTORY, 4096, 0.5, 60_000);
+        engine.write("users", "Alice", bytes("v1"));
+        engine.write("users", "Alice", bytes("v2"));
+        engine.write("users", "Bob", bytes("b"));
+        engine.delete("users", "Bob");
+        assertEquals("v2", new String(engine.read("users", "Alice"), StandardCharsets.UTF_8));
+        assertNull(engine.read("users", "Bob"));
+        engine.close();
+
+        SegmentStorageEngine reopened = new SegmentStorageEngine(DIRECTORY, 4096, 0.5, 60_000);
+        assertEquals("v2", new String(reopened.read("users", "Alice"), StandardCharsets.UTF_8));
+        assertNull(reopened.read("users", "Bob"));
+        assertEquals(1, reopened.listResources("users").size());
+        reopened.close();
+    }
+
+    /**
+     * Tests that overwritten segments are compacted away while every live record stays readable.
+     */
+    @Test
+    public void testCompactionReclaimsDeadSegments() throws Exception {
+        SegmentStorageEngine engine = new SegmentStorageEngine(DIRECTORY, 1024, 0.5, 50);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                engine.write("users", "user" + i, bytes("round" + round + "-user" + i));
+            }
+        }
+        File collectionDir = new File(DIRECTORY, "users");
+        int segmentsBefore = Objects.requireNonNull(collectionDir.listFiles()).length;
+
+        Thread.sleep(500);
+
+        int segmentsAfter = Objects.requireNonNull(collectionDir.listFiles()).length;
+        assertTrue(segmentsAfter < segmentsBefore, "Compaction should delete segments: " + segmentsBefore + " -> " + segmentsAfter);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("round19-user" + i, new String(engine.read("users", "user" + i), StandardCharsets.UTF_8));
+        }
+        engine.close();
+
+        SegmentStorageEngine reopened = new SegmentStorageEngine(DIRECTORY, 1024, 0.5, 60_000);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("round19-user" + i, new String(reopened.read("users", "user" + i), StandardCharsets.UTF_8));
+        }
+        reopened.close();
+    }
+
+    /**
+     * Tests that segments of tombstones hiding older records are left alone rather than compacted over and over,
+     * and that the deletes still hold after a reopen.
+     */
+    @Test
+    public void testTombstonesAreNotRecompacted() throws Exception {
+        SegmentStorageEngine engine = new SegmentStorageEngine(DIRECTORY, 256, 0.5, 20);
+        for (int i = 0; i < 60; i++) {
+            engine.write("users", "user" + (10 + i), bytes("value-" + i));
+        }
+        for (int i = 0; i < 60; i += 3) {
+            engine.delete("users", "user" + (10 + i));
+        }
+        File collectionDir = new File(DIRECTORY, "users");
+        Thread.sleep(200);
+        Set<String> settled = new TreeSet<>(Arrays.asList(Objects.requireNonNull(collectionDir.list())));
+        Thread.sleep(300);
+        assertEquals(settled, new TreeSet<>(Arrays.asList(Objects.requireNonNull(collectionDir.list()))));
+        engine.close();
+
+        SegmentStorageEngine reopened = new SegmentStorageEngine(DIRECTORY, 256, 0.5, 60_000);
+        assertEquals(40, reopened.listResources("users").size());
+        assertNull(reopened.read("users", "user10"));
+        assertEquals("value-1", new String(reopened.read("users", "user11"), StandardCharsets.UTF_8));
+        reopened.close();
+    }
+
+    /**
+     * Tests that sealed segments get hint files, that reopening from them restores the key directory,
+     * and that a damaged hint falls back to scanning its segment.
+     */
+    @Test
+    public void testHintFilesRestoreKeyDirectory() throws IOException {
+        SegmentStorageEngine engine = new SegmentStorageEngine(DIRECTORY, 256, 0.5, 60_000);
+        for (int i = 0; i < 40; i++) {
+            engine.write("users", "user" + i, bytes("value-" + i));
+        }
+        engine.write("users", "user1", bytes("updated"));
+        engine.delete("users", "user2");
+        engine.close();
+
+        File collectionDir = new File(DIRECTORY, "users");
+        File[] hints = Objects.requireNonNull(collectionDir.listFiles((dir, name) -> name.endsWith(".hint")));
+        assertTrue(hints.length > 1, "Sealed segments should have hint files");
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            SegmentStorageEngine reopened = new SegmentStorageEngine(DIRECTORY, 256, 0.5, 60_000);
+            assertEquals("updated", new String(reopened.read("users", "user1"), StandardCharsets.UTF_8));
+            assertNull(reopened.read("users", "user2"));
+            assertEquals("value-0", new String(reopened.read("users", "user0"), StandardCharsets.UTF_8));
+            assertEquals("value-39", new String(reopened.read("users", "user39"), StandardCharsets.UTF_8));
+            assertEquals(39, reopened.listResources("users").size());
+            reopened.close();
+            // The second round reopens with a damaged hint file.
+            Files.write(hints[0].toPath(), bytes("not a hint"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Unit test class for ShardedStorageEngine and PartitionedRecordCache.
+ * Covers hash routing across shard directories, fan-out of whole-collection operations, and shard stamps.
+ */
+public class ShardingTest {
+    private static final File DIRECTORY = new File("./test_database/sharding_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static String[] shardDirectories(int count) {
+        String[] directories = new String[count];
+        for (int i = 0; i < count; i++) {
+            directories[i] = new File(DIRECTORY, "disk" + i).getPath();
+        }
+        return directories;
+    }
+
+    private static Map<String, User> users(int count) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = "user" + i;
+            users.put(name, new User(name, String.valueOf(20 + i % 10), "5550000000", "Initech",
+                    new Address(i % 2 == 0 ? "Austin" : "Boston", "Texas", "USA", "73301")));
+        }
+        return users;
+    }
+
+    /**
+     * Tests that records are spread over every shard by hash and that listing, reading and dropping span all shards.
+     */
+    @Test
+    public void testRecordsAreHashPartitioned() throws Exception {
+        DatabaseConfig config = new DatabaseConfig().shardDirectories(shardDirectories(3));
+        JSONDatabase db = new JSONDatabase(new File(DIRECTORY, "main").getPath(), config);
+        db.insertAll("users", users(60)).get();
+        db.insertOrUpdate("users", "extra", users(1).get("user0")).get();
+        assertEquals(61, db.cacheStats().getSize());
+        assertEquals(61, db.readAll("users").get().size());
+        AggregationResult result = db.aggregate("users", new Aggregation().groupBy("address.city")).get();
+        assertEquals(61, result.total().count());
+        db.shutdown();
+
+        // The write-ahead log is checkpointed on shutdown, so every record is in its shard now.
+        int total = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            File collection = new File(new File(DIRECTORY, "disk" + shard), "users");
+            String[] files = Objects.requireNonNull(collection.list());
+            assertTrue(files.length > 0, "shard " + shard + " is empty");
+            for (String file : files) {
+                String resource = file.substring(0, file.length() - ".json".length());
+                assertEquals(shard, ShardedStorageEngine.shardOf(resource, 3));
+            }
+            total += files.length;
+        }
+        assertEquals(61, total);
+
+        db = new JSONDatabase(new File(DIRECTORY, "main").getPath(), config);
+        assertEquals("user7", db.read("users", "user7").get().name);
+        db.delete("users", "").get();
+        assertTrue(db.readAll("users").get().isEmpty());
+        db.shutdown();
+    }
+
+    /**
+     * Tests sharded segment storage, and that reopening the shards with a different count is refused.
+     */
+    @Test
+    public void testSegmentShardsAndStampCheck() throws Exception {
+        DatabaseConfig config = new DatabaseConfig().storageType(StorageEngine.Type.SEGMENT)
+                .shardDirectories(shardDirectories(2));
+        JSONDatabase db = new JSONDatabase(new File(DIRECTORY, "main").getPath(), config);
+        db.insertAll("users", users(20)).get();
+        db.deleteAll("users", Arrays.asList("user3", "user4")).get();
+        db.shutdown();
+
+        db = new JSONDatabase(new File(DIRECTORY, "main").getPath(), config);
+        assertEquals(18, db.readAll("users").get().size());
+        assertNull(db.read("users", "user3").get());
+        db.shutdown();
+
+        DatabaseConfig resized = new DatabaseConfig().storageType(StorageEngine.Type.SEGMENT)
+                .shardDirectories(shardDirectories(3));
+        assertThrows(UncheckedIOException.class, () -> new JSONDatabase(new File(DIRECTORY, "main").getPath(), resized));
+    }
+}
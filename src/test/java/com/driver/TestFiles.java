@@ -0,0 +1,22 @@
+package com.driver;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * File helpers shared by the tests.
+ */
+final class TestFiles {
+    private TestFiles() {
+    }
+
+    /**
+     * Deletes a file or a directory with everything under it; a missing file is ignored.
+     */
+    static void deleteRecursively(File file) {
+        if (file.isDirectory()) {
+            for (File child : Objects.requireNonNull(file.listFiles())) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,71 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Unit test class for TinyLfuCache.
+ * Covers the size bound, frequency-based admission, collection isolation, expiry and statistics.
+ */
+public class TinyLfuCacheTest {
+
+    /**
+     * Tests that the cache never holds more than its maximum size and that frequently read entries survive a scan.
+     */
+    @Test
+    public void testBoundedAndScanResistant() {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(100, 0);
+        for (int i = 0; i < 50; i++) {
+            cache.put("users", "hot" + i, "v" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("users", "hot" + i);
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("users", "cold" + i, "v" + i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        int hotSurvivors = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("users", "hot" + i) != null) {
+                hotSurvivors++;
+            }
+        }
+        assertTrue(hotSurvivors >= 40, "Frequently read entries should survive a one-off scan, kept " + hotSurvivors);
+        assertTrue(cache.stats().getEvictionCount() >= 9_950);
+    }
+
+    /**
+     * Tests that equal resource names in different collections do not collide.
+     */
+    @Test
+    public void testCollectionIsolation() {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(10, 0);
+        cache.put("users", "Alice", "user");
+        cache.put("admins", "Alice", "admin");
+        cache.invalidateCollection("admins");
+
+        assertEquals("user", cache.get("users", "Alice"));
+        assertNull(cache.get("admins", "Alice"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    /**
+     * Tests expire-after-write.
+     */
+    @Test
+    public void testExpireAfterWrite() throws InterruptedException {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(10, 20);
+        cache.put("users", "Alice", "v1");
+        assertEquals("v1", cache.get("users", "Alice"));
+        Thread.sleep(40);
+        assertNull(cache.get("users", "Alice"));
+        assertEquals(0, cache.size());
+    }
+}
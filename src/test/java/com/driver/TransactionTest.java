@@ -0,0 +1,105 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Unit test class for Transaction.
+ * Covers snapshot reads, read-your-writes, first-committer-wins conflicts and concurrent commits.
+ */
+public class TransactionTest {
+    private static final File DIRECTORY = new File("./test_database/transaction_test");
+    private JSONDatabase db;
+
+    @BeforeEach
+    public void setUp() {
+        db = new JSONDatabase(DIRECTORY.getPath());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        db.shutdown();
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static User user(String name, String company) {
+        return new User(name, "30", "5550000000", company, new Address("Oslo", "Oslo", "Norway", "0150"));
+    }
+
+    /**
+     * Tests that a transaction keeps reading the versions it started with while others write,
+     * and sees its own buffered writes.
+     */
+    @Test
+    public void testSnapshotReadsAndOwnWrites() throws Exception {
+        db.insertOrUpdate("users", "Ann", user("Ann", "Initech")).get();
+        db.insertOrUpdate("users", "Bob", user("Bob", "Initech")).get();
+
+        try (Transaction transaction = db.begin()) {
+            db.insertOrUpdate("users", "Ann", user("Ann", "Globex")).get();
+            db.delete("users", "Bob").get();
+            db.insertOrUpdate("users", "Cid", user("Cid", "Globex")).get();
+
+            assertEquals("Initech", transaction.read("users", "Ann").get().company);
+            assertEquals("Initech", transaction.read("users", "Bob").get().company);
+            assertNull(transaction.read("users", "Cid").get());
+
+            transaction.insertOrUpdate("users", "Dee", user("Dee", "Hooli"));
+            transaction.delete("users", "Ann");
+            assertEquals("Hooli", transaction.read("users", "Dee").get().company);
+            assertNull(transaction.read("users", "Ann").get());
+            assertNull(db.read("users", "Dee").get());
+        }
+        assertEquals("Globex", db.read("users", "Ann").get().company);
+    }
+
+    /**
+     * Tests that of two transactions writing the same record only the first to commit succeeds,
+     * and that the loser's writes are not applied.
+     */
+    @Test
+    public void testFirstCommitterWins() throws Exception {
+        db.insertOrUpdate("users", "Ann", user("Ann", "Initech")).get();
+
+        Transaction first = db.begin();
+        Transaction second = db.begin();
+        first.insertOrUpdate("users", "Ann", user("Ann", "Globex"));
+        second.insertOrUpdate("users", "Ann", user("Ann", "Hooli"));
+        second.insertOrUpdate("users", "Eve", user("Eve", "Hooli"));
+        first.commit().get();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> second.commit().get());
+        assertTrue(failure.getCause() instanceof TransactionConflictException);
+        assertEquals("users/Ann", ((TransactionConflictException) failure.getCause()).getKey());
+        assertEquals("Globex", db.read("users", "Ann").get().company);
+        assertNull(db.read("users", "Eve").get());
+        assertFalse(second.isActive());
+    }
+
+    /**
+     * Tests that many transactions writing different records commit concurrently, each atomically.
+     */
+    @Test
+    public void testConcurrentCommits() throws Exception {
+        List<Future<Void>> commits = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Transaction transaction = db.begin();
+            transaction.insertOrUpdate("users", "A" + t, user("A" + t, "Pair" + t));
+            transaction.insertOrUpdate("orders", "B" + t, user("B" + t, "Pair" + t));
+            commits.add(transaction.commit());
+        }
+        for (Future<Void> commit : commits) {
+            commit.get();
+        }
+        for (int t = 0; t < 16; t++) {
+            assertEquals("Pair" + t, db.read("users", "A" + t).get().company);
+            assertEquals("Pair" + t, db.read("orders", "B" + t).get().company);
+        }
+    }
+}
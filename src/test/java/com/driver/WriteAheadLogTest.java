@@ -0,0 +1,142 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Unit test class for WriteAheadLog.
+ * Covers group commit, background materialization and crash replay without a running database.
+ */
+public class WriteAheadLogTest {
+    private static final File LOG_FILE = new File("./test_database/wal_test/wal.log");
+
+    /**
+     * Records applied entries in memory instead of writing record files.
+     */
+    private static class RecordingApplier implements WriteAheadLog.Applier {
+        final Map<String, String> records = new ConcurrentHashMap<>();
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void apply(WriteAheadLog.Entry entry) {
+            applied.add(entry.collection + "/" + entry.resource);
+            if (entry.op == WriteAheadLog.PUT) {
+                records.put(entry.resource, new String(entry.payload, StandardCharsets.UTF_8));
+            } else {
+                records.remove(entry.resource);
+            }
+        }
+
+        @Override
+        public void sync() {}
+    }
+
+    @BeforeEach
+    public void clean() {
+        LOG_FILE.delete();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        LOG_FILE.delete();
+        LOG_FILE.getParentFile().delete();
+    }
+
+    /**
+     * Tests that concurrent appends all become durable and are materialized, with the latest value winning.
+     */
+    @Test
+    public void testGroupCommitMaterializesLatestValue() throws Exception {
+        RecordingApplier applier = new RecordingApplier();
+        WriteAheadLog wal = new WriteAheadLog(LOG_FILE, new DatabaseConfig().walMaxBatchDelayMicros(500), applier);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int n = i;
+            futures.add(pool.submit(() -> wal.append(WriteAheadLog.Entry.put("users", "user" + (n % 10),
+                    ("v" + n).getBytes(StandardCharsets.UTF_8))).get()));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        WriteAheadLog.Entry last = wal.lookup("users", "user9");
+        wal.close();
+
+        assertEquals(10, applier.records.size());
+        assertTrue(last == null || last.op == WriteAheadLog.PUT);
+        assertEquals(0, LOG_FILE.length(), "A clean close should leave an empty log");
+    }
+
+    /**
+     * Tests that complete frames are replayed on startup and a torn tail is ignored.
+     */
+    @Test
+    public void testReplayStopsAtTornFrame() throws IOException {
+        LOG_FILE.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(LOG_FILE)) {
+            out.write(WriteAheadLog.encodeFrame(Collections.singletonList(
+                    WriteAheadLog.Entry.put("users", "Alice", "a".getBytes(StandardCharsets.UTF_8)))));
+            out.write(WriteAheadLog.encodeFrame(Arrays.asList(
+                    WriteAheadLog.Entry.put("users", "Bob", "b".getBytes(StandardCharsets.UTF_8)),
+                    WriteAheadLog.Entry.delete("users", "Alice"))));
+            byte[] torn = WriteAheadLog.encodeFrame(Collections.singletonList(
+                    WriteAheadLog.Entry.put("users", "Carol", "c".getBytes(StandardCharsets.UTF_8))));
+            out.write(torn, 0, torn.length - 3);
+        }
+
+        RecordingApplier applier = new RecordingApplier();
+        WriteAheadLog wal = new WriteAheadLog(LOG_FILE, new DatabaseConfig(), applier);
+        wal.close();
+
+        assertEquals(Collections.singletonMap("Bob", "b"), applier.records);
+        assertEquals(Arrays.asList("users/Alice", "users/Bob", "users/Alice"), applier.applied);
+    }
+
+    /**
+     * Tests that an entry that failed to materialize keeps the log from being checkpointed,
+     * so it is replayed when the log is reopened.
+     */
+    @Test
+    public void testFailedEntryIsReplayedAfterCheckpoint() throws Exception {
+        RecordingApplier recorder = new RecordingApplier();
+        WriteAheadLog.Applier failing = new WriteAheadLog.Applier() {
+            @Override
+            public void apply(WriteAheadLog.Entry entry) throws IOException {
+                if (entry.resource.equals("broken")) {
+                    throw new IOException("Disk full");
+                }
+                recorder.apply(entry);
+            }
+
+            @Override
+            public void sync() {}
+        };
+        WriteAheadLog wal = new WriteAheadLog(LOG_FILE, new DatabaseConfig().walCheckpointBytes(1), failing);
+        wal.append(WriteAheadLog.Entry.put("users", "broken", "b".getBytes(StandardCharsets.UTF_8))).get();
+        for (int i = 0; i < 20; i++) {
+            wal.append(WriteAheadLog.Entry.put("users", "ok" + i, "v".getBytes(StandardCharsets.UTF_8))).get();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (recorder.applied.size() <= i && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        assertEquals(20, recorder.applied.size());
+        assertNotNull(wal.lookup("users", "broken"));
+        assertTrue(LOG_FILE.length() > 0, "A checkpoint must not drop an unmaterialized entry");
+        wal.close();
+
+        RecordingApplier replayed = new RecordingApplier();
+        new WriteAheadLog(LOG_FILE, new DatabaseConfig(), replayed).close();
+        assertEquals("b", replayed.records.get("broken"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.driver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Unit test class for write-behind mode.
+ * Covers coalescing of repeated writes in the write-ahead log, flush and sync barriers, and ordered shutdown.
+ */
+public class WriteBehindTest {
+    private static final File DIRECTORY = new File("./test_database/write_behind_test");
+
+    @AfterEach
+    public void tearDown() {
+        TestFiles.deleteRecursively(DIRECTORY);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records applied entries in memory instead of writing record files.
+     */
+    private static class RecordingApplier implements WriteAheadLog.Applier {
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        volatile int syncs;
+
+        @Override
+        public void apply(WriteAheadLog.Entry entry) {
+            applied.add(entry.key() + (entry.payload != null ? "=" + new String(entry.payload, StandardCharsets.UTF_8) : ""));
+        }
+
+        @Override
+        public void sync() {
+            syncs++;
+        }
+    }
+
+    /**
+     * Tests that repeated writes to a record are logged once, in the order of the latest writes,
+     * and that a drop discards the collection's earlier dirty writes.
+     */
+    @Test
+    public void testDirtySetCoalescesWrites() throws Exception {
+        RecordingApplier applier = new RecordingApplier();
+        WriteAheadLog wal = new WriteAheadLog(new File(DIRECTORY, "wal.log"),
+                new DatabaseConfig().writeBehindIntervalMillis(60_000), applier);
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<Void> written = wal.append(WriteAheadLog.Entry.put("users", "user" + (i % 2), bytes("v" + i)));
+            assertTrue(written.isDone());
+        }
+        assertEquals("v99", new String(wal.lookup("users", "user1").payload, StandardCharsets.UTF_8));
+        assertEquals(2, wal.dirtyCount());
+        assertEquals(98, wal.coalescedCount());
+        assertTrue(applier.applied.isEmpty());
+
+        wal.sync().get();
+        assertEquals(0, wal.dirtyCount());
+        assertEquals(1, applier.syncs);
+        assertEquals(2, applier.applied.size());
+        assertTrue(applier.applied.contains("users/user0=v98"));
+        assertTrue(applier.applied.contains("users/user1=v99"));
+
+        applier.applied.clear();
+        wal.append(WriteAheadLog.Entry.put("users", "x", bytes("x")));
+        wal.append(WriteAheadLog.Entry.put("orders", "o1", bytes("o")));
+        wal.append(WriteAheadLog.Entry.dropCollection("users"));
+        wal.append(WriteAheadLog.Entry.put("users", "y", bytes("y")));
+        wal.close();
+        assertEquals(Arrays.asList("orders/o1=o", "users/", "users/y=y"), applier.applied);
+    }
+
+    /**
+     * Tests that the dirty set is logged without waiting for the interval once it reaches its threshold.
+     */
+    @Test
+    public void testDirtyThresholdTriggersFlush() throws Exception {
+        RecordingApplier applier = new RecordingApplier();
+        WriteAheadLog wal = new WriteAheadLog(new File(DIRECTORY, "wal.log"),
+                new DatabaseConfig().writeBehindIntervalMillis(60_000).writeBehindMaxDirty(5), applier);
+        for (int i = 0; i < 5; i++) {
+            wal.append(WriteAheadLog.Entry.put("users", "user" + i, bytes("v" + i)));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (applier.applied.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, applier.applied.size());
+        wal.close();
+    }
+
+    /**
+     * Tests that a write-behind database serves its dirty writes, and that flush, sync and shutdown persist
+     * only the latest version of each record.
+     */
+    @Test
+    public void testWriteBehindDatabase() throws Exception {
+        DatabaseConfig config = new DatabaseConfig().writeBehindIntervalMillis(60_000);
+        JSONDatabase db = new JSONDatabase(DIRECTORY.getPath(), config);
+        for (int i = 0; i < 50; i++) {
+            db.insertOrUpdate("users", "hot", new User("hot", String.valueOf(i), "5550000000", "Initech",
+                    new Address("Austin", "Texas", "USA", "73301"))).get();
+        }
+        assertEquals("49", db.read("users", "hot", "age").get().get("age"));
+        assertEquals(1, db.readAll("users").get().size());
+        assertEquals(49L, ((Number) db.metrics().snapshot().get("wal.coalesced")).longValue());
+
+        db.flush().get();
+        assertTrue(new File(DIRECTORY, "wal.log").length() > 0);
+        db.sync().get();
+        assertTrue(new File(DIRECTORY, "users/hot.json").exists());
+
+        db.insertOrUpdate("users", "late", new User("late", "30", "5550000000", "Initech",
+                new Address("Austin", "Texas", "USA", "73301"))).get();
+        db.delete("users", "hot").get();
+        db.shutdown();
+
+        db = new JSONDatabase(DIRECTORY.getPath());
+        assertNull(db.read("users", "hot").get());
+        assertEquals("30", db.read("users", "late").get().age);
+        db.shutdown();
+    }
+}